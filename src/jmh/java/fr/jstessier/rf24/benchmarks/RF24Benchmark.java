@@ -0,0 +1,106 @@
+package fr.jstessier.rf24.benchmarks;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.SpiCommands;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * Benchmarks of the RF24 driver hot paths against an in-memory hardware.
+ * Run with the gc profiler to get the allocation rate : java -jar target/jmh/rf24-*-benchmarks.jar -prof gc
+ * 
+ * @author J.S. TESSIER
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RF24Benchmark {
+
+	private RF24 rf24;
+
+	private byte[] payload;
+
+	private byte[] destination;
+
+	private byte configValue;
+
+	@Setup
+	public void setUp() throws RF24Exception {
+		rf24 = new RF24(new RF24HardwareStub()).initialize();
+		rf24.openWritingPipe(new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 });
+		payload = new byte[32];
+		destination = new byte[32];
+		configValue = rf24.readRegisterValue(Registers.CONFIG);
+	}
+
+	@Benchmark
+	public byte[] sendSpiCommand() throws RF24Exception {
+		return rf24.sendSpiCommand(SpiCommands.NOP);
+	}
+
+	@Benchmark
+	public byte readRegisterValueCached() throws RF24Exception {
+		return rf24.readRegisterValue(Registers.CONFIG);
+	}
+
+	@Benchmark
+	public byte readRegisterValueVolatile() throws RF24Exception {
+		return rf24.readRegisterValue(Registers.FIFO_STATUS);
+	}
+
+	@Benchmark
+	public byte writeRegisterValue() throws RF24Exception {
+		return rf24.writeRegisterValue(Registers.CONFIG, configValue);
+	}
+
+	@Benchmark
+	public void sendPayload() throws RF24Exception {
+		rf24.sendPayload(payload);
+	}
+
+	@Benchmark
+	public byte[] readPayload() throws RF24Exception {
+		return rf24.readPayload((byte) 32);
+	}
+
+	@Benchmark
+	public byte readPayloadInPlace() throws RF24Exception {
+		return rf24.readPayload(destination, 0, destination.length);
+	}
+
+}
@@ -0,0 +1,99 @@
+package fr.jstessier.rf24.benchmarks;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.RegistersCache;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.hardware.RF24Hardware;
+
+/**
+ * In-memory hardware for the benchmarks : the cost of the SPI bus is removed to measure only the driver.
+ * 
+ * A register map behind R_REGISTER / W_REGISTER, a transmission ends immediately with TX_DS when CE goes high,
+ * the RX FIFO always contains a 32 bytes payload on pipe 1. The transfers are done in place, without allocation.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24HardwareStub implements RF24Hardware {
+
+	/** Address of the CONFIG register. */
+	private static final int CONFIG = 0x00;
+
+	/** Address of the STATUS register. */
+	private static final int STATUS = 0x07;
+
+	/** TX_DS bit of the STATUS register. */
+	private static final int TX_DS = 0b00100000;
+
+	/** STATUS with RX_P_NO on pipe 1 (a payload is always available). */
+	private static final int STATUS_RX_P1 = 0b00000010;
+
+	/** The register map. */
+	private final byte[][] registers = new byte[RegistersCache.REGISTERS_COUNT][RegistersCache.REGISTER_MAX_LENGTH];
+
+	public RF24HardwareStub() {
+		registers[STATUS][0] = STATUS_RX_P1;
+	}
+
+	@Override
+	public void setPinChipEnableHigh() {
+		boolean primaryRx = (registers[CONFIG][0] & 1) != 0;
+		if (!primaryRx) {
+			registers[STATUS][0] |= TX_DS;
+		}
+	}
+
+	@Override
+	public void setPinChipEnableLow() {
+		// Nothing to do
+	}
+
+	@Override
+	public byte[] spiWrite(byte... data) throws RF24Exception {
+		byte[] buffer = data.clone();
+		spiTransfer(buffer, 0, buffer.length);
+		return buffer;
+	}
+
+	@Override
+	public void spiTransfer(byte[] buffer, int offset, int length) throws RF24Exception {
+		int command = buffer[offset] & 0xFF;
+		buffer[offset] = registers[STATUS][0];
+		if ((command & 0b11100000) == 0b00000000) {
+			// R_REGISTER
+			byte[] register = registers[command & 0b00011111];
+			for (int i = 1; i < length; i++) {
+				buffer[offset + i] = register[(i - 1) % RegistersCache.REGISTER_MAX_LENGTH];
+			}
+		} else if ((command & 0b11100000) == 0b00100000) {
+			// W_REGISTER
+			int address = command & 0b00011111;
+			if (address == STATUS) {
+				registers[STATUS][0] &= ~(buffer[offset + 1] & 0b01110000);
+			} else {
+				System.arraycopy(buffer, offset + 1, registers[address], 0, Math.min(length - 1, RegistersCache.REGISTER_MAX_LENGTH));
+			}
+		} else if (command == 0b01100000 && length > 1) {
+			// R_RX_PL_WID
+			buffer[offset + 1] = 32;
+		}
+	}
+
+}
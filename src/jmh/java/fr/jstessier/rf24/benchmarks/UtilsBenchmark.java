@@ -0,0 +1,75 @@
+package fr.jstessier.rf24.benchmarks;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.SpiCommands;
+import fr.jstessier.rf24.utils.BytesUtils;
+import fr.jstessier.rf24.utils.RegistersUtils;
+import fr.jstessier.rf24.utils.SpiCommandsUtils;
+
+/**
+ * Benchmarks of the utilities used on each packet.
+ * 
+ * @author J.S. TESSIER
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+
+	private byte registerValue = Registers.CONFIG.getResetValue();
+
+	private boolean bitValue = true;
+
+	private byte[] payload = new byte[32];
+
+	@Benchmark
+	public byte updateRegisterBits() {
+		return RegistersUtils.updateRegisterBits(registerValue, Registers.CONFIG.PWR_UP, bitValue);
+	}
+
+	@Benchmark
+	public String bytesToHex() {
+		return BytesUtils.bytesToHex(payload);
+	}
+
+	@Benchmark
+	public byte[] checkDataLength() {
+		SpiCommandsUtils.checkDataLength(SpiCommands.W_TX_PAYLOAD, payload);
+		return payload;
+	}
+
+}
@@ -0,0 +1,204 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.RF24RuntimeException;
+import fr.jstessier.rf24.utils.RegistersUtils;
+
+/**
+ * Outgoing channel of a receiver (PRX) : the responses are sent in the acknowledgment payloads.
+ * 
+ * The responses are queued by data pipe from any thread with {@link #offer(DataPipe, byte[])}. The channel is a
+ * {@link RxListener} of the {@link RF24RadioLoop} that owns the RF24 instance : after each received payload the TX FIFO
+ * is loaded again from the queues, so the next requests are acknowledged with a response without waiting for
+ * the radio thread.
+ * 
+ * The TX FIFO has 3 levels shared by all the data pipes : the data pipes are loaded in turn, one response at a time,
+ * while the TX_FULL flag of the STATUS register is not set. The occupancy of the TX FIFO is read from the module
+ * (not counted) : an acknowledgment payload may be sent without a received payload (acknowledgment of a
+ * retransmitted packet) and several payloads may be read in one batch.
+ * The responses are sent in the order of the queue of each data pipe, the response of a request is sent in the
+ * acknowledgment of a next request of the same data pipe.
+ * 
+ * @author J.S. TESSIER
+ */
+public class AckPayloadChannel implements RxListener {
+
+	/** Default capacity of the queue of each data pipe. */
+	public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+	private static final int PIPES_COUNT = DataPipe.values().length;
+
+	/** The RF24 instance (in RX mode, used on the radio thread only). */
+	private final RF24 rf24;
+
+	/** The maximum number of responses waiting in the queue of each data pipe. */
+	private final int queueCapacity;
+
+	/** The responses waiting for each data pipe (by index). */
+	@SuppressWarnings("unchecked")
+	private final Queue<byte[]>[] queues = new Queue[PIPES_COUNT];
+
+	/** The number of responses in the queue of each data pipe (by index). */
+	private final AtomicInteger[] queueSizes = new AtomicInteger[PIPES_COUNT];
+
+	/** The data pipe loaded first by the next refill. */
+	private int nextPipeIndex = 0;
+
+	/** Number of responses loaded in the TX FIFO. */
+	private volatile long loadedResponsesCount = 0;
+
+	/**
+	 * Constructor with the default queue capacity.
+	 * 
+	 * @param rf24	The RF24 instance (in RX mode).
+	 */
+	public AckPayloadChannel(RF24 rf24) {
+		this(rf24, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24			The RF24 instance (in RX mode).
+	 * @param queueCapacity	The maximum number of responses waiting for each data pipe.
+	 */
+	public AckPayloadChannel(RF24 rf24, int queueCapacity) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("queueCapacity must be positive");
+		}
+		this.rf24 = rf24;
+		this.queueCapacity = queueCapacity;
+		for (int i = 0; i < PIPES_COUNT; i++) {
+			queues[i] = new ConcurrentLinkedQueue<>();
+			queueSizes[i] = new AtomicInteger();
+		}
+	}
+
+	/* ======================
+	 * Producers (any thread)
+	 * ====================== */
+
+	/**
+	 * Queue a response for the next acknowledgments of a data pipe.
+	 * The response is loaded in the TX FIFO by the radio thread on the next received payload or {@link #refill()}.
+	 * 
+	 * @param dataPipe	The data pipe.
+	 * @param response	The response (1 to 32 bytes), copied.
+	 * @return	False if the queue of the data pipe is full.
+	 */
+	public boolean offer(DataPipe dataPipe, byte[] response) {
+		if (dataPipe == null) {
+			throw new IllegalArgumentException("dataPipe is mandatory");
+		}
+		if (response == null || response.length == 0 || response.length > RF24.MAX_PAYLOAD_SIZE) {
+			throw new IllegalArgumentException("response must have a length between 1 and " + RF24.MAX_PAYLOAD_SIZE);
+		}
+		final AtomicInteger queueSize = queueSizes[dataPipe.getIndex()];
+		if (queueSize.incrementAndGet() > queueCapacity) {
+			queueSize.decrementAndGet();
+			return false;
+		}
+		queues[dataPipe.getIndex()].offer(response.clone());
+		return true;
+	}
+
+	/* ============
+	 * Radio thread
+	 * ============ */
+
+	/**
+	 * {@inheritDoc}
+	 * A communication error while loading the TX FIFO is thrown as a {@link RF24RuntimeException} : the radio loop
+	 * publishes it to the onError of its listeners.
+	 */
+	@Override
+	public void onReceived(RxPacket packet) {
+		try {
+			refill();
+		} catch (RF24Exception e) {
+			throw new RF24RuntimeException("Failed to load the acknowledgment payloads", e);
+		}
+	}
+
+	/**
+	 * Load the TX FIFO with the queued responses, the data pipes in turn, until the TX FIFO is full.
+	 * The STATUS register is read before each response (the STATUS clocked out by a write is the one before the write).
+	 * Must be invoked on the radio thread (for example with {@link RF24RadioLoop#submit(RadioCommand)}).
+	 * 
+	 * @return	The number of responses loaded.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public int refill() throws RF24Exception {
+		int count = 0;
+		int emptyPipes = 0;
+		while (emptyPipes < PIPES_COUNT) {
+			final int pipeIndex = nextPipeIndex;
+			if (queues[pipeIndex].peek() == null) {
+				nextPipeIndex = (nextPipeIndex + 1) % PIPES_COUNT;
+				emptyPipes++;
+				continue;
+			}
+			if (RegistersUtils.bitIsTrue(rf24.getStatus(), Registers.STATUS.TX_FULL)) {
+				break;
+			}
+			nextPipeIndex = (nextPipeIndex + 1) % PIPES_COUNT;
+			emptyPipes = 0;
+			final byte[] response = queues[pipeIndex].poll();
+			queueSizes[pipeIndex].decrementAndGet();
+			rf24.writeAckPayload(DataPipe.getFromIndex((byte) pipeIndex), response, 0, response.length);
+			loadedResponsesCount++;
+			count++;
+		}
+		return count;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	/**
+	 * Return the number of responses waiting in the queue of a data pipe (not loaded in the TX FIFO).
+	 * 
+	 * @param dataPipe	The data pipe.
+	 * @return	The number of responses.
+	 */
+	public int getQueuedResponsesCount(DataPipe dataPipe) {
+		return queueSizes[dataPipe.getIndex()].get();
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public long getLoadedResponsesCount() {
+		return loadedResponsesCount;
+	}
+
+}
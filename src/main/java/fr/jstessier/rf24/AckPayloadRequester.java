@@ -0,0 +1,133 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadException;
+
+/**
+ * Requesting side (PTX) of an {@link AckPayloadChannel} : each request is sent with acknowledgment and the
+ * response loaded by the receiver, if any, comes back in the acknowledgment payload.
+ * 
+ * The receiver loads its responses in advance, so a response is not the answer to the request that carried it
+ * but to a previous one : the responses are published to the listener as they arrive, without a second round trip.
+ * The FEATURE register is not read for each request : the acknowledgment payloads must be enabled.
+ * 
+ * A requester is not thread safe and must be used by the thread that owns the RF24 instance (in TX mode,
+ * with the writing pipe opened).
+ * 
+ * @author J.S. TESSIER
+ */
+public class AckPayloadRequester {
+
+	/** The RF24 instance (in TX mode). */
+	private final RF24 rf24;
+
+	/** The listener of the responses. */
+	private final RxListener responseListener;
+
+	/** The packet of the responses (reused). */
+	private final RxPacket response = new RxPacket();
+
+	/** Number of requests acknowledged. */
+	private long requestsCount = 0;
+
+	/** Number of responses received. */
+	private long responsesCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24				The RF24 instance (in TX mode).
+	 * @param responseListener	The listener of the responses (invoked on the thread of the requests).
+	 */
+	public AckPayloadRequester(RF24 rf24, RxListener responseListener) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		if (responseListener == null) {
+			throw new IllegalArgumentException("responseListener is mandatory");
+		}
+		this.rf24 = rf24;
+		this.responseListener = responseListener;
+	}
+
+	/**
+	 * Send a request and publish the response of the acknowledgment, if any.
+	 * A request not acknowledged is flushed from the TX FIFO.
+	 * 
+	 * @param request	The request (1 to 32 bytes).
+	 * @return	True if a response was received.
+	 * @throws WritePayloadException	If the request is not acknowledged.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public boolean send(byte[] request) throws RF24Exception {
+		if (request == null) {
+			throw new IllegalArgumentException("request is mandatory");
+		}
+		return send(request, 0, request.length);
+	}
+
+	/**
+	 * Send a request from a caller-owned buffer and publish the response of the acknowledgment, if any.
+	 * A request not acknowledged is flushed from the TX FIFO, so it is not sent again before the next request.
+	 * 
+	 * @param request	The buffer that contains the request.
+	 * @param offset	The offset of the request in the buffer.
+	 * @param length	The length of the request (1 to 32 bytes).
+	 * @return	True if a response was received.
+	 * @throws WritePayloadException	If the request is not acknowledged.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public boolean send(byte[] request, int offset, int length) throws RF24Exception {
+		final byte[] buffer = response.getPayloadBuffer();
+		final int responseLength;
+		try {
+			responseLength = rf24.sendPayloadAndReadAckPayload(request, offset, length, buffer);
+		} catch (WritePayloadException e) {
+			// The failed request must not be sent again with the next one
+			rf24.flushTx();
+			throw e;
+		}
+		requestsCount++;
+		if (responseLength == 0) {
+			return false;
+		}
+		// The acknowledgments are received on the data pipe 0
+		response.set(DataPipe.P0, buffer, 0, responseLength);
+		responsesCount++;
+		responseListener.onReceived(response);
+		return true;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public long getRequestsCount() {
+		return requestsCount;
+	}
+
+	public long getResponsesCount() {
+		return responsesCount;
+	}
+
+}
@@ -19,6 +19,10 @@ package fr.jstessier.rf24;
  * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
  */
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import fr.jstessier.rf24.Registers.Register;
 import fr.jstessier.rf24.Registers.RegisterBits;
 import fr.jstessier.rf24.Registers.RegisterByte;
 import fr.jstessier.rf24.Registers.RegisterByteWithBits;
@@ -31,11 +35,15 @@ import fr.jstessier.rf24.enums.DataRates;
 import fr.jstessier.rf24.enums.OutputPower;
 import fr.jstessier.rf24.enums.WritePayloadType;
 import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.RegistersCacheDivergenceException;
 import fr.jstessier.rf24.exceptions.RxFifoTooLargeException;
 import fr.jstessier.rf24.exceptions.WritePayloadException;
 import fr.jstessier.rf24.exceptions.WritePayloadMaxRetriesException;
 import fr.jstessier.rf24.exceptions.WritePayloadTimeoutException;
 import fr.jstessier.rf24.hardware.RF24Hardware;
+import fr.jstessier.rf24.capture.RF24Capture;
+import fr.jstessier.rf24.metrics.RF24Metrics;
+import fr.jstessier.rf24.metrics.TxOutcome;
 import fr.jstessier.rf24.utils.BytesUtils;
 import fr.jstessier.rf24.utils.RegistersUtils;
 import fr.jstessier.rf24.utils.SpiCommandsUtils;
@@ -56,6 +64,34 @@ public class RF24 {
 	/** Maximum RX FIFO buffer size. */
 	public static final byte MAX_RX_FIFO_SIZE = 32;
 
+	/** Delay to go from power down to standby mode (Tpd2stby) in microseconds. */
+	public static final int TPD2STBY_MICROSECONDS = 4500;
+
+	/** Delay to go from standby to TX or RX mode (Tstby2a) in microseconds. */
+	public static final int TSTBY2A_MICROSECONDS = 130;
+
+	/** Minimum CE high pulse to start a transmission (Thce) in microseconds. */
+	public static final int THCE_MICROSECONDS = 10;
+
+	/** Delay of the received power detector after the RX settling (Tdelay_AGC) in microseconds. */
+	public static final int TDELAY_AGC_MICROSECONDS = 40;
+
+	/** Mask of the TX_DS and MAX_RT flags in the STATUS register. */
+	private static final byte TX_INTERRUPTS_MASK = 0b00110000;
+
+	/** Commands that read or flush the RX FIFO after the STATUS register is clocked out. */
+	private static final byte R_RX_PAYLOAD_COMMAND = SpiCommandsUtils.getSpiCommand(SpiCommands.R_RX_PAYLOAD);
+	private static final byte FLUSH_RX_COMMAND = SpiCommandsUtils.getSpiCommand(SpiCommands.FLUSH_RX);
+
+	/** Command that reads the width of the payload at the top of the RX FIFO. */
+	private static final byte R_RX_PL_WID_COMMAND = SpiCommandsUtils.getSpiCommand(SpiCommands.R_RX_PL_WID);
+
+	/** Command that clears the interrupt flags after the STATUS register is clocked out. */
+	private static final byte W_STATUS_COMMAND = SpiCommandsUtils.getSpiCommand(SpiCommands.W_REGISTER, Registers.STATUS);
+
+	/** RX_DR bit of the STATUS register (written with 1 to clear it). */
+	private static final byte RX_INTERRUPT = 0b01000000;
+
 
 	/** Interface with hardware for communication with RF module (SPI and GPIO). */
 	private final RF24Hardware rf24Hardware;
@@ -66,6 +102,21 @@ public class RF24 {
 	/** Write Payload timeout in Millisecond. */
 	private int writePayloadTimeout = 60;
 
+	/** Serve the reads of the configuration registers from the cache. */
+	private boolean registersCacheEnabled = true;
+
+	/** Compare each read served by the cache with the value in the module. */
+	private boolean registersCacheVerification = false;
+
+	/** Sink of the outcomes of the transmissions (OBSERVE_TX is only read when a sink is set). */
+	private RF24Metrics metrics = RF24Metrics.NONE;
+
+	/** The capture of the transmitted and received payloads. */
+	private RF24Capture capture = RF24Capture.NONE;
+
+	/** Copy of a payload written from a buffer without array, for the capture. */
+	private final byte[] capturedTxPayload = new byte[MAX_PAYLOAD_SIZE];
+
 
 	// Internal state
 
@@ -78,6 +129,24 @@ public class RF24 {
 	/** RX address for data pipe 0. */
 	private byte[] rxAddressP0 = new byte[] { (byte) 0xE7, (byte) 0xE7, (byte) 0xE7, (byte) 0xE7, (byte) 0xE7 };
 
+	/** Write-through shadow copy of the configuration registers. */
+	private final RegistersCache registersCache = new RegistersCache();
+
+	/** Reusable buffer for the SPI transfers (command byte followed by the data). */
+	private final byte[] spiBuffer = new byte[MAX_PAYLOAD_SIZE + 1];
+
+	/** Reusable buffer for the batches of SPI transfers (a command with its data and a write of the STATUS register). */
+	private final byte[] batchBuffer = new byte[MAX_PAYLOAD_SIZE + 3];
+
+	/** Lengths of the transfers of a batch. */
+	private final int[] batchLengths = new int[2];
+
+	/** STATUS register value clocked out by the last SPI transfer. */
+	private byte lastStatus = 0;
+
+	/** True if the interrupt flags and RX_P_NO set in the last STATUS value are still true. */
+	private boolean lastStatusValid = false;
+
 
 	/* ============
 	 * Constructors
@@ -110,34 +179,42 @@ public class RF24 {
 	 */
 	public RF24 initialize() throws RF24Exception {
 
-		// Power down the module
-		powerDown();
-
-		// Reset CONFIG to default value.
-		writeRegisterValue(Registers.CONFIG, Registers.CONFIG.getResetValue());
-
-		// Enable 16-bits CRC
-		enableCRC2bytes();
+		// The module may have been reset since the last use
+		registersCache.invalidateAll();
 
-		// Set address length to 5 bytes (default value)
-		setAddressFieldWidth(AddressFieldWidth.WIDTH_5_BYTES);
-
-		// Set retransmit delay to 1500μS for working with all data rates with ACK
-		// Set number of retry to 15
-		setRetries(AutomaticRetransmitDelay.ARD_1500_US, (byte) 15);
-
-		// Set frequency channel to 2476 MHz
-		// This channel should be universally safe and not bleed over into adjacent spectrum.
-		setFrequencyChannel((byte) 76);
-
-		// Set data rates to a slower and most reliable speed
-		setDataRatesAndOutputPower(DataRates.DR_1_MBPS, OutputPower.RF_0_DBM);
-
-		// Enable dynamic payload and auto acknowledgment for all pipes
-		enableDynamicPayloadAndAutoAcknowledgmentOnAllPipes();
+		// Leave the RX / TX modes, the module is powered down by the first write (CONFIG)
+		rf24Hardware.setPinChipEnableLow();
+		listening = false;
 
-		// Enable payload in acknowledgment
-		enableAcknowledgmentWithPayload();
+		beginTransaction()
+				// Reset CONFIG to default value with 16-bits CRC (module is powered down)
+				.set(Registers.CONFIG, Registers.CONFIG.getResetValue())
+				.set(Registers.CONFIG.EN_CRC, true)
+				.set(Registers.CONFIG.CRCO, true)
+				// Enable auto acknowledgment for all pipes
+				.set(Registers.EN_AA, (byte) 0b00111111)
+				// Set address length to 5 bytes (default value)
+				.set(Registers.SETUP_AW.AW, AddressFieldWidth.WIDTH_5_BYTES.getValue())
+				// Set retransmit delay to 1500μS for working with all data rates with ACK
+				// Set number of retry to 15
+				.set(Registers.SETUP_RETR.ARD, AutomaticRetransmitDelay.ARD_1500_US.getValue())
+				.set(Registers.SETUP_RETR.ARC, (byte) 15)
+				// Set frequency channel to 2476 MHz
+				// This channel should be universally safe and not bleed over into adjacent spectrum.
+				.set(Registers.RF_CH.RF_CH, (byte) 76)
+				// Set data rates to a slower and most reliable speed (without test modes)
+				.set(Registers.RF_SETUP.CONT_WAVE, false)
+				.set(Registers.RF_SETUP.PLL_LOCK, false)
+				.set(Registers.RF_SETUP.RF_DR_LOW, DataRates.DR_1_MBPS.getRfDrLow())
+				.set(Registers.RF_SETUP.RF_DR_HIGH, DataRates.DR_1_MBPS.getRfDrHigh())
+				.set(Registers.RF_SETUP.RF_PWR, OutputPower.RF_0_DBM.getValue())
+				// Enable dynamic payload for all pipes
+				.set(Registers.DYNPD, (byte) 0b00111111)
+				// Enable dynamic payload and payload in acknowledgment (payload without ack is disabled)
+				.set(Registers.FEATURE.EN_DPL, true)
+				.set(Registers.FEATURE.EN_ACK_PAY, true)
+				.set(Registers.FEATURE.EN_DYN_ACK, false)
+				.commit();
 
 		// Reset current status and flush buffers
 		// Notice reset and flush is the last thing we do
@@ -295,6 +372,67 @@ public class RF24 {
 		return this;
 	}
 
+	/**
+	 * Change the frequency channel in any mode.
+	 * In RX mode, the channel is changed in standby mode and the module goes back to RX mode (Tstby2a).
+	 * The RF_CH register is not written if the channel is already selected.
+	 * 
+	 * @param frequencyChannel	The frequency channel (0 to 125).
+	 * @return	The current RF24 instance.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24 switchFrequencyChannel(byte frequencyChannel) throws RF24Exception {
+		if (getFrequencyChannel() == frequencyChannel) {
+			return this;
+		}
+		if (!listening) {
+			return setFrequencyChannel(frequencyChannel);
+		}
+		rf24Hardware.setPinChipEnableLow();
+		setFrequencyChannel(frequencyChannel);
+		rf24Hardware.setPinChipEnableHigh();
+		ThreadUtils.delayMicroseconds(TSTBY2A_MICROSECONDS);
+		return this;
+	}
+
+	/**
+	 * Change the data rates in any mode (the output power is kept).
+	 * In RX mode, the data rates are changed in standby mode and the module goes back to RX mode (Tstby2a).
+	 * The RF_SETUP register is not written if the data rates are already selected.
+	 * 
+	 * @param dataRates	The data rates.
+	 * @return	The current RF24 instance.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24 switchDataRates(DataRates dataRates) throws RF24Exception {
+		if (getDataRates() == dataRates) {
+			return this;
+		}
+		if (!listening) {
+			return setDataRatesAndOutputPower(dataRates, getOutputPower());
+		}
+		rf24Hardware.setPinChipEnableLow();
+		setDataRatesAndOutputPower(dataRates, getOutputPower());
+		rf24Hardware.setPinChipEnableHigh();
+		ThreadUtils.delayMicroseconds(TSTBY2A_MICROSECONDS);
+		return this;
+	}
+
+	/**
+	 * Change the output power between two payloads (the data rates are kept).
+	 * The RF_SETUP register is not written if the output power is already selected.
+	 * 
+	 * @param outputPower	The output power.
+	 * @return	The current RF24 instance.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24 switchOutputPower(OutputPower outputPower) throws RF24Exception {
+		if (getOutputPower() == outputPower) {
+			return this;
+		}
+		return setDataRatesAndOutputPower(getDataRates(), outputPower);
+	}
+
 	/**
 	 * 
 	 * @param dataRates
@@ -433,7 +571,7 @@ public class RF24 {
 			configValue = RegistersUtils.updateRegisterBits(configValue, Registers.CONFIG.PWR_UP, true);
 			writeRegisterValue(Registers.CONFIG, configValue);
 			// Delay for nRF24L01+ go from power down to standby mode (Tpd2stby = 4.5ms)
-			ThreadUtils.delay(5);
+			ThreadUtils.delayMicroseconds(TPD2STBY_MICROSECONDS);
 		}
 		return this;
 	}
@@ -453,7 +591,7 @@ public class RF24 {
 	 * @throws RF24Exception	In case of communication error with RF Module.
 	 */
 	public RF24 flushTx() throws RF24Exception {
-		sendSpiCommand(SpiCommands.FLUSH_TX);
+		transfer(SpiCommandsUtils.getSpiCommand(SpiCommands.FLUSH_TX), 0);
 		return this;
 	}
 
@@ -464,7 +602,7 @@ public class RF24 {
 	 * @throws RF24Exception	In case of communication error with RF Module.
 	 */
 	public RF24 flushRx() throws RF24Exception {
-		sendSpiCommand(SpiCommands.FLUSH_RX);
+		transfer(SpiCommandsUtils.getSpiCommand(SpiCommands.FLUSH_RX), 0);
 		return this;
 	}
 
@@ -472,15 +610,54 @@ public class RF24 {
 		return isRxDataAvailable(null);
 	}
 
+	/**
+	 * Return true if a payload is available in the RX FIFO (for the data pipe if not null).
+	 * The answer is given by the last STATUS value without communication if it already shows a payload.
+	 * 
+	 * @param dataPipe	The data pipe of the payload at the top of the RX FIFO or null for any data pipe.
+	 * @return	True if a payload is available.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
 	public boolean isRxDataAvailable(DataPipe dataPipe) throws RF24Exception {
-		byte fifoStatusValue = readRegisterValue(Registers.FIFO_STATUS);
-		boolean rxEmpty = RegistersUtils.getBitsValue(fifoStatusValue, Registers.FIFO_STATUS.RX_EMPTY) == 1;
-		if (!rxEmpty && dataPipe != null) {
-			byte statusValue = getStatus();
-			byte dataPipeNumber = RegistersUtils.getBitsValue(statusValue, Registers.STATUS.RX_P_NO);
-			return dataPipeNumber == dataPipe.getIndex();
+		byte statusValue = isRxDataAvailable(lastStatusValid, lastStatus) ? lastStatus : getStatus();
+		if (!isRxDataAvailable(true, statusValue)) {
+			return false;
+		}
+		return dataPipe == null || RegistersUtils.getBitsValue(statusValue, Registers.STATUS.RX_P_NO) == dataPipe.getIndex();
+	}
+
+	private static boolean isRxDataAvailable(boolean statusValid, byte statusValue) {
+		// RX_P_NO is 111 when the RX FIFO is empty
+		return statusValid && RegistersUtils.getBitsValue(statusValue, Registers.STATUS.RX_P_NO) < DataPipe.values().length;
+	}
+
+	/**
+	 * Wait until a payload is available in the RX FIFO.
+	 * Use the IRQ pin if connected, otherwise poll the FIFO_STATUS register.
+	 * The interrupts that do not come with a payload (TX interrupts raised by the acknowledgment payloads in RX mode,
+	 * RX_DR left after a flush of the RX FIFO) are cleared while waiting.
+	 * 
+	 * @param timeoutMillis	The maximum time to wait in milliseconds.
+	 * @return	True if a payload is available, false if the timeout expired or the thread is interrupted.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public boolean waitRxDataAvailable(int timeoutMillis) throws RF24Exception {
+		long startTimeMillis = System.currentTimeMillis();
+		while (!isRxDataAvailable()) {
+			long remainingMillis = timeoutMillis - (System.currentTimeMillis() - startTimeMillis);
+			if (remainingMillis <= 0 || Thread.currentThread().isInterrupted()) {
+				return false;
+			}
+			if (rf24Hardware.isIrqAvailable()) {
+				if (rf24Hardware.waitForIrq(remainingMillis * 1000) && !isRxDataAvailable()) {
+					// The IRQ is raised by a TX interrupt or a stale RX_DR (RX_P_NO tells if a payload is available)
+					resetAllInterrupts();
+				}
+			} else {
+				ThreadUtils.delay(1);
+			}
 		}
-		return !rxEmpty;
+		return true;
 	}
 
 	private void checkDataPipeAddressFullAvailableLength(DataPipe dataPipe, byte[] address) throws RF24Exception {
@@ -680,6 +857,9 @@ public class RF24 {
 
 		rf24Hardware.setPinChipEnableHigh();
 
+		// Delay for nRF24L01+ go from standby to RX mode (Tstby2a = 130µs)
+		ThreadUtils.delayMicroseconds(TSTBY2A_MICROSECONDS);
+
 		listening = true;
 
 		return this;
@@ -706,6 +886,41 @@ public class RF24 {
 		return this;
 	}
 
+	/**
+	 * Sample the received power detector (RPD) on a frequency channel.
+	 * The module is kept in RX mode on the channel and the RPD register is read once per sample (a single
+	 * SPI transfer), the first read is done after the RX settling and the AGC delay (Tstby2a + Tdelay_AGC).
+	 * The frequency channel stays selected after the sampling.
+	 * 
+	 * @param frequencyChannel				The frequency channel (0 to 125).
+	 * @param samplesCount					The number of samples.
+	 * @param sampleIntervalMicroseconds	The delay between two samples in microseconds (0 for no delay).
+	 * @return	The number of samples with a received power higher than -64dBm.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public int sampleReceivedPower(byte frequencyChannel, int samplesCount, int sampleIntervalMicroseconds) throws RF24Exception {
+		if (!listening) {
+			throw new IllegalStateException("sampleReceivedPower cannot be invoke in TX mode");
+		}
+		if (samplesCount < 1) {
+			throw new IllegalArgumentException("samplesCount must be positive");
+		}
+
+		switchFrequencyChannel(frequencyChannel);
+		ThreadUtils.delayMicroseconds(TDELAY_AGC_MICROSECONDS);
+
+		int detectedCount = 0;
+		for (int i = 0; i < samplesCount; i++) {
+			if (i > 0 && sampleIntervalMicroseconds > 0) {
+				ThreadUtils.delayMicroseconds(sampleIntervalMicroseconds);
+			}
+			if (isReceivedPowerDetected()) {
+				detectedCount++;
+			}
+		}
+		return detectedCount;
+	}
+
 	/**
 	 * Clear RX interrupts. 
 	 * Write 0x70 to the STATUS register.
@@ -753,7 +968,8 @@ public class RF24 {
 	 * @throws RxFifoTooLargeException If payload width is too large.
 	 */
 	public byte getDynamicPayloadSize() throws RF24Exception {
-		byte result = sendSpiCommand(SpiCommands.R_RX_PL_WID)[1];
+		transfer(SpiCommandsUtils.getSpiCommand(SpiCommands.R_RX_PL_WID), clearTransferData(1));
+		byte result = spiBuffer[1];
 		if (result > MAX_RX_FIFO_SIZE) {
 			flushRx();
 			throw new RxFifoTooLargeException();
@@ -762,26 +978,167 @@ public class RF24 {
 	}
 
 	public byte[] readPayload(byte length) throws RF24Exception {
+		SpiCommandsUtils.checkLength(SpiCommands.R_RX_PAYLOAD, length);
+		byte[] payload = new byte[length];
+		readPayload(payload, 0, length);
+		return payload;
+	}
+
+	/**
+	 * Read the payload at the top of the RX FIFO in a caller-owned buffer (without allocation) and clear RX_DR.
+	 * 
+	 * @param destination	The destination buffer.
+	 * @param offset		The offset in the destination buffer.
+	 * @param length		The length of the payload (1 to 32 bytes).
+	 * @return	The STATUS register value.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public byte readPayload(byte[] destination, int offset, int length) throws RF24Exception {
+		SpiCommandsUtils.checkLength(SpiCommands.R_RX_PAYLOAD, length);
+		final byte channel = (capture != RF24Capture.NONE) ? getFrequencyChannel() : 0;
 		try {
-			byte[] result = sendSpiCommand(SpiCommands.R_RX_PAYLOAD, new byte[length]);
-			resetRxInterrupt();
-			// Remove the first byte - it is the value of the STATUS register
-			return BytesUtils.removeFirstByte(result);
+			// RX_DR is cleared in the same batch of transfers
+			byte status = transferWithStatusWrite(R_RX_PAYLOAD_COMMAND, clearTransferData(length), RX_INTERRUPT, false);
+			System.arraycopy(spiBuffer, 1, destination, offset, length);
+			if (capture != RF24Capture.NONE) {
+				capture.onRx(channel, RegistersUtils.getBitsValue(status, Registers.STATUS.RX_P_NO), status, spiBuffer, 1, length);
+			}
+			return status;
 		} catch (RF24Exception e) {
 			throw new RF24Exception("Failed to read payload", e);
 		}
 	}
 
+	/**
+	 * Read the payload at the top of the RX FIFO in a caller-owned buffer (without allocation) and clear RX_DR.
+	 * The payload is put at the position of the buffer.
+	 * 
+	 * @param destination	The destination buffer.
+	 * @param length		The length of the payload (1 to 32 bytes).
+	 * @return	The STATUS register value.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public byte readPayload(ByteBuffer destination, int length) throws RF24Exception {
+		SpiCommandsUtils.checkLength(SpiCommands.R_RX_PAYLOAD, length);
+		final byte channel = (capture != RF24Capture.NONE) ? getFrequencyChannel() : 0;
+		try {
+			// RX_DR is cleared in the same batch of transfers
+			byte status = transferWithStatusWrite(R_RX_PAYLOAD_COMMAND, clearTransferData(length), RX_INTERRUPT, false);
+			destination.put(spiBuffer, 1, length);
+			if (capture != RF24Capture.NONE) {
+				capture.onRx(channel, RegistersUtils.getBitsValue(status, Registers.STATUS.RX_P_NO), status, spiBuffer, 1, length);
+			}
+			return status;
+		} catch (RF24Exception e) {
+			throw new RF24Exception("Failed to read payload", e);
+		}
+	}
+
+	/**
+	 * Read all the payloads available in the RX FIFO (up to the size of the buffer).
+	 * 
+	 * The data pipe of the payload at the top of the RX FIFO is given by the STATUS byte returned
+	 * by each command, so each payload costs only 2 transfers (width and payload).
+	 * RX_DR is cleared once, when the RX FIFO is empty, and the RX FIFO is checked again after
+	 * to not miss a payload received meanwhile (in the same batch of transfers with dynamic payloads).
+	 * 
+	 * @param packets	The buffer of packets to fill (all the elements must be non null).
+	 * @return	The number of packets read.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 * @throws RxFifoTooLargeException If payload width is too large.
+	 */
+	public int drainRx(RxPacket[] packets) throws RF24Exception {
+		final boolean dynamicPayloads = isDynamicPayloadsEnabled();
+		final byte channel = (capture != RF24Capture.NONE) ? getFrequencyChannel() : 0;
+		int count = 0;
+		boolean clearRxInterrupt = false;
+		while (true) {
+			// The STATUS register value is returned with the width of the top payload
+			byte status;
+			if (dynamicPayloads) {
+				status = clearRxInterrupt
+						? transferWithStatusWrite(R_RX_PL_WID_COMMAND, clearTransferData(1), RX_INTERRUPT, true)
+						: transfer(R_RX_PL_WID_COMMAND, clearTransferData(1));
+			} else {
+				if (clearRxInterrupt) {
+					resetRxInterrupt();
+				}
+				status = isRxDataAvailable(lastStatusValid, lastStatus) ? lastStatus : getStatus();
+			}
+			clearRxInterrupt = false;
+			byte dataPipeNumber = RegistersUtils.getBitsValue(status, Registers.STATUS.RX_P_NO);
+			if (dataPipeNumber >= DataPipe.values().length) {
+				// RX FIFO empty
+				if (RegistersUtils.bitIsFalse(status, Registers.STATUS.RX_DR)) {
+					return count;
+				}
+				clearRxInterrupt = true;
+				continue;
+			}
+			if (count == packets.length) {
+				// Keep RX_DR (and IRQ) for the payloads left in the RX FIFO
+				return count;
+			}
+			DataPipe dataPipe = DataPipe.getFromIndex(dataPipeNumber);
+			byte width = dynamicPayloads ? spiBuffer[1] : readRegisterValue(getRxPwRegister(dataPipe));
+			if (width > MAX_RX_FIFO_SIZE) {
+				flushRx();
+				throw new RxFifoTooLargeException();
+			}
+			try {
+				transfer(SpiCommandsUtils.getSpiCommand(SpiCommands.R_RX_PAYLOAD), clearTransferData(width));
+				packets[count++].set(dataPipe, spiBuffer, 1, width);
+				if (capture != RF24Capture.NONE) {
+					capture.onRx(channel, dataPipeNumber, status, spiBuffer, 1, width);
+				}
+			} catch (RF24Exception e) {
+				throw new RF24Exception("Failed to read payload", e);
+			}
+		}
+	}
+
+	private static RegisterByte getRxPwRegister(DataPipe dataPipe) {
+		switch (dataPipe) {
+		case P0:
+			return Registers.RX_PW_P0;
+		case P1:
+			return Registers.RX_PW_P1;
+		case P2:
+			return Registers.RX_PW_P2;
+		case P3:
+			return Registers.RX_PW_P3;
+		case P4:
+			return Registers.RX_PW_P4;
+		case P5:
+			return Registers.RX_PW_P5;
+		default:
+			throw new RuntimeException("This may not append because all enum values are tested in the switch");
+		}
+	}
+
 	public void sendPayload(byte... payload) throws RF24Exception {
 		sendPayload(WritePayloadType.W_TX_PAYLOAD, payload);
 	}
 
 	public void sendPayload(WritePayloadType writePayloadType, byte... payload) throws RF24Exception {
+		sendPayload(writePayloadType, payload, 0, (payload == null) ? 0 : payload.length);
+	}
 
-		byte status = writePayload(writePayloadType, payload);
+	/**
+	 * Send a payload from a caller-owned buffer (without allocation) and wait for the end of the transmission.
+	 * 
+	 * @param writePayloadType	The type of write payload.
+	 * @param payload			The source buffer.
+	 * @param offset			The offset of the payload in the source buffer.
+	 * @param length			The length of the payload (1 to 32 bytes).
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void sendPayload(WritePayloadType writePayloadType, byte[] payload, int offset, int length) throws RF24Exception {
+
+		byte status = writePayload(writePayloadType, payload, offset, length);
 
 		rf24Hardware.setPinChipEnableHigh();
-		ThreadUtils.delayMicroseconds(10);
+		ThreadUtils.delayMicroseconds(THCE_MICROSECONDS);
 		rf24Hardware.setPinChipEnableLow();
 
 		if (WritePayloadType.W_TX_PAYLOAD.equals(writePayloadType)) {
@@ -792,8 +1149,14 @@ public class RF24 {
 			long startTimeMillis = System.currentTimeMillis();
 			while (!dataSent && !maxRetry && !timeout) {
 				long now = System.currentTimeMillis();
-				// Transmitted or Max retry
-				status = getStatus();
+				// Sleep until TX_DS or MAX_RT raise the IRQ instead of polling the STATUS register
+				if (rf24Hardware.isIrqAvailable()) {
+					long remainingMillis = writePayloadTimeout - (now - startTimeMillis);
+					rf24Hardware.waitForIrq(Math.max(remainingMillis, 0) * 1000);
+					now = System.currentTimeMillis();
+				}
+				// Transmitted or Max retry (the flags already set in the last STATUS value stay set until reset)
+				status = (lastStatusValid && (lastStatus & TX_INTERRUPTS_MASK) != 0) ? lastStatus : getStatus();
 				dataSent = RegistersUtils.bitIsTrue(status, Registers.STATUS.TX_DS);
 				maxRetry = RegistersUtils.bitIsTrue(status, Registers.STATUS.MAX_RT);
 				// Timeout
@@ -802,6 +1165,10 @@ public class RF24 {
 				}
 			}
 
+			if (metrics != RF24Metrics.NONE) {
+				recordTxOutcome(dataSent ? TxOutcome.DELIVERED : (maxRetry ? TxOutcome.MAX_RETRIES : TxOutcome.TIMEOUT));
+			}
+
 			resetTxInterrupt();
 
 			if (!dataSent) {
@@ -820,20 +1187,92 @@ public class RF24 {
 
 	}
 
+	private void recordTxOutcome(TxOutcome outcome) throws RF24Exception {
+		byte observetxValue = readRegisterValue(Registers.OBSERVE_TX);
+		metrics.onTxCompleted(outcome, RegistersUtils.getBitsValue(observetxValue, Registers.OBSERVE_TX.ARC_CNT),
+				RegistersUtils.getBitsValue(observetxValue, Registers.OBSERVE_TX.PLOS_CNT));
+	}
+
+	/**
+	 * Open a streaming transmission that keeps the TX FIFO full (CE stays high until the stream is closed).
+	 * 
+	 * @param listener	The listener of the outcome of each payload.
+	 * @return	The TX stream.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24TxStream openTxStream(TxStreamListener listener) throws RF24Exception {
+		return openTxStream(WritePayloadType.W_TX_PAYLOAD, listener);
+	}
+
+	/**
+	 * Open a streaming transmission that keeps the TX FIFO full (CE stays high until the stream is closed).
+	 * 
+	 * @param writePayloadType	The type of write payload for all the payloads of the stream.
+	 * @param listener			The listener of the outcome of each payload.
+	 * @return	The TX stream.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24TxStream openTxStream(WritePayloadType writePayloadType, TxStreamListener listener) throws RF24Exception {
+		if (listening) {
+			throw new IllegalStateException("openTxStream cannot be invoke in RX mode");
+		}
+		// Start with an empty TX FIFO and no pending interrupt
+		flushTx();
+		resetTxInterrupt();
+		return new RF24TxStream(this, rf24Hardware, writePayloadType, listener);
+	}
+
 	public byte[] sendPayloadAndReadAckPayload(byte... payload) throws RF24Exception {
 		if (!isAcknowledgmentWithPayloadEnabled()) {
 			throw new IllegalStateException("sendPayloadAndReadAckPayload cannot be invoke if AcknowledgmentWithPayload is not enable");
 		}
-		sendPayload(payload);
-		if (isRxDataAvailable()) {
-			return readPayload(getDynamicPayloadSize());
+		byte[] ackPayload = new byte[MAX_PAYLOAD_SIZE];
+		int length = sendPayloadAndReadAckPayload(payload, 0, (payload == null) ? 0 : payload.length, ackPayload);
+		return Arrays.copyOf(ackPayload, length);
+	}
+
+	/**
+	 * Send a payload (with acknowledgment) from a caller-owned buffer and read the acknowledgment payload if any (without allocation).
+	 * The acknowledgment payloads must be enabled : the FEATURE register is not read.
+	 * The acknowledgment payload and TX_DS are raised together, so the STATUS value read for TX_DS tells if there is one.
+	 * 
+	 * @param payload		The source buffer.
+	 * @param offset		The offset of the payload in the source buffer.
+	 * @param length		The length of the payload (1 to 32 bytes).
+	 * @param ackPayload	The destination buffer of the acknowledgment payload (at least 32 bytes).
+	 * @return	The length of the acknowledgment payload, 0 if none.
+	 * @throws WritePayloadException	If the payload is not acknowledged.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public int sendPayloadAndReadAckPayload(byte[] payload, int offset, int length, byte[] ackPayload) throws RF24Exception {
+		if (ackPayload == null || ackPayload.length < MAX_PAYLOAD_SIZE) {
+			throw new IllegalArgumentException("ackPayload must have a length of at least " + MAX_PAYLOAD_SIZE);
 		}
-		else {
-			return new byte[0];
+		sendPayload(WritePayloadType.W_TX_PAYLOAD, payload, offset, length);
+		byte statusValue = lastStatusValid ? lastStatus : getStatus();
+		if (!isRxDataAvailable(true, statusValue)) {
+			return 0;
 		}
+		byte ackLength = getDynamicPayloadSize();
+		readPayload(ackPayload, 0, ackLength);
+		return ackLength;
 	}
 
 	public byte writePayload(WritePayloadType writePayloadType, byte... payload) throws RF24Exception {
+		return writePayload(writePayloadType, payload, 0, (payload == null) ? 0 : payload.length);
+	}
+
+	/**
+	 * Write a payload in the TX FIFO from a caller-owned buffer (without allocation).
+	 * 
+	 * @param writePayloadType	The type of write payload.
+	 * @param payload			The source buffer.
+	 * @param offset			The offset of the payload in the source buffer.
+	 * @param length			The length of the payload (1 to 32 bytes).
+	 * @return	The STATUS register value.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public byte writePayload(WritePayloadType writePayloadType, byte[] payload, int offset, int length) throws RF24Exception {
 		if (listening) {
 			throw new IllegalStateException("writePayload cannot be invoke in RX mode");
 		}
@@ -845,12 +1284,46 @@ public class RF24 {
 			spiCommand = SpiCommands.W_TX_PAYLOAD;
 		}
 
+		SpiCommandsUtils.checkLength(spiCommand, length);
+		// The channel is read before the payload is copied in the SPI buffer
+		final byte channel = (capture != RF24Capture.NONE) ? getFrequencyChannel() : 0;
+		System.arraycopy(payload, offset, spiBuffer, 1, length);
+		final byte status;
 		try {
-			// First return byte is the value of the STATUS register
-			return sendSpiCommand(spiCommand, payload)[0];
+			status = transfer(SpiCommandsUtils.getSpiCommand(spiCommand), length);
 		} catch (RF24Exception e) {
 			throw new RF24Exception("Failed to write payload", e);
 		}
+		if (capture != RF24Capture.NONE) {
+			capture.onTx(channel, status, payload, offset, length);
+		}
+		return status;
+	}
+
+	/**
+	 * Write a payload in the TX FIFO from a caller-owned buffer (without allocation).
+	 * The payload is the bytes between the position and the limit of the buffer, the position is moved to the limit.
+	 * 
+	 * @param writePayloadType	The type of write payload.
+	 * @param payload			The source buffer.
+	 * @return	The STATUS register value.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public byte writePayload(WritePayloadType writePayloadType, ByteBuffer payload) throws RF24Exception {
+		int length = payload.remaining();
+		if (payload.hasArray()) {
+			byte status = writePayload(writePayloadType, payload.array(), payload.arrayOffset() + payload.position(), length);
+			payload.position(payload.position() + length);
+			return status;
+		}
+		SpiCommandsUtils.checkLength(SpiCommands.W_TX_PAYLOAD, length);
+		if (capture != RF24Capture.NONE) {
+			// The SPI buffer receives the read bytes : the payload is kept for the capture
+			payload.get(capturedTxPayload, 0, length);
+			return writePayload(writePayloadType, capturedTxPayload, 0, length);
+		}
+		payload.get(spiBuffer, 1, length);
+		return writePayload(writePayloadType, spiBuffer, 1, length);
 	}
 
 	public byte writeAckPayload(WritePayloadType writePayloadType, byte... payload) throws RF24Exception {
@@ -865,6 +1338,31 @@ public class RF24 {
 		}
 	}
 
+	/**
+	 * Write the payload sent with the next acknowledgment of a data pipe from a caller-owned buffer (without allocation).
+	 * Up to 3 payloads (of all the data pipes) can wait in the TX FIFO.
+	 * 
+	 * @param dataPipe	The data pipe.
+	 * @param payload	The source buffer.
+	 * @param offset	The offset of the payload in the source buffer.
+	 * @param length	The length of the payload (1 to 32 bytes).
+	 * @return	The STATUS register value.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public byte writeAckPayload(DataPipe dataPipe, byte[] payload, int offset, int length) throws RF24Exception {
+		if (!listening) {
+			throw new IllegalStateException("writeAckPayload cannot be invoke in TX mode");
+		}
+		SpiCommandsUtils.checkLength(SpiCommands.W_ACK_PAYLOAD, length);
+		System.arraycopy(payload, offset, spiBuffer, 1, length);
+		try {
+			// The 3 LSBits of the command are the data pipe
+			return transfer((byte) (SpiCommandsUtils.getSpiCommand(SpiCommands.W_ACK_PAYLOAD) | dataPipe.getIndex()), length);
+		} catch (RF24Exception e) {
+			throw new RF24Exception("Failed to write ack payload", e);
+		}
+	}
+
 	public byte enableReuseTxPayload() throws RF24Exception {
 		// First return byte is the value of the STATUS register
 		return sendSpiCommand(SpiCommands.REUSE_TX_PL, null)[0];
@@ -882,9 +1380,17 @@ public class RF24 {
 	 * @throws RF24Exception
 	 */
 	public byte readRegisterValue(RegisterByte register) throws RF24Exception {
+		if (registersCacheEnabled && registersCache.isValid(register.getAddress())) {
+			byte cachedValue = registersCache.getValue(register.getAddress());
+			if (registersCacheVerification) {
+				verifyRegisterCache(register, (byte) 1);
+			}
+			return cachedValue;
+		}
 		try {
-			// The first byte is the value of the STATUS register
-			return readRegister(register.getAddress(), (byte) 1)[1];
+			transfer(SpiCommandsUtils.getSpiCommand(SpiCommands.R_REGISTER, register.getAddress()), clearTransferData(1));
+			registersCache.update(register.getAddress(), spiBuffer[1]);
+			return spiBuffer[1];
 		} catch (RF24Exception e) {
 			throw new RF24Exception("Failed to read register " + register.getName(), e);
 		}
@@ -897,6 +1403,13 @@ public class RF24 {
 	 * @throws RF24Exception
 	 */
 	public byte[] readRegisterValues(RegisterBytes register) throws RF24Exception {
+		if (registersCacheEnabled && registersCache.isValid(register.getAddress())) {
+			byte[] cachedValues = registersCache.getValues(register.getAddress(), register.getLength());
+			if (registersCacheVerification) {
+				verifyRegisterCache(register, register.getLength());
+			}
+			return cachedValues;
+		}
 		try {
 			byte[] result = readRegister(register.getAddress(), register.getLength());
 			// Remove the first byte - it is the value of the STATUS register
@@ -915,7 +1428,10 @@ public class RF24 {
 	 */
 	protected byte[] readRegister(byte registerAddress, byte registerLength) throws RF24Exception {
 		try {
-			return sendSpiCommand(SpiCommandsUtils.getSpiCommand(SpiCommands.R_REGISTER, registerAddress), new byte[registerLength]);
+			byte[] result = sendSpiCommand(SpiCommandsUtils.getSpiCommand(SpiCommands.R_REGISTER, registerAddress), new byte[registerLength]);
+			// Keep the cache up to date (the first byte is the value of the STATUS register)
+			registersCache.update(registerAddress, BytesUtils.removeFirstByte(result));
+			return result;
 		} catch (RF24Exception e) {
 			throw new RF24Exception("Failed to read register " + registerAddress, e);
 		}
@@ -932,7 +1448,15 @@ public class RF24 {
 		if (RegisterByteWithBits.class.isAssignableFrom(register.getClass())) {
 			RegistersUtils.checkRegisterMask((RegisterByteWithBits) register, value);
 		}
-		return writeRegister(register.getAddress(), value);
+		try {
+			spiBuffer[1] = value;
+			byte status = transfer(SpiCommandsUtils.getSpiCommand(SpiCommands.W_REGISTER, register.getAddress()), 1);
+			// Write-through: the cache is updated only when the write succeeded
+			registersCache.update(register.getAddress(), value);
+			return status;
+		} catch (RF24Exception e) {
+			throw new RF24Exception("Failed to write register " + register.getName(), e);
+		}
 	}
 
 	/**
@@ -963,13 +1487,92 @@ public class RF24 {
 	 */
 	protected byte writeRegister(byte registerAddress, byte... value) throws RF24Exception {
 		try {
-			return sendSpiCommand(SpiCommandsUtils.getSpiCommand(SpiCommands.W_REGISTER, registerAddress), value)[0];
+			byte status = sendSpiCommand(SpiCommandsUtils.getSpiCommand(SpiCommands.W_REGISTER, registerAddress), value)[0];
+			// Write-through: the cache is updated only when the write succeeded
+			registersCache.update(registerAddress, value);
+			return status;
 		} catch (RF24Exception e) {
 			throw new RF24Exception("Failed to write register " + registerAddress, e);
 		}
 	}
 
 
+	/* ===============
+	 * Registers cache
+	 * =============== */
+
+	/**
+	 * Read again all the configuration registers from the module and replace the values in the cache.
+	 * Must be used if the module was reset or configured without this instance.
+	 * 
+	 * @return	The current RF24 instance.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24 resync() throws RF24Exception {
+		registersCache.invalidateAll();
+		for (Register register : RegistersCache.CACHEABLE_REGISTERS) {
+			readRegister(register.getAddress(), getRegisterLength(register));
+		}
+		return this;
+	}
+
+	/**
+	 * Compare all the values in the cache with the values in the module.
+	 * 
+	 * @return	The current RF24 instance.
+	 * @throws RegistersCacheDivergenceException	If a cached value is different from the module value.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24 verifyRegistersCache() throws RF24Exception {
+		for (Register register : RegistersCache.CACHEABLE_REGISTERS) {
+			if (registersCache.isValid(register.getAddress())) {
+				verifyRegisterCache(register, getRegisterLength(register));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Compare the value of a register in the cache with the value in the module.
+	 * In case of divergence, the value of the module is kept in the cache.
+	 * 
+	 * @param register	The register.
+	 * @param length	The length of the register.
+	 * @throws RegistersCacheDivergenceException	If the cached value is different from the module value.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	private void verifyRegisterCache(Register register, byte length) throws RF24Exception {
+		byte[] cachedValues = registersCache.getValues(register.getAddress(), length);
+		byte[] moduleValues = BytesUtils.removeFirstByte(readRegister(register.getAddress(), length));
+		if (!Arrays.equals(cachedValues, moduleValues)) {
+			throw new RegistersCacheDivergenceException(register.getName(), cachedValues, moduleValues);
+		}
+	}
+
+	/**
+	 * Begin a configuration transaction: the registers values are collected and written in one go on commit.
+	 * 
+	 * @return	A new empty transaction on this module.
+	 */
+	public RegistersTransaction beginTransaction() {
+		return new RegistersTransaction(this);
+	}
+
+	/**
+	 * Return true if the value of the register can be read without communication with the module.
+	 * 
+	 * @param register	The register.
+	 * @return	True if the value of the register is in the enabled cache.
+	 */
+	boolean isRegisterValueKnown(Register register) {
+		return registersCacheEnabled && registersCache.isValid(register.getAddress());
+	}
+
+	private static byte getRegisterLength(Register register) {
+		return (register instanceof RegisterBytes) ? ((RegisterBytes) register).getLength() : 1;
+	}
+
+
 	/* ================
 	 * Send SPI Command
 	 * ================ */
@@ -991,17 +1594,119 @@ public class RF24 {
 		}
 	}
 
+	/**
+	 * Send a SPI command with the data of the transfer buffer (without allocation).
+	 * The received bytes replace the data in the transfer buffer.
+	 * 
+	 * @param spiCommand	The command value.
+	 * @param dataLength	The length of the data, after the command byte in the transfer buffer.
+	 * @return	The STATUS register value.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	protected byte transfer(byte spiCommand, int dataLength) throws RF24Exception {
+		spiBuffer[0] = spiCommand;
+		// The received bytes replace the sent bytes
+		final byte firstData = spiBuffer[1];
+		try {
+			rf24Hardware.spiTransfer(spiBuffer, 0, dataLength + 1);
+		} catch (RF24Exception e) {
+			lastStatusValid = false;
+			throw new RF24Exception("Failed to send SPI command " + BytesUtils.bytesToHex(spiCommand), e);
+		}
+		// First received byte is the value of the STATUS register
+		captureStatus(spiCommand, spiBuffer[0], firstData);
+		return spiBuffer[0];
+	}
+
+	/**
+	 * Send a SPI command with the data of the transfer buffer and a write of the STATUS register in one batch of transfers.
+	 * The received bytes of the command replace the data in the transfer buffer.
+	 * 
+	 * @param spiCommand		The command value.
+	 * @param dataLength		The length of the data, after the command byte in the transfer buffer.
+	 * @param interruptFlags	The interrupt flags cleared by the write of the STATUS register.
+	 * @param statusFirst		True to write the STATUS register before the command, false after.
+	 * @return	The STATUS register value clocked out before the command.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	private byte transferWithStatusWrite(byte spiCommand, int dataLength, byte interruptFlags, boolean statusFirst) throws RF24Exception {
+		final int commandOffset = statusFirst ? 2 : 0;
+		final int statusOffset = statusFirst ? 0 : dataLength + 1;
+		batchBuffer[commandOffset] = spiCommand;
+		System.arraycopy(spiBuffer, 1, batchBuffer, commandOffset + 1, dataLength);
+		batchBuffer[statusOffset] = W_STATUS_COMMAND;
+		batchBuffer[statusOffset + 1] = interruptFlags;
+		batchLengths[statusFirst ? 0 : 1] = 2;
+		batchLengths[statusFirst ? 1 : 0] = dataLength + 1;
+		final byte firstData = spiBuffer[1];
+		try {
+			rf24Hardware.spiTransfers(batchBuffer, 0, batchLengths, 2);
+		} catch (RF24Exception e) {
+			lastStatusValid = false;
+			throw new RF24Exception("Failed to send SPI command " + BytesUtils.bytesToHex(spiCommand), e);
+		}
+		System.arraycopy(batchBuffer, commandOffset, spiBuffer, 0, dataLength + 1);
+		// The STATUS values are captured in the order of the transfers
+		if (statusFirst) {
+			captureStatus(W_STATUS_COMMAND, batchBuffer[statusOffset], interruptFlags);
+			captureStatus(spiCommand, batchBuffer[commandOffset], firstData);
+		} else {
+			captureStatus(spiCommand, batchBuffer[commandOffset], firstData);
+			captureStatus(W_STATUS_COMMAND, batchBuffer[statusOffset], interruptFlags);
+		}
+		return batchBuffer[commandOffset];
+	}
+
+	/**
+	 * Keep the STATUS register value clocked out by a transfer.
+	 * 
+	 * The interrupt flags and RX_P_NO are only cleared by this instance: once set in a STATUS value,
+	 * they stay true until the RX FIFO is read or flushed or the flags are reset.
+	 * 
+	 * @param spiCommand	The command value.
+	 * @param status		The STATUS register value clocked out before the command.
+	 * @param firstData		The first data byte sent with the command.
+	 */
+	private void captureStatus(byte spiCommand, byte status, byte firstData) {
+		if (spiCommand == W_STATUS_COMMAND) {
+			// The flags written with 1 are cleared, the others are unchanged
+			lastStatus = (byte) (status & ~firstData);
+			lastStatusValid = true;
+		} else {
+			lastStatus = status;
+			lastStatusValid = spiCommand != R_RX_PAYLOAD_COMMAND && spiCommand != FLUSH_RX_COMMAND;
+		}
+	}
+
+	/**
+	 * Clear the data of the transfer buffer before a read command.
+	 * 
+	 * @param dataLength	The length of the data.
+	 * @return	The length of the data.
+	 */
+	private int clearTransferData(int dataLength) {
+		Arrays.fill(spiBuffer, 1, dataLength + 1, (byte) 0);
+		return dataLength;
+	}
+
 	protected byte[] sendSpiCommand(byte spiCommand, byte... data) throws RF24Exception {
 		byte[] packet = new byte[(data == null) ? 1 : data.length + 1];
 		packet[0] = spiCommand;
 		if (data != null && data.length > 0) {
 			System.arraycopy(data, 0, packet, 1, data.length);
 		}
+		final byte firstData = (packet.length > 1) ? packet[1] : 0;
+		byte[] result;
 		try {
-			return rf24Hardware.spiWrite(packet);
+			result = rf24Hardware.spiWrite(packet);
 		} catch (RF24Exception e) {
+			lastStatusValid = false;
 			throw new RF24Exception("Failed to send SPI command " + BytesUtils.bytesToHex(spiCommand), e);
 		}
+		if (result != null && result.length > 0) {
+			captureStatus(spiCommand, result[0], firstData);
+		}
+		return result;
 	}
 
 	/* =======
@@ -1016,6 +1721,78 @@ public class RF24 {
 		this.writePayloadTimeout = writePayloadTimeout;
 	}
 
+	public RF24Metrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the sink of the outcomes of the transmissions with acknowledgment.
+	 * The SPI transfers are recorded by wrapping the hardware in a {@link fr.jstessier.rf24.metrics.RF24HardwareMetrics}.
+	 * 
+	 * @param metrics	The sink ({@link RF24Metrics#NONE} to disable the metrics).
+	 */
+	public void setMetrics(RF24Metrics metrics) {
+		if (metrics == null) {
+			throw new IllegalArgumentException("metrics is mandatory");
+		}
+		this.metrics = metrics;
+	}
+
+	public RF24Capture getCapture() {
+		return capture;
+	}
+
+	/**
+	 * Set the capture of the transmitted and received payloads.
+	 * The raw SPI transfers are captured by wrapping the hardware in a {@link fr.jstessier.rf24.capture.RF24HardwareCapture}.
+	 * 
+	 * @param capture	The capture ({@link RF24Capture#NONE} to disable the capture).
+	 */
+	public void setCapture(RF24Capture capture) {
+		if (capture == null) {
+			throw new IllegalArgumentException("capture is mandatory");
+		}
+		this.capture = capture;
+	}
+
+	/**
+	 * Return true if the module is in RX mode (between {@link #startListening()} and {@link #stopListening()}).
+	 * 
+	 * @return	True if the module is listening.
+	 */
+	public boolean isListening() {
+		return listening;
+	}
+
+	public boolean isRegistersCacheEnabled() {
+		return registersCacheEnabled;
+	}
+
+	/**
+	 * Enable or disable the reads of the configuration registers from the cache.
+	 * The cache is always updated by the reads and writes, even when disabled.
+	 * 
+	 * @param registersCacheEnabled	True to serve the reads from the cache.
+	 */
+	public void setRegistersCacheEnabled(boolean registersCacheEnabled) {
+		this.registersCacheEnabled = registersCacheEnabled;
+	}
+
+	public boolean isRegistersCacheVerification() {
+		return registersCacheVerification;
+	}
+
+	/**
+	 * Enable or disable the verification mode of the cache.
+	 * When enabled, each read served by the cache is also done on the module and
+	 * a {@link RegistersCacheDivergenceException} is thrown if the values are different.
+	 * 
+	 * @param registersCacheVerification	True to enable the verification mode.
+	 */
+	public void setRegistersCacheVerification(boolean registersCacheVerification) {
+		this.registersCacheVerification = registersCacheVerification;
+	}
+
 	public AddressFieldWidth getAddressFieldWidth() throws RF24Exception {
 		byte setupawValue = readRegisterValue(Registers.SETUP_AW);
 		byte awValue = RegistersUtils.getBitsValue(setupawValue, Registers.SETUP_AW.AW);
@@ -1038,6 +1815,18 @@ public class RF24 {
 		return RegistersUtils.getBitsValue(rfchValue, Registers.RF_CH.RF_CH);
 	}
 
+	/**
+	 * Return true if a received power higher than -64dBm is detected on the frequency channel (RPD register).
+	 * The value is only valid in RX mode.
+	 * 
+	 * @return	True if a signal is detected.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public boolean isReceivedPowerDetected() throws RF24Exception {
+		byte rpdValue = readRegisterValue(Registers.RPD);
+		return RegistersUtils.bitIsTrue(rpdValue, Registers.RPD.RPD);
+	}
+
 	public DataRates getDataRates() throws RF24Exception {
 		byte rfsetupValue = readRegisterValue(Registers.RF_SETUP);
 		boolean rfDrLow = RegistersUtils.bitIsTrue(rfsetupValue, Registers.RF_SETUP.RF_DR_LOW);
@@ -1051,6 +1840,30 @@ public class RF24 {
 		return OutputPower.getFromValue(rfpwrValue);
 	}
 
+	/**
+	 * Return the count of retransmitted packets of the last transmitted payload (OBSERVE_TX.ARC_CNT).
+	 * The counter is reset when the transmission of a new payload starts.
+	 * 
+	 * @return	The count of retransmitted packets.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public byte getRetransmittedPacketsCount() throws RF24Exception {
+		byte observetxValue = readRegisterValue(Registers.OBSERVE_TX);
+		return RegistersUtils.getBitsValue(observetxValue, Registers.OBSERVE_TX.ARC_CNT);
+	}
+
+	/**
+	 * Return the count of lost packets (OBSERVE_TX.PLOS_CNT).
+	 * The counter is limited to 15 and is reset by writing the RF_CH register.
+	 * 
+	 * @return	The count of lost packets.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public byte getLostPacketsCount() throws RF24Exception {
+		byte observetxValue = readRegisterValue(Registers.OBSERVE_TX);
+		return RegistersUtils.getBitsValue(observetxValue, Registers.OBSERVE_TX.PLOS_CNT);
+	}
+
 	/**
 	 * Return the STATUS register value.
 	 * 
@@ -1058,7 +1871,17 @@ public class RF24 {
 	 * @throws RF24Exception	In case of communication error with RF Module.
 	 */
 	public byte getStatus() throws RF24Exception {
-		return sendSpiCommand(SpiCommands.NOP)[0];
+		return transfer(SpiCommandsUtils.getSpiCommand(SpiCommands.NOP), 0);
+	}
+
+	/**
+	 * Return the STATUS register value clocked out by the last SPI transfer (without communication).
+	 * The value may be outdated: the module can raise an interrupt flag or receive a payload at any time.
+	 * 
+	 * @return	The last STATUS register value.
+	 */
+	public byte getLastStatus() {
+		return lastStatus;
 	}
 
 	public boolean isDynamicPayloadsEnabled() throws RF24Exception {
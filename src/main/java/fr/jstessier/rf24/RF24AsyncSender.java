@@ -0,0 +1,100 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.concurrent.CompletableFuture;
+
+import fr.jstessier.rf24.enums.WritePayloadType;
+
+/**
+ * Asynchronous send of payloads on a single radio I/O thread.
+ * 
+ * The payloads are sent one after the other with {@link RF24#sendPayload(WritePayloadType, byte...)},
+ * so the producers do not wait the time on the air and the retransmissions.
+ * The future of a delivered payload is completed with a {@link TxResult}, the future of a failed payload is
+ * completed exceptionally with the exception of the send (like {@link fr.jstessier.rf24.exceptions.WritePayloadMaxRetriesException}).
+ * 
+ * The sender is a {@link RF24RadioLoop} restricted to the send of payloads.
+ * The RF24 instance must not be used by others while the sender is open.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24AsyncSender implements AutoCloseable {
+
+	/** The radio loop that owns the RF24 instance. */
+	private final RF24RadioLoop radioLoop;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24	The RF24 instance (in TX mode).
+	 */
+	public RF24AsyncSender(RF24 rf24) {
+		this.radioLoop = new RF24RadioLoop(rf24).start();
+	}
+
+	/**
+	 * Send a payload asynchronously (with acknowledgment).
+	 * 
+	 * @param payload	The payload (1 to 32 bytes), copied.
+	 * @return	The future of the result.
+	 */
+	public CompletableFuture<TxResult> sendAsync(byte... payload) {
+		return sendAsync(WritePayloadType.W_TX_PAYLOAD, payload);
+	}
+
+	/**
+	 * Send a payload asynchronously.
+	 * 
+	 * @param writePayloadType	The type of write payload.
+	 * @param payload			The payload (1 to 32 bytes), copied.
+	 * @return	The future of the result.
+	 */
+	public CompletableFuture<TxResult> sendAsync(WritePayloadType writePayloadType, byte... payload) {
+		if (!radioLoop.isRunning()) {
+			throw new IllegalStateException("sendAsync cannot be invoke after close");
+		}
+		return radioLoop.sendAsync(writePayloadType, payload);
+	}
+
+	/**
+	 * Stop to accept payloads and wait the end of the payloads already submitted.
+	 * 
+	 * @param timeoutMillis	The maximum time to wait in milliseconds.
+	 * @return	True if all the payloads were sent, false if the timeout expired.
+	 * @throws InterruptedException	If the current thread is interrupted while waiting.
+	 */
+	public boolean close(long timeoutMillis) throws InterruptedException {
+		return radioLoop.close(timeoutMillis);
+	}
+
+	/**
+	 * Stop to accept payloads. The payloads already submitted are still sent.
+	 */
+	@Override
+	public void close() {
+		radioLoop.close();
+	}
+
+	public boolean isOpen() {
+		return radioLoop.isRunning();
+	}
+
+}
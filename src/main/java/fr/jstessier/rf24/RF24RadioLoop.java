@@ -0,0 +1,384 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import fr.jstessier.rf24.enums.WritePayloadType;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * Owner thread of a RF24 instance : a single radio loop talks to the module, the other threads submit requests.
+ * 
+ * The requests (payloads to send and configuration commands) are queued in a lock-free multi-producers queue
+ * and executed in the order of submission. Each request returns a future completed by the radio thread.
+ * While receiving, the RX FIFO is drained between the requests and the payloads are published to the
+ * {@link RxListener}s. A payload sent while receiving switches the module to TX mode and back to RX mode.
+ * 
+ * The radio thread parks when there is nothing to do : a submission wakes it up, the RX FIFO is polled
+ * after the idle time.
+ * 
+ * The RF24 instance must not be used by others while the loop is running.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24RadioLoop implements AutoCloseable {
+
+	/** Default idle time between two polls of the RX FIFO in microseconds. */
+	public static final int DEFAULT_IDLE_TIME_MICROSECONDS = 1000;
+
+	/** The RF24 instance. */
+	private final RF24 rf24;
+
+	/** The requests submitted to the radio thread. */
+	private final Queue<Runnable> requests = new ConcurrentLinkedQueue<>();
+
+	/** The subscribers of the received payloads. */
+	private final List<RxListener> rxListeners = new CopyOnWriteArrayList<>();
+
+	/** The packets read from the RX FIFO (reused). */
+	private final RxPacket[] rxPackets = new RxPacket[] { new RxPacket(), new RxPacket(), new RxPacket() };
+
+	/** Idle time between two polls of the RX FIFO in nanoseconds. */
+	private volatile long idleTimeNanos = DEFAULT_IDLE_TIME_MICROSECONDS * 1000L;
+
+	/** Is the loop accepting requests. */
+	private volatile boolean running = false;
+
+	/** The radio thread. */
+	private Thread thread;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24	The RF24 instance.
+	 */
+	public RF24RadioLoop(RF24 rf24) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		this.rf24 = rf24;
+	}
+
+	/**
+	 * Start the radio thread.
+	 * 
+	 * @return	The current RF24RadioLoop instance.
+	 */
+	public synchronized RF24RadioLoop start() {
+		if (thread != null) {
+			throw new IllegalStateException("The radio loop is already started");
+		}
+		running = true;
+		thread = new Thread(this::run, "rf24-radio");
+		thread.setDaemon(true);
+		thread.start();
+		return this;
+	}
+
+	/**
+	 * Submit a command executed on the radio thread.
+	 * 
+	 * @param command	The command.
+	 * @return	The future of the result, completed exceptionally if the command throws an exception.
+	 */
+	public <T> CompletableFuture<T> submit(final RadioCommand<T> command) {
+		if (command == null) {
+			throw new IllegalArgumentException("command is mandatory");
+		}
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		enqueue(() -> {
+			if (future.isCancelled()) {
+				return;
+			}
+			try {
+				future.complete(command.execute(rf24));
+			} catch (RF24Exception | RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Send a payload (with acknowledgment).
+	 * 
+	 * @param payload	The payload (1 to 32 bytes), copied.
+	 * @return	The future of the result.
+	 */
+	public CompletableFuture<TxResult> sendAsync(byte... payload) {
+		return sendAsync(WritePayloadType.W_TX_PAYLOAD, payload);
+	}
+
+	/**
+	 * Send a payload.
+	 * The future of a failed payload is completed exceptionally with the exception of
+	 * {@link RF24#sendPayload(WritePayloadType, byte...)}.
+	 * 
+	 * @param writePayloadType	The type of write payload.
+	 * @param payload			The payload (1 to 32 bytes), copied.
+	 * @return	The future of the result.
+	 */
+	public CompletableFuture<TxResult> sendAsync(final WritePayloadType writePayloadType, byte... payload) {
+		if (writePayloadType == null) {
+			throw new IllegalArgumentException("writePayloadType is mandatory");
+		}
+		if (payload == null) {
+			throw new IllegalArgumentException("payload is mandatory");
+		}
+		final byte[] copy = payload.clone();
+		return submit(rf24 -> send(writePayloadType, copy));
+	}
+
+	/**
+	 * Start listening and publish the received payloads to the listeners.
+	 * 
+	 * @return	The future of the end of the command.
+	 */
+	public CompletableFuture<Void> startReceiving() {
+		return submit(rf24 -> {
+			if (!rf24.isListening()) {
+				rf24.startListening();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Stop listening (after the publication of the payloads of the RX FIFO).
+	 * 
+	 * @return	The future of the end of the command.
+	 */
+	public CompletableFuture<Void> stopReceiving() {
+		return submit(rf24 -> {
+			if (rf24.isListening()) {
+				drainRx();
+				rf24.stopListening();
+			}
+			return null;
+		});
+	}
+
+	public void addRxListener(RxListener rxListener) {
+		if (rxListener == null) {
+			throw new IllegalArgumentException("rxListener is mandatory");
+		}
+		rxListeners.add(rxListener);
+	}
+
+	public void removeRxListener(RxListener rxListener) {
+		rxListeners.remove(rxListener);
+	}
+
+	/**
+	 * Stop to accept requests. The requests already submitted are still executed.
+	 */
+	@Override
+	public void close() {
+		running = false;
+		Thread radioThread = getThread();
+		if (radioThread != null) {
+			LockSupport.unpark(radioThread);
+		}
+	}
+
+	/**
+	 * Stop to accept requests and wait the end of the radio thread.
+	 * 
+	 * @param timeoutMillis	The maximum time to wait in milliseconds.
+	 * @return	True if the radio thread is terminated, false if the timeout expired.
+	 * @throws InterruptedException	If the current thread is interrupted while waiting.
+	 */
+	public boolean close(long timeoutMillis) throws InterruptedException {
+		close();
+		Thread radioThread = getThread();
+		if (radioThread != null) {
+			radioThread.join(timeoutMillis);
+			return !radioThread.isAlive();
+		}
+		return true;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	public long getIdleTimeMicroseconds() {
+		return TimeUnit.NANOSECONDS.toMicros(idleTimeNanos);
+	}
+
+	/**
+	 * Set the idle time : the maximum time between two polls of the RX FIFO while there is no request.
+	 * 
+	 * @param idleTimeMicroseconds	The idle time in microseconds.
+	 */
+	public void setIdleTimeMicroseconds(long idleTimeMicroseconds) {
+		if (idleTimeMicroseconds <= 0) {
+			throw new IllegalArgumentException("idleTimeMicroseconds must be positive");
+		}
+		this.idleTimeNanos = TimeUnit.MICROSECONDS.toNanos(idleTimeMicroseconds);
+	}
+
+	private synchronized Thread getThread() {
+		return thread;
+	}
+
+	/**
+	 * Queue a request and wake up the radio thread.
+	 */
+	private void enqueue(Runnable request) {
+		if (!running) {
+			throw new IllegalStateException("The radio loop is not running");
+		}
+		requests.offer(request);
+		if (!running && requests.remove(request)) {
+			// Closed meanwhile : the radio thread may be terminated
+			throw new IllegalStateException("The radio loop is not running");
+		}
+		LockSupport.unpark(getThread());
+	}
+
+	/**
+	 * The radio loop : execute the requests, drain the RX FIFO, park when idle.
+	 * The loop ends when it is closed and all the requests are executed.
+	 */
+	private void run() {
+		while (running || !requests.isEmpty()) {
+			boolean busy = false;
+			Runnable request;
+			while ((request = requests.poll()) != null) {
+				request.run();
+				busy = true;
+			}
+			if (rf24.isListening()) {
+				try {
+					if (drainRx() > 0) {
+						busy = true;
+					} else {
+						for (RxListener rxListener : rxListeners) {
+							try {
+								rxListener.onIdle();
+							} catch (RuntimeException e) {
+								publishError(e);
+							}
+						}
+					}
+				} catch (RF24Exception e) {
+					publishError(e);
+				}
+			}
+			if (!busy && running) {
+				LockSupport.parkNanos(this, idleTimeNanos);
+			}
+		}
+	}
+
+	/**
+	 * Read the RX FIFO and publish the payloads.
+	 */
+	private int drainRx() throws RF24Exception {
+		int total = 0;
+		int count;
+		do {
+			count = rf24.drainRx(rxPackets);
+			for (int i = 0; i < count; i++) {
+				for (RxListener rxListener : rxListeners) {
+					try {
+						rxListener.onReceived(rxPackets[i]);
+					} catch (RuntimeException e) {
+						publishError(e);
+					}
+				}
+			}
+			total += count;
+		} while (count == rxPackets.length);
+		return total;
+	}
+
+	/**
+	 * Publish an error to the listeners.
+	 * A listener that throws in onError is reported to the uncaught exception handler of the radio thread,
+	 * which keeps running.
+	 */
+	private void publishError(Exception exception) {
+		for (RxListener rxListener : rxListeners) {
+			try {
+				rxListener.onError(exception);
+			} catch (RuntimeException e) {
+				final Thread radioThread = Thread.currentThread();
+				radioThread.getUncaughtExceptionHandler().uncaughtException(radioThread, e);
+			}
+		}
+	}
+
+	/**
+	 * Send a payload on the radio thread, switching to TX mode if needed.
+	 */
+	private TxResult send(WritePayloadType writePayloadType, byte[] payload) throws RF24Exception {
+		final boolean wasListening = rf24.isListening();
+		if (wasListening) {
+			// stopListening flushes the RX FIFO
+			drainRx();
+			rf24.stopListening();
+		}
+		final TxResult txResult;
+		try {
+			final long startTime = System.nanoTime();
+			rf24.sendPayload(writePayloadType, payload);
+			txResult = new TxResult(payload, rf24.getRetransmittedPacketsCount(), System.nanoTime() - startTime);
+		} catch (RF24Exception e) {
+			// The failed payload is still in the TX FIFO, it must not be sent with the next one
+			try {
+				rf24.flushTx();
+			} catch (RF24Exception flushException) {
+				e.addSuppressed(flushException);
+			}
+			restartListening(wasListening, e);
+			throw e;
+		} catch (RuntimeException e) {
+			restartListening(wasListening, e);
+			throw e;
+		}
+		if (wasListening) {
+			rf24.startListening();
+		}
+		return txResult;
+	}
+
+	/**
+	 * Go back to RX mode after a failed send, keeping the failure as the exception thrown.
+	 */
+	private void restartListening(boolean wasListening, Exception failure) {
+		if (wasListening) {
+			try {
+				rf24.startListening();
+			} catch (RF24Exception | RuntimeException e) {
+				failure.addSuppressed(e);
+			}
+		}
+	}
+
+}
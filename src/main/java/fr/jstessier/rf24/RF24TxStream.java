@@ -0,0 +1,271 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import fr.jstessier.rf24.SpiCommands.SpiCommand;
+import fr.jstessier.rf24.enums.WritePayloadType;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadTimeoutException;
+import fr.jstessier.rf24.hardware.RF24Hardware;
+import fr.jstessier.rf24.utils.RegistersUtils;
+import fr.jstessier.rf24.utils.SpiCommandsUtils;
+
+/**
+ * Streaming transmission that keeps the 3 levels TX FIFO of the module full.
+ * 
+ * CE stays high while the stream is open, so the module sends the payloads of the TX FIFO back to back.
+ * The FIFO is topped up on each {@link #poll()} and the outcome of each payload is reported to the
+ * {@link TxStreamListener} in the order of the payloads.
+ * 
+ * The number of payloads still in the TX FIFO is known from the FIFO_STATUS flags : exactly when
+ * the FIFO is empty or full, otherwise only a lower bound of the delivered payloads is reported and
+ * the remaining outcomes are reported by the next polls.
+ * 
+ * A stream is not thread safe and the RF24 instance must not be used by others while it is open.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24TxStream implements AutoCloseable {
+
+	/** Number of levels of the TX FIFO. */
+	public static final int TX_FIFO_SIZE = 3;
+
+	/** The RF24 instance. */
+	private final RF24 rf24;
+
+	/** Interface with hardware for communication with RF module (SPI and GPIO). */
+	private final RF24Hardware rf24Hardware;
+
+	/** The listener of the outcomes. */
+	private final TxStreamListener listener;
+
+	/** The type of write payload for all the payloads of the stream. */
+	private final WritePayloadType writePayloadType;
+
+	/** Payloads waiting for a free level in the TX FIFO. */
+	private final Deque<byte[]> pendingPayloads = new ArrayDeque<>();
+
+	/** Payloads written in the TX FIFO without known outcome (oldest first). */
+	private final Deque<byte[]> inFlightPayloads = new ArrayDeque<>();
+
+	/** Is the stream open. */
+	private boolean open;
+
+	/**
+	 * Constructor. Use {@link RF24#openTxStream(TxStreamListener)}.
+	 * 
+	 * @param rf24				The RF24 instance (in TX mode).
+	 * @param rf24Hardware		Interface with hardware for communication with RF module (SPI and GPIO).
+	 * @param writePayloadType	The type of write payload.
+	 * @param listener			The listener of the outcomes.
+	 */
+	RF24TxStream(RF24 rf24, RF24Hardware rf24Hardware, WritePayloadType writePayloadType, TxStreamListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("listener is mandatory");
+		}
+		this.rf24 = rf24;
+		this.rf24Hardware = rf24Hardware;
+		this.writePayloadType = writePayloadType;
+		this.listener = listener;
+		this.rf24Hardware.setPinChipEnableHigh();
+		this.open = true;
+	}
+
+	/**
+	 * Queue a payload and top up the TX FIFO.
+	 * 
+	 * @param payload	The payload (1 to 32 bytes).
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void send(byte... payload) throws RF24Exception {
+		checkOpen();
+		SpiCommandsUtils.checkDataLength(getSpiCommand(), payload);
+		pendingPayloads.addLast(payload);
+		poll();
+	}
+
+	/**
+	 * Report the outcomes of the payloads that left the TX FIFO and top up the TX FIFO.
+	 * 
+	 * @return	The number of outcomes reported.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public int poll() throws RF24Exception {
+		checkOpen();
+		// One transfer returns STATUS and FIFO_STATUS
+		byte fifoStatus = rf24.readRegisterValue(Registers.FIFO_STATUS);
+		byte status = rf24.getLastStatus();
+
+		int outcomes;
+		if (RegistersUtils.bitIsTrue(status, Registers.STATUS.MAX_RT)) {
+			outcomes = handleMaxRetries(fifoStatus);
+		} else {
+			outcomes = reportDelivered(inFlightPayloads.size() - getMaxTxFifoCount(fifoStatus));
+			if (RegistersUtils.bitIsTrue(status, Registers.STATUS.TX_DS)) {
+				rf24.resetTxInterrupt();
+			}
+		}
+
+		// Each payload in flight is at most one used level
+		while (!pendingPayloads.isEmpty() && inFlightPayloads.size() < TX_FIFO_SIZE) {
+			byte[] payload = pendingPayloads.removeFirst();
+			rf24.writePayload(writePayloadType, payload);
+			inFlightPayloads.addLast(payload);
+		}
+
+		return outcomes;
+	}
+
+	/**
+	 * Wait until the outcome of all the queued payloads is reported.
+	 * 
+	 * @param timeoutMillis	The maximum time to wait in milliseconds.
+	 * @throws WritePayloadTimeoutException	If the timeout expired.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void flush(int timeoutMillis) throws RF24Exception {
+		awaitUnresolvedBelow(1, timeoutMillis);
+	}
+
+	/**
+	 * Wait until less than a number of payloads are without reported outcome (e.g. to bound the payloads in memory).
+	 * The IRQ pin is waited if connected, otherwise the FIFO_STATUS register is polled.
+	 * 
+	 * @param count			The number of payloads without outcome to go under (at least 1).
+	 * @param timeoutMillis	The maximum time to wait in milliseconds.
+	 * @throws WritePayloadTimeoutException	If the timeout expired.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void awaitUnresolvedBelow(int count, int timeoutMillis) throws RF24Exception {
+		if (count <= 0) {
+			throw new IllegalArgumentException("count must be positive");
+		}
+		long startTimeMillis = System.currentTimeMillis();
+		poll();
+		while (getUnresolvedCount() >= count) {
+			long remainingMillis = timeoutMillis - (System.currentTimeMillis() - startTimeMillis);
+			if (remainingMillis <= 0) {
+				throw new WritePayloadTimeoutException();
+			}
+			if (rf24Hardware.isIrqAvailable()) {
+				rf24Hardware.waitForIrq(remainingMillis * 1000);
+			}
+			poll();
+		}
+	}
+
+	/**
+	 * Close the stream (CE low). The payloads without reported outcome are forgotten.
+	 */
+	@Override
+	public void close() {
+		if (open) {
+			rf24Hardware.setPinChipEnableLow();
+			open = false;
+		}
+	}
+
+	/**
+	 * Return the number of payloads without reported outcome.
+	 * 
+	 * @return	The number of payloads queued or in the TX FIFO.
+	 */
+	public int getUnresolvedCount() {
+		return pendingPayloads.size() + inFlightPayloads.size();
+	}
+
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * The transmission is stopped by the module until MAX_RT is cleared, so the number
+	 * of payloads in the TX FIFO can be counted exactly. The payload at the head failed,
+	 * the previous ones were delivered and the next ones are written again after the flush.
+	 */
+	private int handleMaxRetries(byte fifoStatus) throws RF24Exception {
+		if (inFlightPayloads.isEmpty()) {
+			// Not raised by this stream
+			rf24.flushTx();
+			rf24.resetTxInterrupt();
+			return 0;
+		}
+		int txFifoCount = getMaxTxFifoCount(fifoStatus);
+		if (getMinTxFifoCount(fifoStatus) != txFifoCount) {
+			// Between 1 and 2 levels used : probe with a copy of the last payload (the FIFO is flushed after)
+			rf24.writePayload(writePayloadType, inFlightPayloads.getLast());
+			byte probedFifoStatus = rf24.readRegisterValue(Registers.FIFO_STATUS);
+			txFifoCount = RegistersUtils.bitIsTrue(probedFifoStatus, Registers.FIFO_STATUS.TX_FULL) ? 2 : 1;
+		}
+		int outcomes = reportDelivered(inFlightPayloads.size() - txFifoCount);
+		listener.onMaxRetries(inFlightPayloads.removeFirst());
+		outcomes++;
+
+		rf24.flushTx();
+		rf24.resetTxInterrupt();
+		while (!inFlightPayloads.isEmpty()) {
+			pendingPayloads.addFirst(inFlightPayloads.removeLast());
+		}
+		return outcomes;
+	}
+
+	private int reportDelivered(int count) {
+		for (int i = 0; i < count; i++) {
+			listener.onDelivered(inFlightPayloads.removeFirst());
+		}
+		return Math.max(count, 0);
+	}
+
+	/** Upper bound of the number of payloads in the TX FIFO. */
+	private int getMaxTxFifoCount(byte fifoStatus) {
+		if (RegistersUtils.bitIsTrue(fifoStatus, Registers.FIFO_STATUS.TX_EMPTY)) {
+			return 0;
+		}
+		if (RegistersUtils.bitIsTrue(fifoStatus, Registers.FIFO_STATUS.TX_FULL)) {
+			return TX_FIFO_SIZE;
+		}
+		return Math.min(TX_FIFO_SIZE - 1, inFlightPayloads.size());
+	}
+
+	/** Lower bound of the number of payloads in the TX FIFO. */
+	private int getMinTxFifoCount(byte fifoStatus) {
+		if (RegistersUtils.bitIsTrue(fifoStatus, Registers.FIFO_STATUS.TX_EMPTY)) {
+			return 0;
+		}
+		if (RegistersUtils.bitIsTrue(fifoStatus, Registers.FIFO_STATUS.TX_FULL)) {
+			return TX_FIFO_SIZE;
+		}
+		return 1;
+	}
+
+	private SpiCommand getSpiCommand() {
+		return writePayloadType == WritePayloadType.W_TX_PAYLOAD_NO_ACK ? SpiCommands.W_TX_PAYLOAD_NOACK : SpiCommands.W_TX_PAYLOAD;
+	}
+
+	private void checkOpen() {
+		if (!open) {
+			throw new IllegalStateException("The TX stream is closed");
+		}
+	}
+
+}
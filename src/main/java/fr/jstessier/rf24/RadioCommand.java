@@ -0,0 +1,42 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * A command executed on the radio thread of a {@link RF24RadioLoop}, with an exclusive access to the RF24 instance.
+ * 
+ * @param <T>	The type of the result.
+ * @author J.S. TESSIER
+ */
+@FunctionalInterface
+public interface RadioCommand<T> {
+
+	/**
+	 * Execute the command.
+	 * 
+	 * @param rf24	The RF24 instance.
+	 * @return	The result of the command.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	T execute(RF24 rf24) throws RF24Exception;
+
+}
@@ -0,0 +1,163 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.Arrays;
+
+import fr.jstessier.rf24.Registers.Register;
+
+/**
+ * Write-through shadow copy of the configuration registers of the nRF24L01+.
+ * 
+ * Only the registers that are never modified by the module itself are cached.
+ * The volatile registers (STATUS, OBSERVE_TX, RPD and FIFO_STATUS) are always read on the SPI bus.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RegistersCache {
+
+	/** Number of addresses in the register map (0x00 - 0x1D). */
+	public static final int REGISTERS_COUNT = 0x1E;
+
+	/** Maximum length of a register in bytes. */
+	public static final int REGISTER_MAX_LENGTH = 5;
+
+	/** All the registers that can be cached (in address order). */
+	public static final Register[] CACHEABLE_REGISTERS = new Register[] {
+			Registers.CONFIG, Registers.EN_AA, Registers.EN_RXADDR, Registers.SETUP_AW, Registers.SETUP_RETR,
+			Registers.RF_CH, Registers.RF_SETUP, Registers.RX_ADDR_P0, Registers.RX_ADDR_P1, Registers.RX_ADDR_P2,
+			Registers.RX_ADDR_P3, Registers.RX_ADDR_P4, Registers.RX_ADDR_P5, Registers.TX_ADDR, Registers.RX_PW_P0,
+			Registers.RX_PW_P1, Registers.RX_PW_P2, Registers.RX_PW_P3, Registers.RX_PW_P4, Registers.RX_PW_P5,
+			Registers.DYNPD, Registers.FEATURE };
+
+	/** Cacheable flag for each register address. */
+	private static final boolean[] CACHEABLE = new boolean[REGISTERS_COUNT];
+
+	static {
+		for (Register register : CACHEABLE_REGISTERS) {
+			CACHEABLE[register.getAddress()] = true;
+		}
+	}
+
+	/** The values of the registers (LSByte first). */
+	private final byte[][] values = new byte[REGISTERS_COUNT][REGISTER_MAX_LENGTH];
+
+	/** True if the value of the register is known. */
+	private final boolean[] valid = new boolean[REGISTERS_COUNT];
+
+	/**
+	 * Return true if the register is not modified by the module itself and can be cached.
+	 * 
+	 * @param registerAddress	The address of the register.
+	 * @return	True if the register can be cached.
+	 */
+	public static boolean isCacheable(byte registerAddress) {
+		return registerAddress >= 0 && registerAddress < REGISTERS_COUNT && CACHEABLE[registerAddress];
+	}
+
+	/**
+	 * Return true if the value of the register is known.
+	 * 
+	 * @param registerAddress	The address of the register.
+	 * @return	True if the value of the register is in the cache.
+	 */
+	public boolean isValid(byte registerAddress) {
+		return isCacheable(registerAddress) && valid[registerAddress];
+	}
+
+	/**
+	 * Return the cached value of a one byte register.
+	 * 
+	 * @param registerAddress	The address of the register.
+	 * @return	The cached value.
+	 * @throws IllegalStateException If the value is not in the cache.
+	 */
+	public byte getValue(byte registerAddress) {
+		checkValid(registerAddress);
+		return values[registerAddress][0];
+	}
+
+	/**
+	 * Return a copy of the cached value of a multi bytes register.
+	 * 
+	 * @param registerAddress	The address of the register.
+	 * @param length			The number of bytes to return.
+	 * @return	The cached value (LSByte first).
+	 * @throws IllegalStateException If the value is not in the cache.
+	 */
+	public byte[] getValues(byte registerAddress, byte length) {
+		checkValid(registerAddress);
+		return Arrays.copyOf(values[registerAddress], length);
+	}
+
+	/**
+	 * Update the cached value of a register after a read or a write on the SPI bus.
+	 * Does nothing if the register can not be cached.
+	 * 
+	 * @param registerAddress	The address of the register.
+	 * @param value				The value of the register (LSByte first).
+	 */
+	public void update(byte registerAddress, byte... value) {
+		if (!isCacheable(registerAddress) || value == null || value.length == 0) {
+			return;
+		}
+		System.arraycopy(value, 0, values[registerAddress], 0, Math.min(value.length, REGISTER_MAX_LENGTH));
+		valid[registerAddress] = true;
+	}
+
+	/**
+	 * Update the cached value of a one byte register (without allocation).
+	 * Does nothing if the register can not be cached.
+	 * 
+	 * @param registerAddress	The address of the register.
+	 * @param value				The value of the register.
+	 */
+	public void update(byte registerAddress, byte value) {
+		if (isCacheable(registerAddress)) {
+			values[registerAddress][0] = value;
+			valid[registerAddress] = true;
+		}
+	}
+
+	/**
+	 * Forget the cached value of a register.
+	 * 
+	 * @param registerAddress	The address of the register.
+	 */
+	public void invalidate(byte registerAddress) {
+		if (isCacheable(registerAddress)) {
+			valid[registerAddress] = false;
+		}
+	}
+
+	/**
+	 * Forget all the cached values.
+	 */
+	public void invalidateAll() {
+		Arrays.fill(valid, false);
+	}
+
+	private void checkValid(byte registerAddress) {
+		if (!isValid(registerAddress)) {
+			throw new IllegalStateException("The register " + registerAddress + " is not in the cache");
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.Arrays;
+
+import fr.jstessier.rf24.Registers.RegisterBits;
+import fr.jstessier.rf24.Registers.RegisterByte;
+import fr.jstessier.rf24.Registers.RegisterByteWithBits;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.utils.RegistersUtils;
+
+/**
+ * Collect the desired values of the one byte registers and write them to the module in one go.
+ * 
+ * Several bits updates of the same register are merged in a single write.
+ * On commit, the registers are written in address order and only if their value changes:
+ * a register is read before the write only if some of its writable bits are not set by the transaction
+ * and its value is not in the registers cache.
+ * 
+ * A transaction is not thread safe and can be reused after a commit.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RegistersTransaction {
+
+	/** Mask of a register fully set by the transaction. */
+	private static final byte FULL_MASK = (byte) 0xFF;
+
+	private final RF24 rf24;
+
+	/** The register for each address (null if not modified). */
+	private final RegisterByte[] registers = new RegisterByte[RegistersCache.REGISTERS_COUNT];
+
+	/** The desired value for each address (only the bits of the mask are meaningful). */
+	private final byte[] values = new byte[RegistersCache.REGISTERS_COUNT];
+
+	/** The bits set by the transaction for each address. */
+	private final byte[] masks = new byte[RegistersCache.REGISTERS_COUNT];
+
+	/**
+	 * Create a transaction on a module.
+	 * 
+	 * @param rf24	The module to configure.
+	 * @see RF24#beginTransaction()
+	 */
+	RegistersTransaction(RF24 rf24) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		this.rf24 = rf24;
+	}
+
+	/**
+	 * Set the value of a one bit field.
+	 * 
+	 * @param bits		The bits of the register.
+	 * @param bitsValue	The value of the bit.
+	 * @return	The current transaction.
+	 */
+	public RegistersTransaction set(RegisterBits bits, boolean bitsValue) {
+		if (bits.getMask() != 1) {
+			throw new IllegalArgumentException(bits.getName() + " is not one bit length");
+		}
+		return set(bits, bitsValue ? (byte) 1 : 0);
+	}
+
+	/**
+	 * Set the value of a bits field.
+	 * 
+	 * @param bits		The bits of the register.
+	 * @param bitsValue	The value of the bits (not shifted).
+	 * @return	The current transaction.
+	 */
+	public RegistersTransaction set(RegisterBits bits, byte bitsValue) {
+		RegistersUtils.checkRegisterBitsMask(bits, bitsValue);
+		final RegisterByteWithBits register = bits.getRegister();
+		final byte address = register.getAddress();
+		final byte mask = (byte) (bits.getMask() << bits.getShift());
+		registers[address] = register;
+		values[address] = (byte) ((values[address] & ~mask) | ((bitsValue << bits.getShift()) & mask));
+		masks[address] |= mask;
+		// All the writable bits are set: the reserved bits are written with 0
+		if ((masks[address] | ~register.getMask()) == FULL_MASK) {
+			masks[address] = FULL_MASK;
+		}
+		return this;
+	}
+
+	/**
+	 * Set the value of a whole register.
+	 * 
+	 * @param register	The register.
+	 * @param value		The value of the register.
+	 * @return	The current transaction.
+	 */
+	public RegistersTransaction set(RegisterByte register, byte value) {
+		if (register instanceof RegisterByteWithBits) {
+			RegistersUtils.checkRegisterMask((RegisterByteWithBits) register, value);
+		}
+		final byte address = register.getAddress();
+		registers[address] = register;
+		values[address] = value;
+		masks[address] = FULL_MASK;
+		return this;
+	}
+
+	/**
+	 * Return true if no value was set since the creation or the last commit.
+	 * 
+	 * @return	True if the transaction is empty.
+	 */
+	public boolean isEmpty() {
+		for (byte mask : masks) {
+			if (mask != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Forget all the values set since the creation or the last commit.
+	 */
+	public void clear() {
+		Arrays.fill(registers, null);
+		Arrays.fill(values, (byte) 0);
+		Arrays.fill(masks, (byte) 0);
+	}
+
+	/**
+	 * Write the changed registers to the module in address order and clear the transaction.
+	 * 
+	 * @return	The number of registers written.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public int commit() throws RF24Exception {
+		int writtenRegistersCount = 0;
+		try {
+			for (int address = 0; address < RegistersCache.REGISTERS_COUNT; address++) {
+				final byte mask = masks[address];
+				if (mask == 0) {
+					continue;
+				}
+				final RegisterByte register = registers[address];
+				final byte value;
+				if (mask == FULL_MASK) {
+					value = values[address];
+					// Without a known value, the register is always written
+					if (rf24.isRegisterValueKnown(register) && rf24.readRegisterValue(register) == value) {
+						continue;
+					}
+				}
+				else {
+					final byte currentValue = rf24.readRegisterValue(register);
+					value = (byte) ((currentValue & ~mask) | (values[address] & mask));
+					if (value == currentValue) {
+						continue;
+					}
+				}
+				rf24.writeRegisterValue(register, value);
+				writtenRegistersCount++;
+			}
+		} finally {
+			clear();
+		}
+		return writtenRegistersCount;
+	}
+
+}
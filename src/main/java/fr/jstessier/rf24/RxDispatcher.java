@@ -0,0 +1,320 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * Demultiplexer of the received payloads to a handler per data pipe.
+ * 
+ * The dispatcher is a {@link RxListener} of a {@link RF24RadioLoop} : the radio thread reads each payload once
+ * (the data pipe is given by RX_P_NO) and copies it in the bounded queue of its data pipe.
+ * The payloads are delivered to the handlers by {@link #dispatch(int)} on the thread of the consumer,
+ * one payload per data pipe in turn, so a busy data pipe can not starve the others.
+ * 
+ * A payload is dropped (and counted) if the queue of its data pipe is full or if the data pipe has no handler.
+ * The queues are allocated once : one producer (the radio thread) and one consumer thread are supported.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RxDispatcher implements RxListener {
+
+	/** Default capacity of the queue of each data pipe. */
+	public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+	private static final int PIPES_COUNT = DataPipe.values().length;
+
+	/** The queue of each data pipe (by index). */
+	private final PipeQueue[] queues = new PipeQueue[PIPES_COUNT];
+
+	/** The handler of each data pipe (by index). */
+	private final AtomicReferenceArray<RxListener> handlers = new AtomicReferenceArray<>(PIPES_COUNT);
+
+	/** The data pipe served first by the next dispatch. */
+	private int nextPipeIndex = 0;
+
+	/** The consumer thread waiting for payloads (null if none). */
+	private volatile Thread waitingThread;
+
+	/**
+	 * Constructor with the default queue capacity.
+	 */
+	public RxDispatcher() {
+		this(DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param queueCapacity	The maximum number of payloads waiting for each data pipe.
+	 */
+	public RxDispatcher(int queueCapacity) {
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("queueCapacity must be positive");
+		}
+		for (int i = 0; i < PIPES_COUNT; i++) {
+			queues[i] = new PipeQueue(queueCapacity);
+		}
+	}
+
+	/* ========
+	 * Handlers
+	 * ======== */
+
+	/**
+	 * Register the handler of a data pipe (replace the previous one).
+	 * The handler is invoked on the thread of {@link #dispatch(int)}.
+	 * 
+	 * @param dataPipe	The data pipe.
+	 * @param handler	The handler of the payloads received on the data pipe.
+	 * @return	The current dispatcher.
+	 */
+	public RxDispatcher setHandler(DataPipe dataPipe, RxListener handler) {
+		if (dataPipe == null) {
+			throw new IllegalArgumentException("dataPipe is mandatory");
+		}
+		if (handler == null) {
+			throw new IllegalArgumentException("handler is mandatory");
+		}
+		handlers.set(dataPipe.getIndex(), handler);
+		return this;
+	}
+
+	/**
+	 * Unregister the handler of a data pipe : its next payloads are dropped.
+	 * 
+	 * @param dataPipe	The data pipe.
+	 * @return	The current dispatcher.
+	 */
+	public RxDispatcher removeHandler(DataPipe dataPipe) {
+		handlers.set(dataPipe.getIndex(), null);
+		return this;
+	}
+
+	/* =======================
+	 * Producer (radio thread)
+	 * ======================= */
+
+	/** {@inheritDoc} */
+	@Override
+	public void onReceived(RxPacket packet) {
+		final int pipeIndex = packet.getDataPipe().getIndex();
+		final PipeQueue queue = queues[pipeIndex];
+		if (handlers.get(pipeIndex) == null || !queue.offer(packet)) {
+			queue.droppedPacketsCount.incrementAndGet();
+			return;
+		}
+		final Thread thread = waitingThread;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Forward the error to all the handlers (on the radio thread).
+	 */
+	@Override
+	public void onError(Exception exception) {
+		for (int i = 0; i < PIPES_COUNT; i++) {
+			final RxListener handler = handlers.get(i);
+			if (handler != null) {
+				handler.onError(exception);
+			}
+		}
+	}
+
+	/* ===================
+	 * Consumer (dispatch)
+	 * =================== */
+
+	/**
+	 * Deliver the waiting payloads to the handlers, one payload per data pipe in turn.
+	 * The packet given to a handler is reused after the handler returns.
+	 * A runtime exception thrown by a handler is counted and given to its {@link RxListener#onError(Exception)} :
+	 * the payload is removed from the queue anyway.
+	 * 
+	 * @param maxPackets	The maximum number of payloads to deliver.
+	 * @return	The number of payloads delivered.
+	 */
+	public int dispatch(int maxPackets) {
+		int count = 0;
+		boolean found = true;
+		while (found && count < maxPackets) {
+			found = false;
+			for (int i = 0; i < PIPES_COUNT && count < maxPackets; i++) {
+				final int pipeIndex = nextPipeIndex;
+				nextPipeIndex = (nextPipeIndex + 1) % PIPES_COUNT;
+				final PipeQueue queue = queues[pipeIndex];
+				final RxPacket packet = queue.peek();
+				if (packet == null) {
+					continue;
+				}
+				final RxListener handler = handlers.get(pipeIndex);
+				try {
+					if (handler != null) {
+						handler.onReceived(packet);
+					} else {
+						queue.droppedPacketsCount.incrementAndGet();
+					}
+				} catch (RuntimeException e) {
+					// The payload is consumed anyway, so the next payloads of the data pipe are still delivered
+					queue.failedPacketsCount.incrementAndGet();
+					handler.onError(e);
+				} finally {
+					queue.remove();
+				}
+				found = true;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Wait for payloads and deliver them to the handlers.
+	 * 
+	 * @param maxPackets	The maximum number of payloads to deliver.
+	 * @param timeoutMillis	The maximum time to wait for a first payload in milliseconds.
+	 * @return	The number of payloads delivered (0 if the timeout expired).
+	 */
+	public int dispatch(int maxPackets, long timeoutMillis) {
+		int count = dispatch(maxPackets);
+		if (count > 0) {
+			return count;
+		}
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		waitingThread = Thread.currentThread();
+		try {
+			while ((count = dispatch(maxPackets)) == 0) {
+				final long remainingNanos = deadline - System.nanoTime();
+				if (remainingNanos <= 0 || Thread.currentThread().isInterrupted()) {
+					break;
+				}
+				LockSupport.parkNanos(this, remainingNanos);
+			}
+		} finally {
+			waitingThread = null;
+		}
+		return count;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	/**
+	 * Return the number of payloads waiting to be dispatched for a data pipe.
+	 * 
+	 * @param dataPipe	The data pipe.
+	 * @return	The number of payloads in the queue of the data pipe.
+	 */
+	public int getQueuedPacketsCount(DataPipe dataPipe) {
+		return queues[dataPipe.getIndex()].size();
+	}
+
+	/**
+	 * Return the number of payloads dropped for a data pipe (queue full or no handler).
+	 * 
+	 * @param dataPipe	The data pipe.
+	 * @return	The number of payloads dropped since the creation of the dispatcher.
+	 */
+	public long getDroppedPacketsCount(DataPipe dataPipe) {
+		return queues[dataPipe.getIndex()].droppedPacketsCount.get();
+	}
+
+	/**
+	 * Return the number of payloads of a data pipe whose handler threw a runtime exception.
+	 * 
+	 * @param dataPipe	The data pipe.
+	 * @return	The number of payloads failed since the creation of the dispatcher.
+	 */
+	public long getFailedPacketsCount(DataPipe dataPipe) {
+		return queues[dataPipe.getIndex()].failedPacketsCount.get();
+	}
+
+	/**
+	 * Return the capacity of the queue of each data pipe.
+	 * 
+	 * @return	The maximum number of payloads waiting for each data pipe.
+	 */
+	public int getQueueCapacity() {
+		return queues[0].packets.length;
+	}
+
+	/**
+	 * Bounded queue of payloads with one producer thread and one consumer thread.
+	 * The packets are allocated once and reused.
+	 */
+	private static class PipeQueue {
+
+		private final RxPacket[] packets;
+
+		/** Index of the next packet to read (written by the consumer only). */
+		private volatile long head = 0;
+
+		/** Index of the next packet to write (written by the producer only). */
+		private volatile long tail = 0;
+
+		/** Number of payloads dropped (by the producer or the consumer). */
+		private final AtomicLong droppedPacketsCount = new AtomicLong();
+
+		/** Number of payloads whose handler threw a runtime exception (by the consumer). */
+		private final AtomicLong failedPacketsCount = new AtomicLong();
+
+		private PipeQueue(int capacity) {
+			packets = new RxPacket[capacity];
+			for (int i = 0; i < capacity; i++) {
+				packets[i] = new RxPacket();
+			}
+		}
+
+		private boolean offer(RxPacket packet) {
+			final long currentTail = tail;
+			if (currentTail - head == packets.length) {
+				return false;
+			}
+			packets[(int) (currentTail % packets.length)].set(packet.getDataPipe(), packet.getPayloadBuffer(), 0, packet.getLength());
+			// Publish the packet
+			tail = currentTail + 1;
+			return true;
+		}
+
+		private RxPacket peek() {
+			final long currentHead = head;
+			return (currentHead == tail) ? null : packets[(int) (currentHead % packets.length)];
+		}
+
+		private void remove() {
+			head = head + 1;
+		}
+
+		private int size() {
+			return (int) (tail - head);
+		}
+
+	}
+
+}
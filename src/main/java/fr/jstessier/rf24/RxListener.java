@@ -0,0 +1,57 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * Subscriber of the payloads received by a {@link RF24RadioLoop}.
+ * The methods are invoked on the radio thread and must return quickly.
+ * 
+ * @author J.S. TESSIER
+ */
+public interface RxListener {
+
+	/**
+	 * Invoked for each received payload.
+	 * The packet is reused for the next payloads : its content must be copied to be kept.
+	 * 
+	 * @param packet	The received packet.
+	 */
+	void onReceived(RxPacket packet);
+
+	/**
+	 * Invoked when the RX FIFO can not be read ({@link RF24Exception}),
+	 * or when a listener throws a runtime exception (the radio loop keeps running).
+	 * 
+	 * @param exception	The error.
+	 */
+	default void onError(Exception exception) {
+		// NOP
+	}
+
+	/**
+	 * Invoked when a poll of the RX FIFO finds no payload (at most once by idle time of the radio loop).
+	 */
+	default void onIdle() {
+		// NOP
+	}
+
+}
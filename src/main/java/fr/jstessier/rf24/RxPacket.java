@@ -0,0 +1,97 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.Arrays;
+
+import fr.jstessier.rf24.enums.DataPipe;
+
+/**
+ * A payload read from the RX FIFO, with the data pipe that received it.
+ * 
+ * The instances are meant to be reused : the payload buffer is allocated once with the maximum payload size.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RxPacket {
+
+	/** The payload buffer (only the first length bytes are valid). */
+	private final byte[] payload = new byte[RF24.MAX_PAYLOAD_SIZE];
+
+	/** The length of the payload. */
+	private int length;
+
+	/** The data pipe that received the payload. */
+	private DataPipe dataPipe;
+
+	/**
+	 * Update the packet.
+	 * 
+	 * @param dataPipe	The data pipe that received the payload.
+	 * @param data		The buffer that contains the payload.
+	 * @param offset	The offset of the payload in the buffer.
+	 * @param length	The length of the payload.
+	 */
+	void set(DataPipe dataPipe, byte[] data, int offset, int length) {
+		System.arraycopy(data, offset, payload, 0, length);
+		this.dataPipe = dataPipe;
+		this.length = length;
+	}
+
+	/**
+	 * Return a copy of the payload.
+	 * 
+	 * @return	The payload.
+	 */
+	public byte[] getPayload() {
+		return Arrays.copyOf(payload, length);
+	}
+
+	/**
+	 * Copy the payload in a buffer (without allocation).
+	 * 
+	 * @param destination	The destination buffer.
+	 * @param offset		The offset in the destination buffer.
+	 * @return	The length of the payload.
+	 */
+	public int copyPayload(byte[] destination, int offset) {
+		System.arraycopy(payload, 0, destination, offset, length);
+		return length;
+	}
+
+	/**
+	 * Return the internal payload buffer (only the first {@link #getLength()} bytes are valid).
+	 * The buffer is overwritten when the packet is reused.
+	 * 
+	 * @return	The payload buffer.
+	 */
+	public byte[] getPayloadBuffer() {
+		return payload;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public DataPipe getDataPipe() {
+		return dataPipe;
+	}
+
+}
@@ -0,0 +1,63 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/**
+ * Outcome of a delivered payload.
+ * 
+ * @author J.S. TESSIER
+ */
+public class TxResult {
+
+	/** The payload. */
+	private final byte[] payload;
+
+	/** The count of retransmitted packets (OBSERVE_TX.ARC_CNT). */
+	private final byte retransmittedPacketsCount;
+
+	/** The time from the start of the send to the delivery in nanoseconds. */
+	private final long durationNanos;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param payload					The payload.
+	 * @param retransmittedPacketsCount	The count of retransmitted packets (OBSERVE_TX.ARC_CNT).
+	 * @param durationNanos				The time from the start of the send to the delivery in nanoseconds.
+	 */
+	public TxResult(byte[] payload, byte retransmittedPacketsCount, long durationNanos) {
+		this.payload = payload;
+		this.retransmittedPacketsCount = retransmittedPacketsCount;
+		this.durationNanos = durationNanos;
+	}
+
+	public byte[] getPayload() {
+		return payload.clone();
+	}
+
+	public byte getRetransmittedPacketsCount() {
+		return retransmittedPacketsCount;
+	}
+
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+}
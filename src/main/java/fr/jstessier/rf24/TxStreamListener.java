@@ -0,0 +1,45 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/**
+ * Listener of the outcomes of the payloads sent by a {@link RF24TxStream}.
+ * The outcomes are reported in the order of the payloads.
+ * 
+ * @author J.S. TESSIER
+ */
+public interface TxStreamListener {
+
+	/**
+	 * Invoked when a payload is acknowledged by the receiver
+	 * (or sent, for a payload without acknowledgment).
+	 * 
+	 * @param payload	The payload given to {@link RF24TxStream#send(byte...)}.
+	 */
+	void onDelivered(byte[] payload);
+
+	/**
+	 * Invoked when a payload is dropped after the maximum number of retries.
+	 * 
+	 * @param payload	The payload given to {@link RF24TxStream#send(byte...)}.
+	 */
+	void onMaxRetries(byte[] payload);
+
+}
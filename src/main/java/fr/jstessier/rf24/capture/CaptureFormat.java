@@ -0,0 +1,128 @@
+package fr.jstessier.rf24.capture;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/**
+ * Format of the capture files : a header followed by a ring of fixed size slots, one record by slot.
+ * All the values are big endian.
+ * 
+ * <pre>
+ * Header (64 bytes) :
+ *   0  int   magic number
+ *   4  int   version
+ *   8  int   size of a slot
+ *   12 int   number of slots
+ *   16 long  time of the start of the capture (milliseconds since the epoch)
+ *   24 long  sequence number of the last record (0 if none)
+ * Slot (128 bytes) :
+ *   0  long  sequence number of the record (1 for the first record, 0 if the slot is empty)
+ *   8  long  time of the record since the start of the capture in nanoseconds
+ *   16 byte  type ({@link CaptureRecordType})
+ *   17 byte  data pipe (RX)
+ *   18 byte  frequency channel (TX and RX)
+ *   19 byte  STATUS register value (TX and RX)
+ *   20 byte  length of the data
+ *   24       data (payload, or bytes sent for a SPI transfer)
+ *   64       bytes received (SPI transfer)
+ * </pre>
+ * The record n is in the slot (n - 1) modulo the number of slots : the oldest records are overwritten.
+ * 
+ * @author J.S. TESSIER
+ */
+public final class CaptureFormat {
+
+	/** Magic number ("RF24"). */
+	public static final int MAGIC = 0x52463234;
+
+	/** Version of the format. */
+	public static final int VERSION = 1;
+
+	/** Size of the header. */
+	public static final int HEADER_SIZE = 64;
+
+	/** Size of a slot. */
+	public static final int SLOT_SIZE = 128;
+
+	/** Maximum size of the data of a record (the longest SPI transfer : command and 32 bytes). */
+	public static final int MAX_DATA_SIZE = 33;
+
+	// Offsets in the header
+
+	static final int MAGIC_OFFSET = 0;
+
+	static final int VERSION_OFFSET = 4;
+
+	static final int SLOT_SIZE_OFFSET = 8;
+
+	static final int SLOTS_COUNT_OFFSET = 12;
+
+	static final int START_TIME_OFFSET = 16;
+
+	static final int LAST_SEQUENCE_OFFSET = 24;
+
+	// Offsets in a slot
+
+	static final int SEQUENCE_OFFSET = 0;
+
+	static final int TIMESTAMP_OFFSET = 8;
+
+	static final int TYPE_OFFSET = 16;
+
+	static final int DATA_PIPE_OFFSET = 17;
+
+	static final int CHANNEL_OFFSET = 18;
+
+	static final int STATUS_OFFSET = 19;
+
+	static final int LENGTH_OFFSET = 20;
+
+	static final int DATA_OFFSET = 24;
+
+	static final int RESPONSE_OFFSET = 64;
+
+	/**
+	 * Private constructor.
+	 */
+	private CaptureFormat() {
+		// NOP
+	}
+
+	/**
+	 * Return the position of the slot of a record in the file.
+	 * 
+	 * @param sequence		The sequence number of the record.
+	 * @param slotsCount	The number of slots.
+	 * @return	The position of the slot.
+	 */
+	static int getSlotPosition(long sequence, int slotsCount) {
+		return HEADER_SIZE + (int) ((sequence - 1) % slotsCount) * SLOT_SIZE;
+	}
+
+	/**
+	 * Return the size of a capture file.
+	 * 
+	 * @param slotsCount	The number of slots.
+	 * @return	The size in bytes.
+	 */
+	public static long getFileSize(int slotsCount) {
+		return HEADER_SIZE + (long) slotsCount * SLOT_SIZE;
+	}
+
+}
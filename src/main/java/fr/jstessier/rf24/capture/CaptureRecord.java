@@ -0,0 +1,143 @@
+package fr.jstessier.rf24.capture;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.Arrays;
+
+import fr.jstessier.rf24.utils.BytesUtils;
+
+/**
+ * A record read from a capture file.
+ * 
+ * The instances are meant to be reused : the buffers are allocated once with the maximum size of the data.
+ * 
+ * @author J.S. TESSIER
+ */
+public class CaptureRecord {
+
+	/** The data buffer (only the first length bytes are valid). */
+	private final byte[] data = new byte[CaptureFormat.MAX_DATA_SIZE];
+
+	/** The response buffer (SPI transfers only, the first length bytes are valid). */
+	private final byte[] response = new byte[CaptureFormat.MAX_DATA_SIZE];
+
+	private long sequence;
+
+	/** Time of the record since the start of the capture in nanoseconds. */
+	private long timestampNanos;
+
+	private CaptureRecordType type;
+
+	private int dataPipe;
+
+	private byte channel;
+
+	private byte status;
+
+	private int length;
+
+	/**
+	 * Update the record.
+	 */
+	void set(long sequence, long timestampNanos, CaptureRecordType type, int dataPipe, byte channel, byte status, int length) {
+		this.sequence = sequence;
+		this.timestampNanos = timestampNanos;
+		this.type = type;
+		this.dataPipe = dataPipe;
+		this.channel = channel;
+		this.status = status;
+		this.length = length;
+	}
+
+	/**
+	 * Return a copy of the data.
+	 * 
+	 * @return	The data.
+	 */
+	public byte[] getData() {
+		return Arrays.copyOf(data, length);
+	}
+
+	/**
+	 * Return the internal data buffer (only the first {@link #getLength()} bytes are valid).
+	 * The buffer is overwritten when the record is reused.
+	 * 
+	 * @return	The data buffer.
+	 */
+	public byte[] getDataBuffer() {
+		return data;
+	}
+
+	/**
+	 * Return the internal response buffer (SPI transfers only, the first {@link #getLength()} bytes are valid).
+	 * The buffer is overwritten when the record is reused.
+	 * 
+	 * @return	The response buffer.
+	 */
+	public byte[] getResponseBuffer() {
+		return response;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public long getTimestampNanos() {
+		return timestampNanos;
+	}
+
+	public CaptureRecordType getType() {
+		return type;
+	}
+
+	public int getDataPipe() {
+		return dataPipe;
+	}
+
+	public byte getChannel() {
+		return channel;
+	}
+
+	public byte getStatus() {
+		return status;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder().append('#').append(sequence).append(' ')
+				.append(timestampNanos / 1000).append("us ").append(type);
+		if (type == CaptureRecordType.SPI) {
+			builder.append(" sent=").append(BytesUtils.bytesToHex(getData()))
+					.append(" received=").append(BytesUtils.bytesToHex(Arrays.copyOf(response, length)));
+		} else {
+			if (type == CaptureRecordType.RX) {
+				builder.append(" pipe=").append(dataPipe);
+			}
+			builder.append(" channel=").append(channel).append(" status=").append(BytesUtils.bytesToHex(status))
+					.append(" payload=").append(BytesUtils.bytesToHex(getData()));
+		}
+		return builder.toString();
+	}
+
+}
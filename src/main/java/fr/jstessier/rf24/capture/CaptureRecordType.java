@@ -0,0 +1,72 @@
+package fr.jstessier.rf24.capture;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/**
+ * Type of a capture record.
+ * 
+ * @author J.S. TESSIER
+ */
+public enum CaptureRecordType {
+
+	/** Payload written in the TX FIFO (the status is the STATUS register value clocked out by the write). */
+	TX((byte) 1),
+	/** Payload received (the status is the STATUS register value before the payload is read). */
+	RX((byte) 2),
+	/** Raw SPI transfer (the data is sent to the module, the response is received from it). */
+	SPI((byte) 3);
+
+	/** The value of the type in a capture file. */
+	private final byte value;
+
+	/**
+	 * Private constructor.
+	 * 
+	 * @param value	The value of the type in a capture file.
+	 */
+	private CaptureRecordType(byte value) {
+		this.value = value;
+	}
+
+	/**
+	 * Return the value of the type in a capture file.
+	 * @return	The value of the type in a capture file.
+	 */
+	public byte getValue() {
+		return value;
+	}
+
+	/**
+	 * Return a CaptureRecordType from a value read in a capture file.
+	 * 
+	 * @param value	The value of the type in a capture file.
+	 * @return	Return the CaptureRecordType from the value.
+	 * @throws IllegalArgumentException If the value not exists in the enum.
+	 */
+	public static CaptureRecordType getFromValue(byte value) {
+		for (CaptureRecordType type : values()) {
+			if (value == type.getValue()) {
+				return type;
+			}
+		}
+		throw new IllegalArgumentException("There is no CaptureRecordType for the value = " + value);
+	}
+
+}
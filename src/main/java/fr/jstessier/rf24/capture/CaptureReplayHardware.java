@@ -0,0 +1,185 @@
+package fr.jstessier.rf24.capture;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.hardware.emulator.AirPacket;
+import fr.jstessier.rf24.hardware.emulator.EmulatorScheduler;
+import fr.jstessier.rf24.hardware.emulator.RF24HardwareEmulator;
+
+/**
+ * Emulated RF24 module that replays the payloads received in a capture : the RX records of a
+ * {@link RingCaptureReader} are put in the RX FIFO of a {@link RF24HardwareEmulator} (on their data pipe, whatever
+ * the channel) while the module is in RX mode, so the captured traffic goes through the driver and the listeners of
+ * the application again.
+ * 
+ * <ul>
+ * <li>The registers, the FIFOs and the STATUS register are the ones of the emulator.</li>
+ * <li>The packets sent with an acknowledgment are acknowledged by the medium (TX_DS), the TX and SPI records of the
+ * capture are not replayed.</li>
+ * <li>The payloads are replayed as fast as the RX FIFO is read, or with the timing of the capture
+ * (see {@link #setSpeed(double)}).</li>
+ * </ul>
+ * The records are replayed on the SPI transfers : the IRQ pin is not available and the driver polls the STATUS
+ * register.
+ * 
+ * @author J.S. TESSIER
+ */
+public class CaptureReplayHardware extends RF24HardwareEmulator {
+
+	/** The reader of the capture. */
+	private final RingCaptureReader reader;
+
+	/** The next RX record (valid if nextRecordAvailable). */
+	private final CaptureRecord nextRecord = new CaptureRecord();
+
+	private boolean nextRecordAvailable = false;
+
+	/** Speed of the replay (0 for as fast as possible). */
+	private volatile double speed = 0;
+
+	/** The time when the replay started (first RX mode) in nanoseconds, 0 if not started. */
+	private long replayStartNanos = 0;
+
+	/** The timestamp of the first RX record in nanoseconds, -1 if not read yet. */
+	private long captureStartNanos = -1;
+
+	/** The number of payloads put in the RX FIFO. */
+	private volatile long replayedPacketsCount = 0;
+
+	/**
+	 * Constructor on the real time : the replay starts with the current record of the reader.
+	 * 
+	 * @param reader	The reader of the capture.
+	 */
+	public CaptureReplayHardware(RingCaptureReader reader) {
+		super(EmulatorScheduler.realTime());
+		if (reader == null) {
+			throw new IllegalArgumentException("reader is mandatory");
+		}
+		this.reader = reader;
+		setMedium(CaptureReplayHardware::acknowledge);
+	}
+
+	/**
+	 * Medium that acknowledges the packets that require it (as a receiver that is always in range).
+	 */
+	private static void acknowledge(RF24HardwareEmulator source, AirPacket packet, long startTime, long endTime) {
+		if (packet.isNoAck()) {
+			return;
+		}
+		final AirPacket ack = new AirPacket(packet.getChannel(), packet.getDataRates(), packet.getAddress(),
+				new byte[0], packet.getPid(), true, packet.getCrcLength());
+		source.getScheduler().schedule(endTime + TSTBY2A_NANOS, () -> source.receiveAck(ack));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The records are replayed by the SPI transfers.
+	 */
+	@Override
+	public boolean isIrqAvailable() {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The due RX records are put in the RX FIFO before the transfer.
+	 */
+	@Override
+	public void spiTransfer(byte[] buffer, int offset, int length) throws RF24Exception {
+		synchronized (getScheduler()) {
+			replay();
+			super.spiTransfer(buffer, offset, length);
+		}
+	}
+
+	/**
+	 * Put the next RX records in the RX FIFO (in RX mode, when they are due).
+	 */
+	private void replay() {
+		if (!isListening()) {
+			return;
+		}
+		final long now = System.nanoTime();
+		if (replayStartNanos == 0) {
+			replayStartNanos = now;
+		}
+		while (getRxFifoSize() < FIFO_SIZE && readNextRecord()) {
+			if (captureStartNanos < 0) {
+				captureStartNanos = nextRecord.getTimestampNanos();
+			}
+			final double currentSpeed = speed;
+			if (currentSpeed > 0
+					&& (nextRecord.getTimestampNanos() - captureStartNanos) / currentSpeed > now - replayStartNanos) {
+				return;
+			}
+			injectRxPayload(nextRecord.getDataPipe() & 0b111, nextRecord.getDataBuffer(), 0,
+					Math.min(nextRecord.getLength(), MAX_PAYLOAD_LENGTH));
+			nextRecordAvailable = false;
+			replayedPacketsCount++;
+		}
+	}
+
+	private boolean readNextRecord() {
+		while (!nextRecordAvailable && reader.next(nextRecord)) {
+			nextRecordAvailable = nextRecord.getType() == CaptureRecordType.RX && nextRecord.getLength() > 0;
+		}
+		return nextRecordAvailable;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public long getReplayedPacketsCount() {
+		return replayedPacketsCount;
+	}
+
+	/**
+	 * Return true when all the RX records have been read from the RX FIFO.
+	 * 
+	 * @return	True if the replay is finished.
+	 */
+	public boolean isFinished() {
+		synchronized (getScheduler()) {
+			return getRxFifoSize() == 0 && !readNextRecord();
+		}
+	}
+
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Set the speed of the replay.
+	 * 
+	 * @param speed	1 for the timing of the capture, 2 for twice faster..., 0 for as fast as the RX FIFO is read.
+	 * @return	The current CaptureReplayHardware instance.
+	 */
+	public CaptureReplayHardware setSpeed(double speed) {
+		if (speed < 0) {
+			throw new IllegalArgumentException("speed must be positive");
+		}
+		this.speed = speed;
+		return this;
+	}
+
+}
@@ -0,0 +1,86 @@
+package fr.jstessier.rf24.capture;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/**
+ * Sink of the captured traffic : the payloads transmitted and received (recorded by {@link fr.jstessier.rf24.RF24})
+ * and the raw SPI transfers (recorded by {@link RF24HardwareCapture}).
+ * The methods are invoked on the thread of the operations, must return quickly and must not keep the buffers.
+ * 
+ * @author J.S. TESSIER
+ */
+public interface RF24Capture {
+
+	/** Capture that ignores everything (the default) : nothing is captured. */
+	public static final RF24Capture NONE = new RF24Capture() {
+
+		@Override
+		public void onTx(byte channel, byte status, byte[] payload, int offset, int length) {
+			// NOP
+		}
+
+		@Override
+		public void onRx(byte channel, int dataPipe, byte status, byte[] payload, int offset, int length) {
+			// NOP
+		}
+
+		@Override
+		public void onSpiTransfer(byte[] sent, int sentOffset, byte[] received, int receivedOffset, int length) {
+			// NOP
+		}
+
+	};
+
+	/**
+	 * Invoked for each payload written in the TX FIFO (by a send, a {@link fr.jstessier.rf24.RF24TxStream} or a direct write).
+	 * The outcome of the transmission is in the STATUS values of the SPI records.
+	 * 
+	 * @param channel	The frequency channel.
+	 * @param status	The STATUS register value clocked out by the write of the payload.
+	 * @param payload	The buffer that contains the payload.
+	 * @param offset	The offset of the payload in the buffer.
+	 * @param length	The length of the payload.
+	 */
+	void onTx(byte channel, byte status, byte[] payload, int offset, int length);
+
+	/**
+	 * Invoked for each payload read from the RX FIFO.
+	 * 
+	 * @param channel	The frequency channel.
+	 * @param dataPipe	The number of the data pipe that received the payload.
+	 * @param status	The STATUS register value before the payload is read.
+	 * @param payload	The buffer that contains the payload.
+	 * @param offset	The offset of the payload in the buffer.
+	 * @param length	The length of the payload.
+	 */
+	void onRx(byte channel, int dataPipe, byte status, byte[] payload, int offset, int length);
+
+	/**
+	 * Invoked after each SPI transfer.
+	 * 
+	 * @param sent				The buffer that contains the bytes sent to the module.
+	 * @param sentOffset		The offset of the bytes sent.
+	 * @param received			The buffer that contains the bytes received from the module.
+	 * @param receivedOffset	The offset of the bytes received.
+	 * @param length			The number of bytes transferred (command included).
+	 */
+	void onSpiTransfer(byte[] sent, int sentOffset, byte[] received, int receivedOffset, int length);
+
+}
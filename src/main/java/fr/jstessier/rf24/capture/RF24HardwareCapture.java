@@ -0,0 +1,163 @@
+package fr.jstessier.rf24.capture;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.nio.ByteBuffer;
+
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.hardware.RF24Hardware;
+
+/**
+ * Decorator of a {@link RF24Hardware} that records each SPI transfer (bytes sent and received) in a {@link RF24Capture}.
+ * The bytes sent are copied in a reused buffer before the transfers in place.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24HardwareCapture implements RF24Hardware {
+
+	/** The decorated hardware. */
+	private final RF24Hardware rf24Hardware;
+
+	/** The capture. */
+	private final RF24Capture capture;
+
+	/** The bytes sent by the transfers in place. */
+	private byte[] sent = new byte[2 * CaptureFormat.MAX_DATA_SIZE];
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24Hardware	The decorated hardware.
+	 * @param capture		The capture.
+	 */
+	public RF24HardwareCapture(RF24Hardware rf24Hardware, RF24Capture capture) {
+		if (rf24Hardware == null) {
+			throw new IllegalArgumentException("rf24Hardware is mandatory");
+		}
+		if (capture == null) {
+			throw new IllegalArgumentException("capture is mandatory");
+		}
+		this.rf24Hardware = rf24Hardware;
+		this.capture = capture;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setPinChipEnableHigh() {
+		rf24Hardware.setPinChipEnableHigh();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setPinChipEnableLow() {
+		rf24Hardware.setPinChipEnableLow();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte[] spiWrite(byte... data) throws RF24Exception {
+		byte[] result = rf24Hardware.spiWrite(data);
+		capture.onSpiTransfer(data, 0, result, 0, data.length);
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void spiTransfer(byte[] buffer, int offset, int length) throws RF24Exception {
+		final int copiedLength = copySent(buffer, offset, length);
+		rf24Hardware.spiTransfer(buffer, offset, length);
+		capture.onSpiTransfer(sent, 0, buffer, offset, copiedLength);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void spiTransfer(ByteBuffer buffer) throws RF24Exception {
+		final int length = Math.min(buffer.remaining(), CaptureFormat.MAX_DATA_SIZE);
+		ensureSentCapacity(2 * length);
+		final int position = buffer.position();
+		for (int i = 0; i < length; i++) {
+			sent[i] = buffer.get(position + i);
+		}
+		rf24Hardware.spiTransfer(buffer);
+		// The received bytes are copied after the sent bytes
+		for (int i = 0; i < length; i++) {
+			sent[length + i] = buffer.get(position + i);
+		}
+		capture.onSpiTransfer(sent, 0, sent, length, length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void spiTransfers(byte[] buffer, int offset, int[] lengths, int count) throws RF24Exception {
+		int totalLength = 0;
+		for (int i = 0; i < count; i++) {
+			totalLength += lengths[i];
+		}
+		copySent(buffer, offset, totalLength);
+		rf24Hardware.spiTransfers(buffer, offset, lengths, count);
+		int position = 0;
+		for (int i = 0; i < count; i++) {
+			capture.onSpiTransfer(sent, position, buffer, offset + position, lengths[i]);
+			position += lengths[i];
+		}
+	}
+
+	private int copySent(byte[] buffer, int offset, int length) {
+		ensureSentCapacity(length);
+		System.arraycopy(buffer, offset, sent, 0, length);
+		return length;
+	}
+
+	private void ensureSentCapacity(int length) {
+		if (sent.length < length) {
+			// Only for unusual batches, the buffer is kept
+			sent = new byte[length];
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isIrqAvailable() {
+		return rf24Hardware.isIrqAvailable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean waitForIrq(long timeoutMicroseconds) throws RF24Exception {
+		return rf24Hardware.waitForIrq(timeoutMicroseconds);
+	}
+
+}
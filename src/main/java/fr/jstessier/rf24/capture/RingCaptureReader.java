@@ -0,0 +1,177 @@
+package fr.jstessier.rf24.capture;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of a capture file written by a {@link RingCaptureWriter}, possibly during the capture.
+ * 
+ * <pre>
+ * RingCaptureReader reader = new RingCaptureReader(Paths.get("/var/log/rf24.cap"));
+ * CaptureRecord record = new CaptureRecord();
+ * while (reader.next(record)) {
+ *     System.out.println(record);
+ * }
+ * </pre>
+ * 
+ * A reader is not thread safe.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RingCaptureReader {
+
+	/** The mapped file. */
+	private final MappedByteBuffer buffer;
+
+	/** The number of slots. */
+	private final int slotsCount;
+
+	/** The time of the start of the capture in milliseconds since the epoch. */
+	private final long startTimeMillis;
+
+	/** The sequence number of the next record read by {@link #next(CaptureRecord)}. */
+	private long nextSequence;
+
+	/**
+	 * Constructor : the reader starts with the oldest record.
+	 * 
+	 * @param path	The path of the file.
+	 * @throws IOException	If the file can not be mapped or is not a capture file.
+	 */
+	public RingCaptureReader(Path path) throws IOException {
+		if (path == null) {
+			throw new IllegalArgumentException("path is mandatory");
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < CaptureFormat.HEADER_SIZE) {
+				throw new IOException("Not a capture file : " + path);
+			}
+			MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, CaptureFormat.HEADER_SIZE);
+			if (header.getInt(CaptureFormat.MAGIC_OFFSET) != CaptureFormat.MAGIC
+					|| header.getInt(CaptureFormat.VERSION_OFFSET) != CaptureFormat.VERSION
+					|| header.getInt(CaptureFormat.SLOT_SIZE_OFFSET) != CaptureFormat.SLOT_SIZE) {
+				throw new IOException("Not a capture file (or not supported version) : " + path);
+			}
+			slotsCount = header.getInt(CaptureFormat.SLOTS_COUNT_OFFSET);
+			if (slotsCount < 1 || channel.size() < CaptureFormat.getFileSize(slotsCount)) {
+				throw new IOException("Truncated capture file : " + path);
+			}
+			startTimeMillis = header.getLong(CaptureFormat.START_TIME_OFFSET);
+			buffer = channel.map(MapMode.READ_ONLY, 0, CaptureFormat.getFileSize(slotsCount));
+		}
+		nextSequence = getFirstSequence();
+	}
+
+	/**
+	 * Read a record.
+	 * 
+	 * @param sequence	The sequence number of the record.
+	 * @param record	The record to update.
+	 * @return	True if the record has been read, false if it is not written or has been overwritten.
+	 */
+	public boolean read(long sequence, CaptureRecord record) {
+		if (sequence < 1 || sequence > getLastSequence()) {
+			return false;
+		}
+		final int position = CaptureFormat.getSlotPosition(sequence, slotsCount);
+		if (buffer.getLong(position + CaptureFormat.SEQUENCE_OFFSET) != sequence) {
+			return false;
+		}
+		final int length = Math.min(buffer.get(position + CaptureFormat.LENGTH_OFFSET) & 0xFF, CaptureFormat.MAX_DATA_SIZE);
+		final CaptureRecordType type;
+		try {
+			type = CaptureRecordType.getFromValue(buffer.get(position + CaptureFormat.TYPE_OFFSET));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		record.set(sequence, buffer.getLong(position + CaptureFormat.TIMESTAMP_OFFSET), type,
+				buffer.get(position + CaptureFormat.DATA_PIPE_OFFSET), buffer.get(position + CaptureFormat.CHANNEL_OFFSET),
+				buffer.get(position + CaptureFormat.STATUS_OFFSET), length);
+		for (int i = 0; i < length; i++) {
+			record.getDataBuffer()[i] = buffer.get(position + CaptureFormat.DATA_OFFSET + i);
+			record.getResponseBuffer()[i] = buffer.get(position + CaptureFormat.RESPONSE_OFFSET + i);
+		}
+		// Overwritten while it was read
+		return buffer.getLong(position + CaptureFormat.SEQUENCE_OFFSET) == sequence;
+	}
+
+	/**
+	 * Read the next record (the records overwritten are skipped).
+	 * 
+	 * @param record	The record to update.
+	 * @return	True if a record has been read, false if there is no more record (yet).
+	 */
+	public boolean next(CaptureRecord record) {
+		nextSequence = Math.max(nextSequence, getFirstSequence());
+		while (nextSequence <= getLastSequence()) {
+			if (read(nextSequence++, record)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Go back to the oldest record.
+	 * 
+	 * @return	The current RingCaptureReader instance.
+	 */
+	public RingCaptureReader rewind() {
+		nextSequence = getFirstSequence();
+		return this;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public int getSlotsCount() {
+		return slotsCount;
+	}
+
+	public long getStartTimeMillis() {
+		return startTimeMillis;
+	}
+
+	/**
+	 * Return the sequence number of the oldest record kept.
+	 * 
+	 * @return	The sequence number (1 if the ring is not full).
+	 */
+	public long getFirstSequence() {
+		return Math.max(getLastSequence() - slotsCount + 1, 1);
+	}
+
+	/**
+	 * Return the sequence number of the last record written.
+	 * 
+	 * @return	The sequence number (0 if none).
+	 */
+	public long getLastSequence() {
+		return buffer.getLong(CaptureFormat.LAST_SEQUENCE_OFFSET);
+	}
+
+}
@@ -0,0 +1,159 @@
+package fr.jstessier.rf24.capture;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Capture in a memory-mapped ring file ({@link CaptureFormat}) : the records are copied in the mapped memory, without
+ * allocation or system call, and the oldest ones are overwritten when the ring is full.
+ * The file is written by the operating system, it can be read by a {@link RingCaptureReader} during the capture
+ * (a record being overwritten is skipped).
+ * 
+ * <pre>
+ * RingCaptureWriter capture = new RingCaptureWriter(Paths.get("/var/log/rf24.cap"), 65536);
+ * RF24 rf24 = new RF24(new RF24HardwareCapture(hardware, capture));
+ * rf24.setCapture(capture);
+ * </pre>
+ * 
+ * @author J.S. TESSIER
+ */
+public class RingCaptureWriter implements RF24Capture, Closeable {
+
+	/** The mapped file. */
+	private final MappedByteBuffer buffer;
+
+	/** The number of slots. */
+	private final int slotsCount;
+
+	/** The time of the start of the capture in nanoseconds. */
+	private final long startNanos;
+
+	/** The sequence number of the last record. */
+	private long lastSequence = 0;
+
+	/**
+	 * Constructor : the file is created or truncated.
+	 * 
+	 * @param path			The path of the file.
+	 * @param slotsCount	The number of slots (the maximum number of records kept).
+	 * @throws IOException	If the file can not be created or mapped.
+	 */
+	public RingCaptureWriter(Path path, int slotsCount) throws IOException {
+		if (path == null) {
+			throw new IllegalArgumentException("path is mandatory");
+		}
+		if (slotsCount < 1 || CaptureFormat.getFileSize(slotsCount) > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("slotsCount must be between 1 and "
+					+ (Integer.MAX_VALUE - CaptureFormat.HEADER_SIZE) / CaptureFormat.SLOT_SIZE);
+		}
+		this.slotsCount = slotsCount;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// The mapping stays valid after the channel is closed
+			buffer = channel.map(MapMode.READ_WRITE, 0, CaptureFormat.getFileSize(slotsCount));
+		}
+		startNanos = System.nanoTime();
+		buffer.putInt(CaptureFormat.MAGIC_OFFSET, CaptureFormat.MAGIC);
+		buffer.putInt(CaptureFormat.VERSION_OFFSET, CaptureFormat.VERSION);
+		buffer.putInt(CaptureFormat.SLOT_SIZE_OFFSET, CaptureFormat.SLOT_SIZE);
+		buffer.putInt(CaptureFormat.SLOTS_COUNT_OFFSET, slotsCount);
+		buffer.putLong(CaptureFormat.START_TIME_OFFSET, System.currentTimeMillis());
+		buffer.putLong(CaptureFormat.LAST_SEQUENCE_OFFSET, 0);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void onTx(byte channel, byte status, byte[] payload, int offset, int length) {
+		write(CaptureRecordType.TX, (byte) 0, channel, status, payload, offset, null, 0, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void onRx(byte channel, int dataPipe, byte status, byte[] payload, int offset, int length) {
+		write(CaptureRecordType.RX, (byte) dataPipe, channel, status, payload, offset, null, 0, length);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void onSpiTransfer(byte[] sent, int sentOffset, byte[] received, int receivedOffset, int length) {
+		write(CaptureRecordType.SPI, (byte) 0, (byte) 0, (byte) 0, sent, sentOffset, received, receivedOffset, length);
+	}
+
+	private synchronized void write(CaptureRecordType type, byte dataPipe, byte channel, byte status,
+			byte[] data, int dataOffset, byte[] response, int responseOffset, int length) {
+		final long sequence = lastSequence + 1;
+		final int position = CaptureFormat.getSlotPosition(sequence, slotsCount);
+		final int recordedLength = Math.min(length, CaptureFormat.MAX_DATA_SIZE);
+		// The slot is marked empty while it is written
+		buffer.putLong(position + CaptureFormat.SEQUENCE_OFFSET, 0);
+		buffer.putLong(position + CaptureFormat.TIMESTAMP_OFFSET, System.nanoTime() - startNanos);
+		buffer.put(position + CaptureFormat.TYPE_OFFSET, type.getValue());
+		buffer.put(position + CaptureFormat.DATA_PIPE_OFFSET, dataPipe);
+		buffer.put(position + CaptureFormat.CHANNEL_OFFSET, channel);
+		buffer.put(position + CaptureFormat.STATUS_OFFSET, status);
+		buffer.put(position + CaptureFormat.LENGTH_OFFSET, (byte) recordedLength);
+		for (int i = 0; i < recordedLength; i++) {
+			buffer.put(position + CaptureFormat.DATA_OFFSET + i, data[dataOffset + i]);
+		}
+		if (response != null) {
+			for (int i = 0; i < recordedLength; i++) {
+				buffer.put(position + CaptureFormat.RESPONSE_OFFSET + i, response[responseOffset + i]);
+			}
+		}
+		buffer.putLong(position + CaptureFormat.SEQUENCE_OFFSET, sequence);
+		buffer.putLong(CaptureFormat.LAST_SEQUENCE_OFFSET, sequence);
+		lastSequence = sequence;
+	}
+
+	/**
+	 * Write the mapped memory to the file (not required for the other processes, they see the mapped memory).
+	 */
+	public synchronized void force() {
+		buffer.force();
+	}
+
+	/**
+	 * Write the mapped memory to the file (the mapping is released by the garbage collector).
+	 */
+	@Override
+	public void close() {
+		force();
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public int getSlotsCount() {
+		return slotsCount;
+	}
+
+	public synchronized long getLastSequence() {
+		return lastSequence;
+	}
+
+}
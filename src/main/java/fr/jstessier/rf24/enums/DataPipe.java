@@ -81,7 +81,7 @@ public enum DataPipe {
 	 */
 	public static DataPipe getFromIndex(byte index) {
 		for (DataPipe dataPipe : values()) {
-			if ((1 << index) == dataPipe.getIndex()) {
+			if (index == dataPipe.getIndex()) {
 				return dataPipe;
 			}
 		}
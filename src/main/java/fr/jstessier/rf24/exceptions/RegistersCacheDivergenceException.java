@@ -0,0 +1,72 @@
+package fr.jstessier.rf24.exceptions;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.utils.BytesUtils;
+
+/**
+ * Exception when the value of a register in the cache is different from the value in the module.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RegistersCacheDivergenceException extends RF24Exception {
+
+	private static final long serialVersionUID = 3093622845710432561L;
+
+	/** The name of the register. */
+	private final String registerName;
+
+	/** The value in the cache. */
+	private final byte[] cachedValue;
+
+	/** The value read in the module. */
+	private final byte[] moduleValue;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param registerName	The name of the register.
+	 * @param cachedValue	The value in the cache.
+	 * @param moduleValue	The value read in the module.
+	 */
+	public RegistersCacheDivergenceException(String registerName, byte[] cachedValue, byte[] moduleValue) {
+		super();
+		this.registerName = registerName;
+		this.cachedValue = cachedValue;
+		this.moduleValue = moduleValue;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getLocalizedMessage() {
+		final StringBuilder message = new StringBuilder().append("Register ").append(registerName)
+				.append(" - The cached value is different from the module value (cached=")
+				.append(BytesUtils.bytesToHex(cachedValue)).append(", module=")
+				.append(BytesUtils.bytesToHex(moduleValue)).append(")");
+		return message.toString();
+	}
+
+	public String getRegisterName() {
+		return registerName;
+	}
+
+}
@@ -0,0 +1,116 @@
+package fr.jstessier.rf24.fragmentation;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Pool of byte arrays of the same size, to not allocate a buffer for each fragment or message.
+ * 
+ * A buffer is allocated when the pool is empty, and at most capacity buffers are kept on release.
+ * 
+ * @author J.S. TESSIER
+ */
+public class BufferPool {
+
+	/** The size of the buffers. */
+	private final int bufferSize;
+
+	/** The maximum number of buffers kept in the pool. */
+	private final int capacity;
+
+	/** The available buffers. */
+	private final Deque<byte[]> buffers = new ArrayDeque<>();
+
+	/** Number of buffers allocated by the pool. */
+	private long allocatedBuffersCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param bufferSize	The size of the buffers.
+	 * @param capacity		The maximum number of buffers kept in the pool.
+	 */
+	public BufferPool(int bufferSize, int capacity) {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("bufferSize must be positive");
+		}
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.bufferSize = bufferSize;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Take a buffer from the pool (or allocate one if the pool is empty).
+	 * The content of the buffer is undefined.
+	 * 
+	 * @return	A buffer of the size of the pool.
+	 */
+	public synchronized byte[] acquire() {
+		byte[] buffer = buffers.pollFirst();
+		if (buffer == null) {
+			buffer = new byte[bufferSize];
+			allocatedBuffersCount++;
+		}
+		return buffer;
+	}
+
+	/**
+	 * Give back a buffer to the pool. The buffer must not be used after.
+	 * Buffers of another size are ignored.
+	 * 
+	 * @param buffer	The buffer.
+	 */
+	public synchronized void release(byte[] buffer) {
+		if (buffer != null && buffer.length == bufferSize && buffers.size() < capacity) {
+			buffers.addFirst(buffer);
+		}
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Return the number of buffers ready to be acquired without allocation.
+	 * 
+	 * @return	The number of buffers in the pool.
+	 */
+	public synchronized int getAvailableCount() {
+		return buffers.size();
+	}
+
+	/**
+	 * Return the number of buffers allocated by the pool since its creation.
+	 * 
+	 * @return	The number of allocations.
+	 */
+	public synchronized long getAllocatedBuffersCount() {
+		return allocatedBuffersCount;
+	}
+
+}
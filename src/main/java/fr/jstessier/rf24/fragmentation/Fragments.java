@@ -0,0 +1,130 @@
+package fr.jstessier.rf24.fragmentation;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.RF24;
+
+/**
+ * Format of the fragments of a message.
+ * 
+ * Each fragment is one payload with a 3 bytes header followed by up to 29 bytes of the message :
+ * <pre>
+ * byte 0     : message id (incremented by the sender for each message)
+ * byte 1 - 2 : fragment index (15 bits, MSByte first), the MSBit is set on the last fragment
+ * </pre>
+ * All the fragments but the last one have the maximum data size, so the offset of the data
+ * in the message is given by the index.
+ * 
+ * @author J.S. TESSIER
+ */
+public final class Fragments {
+
+	/** Size of the header of a fragment. */
+	public static final int HEADER_SIZE = 3;
+
+	/** Maximum size of the data of a fragment. */
+	public static final int MAX_DATA_SIZE = RF24.MAX_PAYLOAD_SIZE - HEADER_SIZE;
+
+	/** Maximum number of fragments of a message. */
+	public static final int MAX_FRAGMENTS_COUNT = 0x8000;
+
+	/** Maximum size of a message. */
+	public static final int MAX_MESSAGE_SIZE = MAX_FRAGMENTS_COUNT * MAX_DATA_SIZE;
+
+	/** Flag of the last fragment (in the MSByte of the index). */
+	private static final int LAST_FLAG = 0x80;
+
+	/**
+	 * Private constructor.
+	 */
+	private Fragments() {
+		// NOP
+	}
+
+	/**
+	 * Return the number of fragments of a message.
+	 * 
+	 * @param messageLength	The length of the message.
+	 * @return	The number of fragments.
+	 */
+	public static int getFragmentsCount(int messageLength) {
+		return Math.max(1, (messageLength + MAX_DATA_SIZE - 1) / MAX_DATA_SIZE);
+	}
+
+	/**
+	 * Return the size of a fragment (header included).
+	 * 
+	 * @param messageLength	The length of the message.
+	 * @param index			The index of the fragment.
+	 * @return	The size of the fragment.
+	 */
+	public static int getFragmentSize(int messageLength, int index) {
+		return HEADER_SIZE + Math.min(MAX_DATA_SIZE, messageLength - index * MAX_DATA_SIZE);
+	}
+
+	/**
+	 * Write a fragment of a message.
+	 * 
+	 * @param fragment		The fragment buffer (of the size given by {@link #getFragmentSize(int, int)}).
+	 * @param messageId		The message id.
+	 * @param index			The index of the fragment.
+	 * @param message		The buffer that contains the message.
+	 * @param offset		The offset of the message in the buffer.
+	 * @param messageLength	The length of the message.
+	 */
+	public static void writeFragment(byte[] fragment, byte messageId, int index, byte[] message, int offset, int messageLength) {
+		final boolean last = index == getFragmentsCount(messageLength) - 1;
+		fragment[0] = messageId;
+		fragment[1] = (byte) ((index >>> 8) | (last ? LAST_FLAG : 0));
+		fragment[2] = (byte) index;
+		System.arraycopy(message, offset + index * MAX_DATA_SIZE, fragment, HEADER_SIZE, fragment.length - HEADER_SIZE);
+	}
+
+	/**
+	 * Return the message id of a fragment.
+	 * 
+	 * @param fragment	The fragment.
+	 * @return	The message id.
+	 */
+	public static byte getMessageId(byte[] fragment) {
+		return fragment[0];
+	}
+
+	/**
+	 * Return the index of a fragment.
+	 * 
+	 * @param fragment	The fragment.
+	 * @return	The index of the fragment.
+	 */
+	public static int getIndex(byte[] fragment) {
+		return ((fragment[1] & ~LAST_FLAG & 0xFF) << 8) | (fragment[2] & 0xFF);
+	}
+
+	/**
+	 * Return true if the fragment is the last one of its message.
+	 * 
+	 * @param fragment	The fragment.
+	 * @return	True for the last fragment.
+	 */
+	public static boolean isLast(byte[] fragment) {
+		return (fragment[1] & LAST_FLAG) != 0;
+	}
+
+}
@@ -0,0 +1,42 @@
+package fr.jstessier.rf24.fragmentation;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.enums.DataPipe;
+
+/**
+ * Listener of the messages reassembled by a {@link MessageReassembler}.
+ * The method is invoked on the thread that receives the fragments and must return quickly.
+ * 
+ * @author J.S. TESSIER
+ */
+public interface MessageListener {
+
+	/**
+	 * Invoked for each complete message.
+	 * The buffer is given back to the pool when the method returns : its content must be copied to be kept.
+	 * 
+	 * @param dataPipe	The data pipe that received the message.
+	 * @param message	The buffer that contains the message (from index 0).
+	 * @param length	The length of the message.
+	 */
+	void onMessage(DataPipe dataPipe, byte[] message, int length);
+
+}
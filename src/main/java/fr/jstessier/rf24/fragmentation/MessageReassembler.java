@@ -0,0 +1,221 @@
+package fr.jstessier.rf24.fragmentation;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.BitSet;
+
+import fr.jstessier.rf24.RxListener;
+import fr.jstessier.rf24.RxPacket;
+import fr.jstessier.rf24.enums.DataPipe;
+
+/**
+ * Reassemble the messages sent by a {@link MessageSender} from the received fragments.
+ * 
+ * The reassembler is a {@link RxListener} (e.g. of a {@link fr.jstessier.rf24.RF24RadioLoop}).
+ * One message is reassembled at a time for each data pipe : the fragments are accepted in any order,
+ * the duplicated fragments are ignored and a message is delivered when all its fragments are received.
+ * A valid fragment of another message abandons the incomplete message of the data pipe.
+ * 
+ * The length of the last fragment is the length of the payload, so the fragments must be received with
+ * dynamic payloads (see {@link MessageSender}) : with static payloads, the padding would be taken as message data.
+ * 
+ * The message buffers come from a pool and are reused after {@link MessageListener#onMessage(DataPipe, byte[], int)}.
+ * A reassembler is not thread safe : the fragments must be given by one thread.
+ * 
+ * @author J.S. TESSIER
+ */
+public class MessageReassembler implements RxListener {
+
+	private static final int PIPES_COUNT = DataPipe.values().length;
+
+	/** The listener of the messages. */
+	private final MessageListener listener;
+
+	/** The pool of the message buffers. */
+	private final BufferPool messagesPool;
+
+	/** The message in progress for each data pipe (by index). */
+	private final Assembly[] assemblies = new Assembly[PIPES_COUNT];
+
+	/** Number of messages delivered. */
+	private volatile long completedMessagesCount = 0;
+
+	/** Number of incomplete messages abandoned. */
+	private volatile long abandonedMessagesCount = 0;
+
+	/** Number of duplicated fragments ignored. */
+	private volatile long duplicatedFragmentsCount = 0;
+
+	/** Number of invalid fragments ignored (too short, too large for the buffer, inconsistent index). */
+	private volatile long invalidFragmentsCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param maxMessageSize	The maximum size of a message (size of the message buffers).
+	 * @param listener			The listener of the messages.
+	 */
+	public MessageReassembler(int maxMessageSize, MessageListener listener) {
+		if (maxMessageSize <= 0 || maxMessageSize > Fragments.MAX_MESSAGE_SIZE) {
+			throw new IllegalArgumentException("maxMessageSize must be between 1 and " + Fragments.MAX_MESSAGE_SIZE);
+		}
+		if (listener == null) {
+			throw new IllegalArgumentException("listener is mandatory");
+		}
+		this.listener = listener;
+		this.messagesPool = new BufferPool(maxMessageSize, PIPES_COUNT);
+		for (int i = 0; i < PIPES_COUNT; i++) {
+			assemblies[i] = new Assembly(Fragments.getFragmentsCount(maxMessageSize));
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void onReceived(RxPacket packet) {
+		final byte[] fragment = packet.getPayloadBuffer();
+		final int dataLength = packet.getLength() - Fragments.HEADER_SIZE;
+		if (dataLength <= 0) {
+			invalidFragmentsCount++;
+			return;
+		}
+		final Assembly assembly = assemblies[packet.getDataPipe().getIndex()];
+		final byte messageId = Fragments.getMessageId(fragment);
+		final int index = Fragments.getIndex(fragment);
+		final boolean last = Fragments.isLast(fragment);
+		final int offset = index * Fragments.MAX_DATA_SIZE;
+		// Check the header before the fragment can abandon the message in progress
+		if (offset + dataLength > messagesPool.getBufferSize() || (!last && dataLength != Fragments.MAX_DATA_SIZE)) {
+			invalidFragmentsCount++;
+			return;
+		}
+
+		if (assembly.buffer == null || assembly.messageId != messageId) {
+			if (assembly.buffer == null && assembly.completed && assembly.messageId == messageId) {
+				// Late copy of a fragment of the last delivered message
+				duplicatedFragmentsCount++;
+				return;
+			}
+			if (assembly.buffer != null) {
+				abandon(assembly);
+			}
+			assembly.start(messageId, messagesPool.acquire());
+		}
+
+		if (assembly.fragmentsCount >= 0 && (index >= assembly.fragmentsCount || (last && index != assembly.fragmentsCount - 1))) {
+			invalidFragmentsCount++;
+			return;
+		}
+		if (assembly.receivedFragments.get(index)) {
+			duplicatedFragmentsCount++;
+			return;
+		}
+		System.arraycopy(fragment, Fragments.HEADER_SIZE, assembly.buffer, offset, dataLength);
+		assembly.receivedFragments.set(index);
+		assembly.receivedCount++;
+		if (last) {
+			assembly.fragmentsCount = index + 1;
+			assembly.length = offset + dataLength;
+		}
+
+		if (assembly.fragmentsCount >= 0 && assembly.receivedCount == assembly.fragmentsCount) {
+			completedMessagesCount++;
+			assembly.completed = true;
+			try {
+				listener.onMessage(packet.getDataPipe(), assembly.buffer, assembly.length);
+			} finally {
+				release(assembly);
+			}
+		}
+	}
+
+	private void abandon(Assembly assembly) {
+		abandonedMessagesCount++;
+		assembly.completed = false;
+		release(assembly);
+	}
+
+	private void release(Assembly assembly) {
+		messagesPool.release(assembly.buffer);
+		assembly.buffer = null;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public long getCompletedMessagesCount() {
+		return completedMessagesCount;
+	}
+
+	public long getAbandonedMessagesCount() {
+		return abandonedMessagesCount;
+	}
+
+	public long getDuplicatedFragmentsCount() {
+		return duplicatedFragmentsCount;
+	}
+
+	public long getInvalidFragmentsCount() {
+		return invalidFragmentsCount;
+	}
+
+	/**
+	 * The message in progress of a data pipe.
+	 */
+	private static class Assembly {
+
+		/** The indexes of the received fragments. */
+		private final BitSet receivedFragments;
+
+		/** The number of received fragments. */
+		private int receivedCount;
+
+		/** The message buffer (null if no message is in progress). */
+		private byte[] buffer;
+
+		/** The id of the message in progress or of the last message. */
+		private byte messageId;
+
+		/** True if the last message was delivered. */
+		private boolean completed;
+
+		/** The number of fragments of the message (-1 until the last fragment is received). */
+		private int fragmentsCount;
+
+		/** The length of the message (known with the last fragment). */
+		private int length;
+
+		private Assembly(int maxFragmentsCount) {
+			receivedFragments = new BitSet(maxFragmentsCount);
+		}
+
+		private void start(byte messageId, byte[] buffer) {
+			this.messageId = messageId;
+			this.buffer = buffer;
+			this.completed = false;
+			this.fragmentsCount = -1;
+			this.length = 0;
+			this.receivedCount = 0;
+			receivedFragments.clear();
+		}
+
+	}
+
+}
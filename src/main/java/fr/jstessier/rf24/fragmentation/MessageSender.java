@@ -0,0 +1,244 @@
+package fr.jstessier.rf24.fragmentation;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.BitSet;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.RF24TxStream;
+import fr.jstessier.rf24.TxStreamListener;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadMaxRetriesException;
+import fr.jstessier.rf24.exceptions.WritePayloadTimeoutException;
+
+/**
+ * Send messages of any length as a sequence of fragments (see {@link Fragments}).
+ * 
+ * The fragments are streamed through the TX FIFO with a {@link RF24TxStream}. The fragments dropped after
+ * the maximum number of retries are sent again after the others, so the receiver must accept the
+ * fragments out of order (see {@link MessageReassembler}).
+ * The fragment buffers come from a pool : at most {@link #getWindowSize()} fragments are waiting for their outcome.
+ * 
+ * The dynamic payloads are required : the receiver takes the length of the last fragment from the length of
+ * the payload (the length of the message is not encoded in the fragments).
+ * 
+ * A sender is not thread safe and must be used by the thread that owns the RF24 instance
+ * (e.g. in a {@link fr.jstessier.rf24.RadioCommand} of a {@link fr.jstessier.rf24.RF24RadioLoop}).
+ * 
+ * @author J.S. TESSIER
+ */
+public class MessageSender {
+
+	/** Default number of fragments waiting for their outcome. */
+	public static final int DEFAULT_WINDOW_SIZE = 8;
+
+	/** Default number of rounds to send the fragments of a message. */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/** The RF24 instance (in TX mode). */
+	private final RF24 rf24;
+
+	/** The pool of the full fragments. */
+	private final BufferPool fragmentsPool;
+
+	/** Number of rounds to send the fragments of a message. */
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+	/** Timeout to wait for the outcome of the fragments of a round in milliseconds. */
+	private int flushTimeoutMillis = 1000;
+
+	/** The id of the next message. */
+	private byte nextMessageId = 0;
+
+	/** The indexes of the fragments dropped during the current round. */
+	private final BitSet failedFragments = new BitSet();
+
+	/** Number of fragments sent again. */
+	private long resentFragmentsCount = 0;
+
+	/** Release the fragments buffers when their outcome is known. */
+	private final TxStreamListener fragmentsListener = new TxStreamListener() {
+
+		@Override
+		public void onDelivered(byte[] payload) {
+			fragmentsPool.release(payload);
+		}
+
+		@Override
+		public void onMaxRetries(byte[] payload) {
+			failedFragments.set(Fragments.getIndex(payload));
+			fragmentsPool.release(payload);
+		}
+
+	};
+
+	/**
+	 * Constructor with the default window size.
+	 * 
+	 * @param rf24	The RF24 instance (with the writing pipe already opened).
+	 */
+	public MessageSender(RF24 rf24) {
+		this(rf24, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24			The RF24 instance (with the writing pipe already opened).
+	 * @param windowSize	The maximum number of fragments waiting for their outcome (at least the TX FIFO size).
+	 */
+	public MessageSender(RF24 rf24, int windowSize) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		if (windowSize < RF24TxStream.TX_FIFO_SIZE) {
+			throw new IllegalArgumentException("windowSize must be at least " + RF24TxStream.TX_FIFO_SIZE);
+		}
+		this.rf24 = rf24;
+		this.fragmentsPool = new BufferPool(RF24.MAX_PAYLOAD_SIZE, windowSize);
+	}
+
+	/**
+	 * Send a message.
+	 * 
+	 * @param message	The message.
+	 * @return	The id of the message.
+	 * @throws WritePayloadMaxRetriesException	If some fragments are still dropped after the maximum number of attempts.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public byte send(byte[] message) throws RF24Exception {
+		if (message == null) {
+			throw new IllegalArgumentException("message is mandatory");
+		}
+		return send(message, 0, message.length);
+	}
+
+	/**
+	 * Send a message from a caller-owned buffer.
+	 * 
+	 * @param message	The buffer that contains the message.
+	 * @param offset	The offset of the message in the buffer.
+	 * @param length	The length of the message (1 to {@link Fragments#MAX_MESSAGE_SIZE} bytes).
+	 * @return	The id of the message.
+	 * @throws WritePayloadMaxRetriesException	If some fragments are still dropped after the maximum number of attempts.
+	 * @throws WritePayloadTimeoutException	If the outcome of the fragments is not known before the flush timeout.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 * @throws IllegalStateException	If the dynamic payloads are not enabled.
+	 */
+	public byte send(byte[] message, int offset, int length) throws RF24Exception {
+		if (message == null) {
+			throw new IllegalArgumentException("message is mandatory");
+		}
+		if (length <= 0 || length > Fragments.MAX_MESSAGE_SIZE) {
+			throw new IllegalArgumentException("The length of the message must be between 1 and " + Fragments.MAX_MESSAGE_SIZE);
+		}
+		if (!rf24.isDynamicPayloadsEnabled()) {
+			throw new IllegalStateException("send cannot be invoke if the dynamic payloads are not enabled");
+		}
+		final byte messageId = nextMessageId++;
+		final int fragmentsCount = Fragments.getFragmentsCount(length);
+		final BitSet fragments = new BitSet(fragmentsCount);
+		fragments.set(0, fragmentsCount);
+
+		try (RF24TxStream stream = rf24.openTxStream(fragmentsListener)) {
+			for (int attempt = 1; ; attempt++) {
+				failedFragments.clear();
+				for (int index = fragments.nextSetBit(0); index >= 0; index = fragments.nextSetBit(index + 1)) {
+					stream.send(createFragment(stream, messageId, index, message, offset, length));
+				}
+				stream.flush(flushTimeoutMillis);
+				if (failedFragments.isEmpty()) {
+					return messageId;
+				}
+				if (attempt >= maxAttempts) {
+					throw new WritePayloadMaxRetriesException();
+				}
+				fragments.clear();
+				fragments.or(failedFragments);
+				resentFragmentsCount += failedFragments.cardinality();
+			}
+		}
+	}
+
+	/**
+	 * Create a fragment, waiting for a free buffer if the window is full (at most the flush timeout).
+	 */
+	private byte[] createFragment(RF24TxStream stream, byte messageId, int index, byte[] message, int offset, int length)
+			throws RF24Exception {
+		final int fragmentSize = Fragments.getFragmentSize(length, index);
+		final byte[] fragment;
+		if (fragmentSize == RF24.MAX_PAYLOAD_SIZE) {
+			stream.awaitUnresolvedBelow(fragmentsPool.getCapacity(), flushTimeoutMillis);
+			fragment = fragmentsPool.acquire();
+		} else {
+			// Only the last fragment is shorter
+			fragment = new byte[fragmentSize];
+		}
+		Fragments.writeFragment(fragment, messageId, index, message, offset, length);
+		return fragment;
+	}
+
+	/* =================
+	 * Getters / Setters
+	 * ================= */
+
+	public int getWindowSize() {
+		return fragmentsPool.getCapacity();
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Set the number of rounds to send the fragments of a message : each round sends again the dropped fragments.
+	 * 
+	 * @param maxAttempts	The number of rounds (at least 1).
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException("maxAttempts must be positive");
+		}
+		this.maxAttempts = maxAttempts;
+	}
+
+	public int getFlushTimeoutMillis() {
+		return flushTimeoutMillis;
+	}
+
+	/**
+	 * Set the timeout to wait for the outcome of the fragments of a round, or for a free buffer when the window is full.
+	 * 
+	 * @param flushTimeoutMillis	The timeout in milliseconds.
+	 */
+	public void setFlushTimeoutMillis(int flushTimeoutMillis) {
+		this.flushTimeoutMillis = flushTimeoutMillis;
+	}
+
+	/**
+	 * Return the number of fragments sent again after the maximum number of retries.
+	 * 
+	 * @return	The number of fragments sent again since the creation of the sender.
+	 */
+	public long getResentFragmentsCount() {
+		return resentFragmentsCount;
+	}
+
+}
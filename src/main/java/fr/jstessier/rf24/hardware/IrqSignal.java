@@ -0,0 +1,83 @@
+package fr.jstessier.rf24.hardware;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.function.BooleanSupplier;
+
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * Blocking wait on the IRQ pin of the module.
+ * 
+ * The IRQ pin is active low and stays low until the interrupt bits of the STATUS register are cleared,
+ * so the level is always checked before waiting : an edge that happened before the wait is never lost.
+ * 
+ * @author J.S. TESSIER
+ */
+public class IrqSignal {
+
+	/** Return true if the IRQ pin is active (low). */
+	private final BooleanSupplier irqActive;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param irqActive	Return true if the IRQ pin is active (low).
+	 */
+	public IrqSignal(BooleanSupplier irqActive) {
+		if (irqActive == null) {
+			throw new IllegalArgumentException("irqActive is mandatory");
+		}
+		this.irqActive = irqActive;
+	}
+
+	/**
+	 * Wake up the threads waiting for the IRQ.
+	 * Must be invoked by the GPIO listener when the IRQ pin change to active (falling edge).
+	 */
+	public synchronized void fire() {
+		notifyAll();
+	}
+
+	/**
+	 * Wait until the IRQ pin is active.
+	 * 
+	 * @param timeoutMicroseconds	The maximum time to wait in microseconds.
+	 * @return	True if the IRQ pin is active, false if the timeout expired.
+	 * @throws RF24Exception	If the thread is interrupted while waiting.
+	 */
+	public synchronized boolean await(long timeoutMicroseconds) throws RF24Exception {
+		final long deadline = System.nanoTime() + timeoutMicroseconds * 1000;
+		while (!irqActive.getAsBoolean()) {
+			long remainingNanos = deadline - System.nanoTime();
+			if (remainingNanos <= 0) {
+				return false;
+			}
+			try {
+				wait(remainingNanos / 1000000, (int) (remainingNanos % 1000000));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RF24Exception("Interrupted while waiting IRQ", e);
+			}
+		}
+		return true;
+	}
+
+}
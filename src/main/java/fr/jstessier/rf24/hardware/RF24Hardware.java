@@ -19,6 +19,9 @@ package fr.jstessier.rf24.hardware;
  * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
  */
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 import fr.jstessier.rf24.exceptions.RF24Exception;
 
 /**
@@ -40,4 +43,82 @@ public interface RF24Hardware {
 
 	public byte[] spiWrite(byte... data) throws RF24Exception;
 
+	/**
+	 * Full duplex SPI transfer in a caller-owned buffer.
+	 * The bytes of the buffer are sent and replaced by the received bytes.
+	 * The default implementation uses {@link #spiWrite(byte...)}, implementations should override it
+	 * to transfer without allocation.
+	 * 
+	 * @param buffer	The buffer.
+	 * @param offset	The offset of the first byte to transfer.
+	 * @param length	The number of bytes to transfer.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public default void spiTransfer(byte[] buffer, int offset, int length) throws RF24Exception {
+		byte[] result = spiWrite(Arrays.copyOfRange(buffer, offset, offset + length));
+		System.arraycopy(result, 0, buffer, offset, length);
+	}
+
+	/**
+	 * Full duplex SPI transfer in a caller-owned buffer.
+	 * The bytes between the position and the limit are sent and replaced by the received bytes.
+	 * The position and the limit of the buffer are not modified.
+	 * 
+	 * @param buffer	The buffer.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public default void spiTransfer(ByteBuffer buffer) throws RF24Exception {
+		if (buffer.hasArray()) {
+			spiTransfer(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		} else {
+			byte[] data = new byte[buffer.remaining()];
+			buffer.duplicate().get(data);
+			spiTransfer(data, 0, data.length);
+			buffer.duplicate().put(data);
+		}
+	}
+
+	/**
+	 * Several full duplex SPI transfers in a caller-owned buffer, each one framed by the chip select.
+	 * The transfers are consecutive in the buffer : the transfer i has lengths[i] bytes.
+	 * The bytes of the buffer are sent and replaced by the received bytes.
+	 * The default implementation does one {@link #spiTransfer(byte[], int, int)} per transfer, implementations should
+	 * override it to submit all the transfers in one system call (SPI_IOC_MESSAGE of spidev with cs_change).
+	 * 
+	 * @param buffer	The buffer.
+	 * @param offset	The offset of the first byte of the first transfer.
+	 * @param lengths	The number of bytes of each transfer.
+	 * @param count		The number of transfers.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public default void spiTransfers(byte[] buffer, int offset, int[] lengths, int count) throws RF24Exception {
+		int position = offset;
+		for (int i = 0; i < count; i++) {
+			spiTransfer(buffer, position, lengths[i]);
+			position += lengths[i];
+		}
+	}
+
+	/**
+	 * Return true if the IRQ pin of the module is connected.
+	 * 
+	 * @return	True if {@link #waitForIrq(long)} can be used.
+	 */
+	public default boolean isIrqAvailable() {
+		return false;
+	}
+
+	/**
+	 * Wait until the IRQ pin of the module is active (low).
+	 * The IRQ pin stays active until the interrupt bits of the STATUS register are cleared.
+	 * 
+	 * @param timeoutMicroseconds	The maximum time to wait in microseconds.
+	 * @return	True if the IRQ pin is active, false if the timeout expired.
+	 * @throws RF24Exception	In case of error while waiting.
+	 * @throws UnsupportedOperationException	If the IRQ pin is not connected.
+	 */
+	public default boolean waitForIrq(long timeoutMicroseconds) throws RF24Exception {
+		throw new UnsupportedOperationException("The IRQ pin is not connected");
+	}
+
 }
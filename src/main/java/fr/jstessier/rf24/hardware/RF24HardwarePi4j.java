@@ -22,12 +22,17 @@ package fr.jstessier.rf24.hardware;
 import java.io.IOException;
 
 import com.pi4j.io.gpio.GpioFactory;
+import com.pi4j.io.gpio.GpioPinDigitalInput;
 import com.pi4j.io.gpio.GpioPinDigitalOutput;
+import com.pi4j.io.gpio.PinPullResistance;
 import com.pi4j.io.gpio.RaspiPin;
+import com.pi4j.io.gpio.event.GpioPinDigitalStateChangeEvent;
+import com.pi4j.io.gpio.event.GpioPinListenerDigital;
 import com.pi4j.io.spi.SpiChannel;
 import com.pi4j.io.spi.SpiDevice;
 import com.pi4j.io.spi.SpiFactory;
 import com.pi4j.io.spi.SpiMode;
+import com.pi4j.wiringpi.Spi;
 
 import fr.jstessier.rf24.exceptions.RF24Exception;
 
@@ -56,6 +61,9 @@ public class RF24HardwarePi4j implements RF24Hardware {
 	/** Driver of the SPI Device. */
 	private final SpiDevice spiDevice;
 
+	/** Buffer for the in place transfers that do not start at offset 0. */
+	private final byte[] transferBuffer = new byte[SpiDevice.MAX_SUPPORTED_BYTES];
+
 
 	// GPIO Configuration
 
@@ -65,6 +73,15 @@ public class RF24HardwarePi4j implements RF24Hardware {
 	/** Driver of the GPIO pin "Chip Enable". */
 	private final GpioPinDigitalOutput pinChipEnable;
 
+	/** "IRQ" pin, active low interrupt of the module (GPIO). -1 if not connected. */
+	private final byte gpioPinIrq;
+
+	/** Driver of the GPIO pin "IRQ" (null if not connected). */
+	private final GpioPinDigitalInput pinIrq;
+
+	/** Wait on the "IRQ" pin (null if not connected). */
+	private final IrqSignal irqSignal;
+
 
 	/* ============
 	 * Constructors
@@ -101,6 +118,19 @@ public class RF24HardwarePi4j implements RF24Hardware {
 	 * @throws RF24Exception	In case of communication error with RF Module.
 	 */
 	public RF24HardwarePi4j(byte spiChannel, byte gpioPinChipEnable, int spiSpeed) throws RF24Exception {
+		this(spiChannel, gpioPinChipEnable, (byte) -1, spiSpeed);
+	}
+
+	/**
+	 * Constructor with the IRQ pin connected.
+	 * 
+	 * @param spiChannel		The number of the SPI Channel to use.
+	 * @param gpioPinChipEnable	The GPIO pin number for "Chip Enable" selector (WiringPi pin numerotation).
+	 * @param gpioPinIrq		The GPIO pin number for "IRQ" (WiringPi pin numerotation), -1 if not connected.
+	 * @param spiSpeed			The SPI speed in Hertz for channel to communicate at [500kHz - 32MHz].
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24HardwarePi4j(byte spiChannel, byte gpioPinChipEnable, byte gpioPinIrq, int spiSpeed) throws RF24Exception {
 		// // Check Spi channel value
 		if (spiChannel < 0) {
 			throw new IllegalArgumentException("spiChannel is negative");
@@ -115,6 +145,7 @@ public class RF24HardwarePi4j implements RF24Hardware {
 		}
 
 		this.gpioPinChipEnable = gpioPinChipEnable;
+		this.gpioPinIrq = gpioPinIrq < 0 ? -1 : gpioPinIrq;
 		this.spiChannel = spiChannel;
 		this.spiSpeed = spiSpeed;
 
@@ -122,6 +153,23 @@ public class RF24HardwarePi4j implements RF24Hardware {
 		pinChipEnable = GpioFactory.getInstance().provisionDigitalOutputPin(RaspiPin.getPinByName("GPIO " + gpioPinChipEnable));
 		pinChipEnable.low();
 
+		// Initialize IRQ Pin (open drain on the module, so pull up)
+		if (gpioPinIrq >= 0) {
+			pinIrq = GpioFactory.getInstance().provisionDigitalInputPin(RaspiPin.getPinByName("GPIO " + gpioPinIrq), PinPullResistance.PULL_UP);
+			irqSignal = new IrqSignal(pinIrq::isLow);
+			pinIrq.addListener(new GpioPinListenerDigital() {
+				@Override
+				public void handleGpioPinDigitalStateChangeEvent(GpioPinDigitalStateChangeEvent event) {
+					if (event.getState().isLow()) {
+						irqSignal.fire();
+					}
+				}
+			});
+		} else {
+			pinIrq = null;
+			irqSignal = null;
+		}
+
 		// Initialize SPI Device
 		try {
 			spiDevice = SpiFactory.getInstance(SpiChannel.getByNumber(spiChannel), spiSpeed, SpiMode.getByNumber(RF24Hardware.SPI_MODE_0));
@@ -164,6 +212,50 @@ public class RF24HardwarePi4j implements RF24Hardware {
 	}
 
 
+	/**
+	 * {@inheritDoc}
+	 * The transfer is done in place by wiringPi (no allocation).
+	 */
+	@Override
+	public void spiTransfer(byte[] buffer, int offset, int length) throws RF24Exception {
+		if (length > transferBuffer.length) {
+			throw new IllegalArgumentException("length is greater than " + transferBuffer.length);
+		}
+		int result;
+		if (offset == 0) {
+			result = Spi.wiringPiSPIDataRW(spiChannel, buffer, length);
+		} else {
+			synchronized (transferBuffer) {
+				System.arraycopy(buffer, offset, transferBuffer, 0, length);
+				result = Spi.wiringPiSPIDataRW(spiChannel, transferBuffer, length);
+				System.arraycopy(transferBuffer, 0, buffer, offset, length);
+			}
+		}
+		if (result < 0) {
+			throw new RF24Exception("Failed to write on SPI channel " + spiChannel);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isIrqAvailable() {
+		return irqSignal != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean waitForIrq(long timeoutMicroseconds) throws RF24Exception {
+		if (irqSignal == null) {
+			throw new UnsupportedOperationException("The IRQ pin is not connected");
+		}
+		return irqSignal.await(timeoutMicroseconds);
+	}
+
+
 	/* =======
 	 * Getters
 	 * ======= */
@@ -172,6 +264,10 @@ public class RF24HardwarePi4j implements RF24Hardware {
 		return gpioPinChipEnable;
 	}
 
+	public byte getGpioPinIrq() {
+		return gpioPinIrq;
+	}
+
 	public byte getSpiChannel() {
 		return spiChannel;
 	}
@@ -0,0 +1,165 @@
+package fr.jstessier.rf24.hardware.emulator;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.Arrays;
+
+import fr.jstessier.rf24.enums.DataRates;
+
+/**
+ * A packet on the air (Enhanced ShockBurst™ format) : a payload packet or an acknowledgment packet.
+ * 
+ * @author J.S. TESSIER
+ */
+public class AirPacket {
+
+	/** Length of the preamble in bytes. */
+	private static final int PREAMBLE_LENGTH = 1;
+
+	/** Length of the packet control field in bits. */
+	private static final int PCF_BITS = 9;
+
+	/** The frequency channel (RF_CH). */
+	private final int channel;
+
+	/** The data rate. */
+	private final DataRates dataRates;
+
+	/** The address (LSByte first, address field width bytes). */
+	private final byte[] address;
+
+	/** The payload (empty for an acknowledgment without payload). */
+	private final byte[] payload;
+
+	/** The packet identity (2 bits), used to detect the retransmitted packets. */
+	private final int pid;
+
+	/** True if no acknowledgment is expected (NO_ACK flag). */
+	private final boolean noAck;
+
+	/** The CRC length in bytes (0, 1 or 2). */
+	private final int crcLength;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param channel	The frequency channel (RF_CH).
+	 * @param dataRates	The data rate.
+	 * @param address	The address (LSByte first).
+	 * @param payload	The payload.
+	 * @param pid		The packet identity (2 bits).
+	 * @param noAck		True if no acknowledgment is expected.
+	 * @param crcLength	The CRC length in bytes.
+	 */
+	public AirPacket(int channel, DataRates dataRates, byte[] address, byte[] payload, int pid, boolean noAck, int crcLength) {
+		this.channel = channel;
+		this.dataRates = dataRates;
+		this.address = address.clone();
+		this.payload = payload.clone();
+		this.pid = pid & 0b11;
+		this.noAck = noAck;
+		this.crcLength = crcLength;
+	}
+
+	/**
+	 * Return the duration of a packet on the air.
+	 * 
+	 * @param dataRates			The data rate.
+	 * @param addressLength		The address length in bytes.
+	 * @param payloadLength		The payload length in bytes.
+	 * @param crcLength			The CRC length in bytes.
+	 * @return	The duration in nanoseconds.
+	 */
+	public static long getAirTimeNanos(DataRates dataRates, int addressLength, int payloadLength, int crcLength) {
+		long bits = 8L * (PREAMBLE_LENGTH + addressLength + payloadLength + crcLength) + PCF_BITS;
+		return bits * 1000000000L / getBitsPerSecond(dataRates);
+	}
+
+	/**
+	 * Return the bit rate of a data rate.
+	 * 
+	 * @param dataRates	The data rate.
+	 * @return	The number of bits per second.
+	 */
+	public static long getBitsPerSecond(DataRates dataRates) {
+		switch (dataRates) {
+		case DR_250_KBPS:
+			return 250000;
+		case DR_1_MBPS:
+			return 1000000;
+		case DR_2_MBPS:
+			return 2000000;
+		default:
+			throw new RuntimeException("This may not append because all enum values are tested in the switch");
+		}
+	}
+
+	/**
+	 * Return the duration of this packet on the air.
+	 * 
+	 * @return	The duration in nanoseconds.
+	 */
+	public long getAirTimeNanos() {
+		return getAirTimeNanos(dataRates, address.length, payload.length, crcLength);
+	}
+
+	/**
+	 * Return true if the packet is sent to the address.
+	 * 
+	 * @param otherAddress	The address (LSByte first).
+	 * @return	True if the addresses are equals.
+	 */
+	public boolean isAddressedTo(byte[] otherAddress) {
+		return Arrays.equals(address, otherAddress);
+	}
+
+	public int getChannel() {
+		return channel;
+	}
+
+	public DataRates getDataRates() {
+		return dataRates;
+	}
+
+	public byte[] getAddress() {
+		return address.clone();
+	}
+
+	public byte[] getPayload() {
+		return payload.clone();
+	}
+
+	public int getPayloadLength() {
+		return payload.length;
+	}
+
+	public int getPid() {
+		return pid;
+	}
+
+	public boolean isNoAck() {
+		return noAck;
+	}
+
+	public int getCrcLength() {
+		return crcLength;
+	}
+
+}
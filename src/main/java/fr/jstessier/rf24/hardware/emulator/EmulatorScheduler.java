@@ -0,0 +1,195 @@
+package fr.jstessier.rf24.hardware.emulator;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Clock and event queue shared by emulated modules.
+ * 
+ * The time is either the real time ({@link System#nanoTime()}) or a virtual time that only moves forward
+ * when it is advanced (by the SPI transfers and the waits of the emulated modules, or explicitly).
+ * The events are run in time order, lazily : when the emulated modules are used or when the time is advanced.
+ * 
+ * All the state of the emulated modules attached to a scheduler is guarded by the scheduler monitor.
+ * 
+ * @author J.S. TESSIER
+ */
+public class EmulatorScheduler {
+
+	/** True for a virtual time, false for the real time. */
+	private final boolean virtual;
+
+	/** The current virtual time in nanoseconds. */
+	private long virtualNanos = 0;
+
+	/** The events to run (by time then by insertion order). */
+	private final PriorityQueue<Event> events = new PriorityQueue<>();
+
+	/** The insertion order of the events. */
+	private long sequence = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param virtual	True for a virtual time, false for the real time.
+	 */
+	public EmulatorScheduler(boolean virtual) {
+		this.virtual = virtual;
+	}
+
+	/**
+	 * Return a scheduler on the real time.
+	 * 
+	 * @return	The scheduler.
+	 */
+	public static EmulatorScheduler realTime() {
+		return new EmulatorScheduler(false);
+	}
+
+	/**
+	 * Return a scheduler on a virtual time starting at 0.
+	 * 
+	 * @return	The scheduler.
+	 */
+	public static EmulatorScheduler virtualTime() {
+		return new EmulatorScheduler(true);
+	}
+
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * Return the current time.
+	 * 
+	 * @return	The current time in nanoseconds.
+	 */
+	public synchronized long now() {
+		return virtual ? virtualNanos : System.nanoTime();
+	}
+
+	/**
+	 * Schedule an event.
+	 * 
+	 * @param time		The time of the event in nanoseconds.
+	 * @param action	The action to run (with the scheduler monitor held).
+	 */
+	public synchronized void schedule(long time, Runnable action) {
+		events.add(new Event(time, sequence++, action));
+		notifyAll();
+	}
+
+	/**
+	 * Run all the events with a time before or equal to the current time.
+	 */
+	public synchronized void runDueEvents() {
+		long now = now();
+		while (!events.isEmpty() && events.peek().time <= now) {
+			events.poll().action.run();
+		}
+	}
+
+	/**
+	 * Move the time forward and run the events up to the new time.
+	 * On the real time, the current thread waits.
+	 * 
+	 * @param nanos	The duration in nanoseconds.
+	 */
+	public synchronized void advance(long nanos) {
+		await(() -> false, nanos);
+	}
+
+	/**
+	 * Wait until a condition is true, running the events in time order.
+	 * On a virtual time, the time jumps to the next event instead of waiting.
+	 * 
+	 * @param condition		The condition (evaluated with the scheduler monitor held).
+	 * @param timeoutNanos	The maximum time to wait in nanoseconds.
+	 * @return	True if the condition is true, false if the timeout expired.
+	 */
+	public synchronized boolean await(BooleanSupplier condition, long timeoutNanos) {
+		final long deadline = now() + timeoutNanos;
+		runDueEvents();
+		while (!condition.getAsBoolean()) {
+			long now = now();
+			if (now >= deadline) {
+				return false;
+			}
+			long next = events.isEmpty() ? deadline : Math.min(events.peek().time, deadline);
+			if (virtual) {
+				virtualNanos = Math.max(virtualNanos, next);
+			} else if (next > now) {
+				long waitNanos = next - now;
+				try {
+					wait(waitNanos / 1000000, (int) (waitNanos % 1000000));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return condition.getAsBoolean();
+				}
+			}
+			runDueEvents();
+		}
+		return true;
+	}
+
+	/**
+	 * Wake up the threads waiting in {@link #await(BooleanSupplier, long)} to evaluate again their condition.
+	 */
+	public synchronized void signal() {
+		notifyAll();
+	}
+
+	/**
+	 * Return the number of events not run yet.
+	 * 
+	 * @return	The number of events.
+	 */
+	public synchronized int getPendingEventsCount() {
+		return events.size();
+	}
+
+	/**
+	 * A scheduled event.
+	 */
+	private static final class Event implements Comparable<Event> {
+
+		private final long time;
+
+		private final long sequence;
+
+		private final Runnable action;
+
+		private Event(long time, long sequence, Runnable action) {
+			this.time = time;
+			this.sequence = sequence;
+			this.action = action;
+		}
+
+		@Override
+		public int compareTo(Event other) {
+			int result = Long.compare(time, other.time);
+			return result != 0 ? result : Long.compare(sequence, other.sequence);
+		}
+
+	}
+
+}
@@ -0,0 +1,962 @@
+package fr.jstessier.rf24.hardware.emulator;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.Registers.Register;
+import fr.jstessier.rf24.Registers.RegisterByte;
+import fr.jstessier.rf24.Registers.RegisterByteWithBits;
+import fr.jstessier.rf24.Registers.RegisterBytes;
+import fr.jstessier.rf24.RegistersCache;
+import fr.jstessier.rf24.enums.DataRates;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.hardware.RF24Hardware;
+
+/**
+ * Software emulation of a nRF24L01+ module, to run the driver without hardware.
+ * 
+ * The emulation covers the register map, all the SPI commands, the TX FIFO (shared with the acknowledgment
+ * payloads), the RX FIFO, the STATUS / FIFO_STATUS / OBSERVE_TX semantics, the chip enable pin and the IRQ pin.
+ * The Enhanced ShockBurst™ transmission is emulated with the timings of the datasheet : Tpd2stby, Tstby2a,
+ * time on the air, auto retransmit delay and count, packet identity for the retransmitted packets.
+ * 
+ * The packets are sent to a {@link RadioMedium}. Without medium, nobody receives the packets : a packet sent
+ * with acknowledgment ends with MAX_RT and a packet sent without acknowledgment ends with TX_DS.
+ * The packets can be injected with {@link #receive(AirPacket)}.
+ * 
+ * The time is given by an {@link EmulatorScheduler}. On a virtual time, each SPI transfer takes the time of
+ * its bytes at the SPI speed, and a wait on the IRQ pin moves the time to the next event.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24HardwareEmulator implements RF24Hardware {
+
+	/** Time to go from power down mode to standby mode (Tpd2stby, with a crystal) in nanoseconds. */
+	public static final long TPD2STBY_NANOS = 1500000;
+
+	/** Time to go from standby mode to TX or RX mode (Tstby2a) in nanoseconds. */
+	public static final long TSTBY2A_NANOS = 130000;
+
+	/** Default SPI speed in Hz. */
+	public static final int DEFAULT_SPI_SPEED = 4000000;
+
+	/** Fixed cost of a SPI transfer (system call, chip select) in nanoseconds. */
+	public static final long SPI_TRANSFER_OVERHEAD_NANOS = 10000;
+
+	/** Size of the TX and RX FIFOs. */
+	public static final int FIFO_SIZE = 3;
+
+	/** Maximum payload length in bytes. */
+	public static final int MAX_PAYLOAD_LENGTH = 32;
+
+	/** Address of the registers. */
+	private static final int CONFIG = 0x00;
+	private static final int EN_AA = 0x01;
+	private static final int EN_RXADDR = 0x02;
+	private static final int SETUP_AW = 0x03;
+	private static final int SETUP_RETR = 0x04;
+	private static final int RF_CH = 0x05;
+	private static final int RF_SETUP = 0x06;
+	private static final int STATUS = 0x07;
+	private static final int OBSERVE_TX = 0x08;
+	private static final int RPD = 0x09;
+	private static final int RX_ADDR_P0 = 0x0A;
+	private static final int RX_ADDR_P1 = 0x0B;
+	private static final int TX_ADDR = 0x10;
+	private static final int RX_PW_P0 = 0x11;
+	private static final int FIFO_STATUS = 0x17;
+	private static final int DYNPD = 0x1C;
+	private static final int FEATURE = 0x1D;
+
+	/** Bits of the registers. */
+	private static final int CONFIG_PRIM_RX = 0b00000001;
+	private static final int CONFIG_PWR_UP = 0b00000010;
+	private static final int CONFIG_CRCO = 0b00000100;
+	private static final int CONFIG_EN_CRC = 0b00001000;
+	private static final int STATUS_RX_DR = 0b01000000;
+	private static final int STATUS_TX_DS = 0b00100000;
+	private static final int STATUS_MAX_RT = 0b00010000;
+	private static final int STATUS_INTERRUPTS = STATUS_RX_DR | STATUS_TX_DS | STATUS_MAX_RT;
+	private static final int RF_SETUP_RF_DR_LOW = 0b00100000;
+	private static final int RF_SETUP_RF_DR_HIGH = 0b00001000;
+	private static final int FEATURE_EN_DPL = 0b00000100;
+	private static final int FEATURE_EN_ACK_PAY = 0b00000010;
+	private static final int FEATURE_EN_DYN_ACK = 0b00000001;
+
+	/** SPI commands. */
+	private static final int R_REGISTER = 0b00000000;
+	private static final int W_REGISTER = 0b00100000;
+	private static final int R_RX_PAYLOAD = 0b01100001;
+	private static final int W_TX_PAYLOAD = 0b10100000;
+	private static final int FLUSH_TX = 0b11100001;
+	private static final int FLUSH_RX = 0b11100010;
+	private static final int REUSE_TX_PL = 0b11100011;
+	private static final int R_RX_PL_WID = 0b01100000;
+	private static final int W_ACK_PAYLOAD = 0b10101000;
+	private static final int W_TX_PAYLOAD_NOACK = 0b10110000;
+	private static final int NOP = 0b11111111;
+
+	/** All the registers of the register map. */
+	private static final Register[] REGISTERS = new Register[] {
+			Registers.CONFIG, Registers.EN_AA, Registers.EN_RXADDR, Registers.SETUP_AW, Registers.SETUP_RETR,
+			Registers.RF_CH, Registers.RF_SETUP, Registers.STATUS, Registers.OBSERVE_TX, Registers.RPD,
+			Registers.RX_ADDR_P0, Registers.RX_ADDR_P1, Registers.RX_ADDR_P2, Registers.RX_ADDR_P3,
+			Registers.RX_ADDR_P4, Registers.RX_ADDR_P5, Registers.TX_ADDR, Registers.RX_PW_P0, Registers.RX_PW_P1,
+			Registers.RX_PW_P2, Registers.RX_PW_P3, Registers.RX_PW_P4, Registers.RX_PW_P5, Registers.FIFO_STATUS,
+			Registers.DYNPD, Registers.FEATURE };
+
+	/** The scheduler (its monitor guards the state of the module). */
+	private final EmulatorScheduler scheduler;
+
+	/** The SPI speed in Hz. */
+	private final int spiSpeed;
+
+	/** The medium that carries the packets (null if the packets are lost). */
+	private RadioMedium medium;
+
+	/** The register map. */
+	private final byte[][] registers = new byte[RegistersCache.REGISTERS_COUNT][RegistersCache.REGISTER_MAX_LENGTH];
+
+	/** Length of each register in bytes (0 for the unused addresses). */
+	private final int[] registersLength = new int[RegistersCache.REGISTERS_COUNT];
+
+	/** Writable bits of the one byte registers. */
+	private final byte[] registersMask = new byte[RegistersCache.REGISTERS_COUNT];
+
+	/** The TX FIFO (payloads to send in PTX mode, acknowledgment payloads in PRX mode). */
+	private final Deque<TxPayload> txFifo = new ArrayDeque<>();
+
+	/** The RX FIFO. */
+	private final Deque<RxPayload> rxFifo = new ArrayDeque<>();
+
+	/** Chip enable pin state. */
+	private boolean chipEnable = false;
+
+	/** Is the reuse of the last transmitted payload enabled (REUSE_TX_PL). */
+	private boolean reuseTxPayload = false;
+
+	/** Time when the module is in standby mode after a power up. */
+	private long standbyTime = 0;
+
+	/** Time when the module is able to receive packets in RX mode (Long.MAX_VALUE if not in RX mode). */
+	private long listeningTime = Long.MAX_VALUE;
+
+	/** Is a packet being transmitted (including the retransmissions and the wait of the acknowledgment). */
+	private boolean transmitting = false;
+
+	/** Is the module waiting an acknowledgment. */
+	private boolean waitingAck = false;
+
+	/** Identifies the current transmission : the events of an aborted transmission are ignored. */
+	private long transmissionId = 0;
+
+	/** The packet being transmitted. */
+	private AirPacket transmittedPacket;
+
+	/** Packet identity of the next new payload. */
+	private int nextPid = 0;
+
+	/** Count of retransmitted packets (OBSERVE_TX.ARC_CNT). */
+	private int retransmitCount = 0;
+
+	/** Count of lost packets (OBSERVE_TX.PLOS_CNT). */
+	private int lostPacketsCount = 0;
+
+	/** Packet identity and CRC of the last packet received on each pipe (-1 if none). */
+	private final long[] lastReceivedPacket = new long[6];
+
+	/** Number of SPI transfers. */
+	private long spiTransfers = 0;
+
+	/**
+	 * Constructor on the real time, without medium.
+	 */
+	public RF24HardwareEmulator() {
+		this(EmulatorScheduler.realTime());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param scheduler	The scheduler (shared by the modules of a same medium).
+	 */
+	public RF24HardwareEmulator(EmulatorScheduler scheduler) {
+		this(scheduler, DEFAULT_SPI_SPEED);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param scheduler	The scheduler (shared by the modules of a same medium).
+	 * @param spiSpeed	The SPI speed in Hz (for the duration of the transfers on a virtual time).
+	 */
+	public RF24HardwareEmulator(EmulatorScheduler scheduler, int spiSpeed) {
+		if (scheduler == null) {
+			throw new IllegalArgumentException("scheduler is mandatory");
+		}
+		if (spiSpeed <= 0) {
+			throw new IllegalArgumentException("spiSpeed must be positive");
+		}
+		this.scheduler = scheduler;
+		this.spiSpeed = spiSpeed;
+		for (Register register : REGISTERS) {
+			int address = register.getAddress();
+			if (register instanceof RegisterBytes) {
+				byte[] resetValue = ((RegisterBytes) register).getResetValue();
+				registersLength[address] = resetValue.length;
+				registersMask[address] = (byte) 0xFF;
+			} else {
+				registersLength[address] = 1;
+				registersMask[address] = (register instanceof RegisterByteWithBits)
+						? ((RegisterByteWithBits) register).getMask() : (byte) 0xFF;
+			}
+		}
+		reset();
+	}
+
+	/**
+	 * Reset the module (as after a power on) : reset values of the registers, empty FIFOs.
+	 */
+	public void reset() {
+		synchronized (scheduler) {
+			for (Register register : REGISTERS) {
+				int address = register.getAddress();
+				if (register instanceof RegisterBytes) {
+					byte[] resetValue = ((RegisterBytes) register).getResetValue();
+					System.arraycopy(resetValue, 0, registers[address], 0, resetValue.length);
+				} else {
+					registers[address][0] = ((RegisterByte) register).getResetValue();
+				}
+			}
+			registers[STATUS][0] = 0;
+			txFifo.clear();
+			rxFifo.clear();
+			reuseTxPayload = false;
+			listeningTime = Long.MAX_VALUE;
+			abortTransmission();
+			retransmitCount = 0;
+			lostPacketsCount = 0;
+			Arrays.fill(lastReceivedPacket, -1);
+			updateChipEnable(false);
+		}
+	}
+
+	/* ===================
+	 * RF24Hardware (GPIO)
+	 * =================== */
+
+	@Override
+	public void setPinChipEnableHigh() {
+		synchronized (scheduler) {
+			scheduler.runDueEvents();
+			updateChipEnable(true);
+		}
+	}
+
+	@Override
+	public void setPinChipEnableLow() {
+		synchronized (scheduler) {
+			scheduler.runDueEvents();
+			updateChipEnable(false);
+		}
+	}
+
+	@Override
+	public boolean isIrqAvailable() {
+		return true;
+	}
+
+	@Override
+	public boolean waitForIrq(long timeoutMicroseconds) throws RF24Exception {
+		return scheduler.await(this::isIrqActive, timeoutMicroseconds * 1000);
+	}
+
+	/**
+	 * Return true if the IRQ pin is active : an interrupt bit of STATUS is set and not masked in CONFIG.
+	 * 
+	 * @return	True if the IRQ pin is active.
+	 */
+	public boolean isIrqActive() {
+		synchronized (scheduler) {
+			return (registers[STATUS][0] & STATUS_INTERRUPTS & ~registers[CONFIG][0]) != 0;
+		}
+	}
+
+	/* ==================
+	 * RF24Hardware (SPI)
+	 * ================== */
+
+	@Override
+	public byte[] spiWrite(byte... data) throws RF24Exception {
+		byte[] buffer = data.clone();
+		spiTransfer(buffer, 0, buffer.length);
+		return buffer;
+	}
+
+	@Override
+	public void spiTransfer(byte[] buffer, int offset, int length) throws RF24Exception {
+		if (length < 1) {
+			throw new IllegalArgumentException("A SPI transfer needs at least a command byte");
+		}
+		synchronized (scheduler) {
+			if (scheduler.isVirtual()) {
+				scheduler.advance(SPI_TRANSFER_OVERHEAD_NANOS + 8L * length * 1000000000L / spiSpeed);
+			} else {
+				scheduler.runDueEvents();
+			}
+			spiTransfers++;
+			executeCommand(buffer, offset, length);
+			scheduler.signal();
+		}
+	}
+
+	/**
+	 * Execute a SPI command : the STATUS register is clocked out with the command byte,
+	 * the data bytes are replaced by the read bytes.
+	 */
+	private void executeCommand(byte[] buffer, int offset, int length) {
+		final int command = buffer[offset] & 0xFF;
+		final int dataOffset = offset + 1;
+		final int dataLength = length - 1;
+		buffer[offset] = getStatus();
+
+		if ((command & 0b11100000) == R_REGISTER) {
+			int address = command & 0b00011111;
+			for (int i = 0; i < dataLength; i++) {
+				buffer[dataOffset + i] = readRegister(address, i);
+			}
+		} else if ((command & 0b11100000) == W_REGISTER) {
+			writeRegister(command & 0b00011111, buffer, dataOffset, dataLength);
+			Arrays.fill(buffer, dataOffset, dataOffset + dataLength, (byte) 0);
+		} else if (command == R_RX_PAYLOAD) {
+			RxPayload rxPayload = rxFifo.pollFirst();
+			byte[] payload = (rxPayload == null) ? new byte[0] : rxPayload.payload;
+			for (int i = 0; i < dataLength; i++) {
+				buffer[dataOffset + i] = (i < payload.length) ? payload[i] : 0;
+			}
+		} else if (command == R_RX_PL_WID) {
+			if (dataLength > 0) {
+				buffer[dataOffset] = (byte) (rxFifo.isEmpty() ? 0 : rxFifo.getFirst().payload.length);
+			}
+		} else if (command == W_TX_PAYLOAD || command == W_TX_PAYLOAD_NOACK) {
+			boolean noAck = command == W_TX_PAYLOAD_NOACK && (registers[FEATURE][0] & FEATURE_EN_DYN_ACK) != 0;
+			writeTxFifo(new TxPayload(Arrays.copyOfRange(buffer, dataOffset, dataOffset + dataLength), noAck, -1));
+		} else if ((command & 0b11111000) == W_ACK_PAYLOAD) {
+			writeTxFifo(new TxPayload(Arrays.copyOfRange(buffer, dataOffset, dataOffset + dataLength), false, command & 0b111));
+		} else if (command == FLUSH_TX) {
+			txFifo.clear();
+			reuseTxPayload = false;
+		} else if (command == FLUSH_RX) {
+			rxFifo.clear();
+		} else if (command == REUSE_TX_PL) {
+			reuseTxPayload = true;
+		} else if (command != NOP) {
+			// Unknown commands are ignored by the module
+			Arrays.fill(buffer, dataOffset, dataOffset + dataLength, (byte) 0);
+		}
+	}
+
+	/**
+	 * Return the byte of a register at an index, as read by R_REGISTER.
+	 */
+	private byte readRegister(int address, int index) {
+		if (address >= RegistersCache.REGISTERS_COUNT || index >= Math.max(registersLength[address], 1)) {
+			return 0;
+		}
+		switch (address) {
+		case STATUS:
+			return getStatus();
+		case OBSERVE_TX:
+			return (byte) ((lostPacketsCount << 4) | retransmitCount);
+		case FIFO_STATUS:
+			return getFifoStatus();
+		default:
+			return registers[address][index];
+		}
+	}
+
+	/**
+	 * Write a register with W_REGISTER.
+	 */
+	private void writeRegister(int address, byte[] data, int offset, int length) {
+		if (address >= RegistersCache.REGISTERS_COUNT || registersLength[address] == 0 || length == 0) {
+			return;
+		}
+		switch (address) {
+		case STATUS:
+			// Interrupt bits are cleared by writing 1
+			registers[STATUS][0] &= ~(data[offset] & STATUS_INTERRUPTS);
+			startTransmissionIfReady();
+			return;
+		case OBSERVE_TX:
+		case RPD:
+		case FIFO_STATUS:
+			// Read only registers
+			return;
+		case CONFIG:
+			writeConfig((byte) (data[offset] & registersMask[CONFIG]));
+			return;
+		case RF_CH:
+			// Writing RF_CH resets the count of lost packets
+			lostPacketsCount = 0;
+			registers[RF_CH][0] = (byte) (data[offset] & registersMask[RF_CH]);
+			return;
+		default:
+			if (registersLength[address] == 1) {
+				registers[address][0] = (byte) (data[offset] & registersMask[address]);
+			} else {
+				System.arraycopy(data, offset, registers[address], 0, Math.min(length, registersLength[address]));
+			}
+		}
+	}
+
+	/**
+	 * Write the CONFIG register : power up / power down and switch between PTX and PRX.
+	 */
+	private void writeConfig(byte value) {
+		boolean wasPoweredUp = isPoweredUp();
+		registers[CONFIG][0] = value;
+		if (!wasPoweredUp && isPoweredUp()) {
+			standbyTime = scheduler.now() + TPD2STBY_NANOS;
+		} else if (wasPoweredUp && !isPoweredUp()) {
+			abortTransmission();
+		}
+		updateMode();
+	}
+
+	/**
+	 * Update the chip enable pin state.
+	 */
+	private void updateChipEnable(boolean value) {
+		chipEnable = value;
+		updateMode();
+	}
+
+	/**
+	 * Enter the RX mode or start a transmission according to CONFIG and CE.
+	 */
+	private void updateMode() {
+		if (chipEnable && isPoweredUp() && isPrimaryRx()) {
+			if (listeningTime == Long.MAX_VALUE) {
+				abortTransmission();
+				listeningTime = Math.max(scheduler.now(), standbyTime) + TSTBY2A_NANOS;
+				// The received power detector is reset when entering the RX mode
+				registers[RPD][0] = 0;
+			}
+		} else {
+			listeningTime = Long.MAX_VALUE;
+			startTransmissionIfReady();
+		}
+	}
+
+	/**
+	 * Write a payload in the TX FIFO, ignored if the TX FIFO is full.
+	 */
+	private void writeTxFifo(TxPayload txPayload) {
+		if (txPayload.payload.length == 0 || txPayload.payload.length > MAX_PAYLOAD_LENGTH || txFifo.size() >= FIFO_SIZE) {
+			return;
+		}
+		txFifo.addLast(txPayload);
+		reuseTxPayload = false;
+		startTransmissionIfReady();
+	}
+
+	/* ================
+	 * PTX transmission
+	 * ================ */
+
+	/**
+	 * Start the transmission of the payload at the head of the TX FIFO if CE is high in PTX mode.
+	 * A started transmission is completed (with the retransmissions) even if CE goes low.
+	 */
+	private void startTransmissionIfReady() {
+		if (transmitting || !chipEnable || !isPoweredUp() || isPrimaryRx()
+				|| (registers[STATUS][0] & STATUS_MAX_RT) != 0 || txFifo.isEmpty()) {
+			return;
+		}
+		transmitting = true;
+		waitingAck = false;
+		retransmitCount = 0;
+		final long id = ++transmissionId;
+		final long startTime = Math.max(scheduler.now(), standbyTime) + TSTBY2A_NANOS;
+		scheduler.schedule(startTime, () -> {
+			if (id == transmissionId) {
+				sendPacket(id);
+			}
+		});
+	}
+
+	/**
+	 * Send (or resend) the payload at the head of the TX FIFO.
+	 */
+	private void sendPacket(final long id) {
+		TxPayload head = txFifo.peekFirst();
+		if (head == null) {
+			// The TX FIFO was flushed during the transmission
+			transmitting = false;
+			return;
+		}
+		if (transmittedPacket == null || retransmitCount == 0) {
+			transmittedPacket = new AirPacket(getChannel(), getDataRates(), getAddress(TX_ADDR), head.payload,
+					nextPid, head.noAck, getCrcLength());
+		}
+		final long startTime = scheduler.now();
+		final long endTime = startTime + transmittedPacket.getAirTimeNanos();
+		if (medium != null) {
+			medium.transmit(this, transmittedPacket, startTime, endTime);
+		}
+		scheduler.schedule(endTime, () -> {
+			if (id == transmissionId) {
+				endOfPacket(id);
+			}
+		});
+	}
+
+	/**
+	 * End of a packet on the air : done without acknowledgment, or wait the acknowledgment.
+	 */
+	private void endOfPacket(final long id) {
+		if (transmittedPacket.isNoAck() || (registers[EN_AA][0] & 1) == 0) {
+			packetDelivered(null);
+			return;
+		}
+		waitingAck = true;
+		scheduler.schedule(scheduler.now() + getAutoRetransmitDelayNanos(), () -> {
+			if (id == transmissionId && waitingAck) {
+				ackTimeout(id);
+			}
+		});
+	}
+
+	/**
+	 * No acknowledgment received during the auto retransmit delay.
+	 */
+	private void ackTimeout(long id) {
+		waitingAck = false;
+		if (retransmitCount < getAutoRetransmitCount()) {
+			retransmitCount++;
+			sendPacket(id);
+		} else {
+			registers[STATUS][0] |= STATUS_MAX_RT;
+			lostPacketsCount = Math.min(lostPacketsCount + 1, 15);
+			transmitting = false;
+			transmittedPacket = null;
+			scheduler.signal();
+		}
+	}
+
+	/**
+	 * The payload was delivered : remove it from the TX FIFO and start the next one.
+	 */
+	private void packetDelivered(AirPacket ack) {
+		transmissionId++;
+		transmitting = false;
+		waitingAck = false;
+		transmittedPacket = null;
+		if (!reuseTxPayload) {
+			txFifo.pollFirst();
+		}
+		nextPid = (nextPid + 1) & 0b11;
+		registers[STATUS][0] |= STATUS_TX_DS;
+		if (ack != null && ack.getPayloadLength() > 0 && rxFifo.size() < FIFO_SIZE) {
+			rxFifo.addLast(new RxPayload(0, ack.getPayload()));
+			registers[STATUS][0] |= STATUS_RX_DR;
+		}
+		scheduler.signal();
+		startTransmissionIfReady();
+	}
+
+	/**
+	 * Receive an acknowledgment packet (invoked by the medium, with the scheduler monitor held).
+	 * The acknowledgment is accepted if the module is waiting for it and if it is sent to the RX address of pipe 0.
+	 * 
+	 * @param ack	The acknowledgment packet.
+	 * @return	True if the acknowledgment was accepted.
+	 */
+	public boolean receiveAck(AirPacket ack) {
+		synchronized (scheduler) {
+			if (!waitingAck || transmittedPacket == null || ack.getChannel() != transmittedPacket.getChannel()
+					|| ack.getDataRates() != transmittedPacket.getDataRates() || ack.getPid() != transmittedPacket.getPid()
+					|| !ack.isAddressedTo(getAddress(RX_ADDR_P0))) {
+				return false;
+			}
+			packetDelivered(ack);
+			return true;
+		}
+	}
+
+	/* ===========
+	 * PRX receive
+	 * =========== */
+
+	/**
+	 * Receive a packet at the end of its time on the air (invoked by the medium or by a test,
+	 * with the scheduler monitor held).
+	 * The packet is accepted if the module is in RX mode on the same channel and data rate, and if its address
+	 * matches an enabled pipe. A retransmitted packet (same packet identity and CRC) is acknowledged but dropped.
+	 * A packet is dropped without acknowledgment if the RX FIFO is full.
+	 * 
+	 * @param packet	The packet.
+	 * @return	The acknowledgment packet to send back, null if none.
+	 */
+	public AirPacket receive(AirPacket packet) {
+		synchronized (scheduler) {
+			if (!isListening() || packet.getChannel() != getChannel() || packet.getDataRates() != getDataRates()) {
+				return null;
+			}
+			registers[RPD][0] = 1;
+			if (!accepts(packet)) {
+				return null;
+			}
+			int pipe = getReceivingPipe(packet);
+			long packetId = ((long) packet.getPid() << 32) | (Arrays.hashCode(packet.getPayload()) & 0xFFFFFFFFL);
+			if (packetId != lastReceivedPacket[pipe]) {
+				lastReceivedPacket[pipe] = packetId;
+				rxFifo.addLast(new RxPayload(pipe, getReceivedPayload(packet, pipe)));
+				registers[STATUS][0] |= STATUS_RX_DR;
+				scheduler.signal();
+			}
+			if (packet.isNoAck() || (registers[EN_AA][0] & (1 << pipe)) == 0) {
+				return null;
+			}
+			return new AirPacket(packet.getChannel(), packet.getDataRates(), packet.getAddress(),
+					pollAckPayload(pipe), packet.getPid(), true, packet.getCrcLength());
+		}
+	}
+
+	/**
+	 * Indicate if a packet would be accepted by this module : the module is in RX mode on the same channel
+	 * and data rate, the packet address matches an enabled pipe and the RX FIFO is not full.
+	 * A retransmitted packet is accepted (it is acknowledged even if its payload is dropped).
+	 * 
+	 * @param packet	The packet.
+	 * @return	true if the packet would be accepted.
+	 */
+	public boolean accepts(AirPacket packet) {
+		synchronized (scheduler) {
+			return isListening() && packet.getChannel() == getChannel() && packet.getDataRates() == getDataRates()
+					&& getReceivingPipe(packet) >= 0 && rxFifo.size() < FIFO_SIZE;
+		}
+	}
+
+	/**
+	 * Return the pipe that receives a packet, -1 if none.
+	 */
+	private int getReceivingPipe(AirPacket packet) {
+		for (int pipe = 0; pipe < 6; pipe++) {
+			if ((registers[EN_RXADDR][0] & (1 << pipe)) != 0 && packet.isAddressedTo(getPipeAddress(pipe))) {
+				return pipe;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the payload stored in the RX FIFO : the packet payload with a dynamic payload length,
+	 * or the RX_PW_Px bytes with a static payload length.
+	 */
+	private byte[] getReceivedPayload(AirPacket packet, int pipe) {
+		if (isDynamicPayloadLength(pipe)) {
+			return packet.getPayload();
+		}
+		return Arrays.copyOf(packet.getPayload(), registers[RX_PW_P0 + pipe][0]);
+	}
+
+	/**
+	 * Remove and return the acknowledgment payload of a pipe (empty if none).
+	 */
+	private byte[] pollAckPayload(int pipe) {
+		if ((registers[FEATURE][0] & FEATURE_EN_ACK_PAY) == 0 || !isDynamicPayloadLength(pipe)) {
+			return new byte[0];
+		}
+		for (Iterator<TxPayload> iterator = txFifo.iterator(); iterator.hasNext();) {
+			TxPayload txPayload = iterator.next();
+			if (txPayload.ackPipe == pipe) {
+				iterator.remove();
+				registers[STATUS][0] |= STATUS_TX_DS;
+				return txPayload.payload;
+			}
+		}
+		return new byte[0];
+	}
+
+	/**
+	 * Put a payload in the RX FIFO as received on a data pipe, whatever the mode, channel and addresses
+	 * (for the replay of a capture or a test) : RX_DR is set.
+	 * 
+	 * @param pipe		The number of the data pipe (0 to 5).
+	 * @param payload	The buffer that contains the payload (copied).
+	 * @param offset	The offset of the payload in the buffer.
+	 * @param length	The length of the payload (1 to 32 bytes).
+	 * @return	False if the RX FIFO is full (the payload is dropped).
+	 */
+	public boolean injectRxPayload(int pipe, byte[] payload, int offset, int length) {
+		if (pipe < 0 || pipe > 5) {
+			throw new IllegalArgumentException("pipe must be between 0 and 5");
+		}
+		if (length < 1 || length > MAX_PAYLOAD_LENGTH) {
+			throw new IllegalArgumentException("length must be between 1 and " + MAX_PAYLOAD_LENGTH);
+		}
+		synchronized (scheduler) {
+			if (rxFifo.size() >= FIFO_SIZE) {
+				return false;
+			}
+			rxFifo.addLast(new RxPayload(pipe, Arrays.copyOfRange(payload, offset, offset + length)));
+			registers[STATUS][0] |= STATUS_RX_DR;
+			scheduler.signal();
+			return true;
+		}
+	}
+
+	/**
+	 * Report a carrier on a channel (invoked by the medium) : sets RPD if the module listens on the channel.
+	 * 
+	 * @param channel	The frequency channel.
+	 */
+	public void detectCarrier(int channel) {
+		synchronized (scheduler) {
+			if (isListening() && channel == getChannel()) {
+				registers[RPD][0] = 1;
+			}
+		}
+	}
+
+	/* =====
+	 * State
+	 * ===== */
+
+	private void abortTransmission() {
+		transmissionId++;
+		transmitting = false;
+		waitingAck = false;
+		transmittedPacket = null;
+	}
+
+	private byte getStatus() {
+		int rxPipe = rxFifo.isEmpty() ? 0b111 : rxFifo.getFirst().pipe;
+		int txFull = txFifo.size() >= FIFO_SIZE ? 1 : 0;
+		return (byte) ((registers[STATUS][0] & STATUS_INTERRUPTS) | (rxPipe << 1) | txFull);
+	}
+
+	private byte getFifoStatus() {
+		int value = 0;
+		value |= reuseTxPayload ? 0b01000000 : 0;
+		value |= txFifo.size() >= FIFO_SIZE ? 0b00100000 : 0;
+		value |= txFifo.isEmpty() ? 0b00010000 : 0;
+		value |= rxFifo.size() >= FIFO_SIZE ? 0b00000010 : 0;
+		value |= rxFifo.isEmpty() ? 0b00000001 : 0;
+		return (byte) value;
+	}
+
+	private boolean isPoweredUp() {
+		return (registers[CONFIG][0] & CONFIG_PWR_UP) != 0;
+	}
+
+	private boolean isPrimaryRx() {
+		return (registers[CONFIG][0] & CONFIG_PRIM_RX) != 0;
+	}
+
+	private boolean isDynamicPayloadLength(int pipe) {
+		return (registers[FEATURE][0] & FEATURE_EN_DPL) != 0 && (registers[DYNPD][0] & (1 << pipe)) != 0;
+	}
+
+	private int getAddressLength() {
+		int setupAw = registers[SETUP_AW][0] & 0b11;
+		return (setupAw == 0) ? 3 : setupAw + 2;
+	}
+
+	private byte[] getAddress(int register) {
+		return Arrays.copyOf(registers[register], getAddressLength());
+	}
+
+	/**
+	 * Pipes 2 to 5 share the most significant bytes of the address of pipe 1.
+	 */
+	private byte[] getPipeAddress(int pipe) {
+		if (pipe < 2) {
+			return getAddress(RX_ADDR_P0 + pipe);
+		}
+		byte[] address = getAddress(RX_ADDR_P1);
+		address[0] = registers[RX_ADDR_P0 + pipe][0];
+		return address;
+	}
+
+	private int getCrcLength() {
+		if ((registers[CONFIG][0] & CONFIG_EN_CRC) == 0) {
+			return 0;
+		}
+		return (registers[CONFIG][0] & CONFIG_CRCO) != 0 ? 2 : 1;
+	}
+
+	private long getAutoRetransmitDelayNanos() {
+		return 250000L * (((registers[SETUP_RETR][0] & 0xFF) >> 4) + 1);
+	}
+
+	private int getAutoRetransmitCount() {
+		return registers[SETUP_RETR][0] & 0b1111;
+	}
+
+	/* =================
+	 * Getters / Setters
+	 * ================= */
+
+	public EmulatorScheduler getScheduler() {
+		return scheduler;
+	}
+
+	public RadioMedium getMedium() {
+		synchronized (scheduler) {
+			return medium;
+		}
+	}
+
+	public void setMedium(RadioMedium medium) {
+		synchronized (scheduler) {
+			this.medium = medium;
+		}
+	}
+
+	/**
+	 * Return the frequency channel (RF_CH).
+	 * 
+	 * @return	The frequency channel.
+	 */
+	public int getChannel() {
+		synchronized (scheduler) {
+			return registers[RF_CH][0];
+		}
+	}
+
+	/**
+	 * Return the data rate (RF_SETUP).
+	 * 
+	 * @return	The data rate.
+	 */
+	public DataRates getDataRates() {
+		synchronized (scheduler) {
+			return DataRates.getFromValue((registers[RF_SETUP][0] & RF_SETUP_RF_DR_LOW) != 0,
+					(registers[RF_SETUP][0] & RF_SETUP_RF_DR_HIGH) != 0);
+		}
+	}
+
+	/**
+	 * Return true if the module is in RX mode and able to receive packets.
+	 * 
+	 * @return	True if the module is listening.
+	 */
+	public boolean isListening() {
+		synchronized (scheduler) {
+			return listeningTime <= scheduler.now();
+		}
+	}
+
+	/**
+	 * Return true if a packet is being transmitted (including the retransmissions).
+	 * 
+	 * @return	True if the module is transmitting.
+	 */
+	public boolean isTransmitting() {
+		synchronized (scheduler) {
+			return transmitting;
+		}
+	}
+
+	public boolean isChipEnable() {
+		synchronized (scheduler) {
+			return chipEnable;
+		}
+	}
+
+	/**
+	 * Return the raw value of a register (without side effect and without SPI transfer).
+	 * 
+	 * @param address	The address of the register.
+	 * @return	The value of the register (LSByte first).
+	 */
+	public byte[] getRegister(int address) {
+		synchronized (scheduler) {
+			byte[] value = new byte[Math.max(registersLength[address], 1)];
+			for (int i = 0; i < value.length; i++) {
+				value[i] = readRegister(address, i);
+			}
+			return value;
+		}
+	}
+
+	public int getTxFifoSize() {
+		synchronized (scheduler) {
+			return txFifo.size();
+		}
+	}
+
+	public int getRxFifoSize() {
+		synchronized (scheduler) {
+			return rxFifo.size();
+		}
+	}
+
+	public long getSpiTransfers() {
+		synchronized (scheduler) {
+			return spiTransfers;
+		}
+	}
+
+	/**
+	 * A payload of the TX FIFO.
+	 */
+	private static final class TxPayload {
+
+		private final byte[] payload;
+
+		private final boolean noAck;
+
+		/** The pipe of an acknowledgment payload, -1 for a payload to send. */
+		private final int ackPipe;
+
+		private TxPayload(byte[] payload, boolean noAck, int ackPipe) {
+			this.payload = payload;
+			this.noAck = noAck;
+			this.ackPipe = ackPipe;
+		}
+
+	}
+
+	/**
+	 * A payload of the RX FIFO.
+	 */
+	private static final class RxPayload {
+
+		private final int pipe;
+
+		private final byte[] payload;
+
+		private RxPayload(int pipe, byte[] payload) {
+			this.pipe = pipe;
+			this.payload = payload;
+		}
+
+	}
+
+}
@@ -0,0 +1,42 @@
+package fr.jstessier.rf24.hardware.emulator;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/**
+ * The air interface between emulated modules.
+ * 
+ * @author J.S. TESSIER
+ */
+public interface RadioMedium {
+
+	/**
+	 * Invoked by an emulated module when it starts to send a packet (with the scheduler monitor held).
+	 * The medium is responsible to deliver the packet to the receivers with
+	 * {@link RF24HardwareEmulator#receive(AirPacket)} at the end time and to send back their acknowledgment
+	 * with {@link RF24HardwareEmulator#receiveAck(AirPacket)}.
+	 * 
+	 * @param source	The module that sends the packet.
+	 * @param packet	The packet.
+	 * @param startTime	The time of the first bit on the air in nanoseconds.
+	 * @param endTime	The time of the last bit on the air in nanoseconds.
+	 */
+	void transmit(RF24HardwareEmulator source, AirPacket packet, long startTime, long endTime);
+
+}
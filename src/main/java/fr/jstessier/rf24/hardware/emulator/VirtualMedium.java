@@ -0,0 +1,349 @@
+package fr.jstessier.rf24.hardware.emulator;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Simulated air interface between emulated modules.
+ * 
+ * A packet is delivered to all the other modules at the end of its time on the air, each module keeps the packets
+ * for its channel, data rate and addresses (see {@link RF24HardwareEmulator#receive(AirPacket)}).
+ * The acknowledgments are sent back on the air after the turnaround time (Tstby2a).
+ * 
+ * Two packets overlapping on the air on the same channel are both lost (no capture effect).
+ * A packet (or an acknowledgment) is also lost for a receiver with a configurable probability.
+ * An optional latency is added to the delivery of each packet.
+ * 
+ * The losses are drawn from a seeded random generator : on a virtual time, a network driven from a single thread
+ * gives the same results for the same seed.
+ * 
+ * @author J.S. TESSIER
+ */
+public class VirtualMedium implements RadioMedium {
+
+	/** Number of frequency channels (RF_CH values 0 to 125). */
+	private static final int CHANNELS_COUNT = 126;
+
+	/** The scheduler shared by all the modules of the medium. */
+	private final EmulatorScheduler scheduler;
+
+	/** The random generator of the losses. */
+	private final Random random;
+
+	/** The modules connected to the medium. */
+	private final List<RF24HardwareEmulator> modules = new ArrayList<>();
+
+	/** The transmissions on the air. */
+	private final List<Transmission> onAir = new ArrayList<>();
+
+	/** Probability to lose a packet for a receiver (0 to 1). */
+	private double lossProbability = 0;
+
+	/** Probability to lose a packet for a receiver on each frequency channel (interference on the channel). */
+	private final double[] channelsLossProbabilities = new double[CHANNELS_COUNT];
+
+	/** Latency added to the delivery of each packet in nanoseconds. */
+	private long latencyNanos = 0;
+
+	/** Number of packets sent on the air (including the acknowledgments). */
+	private long transmittedPacketsCount = 0;
+
+	/** Number of packets accepted by a receiver (matching address and room in the RX FIFO, or expected acknowledgment). */
+	private long deliveredPacketsCount = 0;
+
+	/** Number of packets lost by a receiver on the same channel (random loss). */
+	private long lostPacketsCount = 0;
+
+	/** Number of packets lost in a collision. */
+	private long collidedPacketsCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param scheduler	The scheduler shared by all the modules of the medium.
+	 * @param seed		The seed of the random generator of the losses.
+	 */
+	public VirtualMedium(EmulatorScheduler scheduler, long seed) {
+		if (scheduler == null) {
+			throw new IllegalArgumentException("scheduler is mandatory");
+		}
+		this.scheduler = scheduler;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Create a new emulated module connected to the medium.
+	 * 
+	 * @return	The emulated module.
+	 */
+	public RF24HardwareEmulator createModule() {
+		RF24HardwareEmulator module = new RF24HardwareEmulator(scheduler);
+		attach(module);
+		return module;
+	}
+
+	/**
+	 * Connect an emulated module to the medium.
+	 * 
+	 * @param module	The emulated module (with the scheduler of the medium).
+	 */
+	public void attach(RF24HardwareEmulator module) {
+		if (module == null) {
+			throw new IllegalArgumentException("module is mandatory");
+		}
+		if (module.getScheduler() != scheduler) {
+			throw new IllegalArgumentException("The module must use the scheduler of the medium");
+		}
+		synchronized (scheduler) {
+			if (!modules.contains(module)) {
+				modules.add(module);
+			}
+			module.setMedium(this);
+		}
+	}
+
+	/**
+	 * Disconnect an emulated module from the medium.
+	 * 
+	 * @param module	The emulated module.
+	 */
+	public void detach(RF24HardwareEmulator module) {
+		synchronized (scheduler) {
+			if (modules.remove(module)) {
+				module.setMedium(null);
+			}
+		}
+	}
+
+	@Override
+	public void transmit(final RF24HardwareEmulator source, final AirPacket packet, long startTime, long endTime) {
+		final Transmission transmission = startTransmission(source, packet.getChannel(), startTime, endTime);
+		scheduler.schedule(endTime, () -> {
+			onAir.remove(transmission);
+			if (transmission.collided) {
+				collidedPacketsCount++;
+				return;
+			}
+			scheduler.schedule(endTime + latencyNanos, () -> deliver(source, packet, endTime + latencyNanos));
+		});
+	}
+
+	/**
+	 * Deliver a packet to all the other modules and send back their acknowledgments.
+	 */
+	private void deliver(RF24HardwareEmulator source, AirPacket packet, long time) {
+		for (RF24HardwareEmulator module : new ArrayList<>(modules)) {
+			if (module == source || module.getChannel() != packet.getChannel()) {
+				continue;
+			}
+			if (isLost(packet.getChannel())) {
+				lostPacketsCount++;
+				continue;
+			}
+			if (module.accepts(packet)) {
+				deliveredPacketsCount++;
+			}
+			AirPacket ack = module.receive(packet);
+			if (ack != null) {
+				sendAck(module, source, ack, time + RF24HardwareEmulator.TSTBY2A_NANOS);
+			}
+		}
+	}
+
+	/**
+	 * Send an acknowledgment on the air, from the receiver to the transmitter.
+	 */
+	private void sendAck(final RF24HardwareEmulator receiver, final RF24HardwareEmulator transmitter, final AirPacket ack, final long startTime) {
+		scheduler.schedule(startTime, () -> {
+			final long endTime = startTime + ack.getAirTimeNanos();
+			final Transmission transmission = startTransmission(receiver, ack.getChannel(), startTime, endTime);
+			scheduler.schedule(endTime, () -> {
+				onAir.remove(transmission);
+				if (transmission.collided) {
+					collidedPacketsCount++;
+				} else if (isLost(ack.getChannel())) {
+					lostPacketsCount++;
+				} else {
+					scheduler.schedule(endTime + latencyNanos, () -> {
+						if (transmitter.receiveAck(ack)) {
+							deliveredPacketsCount++;
+						}
+					});
+				}
+			});
+		});
+	}
+
+	/**
+	 * Put a transmission on the air : mark the collisions and report the carrier to the listening modules.
+	 */
+	private Transmission startTransmission(RF24HardwareEmulator source, int channel, long startTime, long endTime) {
+		Transmission transmission = new Transmission(channel, startTime, endTime);
+		for (Transmission other : onAir) {
+			if (other.channel == channel && other.startTime < endTime && startTime < other.endTime) {
+				other.collided = true;
+				transmission.collided = true;
+			}
+		}
+		onAir.add(transmission);
+		transmittedPacketsCount++;
+		for (RF24HardwareEmulator module : modules) {
+			if (module != source) {
+				module.detectCarrier(channel);
+			}
+		}
+		return transmission;
+	}
+
+	private boolean isLost(int channel) {
+		final double probability = Math.max(lossProbability, channelsLossProbabilities[channel]);
+		return probability > 0 && random.nextDouble() < probability;
+	}
+
+	/* =================
+	 * Getters / Setters
+	 * ================= */
+
+	public EmulatorScheduler getScheduler() {
+		return scheduler;
+	}
+
+	public List<RF24HardwareEmulator> getModules() {
+		synchronized (scheduler) {
+			return Collections.unmodifiableList(new ArrayList<>(modules));
+		}
+	}
+
+	public double getLossProbability() {
+		synchronized (scheduler) {
+			return lossProbability;
+		}
+	}
+
+	/**
+	 * Set the probability to lose a packet (or an acknowledgment) for a receiver.
+	 * 
+	 * @param lossProbability	The probability (0 to 1).
+	 */
+	public void setLossProbability(double lossProbability) {
+		if (lossProbability < 0 || lossProbability > 1) {
+			throw new IllegalArgumentException("lossProbability must be between 0 and 1");
+		}
+		synchronized (scheduler) {
+			this.lossProbability = lossProbability;
+		}
+	}
+
+	public double getChannelLossProbability(int channel) {
+		synchronized (scheduler) {
+			return channelsLossProbabilities[channel];
+		}
+	}
+
+	/**
+	 * Set the probability to lose a packet (or an acknowledgment) for a receiver on a frequency channel,
+	 * to emulate an interference on the channel. The highest of this probability and of the global one is used.
+	 * 
+	 * @param channel			The frequency channel (0 to 125).
+	 * @param lossProbability	The probability (0 to 1).
+	 */
+	public void setChannelLossProbability(int channel, double lossProbability) {
+		if (channel < 0 || channel >= CHANNELS_COUNT) {
+			throw new IllegalArgumentException("channel must be between 0 and " + (CHANNELS_COUNT - 1));
+		}
+		if (lossProbability < 0 || lossProbability > 1) {
+			throw new IllegalArgumentException("lossProbability must be between 0 and 1");
+		}
+		synchronized (scheduler) {
+			channelsLossProbabilities[channel] = lossProbability;
+		}
+	}
+
+	public long getLatencyNanos() {
+		synchronized (scheduler) {
+			return latencyNanos;
+		}
+	}
+
+	/**
+	 * Set the latency added to the delivery of each packet.
+	 * 
+	 * @param latencyNanos	The latency in nanoseconds.
+	 */
+	public void setLatencyNanos(long latencyNanos) {
+		if (latencyNanos < 0) {
+			throw new IllegalArgumentException("latencyNanos must be positive");
+		}
+		synchronized (scheduler) {
+			this.latencyNanos = latencyNanos;
+		}
+	}
+
+	public long getTransmittedPacketsCount() {
+		synchronized (scheduler) {
+			return transmittedPacketsCount;
+		}
+	}
+
+	public long getDeliveredPacketsCount() {
+		synchronized (scheduler) {
+			return deliveredPacketsCount;
+		}
+	}
+
+	public long getLostPacketsCount() {
+		synchronized (scheduler) {
+			return lostPacketsCount;
+		}
+	}
+
+	public long getCollidedPacketsCount() {
+		synchronized (scheduler) {
+			return collidedPacketsCount;
+		}
+	}
+
+	/**
+	 * A packet on the air.
+	 */
+	private static final class Transmission {
+
+		private final int channel;
+
+		private final long startTime;
+
+		private final long endTime;
+
+		/** True if an other packet overlaps on the same channel. */
+		private boolean collided = false;
+
+		private Transmission(int channel, long startTime, long endTime) {
+			this.channel = channel;
+			this.startTime = startTime;
+			this.endTime = endTime;
+		}
+
+	}
+
+}
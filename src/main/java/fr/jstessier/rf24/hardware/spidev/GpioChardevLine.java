@@ -0,0 +1,181 @@
+package fr.jstessier.rf24.hardware.spidev;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.io.IOException;
+
+/**
+ * GPIO line of a Linux GPIO character device (/dev/gpiochipN) through the JNI shim of {@link SpidevTransport}.
+ * 
+ * The line is requested with the GPIO uAPI v2 ioctls (Linux 5.10 or later) : as an output for CE, or as an input
+ * with pull up and falling edge events for IRQ. The edges are waited with ppoll(2) on the line file descriptor,
+ * without a listener thread. The line is released when it is closed.
+ * 
+ * @author J.S. TESSIER
+ */
+public class GpioChardevLine implements GpioLine {
+
+	/** Default GPIO chip (the GPIO of the header on Raspberry Pi 1 to 4, the line offset is the BCM number). */
+	public static final String DEFAULT_GPIO_CHIP = "/dev/gpiochip0";
+
+	/** Path of the GPIO chip. */
+	private final String chipPath;
+
+	/** Offset of the line in the GPIO chip. */
+	private final int offset;
+
+	/** File descriptor of the line (-1 when closed). */
+	private int fd;
+
+	private GpioChardevLine(String chipPath, int offset, boolean output) throws IOException {
+		if (chipPath == null) {
+			throw new IllegalArgumentException("chipPath is mandatory");
+		}
+		if (offset < 0) {
+			throw new IllegalArgumentException("offset is negative");
+		}
+		SpidevTransport.loadLibrary();
+		this.chipPath = chipPath;
+		this.offset = offset;
+		this.fd = open(chipPath, offset, output, false);
+		if (fd < 0) {
+			throw new IOException("Failed to request line " + offset + " of GPIO chip " + chipPath + " (errno " + -fd + ")");
+		}
+	}
+
+	/**
+	 * Request a line as an output, initially low.
+	 * 
+	 * @param chipPath	The path of the GPIO chip (for example /dev/gpiochip0).
+	 * @param offset	The offset of the line in the GPIO chip.
+	 * @return	The line.
+	 * @throws IOException	If the line can not be requested.
+	 */
+	public static GpioChardevLine openOutput(String chipPath, int offset) throws IOException {
+		return new GpioChardevLine(chipPath, offset, true);
+	}
+
+	/**
+	 * Request a line as an input with pull up and falling edge events (IRQ pin, active low).
+	 * 
+	 * @param chipPath	The path of the GPIO chip (for example /dev/gpiochip0).
+	 * @param offset	The offset of the line in the GPIO chip.
+	 * @return	The line.
+	 * @throws IOException	If the line can not be requested.
+	 */
+	public static GpioChardevLine openFallingEdgeInput(String chipPath, int offset) throws IOException {
+		return new GpioChardevLine(chipPath, offset, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void setValue(boolean value) throws IOException {
+		checkOpen();
+		int result = setValue(fd, value);
+		if (result < 0) {
+			throw new IOException("Failed to set line " + offset + " of GPIO chip " + chipPath + " (errno " + -result + ")");
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean getValue() throws IOException {
+		checkOpen();
+		int result = getValue(fd);
+		if (result < 0) {
+			throw new IOException("Failed to read line " + offset + " of GPIO chip " + chipPath + " (errno " + -result + ")");
+		}
+		return result != 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Not synchronized : the value of the line can be read while a thread is waiting.
+	 */
+	@Override
+	public boolean waitForEdge(long timeoutMicroseconds) throws IOException {
+		final int lineFd;
+		synchronized (this) {
+			checkOpen();
+			lineFd = fd;
+		}
+		int result = waitForEdge(lineFd, Math.max(timeoutMicroseconds, 0));
+		if (result < 0) {
+			throw new IOException("Failed to wait line " + offset + " of GPIO chip " + chipPath + " (errno " + -result + ")");
+		}
+		return result > 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (fd >= 0) {
+			close(fd);
+			fd = -1;
+		}
+	}
+
+	private void checkOpen() throws IOException {
+		if (fd < 0) {
+			throw new IOException("Line " + offset + " of GPIO chip " + chipPath + " is closed");
+		}
+	}
+
+	public String getChipPath() {
+		return chipPath;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	/* ========
+	 * JNI shim
+	 * ======== */
+
+	/**
+	 * @return	The file descriptor of the line or -errno.
+	 */
+	private static native int open(String chipPath, int offset, boolean output, boolean initialValue);
+
+	/**
+	 * @return	0 or -errno.
+	 */
+	private static native int setValue(int fd, boolean value);
+
+	/**
+	 * @return	The value (0 or 1) or -errno.
+	 */
+	private static native int getValue(int fd);
+
+	/**
+	 * @return	The number of edges consumed (0 if the timeout expired) or -errno.
+	 */
+	private static native int waitForEdge(int fd, long timeoutMicroseconds);
+
+	private static native void close(int fd);
+
+}
@@ -0,0 +1,67 @@
+package fr.jstessier.rf24.hardware.spidev;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * One GPIO line (the minimal system interface used by {@link RF24HardwareSpidev} for the CE and IRQ pins).
+ * 
+ * @author J.S. TESSIER
+ */
+public interface GpioLine extends Closeable {
+
+	/**
+	 * Change the value of an output line.
+	 * 
+	 * @param value	True for high, false for low.
+	 * @throws IOException	In case of error of the GPIO device.
+	 */
+	void setValue(boolean value) throws IOException;
+
+	/**
+	 * Read the value of the line.
+	 * 
+	 * @return	True for high, false for low.
+	 * @throws IOException	In case of error of the GPIO device.
+	 */
+	boolean getValue() throws IOException;
+
+	/**
+	 * Wait for the next edge of an input line (the edges that happened before are consumed).
+	 * 
+	 * @param timeoutMicroseconds	The maximum time to wait in microseconds.
+	 * @return	True if an edge happened, false if the timeout expired.
+	 * @throws IOException	In case of error of the GPIO device.
+	 */
+	boolean waitForEdge(long timeoutMicroseconds) throws IOException;
+
+	/**
+	 * Release the line.
+	 * 
+	 * @throws IOException	In case of error of the GPIO device.
+	 */
+	@Override
+	default void close() throws IOException {
+		// NOP
+	}
+
+}
@@ -0,0 +1,330 @@
+package fr.jstessier.rf24.hardware.spidev;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.hardware.RF24Hardware;
+
+/**
+ * Hardware interface to RF24 module through the Linux spidev and GPIO character device interfaces, without pi4J.
+ * 
+ * The transfers are done in a direct buffer : the data of the caller are copied once in each direction, or not at all
+ * for a direct {@link ByteBuffer}. A batch of transfers ({@link #spiTransfers(byte[], int, int[], int)}) is submitted
+ * in calls of the {@link SpiTransport} of up to {@link SpidevTransport#MAX_TRANSFERS_COUNT} transfers
+ * (one ioctl each with {@link SpidevTransport}).
+ * The CE and IRQ pins are GPIO lines ({@link GpioChardevLine}), the IRQ pin is optional.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24HardwareSpidev implements RF24Hardware, Closeable {
+
+	/** SPI default speed is 4MHz (like Arduino default speed). */
+	public static final int DEFAULT_SPI_SPEED = 4000000;
+
+	/** Size of the transfer buffer (a batch of commands with up to 32 bytes of data each). */
+	public static final int TRANSFER_BUFFER_SIZE = 1024;
+
+	/** The SPI device. */
+	private final SpiTransport spiTransport;
+
+	/** "Chip Enable" pin, activates the RX or TX role. */
+	private final GpioLine pinChipEnable;
+
+	/** "IRQ" pin (active low), null if not connected. */
+	private final GpioLine pinIrq;
+
+	/** Direct buffer of the transfers. */
+	private final ByteBuffer transferBuffer = ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE);
+
+	/** Lengths of a single transfer. */
+	private final int[] singleLength = new int[1];
+
+	/** Lengths of the transfers of a chunk of a batch. */
+	private final int[] chunkLengths = new int[SpidevTransport.MAX_TRANSFERS_COUNT];
+
+
+	/* ============
+	 * Constructors
+	 * ============ */
+
+	/**
+	 * Constructor.
+	 * Use the default SPI speed value (4 MHz) and the IRQ pin is not connected.
+	 * 
+	 * @param spiBus			The SPI bus number.
+	 * @param spiChipSelect		The SPI chip select number (the device is /dev/spidevBus.ChipSelect).
+	 * @param gpioPinChipEnable	The GPIO number for "Chip Enable" (line of {@link GpioChardevLine#DEFAULT_GPIO_CHIP}, BCM numerotation on Raspberry Pi).
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24HardwareSpidev(int spiBus, int spiChipSelect, int gpioPinChipEnable) throws RF24Exception {
+		this(spiBus, spiChipSelect, gpioPinChipEnable, -1, DEFAULT_SPI_SPEED);
+	}
+
+	/**
+	 * Constructor.
+	 * The IRQ pin is not connected.
+	 * 
+	 * @param spiBus			The SPI bus number.
+	 * @param spiChipSelect		The SPI chip select number (the device is /dev/spidevBus.ChipSelect).
+	 * @param gpioPinChipEnable	The GPIO number for "Chip Enable" (line of {@link GpioChardevLine#DEFAULT_GPIO_CHIP}, BCM numerotation on Raspberry Pi).
+	 * @param spiSpeed			The SPI speed in Hertz [500kHz - 32MHz].
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24HardwareSpidev(int spiBus, int spiChipSelect, int gpioPinChipEnable, int spiSpeed) throws RF24Exception {
+		this(spiBus, spiChipSelect, gpioPinChipEnable, -1, spiSpeed);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param spiBus			The SPI bus number.
+	 * @param spiChipSelect		The SPI chip select number (the device is /dev/spidevBus.ChipSelect).
+	 * @param gpioPinChipEnable	The GPIO number for "Chip Enable" (line of {@link GpioChardevLine#DEFAULT_GPIO_CHIP}, BCM numerotation on Raspberry Pi).
+	 * @param gpioPinIrq		The GPIO number for "IRQ" (line of {@link GpioChardevLine#DEFAULT_GPIO_CHIP}), -1 if not connected.
+	 * @param spiSpeed			The SPI speed in Hertz [500kHz - 32MHz].
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24HardwareSpidev(int spiBus, int spiChipSelect, int gpioPinChipEnable, int gpioPinIrq, int spiSpeed) throws RF24Exception {
+		this(GpioChardevLine.DEFAULT_GPIO_CHIP, spiBus, spiChipSelect, gpioPinChipEnable, gpioPinIrq, spiSpeed);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param gpioChip			The path of the GPIO chip of the CE and IRQ lines (for example /dev/gpiochip0).
+	 * @param spiBus			The SPI bus number.
+	 * @param spiChipSelect		The SPI chip select number (the device is /dev/spidevBus.ChipSelect).
+	 * @param gpioPinChipEnable	The line offset for "Chip Enable".
+	 * @param gpioPinIrq		The line offset for "IRQ", -1 if not connected.
+	 * @param spiSpeed			The SPI speed in Hertz [500kHz - 32MHz].
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public RF24HardwareSpidev(String gpioChip, int spiBus, int spiChipSelect, int gpioPinChipEnable, int gpioPinIrq, int spiSpeed)
+			throws RF24Exception {
+		this(openSpiTransport(spiBus, spiChipSelect, spiSpeed), openOutput(gpioChip, gpioPinChipEnable),
+				gpioPinIrq < 0 ? null : openIrqInput(gpioChip, gpioPinIrq));
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param spiTransport	The SPI device.
+	 * @param pinChipEnable	The "Chip Enable" pin.
+	 * @param pinIrq		The "IRQ" pin, null if not connected.
+	 */
+	public RF24HardwareSpidev(SpiTransport spiTransport, GpioLine pinChipEnable, GpioLine pinIrq) {
+		if (spiTransport == null) {
+			throw new IllegalArgumentException("spiTransport is mandatory");
+		}
+		if (pinChipEnable == null) {
+			throw new IllegalArgumentException("pinChipEnable is mandatory");
+		}
+		this.spiTransport = spiTransport;
+		this.pinChipEnable = pinChipEnable;
+		this.pinIrq = pinIrq;
+	}
+
+	private static SpiTransport openSpiTransport(int spiBus, int spiChipSelect, int spiSpeed) throws RF24Exception {
+		if (spiSpeed < 500000 || spiSpeed > 32000000) {
+			throw new IllegalArgumentException("spiSpeed is out of range [500kHz - 32MHz].");
+		}
+		String devicePath = "/dev/spidev" + spiBus + "." + spiChipSelect;
+		try {
+			return new SpidevTransport(devicePath, RF24Hardware.SPI_MODE_0, spiSpeed);
+		} catch (IOException e) {
+			throw new RF24Exception("Failed to initialize communication with RF module through SPI device " + devicePath, e);
+		}
+	}
+
+	private static GpioLine openOutput(String gpioChip, int gpio) throws RF24Exception {
+		try {
+			return GpioChardevLine.openOutput(gpioChip, gpio);
+		} catch (IOException e) {
+			throw new RF24Exception("Failed to initialize GPIO " + gpio, e);
+		}
+	}
+
+	private static GpioLine openIrqInput(String gpioChip, int gpio) throws RF24Exception {
+		try {
+			return GpioChardevLine.openFallingEdgeInput(gpioChip, gpio);
+		} catch (IOException e) {
+			throw new RF24Exception("Failed to initialize GPIO " + gpio, e);
+		}
+	}
+
+
+	/* =======
+	 * Methods
+	 * ======= */
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setPinChipEnableHigh() {
+		setPinChipEnable(true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setPinChipEnableLow() {
+		setPinChipEnable(false);
+	}
+
+	private void setPinChipEnable(boolean value) {
+		try {
+			pinChipEnable.setValue(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to set GPIO of Chip Enable", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte[] spiWrite(byte... data) throws RF24Exception {
+		byte[] result = data.clone();
+		spiTransfer(result, 0, result.length);
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The bytes are copied in the direct transfer buffer.
+	 */
+	@Override
+	public synchronized void spiTransfer(byte[] buffer, int offset, int length) throws RF24Exception {
+		singleLength[0] = length;
+		spiTransfers(buffer, offset, singleLength, 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * A direct buffer is transferred in place (no copy).
+	 */
+	@Override
+	public synchronized void spiTransfer(ByteBuffer buffer) throws RF24Exception {
+		if (!buffer.isDirect()) {
+			RF24Hardware.super.spiTransfer(buffer);
+			return;
+		}
+		singleLength[0] = buffer.remaining();
+		transfer(buffer, singleLength, 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The transfers are submitted in chunks of up to {@link SpidevTransport#MAX_TRANSFERS_COUNT} transfers
+	 * and {@link #TRANSFER_BUFFER_SIZE} bytes, one call of the SPI transport per chunk.
+	 */
+	@Override
+	public synchronized void spiTransfers(byte[] buffer, int offset, int[] lengths, int count) throws RF24Exception {
+		int position = offset;
+		int index = 0;
+		while (index < count) {
+			int chunkCount = 0;
+			int chunkTotal = 0;
+			while (index < count && chunkCount < chunkLengths.length && chunkTotal + lengths[index] <= TRANSFER_BUFFER_SIZE) {
+				chunkLengths[chunkCount++] = lengths[index];
+				chunkTotal += lengths[index++];
+			}
+			if (chunkCount == 0) {
+				throw new IllegalArgumentException("The transfer is longer than " + TRANSFER_BUFFER_SIZE + " bytes");
+			}
+			transferBuffer.clear();
+			transferBuffer.put(buffer, position, chunkTotal);
+			transferBuffer.flip();
+			transfer(transferBuffer, chunkLengths, chunkCount);
+			transferBuffer.get(buffer, position, chunkTotal);
+			position += chunkTotal;
+		}
+	}
+
+	private void transfer(ByteBuffer buffer, int[] lengths, int count) throws RF24Exception {
+		try {
+			spiTransport.transfer(buffer, lengths, count);
+		} catch (IOException e) {
+			throw new RF24Exception("Failed to transfer on SPI device", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isIrqAvailable() {
+		return pinIrq != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The level of the IRQ pin is checked before each wait of a falling edge : an edge that happened before
+	 * the wait is never lost.
+	 */
+	@Override
+	public boolean waitForIrq(long timeoutMicroseconds) throws RF24Exception {
+		if (pinIrq == null) {
+			throw new UnsupportedOperationException("The IRQ pin is not connected");
+		}
+		final long deadline = System.nanoTime() + timeoutMicroseconds * 1000;
+		try {
+			while (pinIrq.getValue()) {
+				long remainingMicroseconds = (deadline - System.nanoTime()) / 1000;
+				if (remainingMicroseconds <= 0) {
+					return false;
+				}
+				if (Thread.currentThread().isInterrupted()) {
+					throw new RF24Exception("Interrupted while waiting IRQ");
+				}
+				pinIrq.waitForEdge(remainingMicroseconds);
+			}
+			return true;
+		} catch (IOException e) {
+			throw new RF24Exception("Failed to wait IRQ", e);
+		}
+	}
+
+	/**
+	 * Release the SPI device and the GPIO lines.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			spiTransport.close();
+		} finally {
+			try {
+				pinChipEnable.close();
+			} finally {
+				if (pinIrq != null) {
+					pinIrq.close();
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package fr.jstessier.rf24.hardware.spidev;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Full duplex SPI transfers of a SPI device (the minimal system interface used by {@link RF24HardwareSpidev}).
+ * 
+ * @author J.S. TESSIER
+ */
+public interface SpiTransport extends Closeable {
+
+	/**
+	 * Several full duplex SPI transfers in place, each one framed by the chip select, submitted at once.
+	 * The transfers are consecutive in the buffer from its position : the transfer i has lengths[i] bytes.
+	 * The sent bytes are replaced by the received bytes, the position and the limit of the buffer are not modified.
+	 * 
+	 * @param buffer	The buffer (direct for the system implementations).
+	 * @param lengths	The number of bytes of each transfer.
+	 * @param count		The number of transfers.
+	 * @throws IOException	In case of error of the SPI device.
+	 */
+	void transfer(ByteBuffer buffer, int[] lengths, int count) throws IOException;
+
+	/**
+	 * Release the SPI device.
+	 * 
+	 * @throws IOException	In case of error of the SPI device.
+	 */
+	@Override
+	default void close() throws IOException {
+		// NOP
+	}
+
+}
@@ -0,0 +1,150 @@
+package fr.jstessier.rf24.hardware.spidev;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * SPI transport on a Linux spidev device (/dev/spidevB.C) through a minimal JNI shim.
+ * 
+ * The shim (src/main/native/rf24spidev.c) only opens the device, configures it (mode 0, 8 bits per word, speed)
+ * and submits the transfers with one SPI_IOC_MESSAGE(n) ioctl, the buffers are read and written in place in the
+ * direct {@link ByteBuffer} (no copy). The same library drives the GPIO lines ({@link GpioChardevLine}).
+ * The library must be in java.library.path :
+ * <pre>
+ * gcc -shared -fPIC -O2 -I$JAVA_HOME/include -I$JAVA_HOME/include/linux -o librf24spidev.so rf24spidev.c
+ * </pre>
+ * 
+ * @author J.S. TESSIER
+ */
+public class SpidevTransport implements SpiTransport {
+
+	/** Name of the JNI library. */
+	public static final String LIBRARY_NAME = "rf24spidev";
+
+	/** Maximum number of transfers of one submission. */
+	public static final int MAX_TRANSFERS_COUNT = 16;
+
+	private static volatile boolean libraryLoaded = false;
+
+	/** Path of the SPI device. */
+	private final String devicePath;
+
+	/** SPI speed in Hertz. */
+	private final int speed;
+
+	/** File descriptor of the SPI device (-1 when closed). */
+	private int fd;
+
+	/**
+	 * Open a SPI device.
+	 * 
+	 * @param devicePath	The path of the SPI device (for example /dev/spidev0.0).
+	 * @param mode			The SPI mode.
+	 * @param speed			The SPI speed in Hertz.
+	 * @throws IOException	If the device can not be opened or configured.
+	 */
+	public SpidevTransport(String devicePath, int mode, int speed) throws IOException {
+		if (devicePath == null) {
+			throw new IllegalArgumentException("devicePath is mandatory");
+		}
+		loadLibrary();
+		this.devicePath = devicePath;
+		this.speed = speed;
+		this.fd = open(devicePath, mode, speed);
+		if (fd < 0) {
+			throw new IOException("Failed to open SPI device " + devicePath + " (errno " + -fd + ")");
+		}
+	}
+
+	/**
+	 * Load the JNI shim (also used by {@link GpioChardevLine}).
+	 */
+	static synchronized void loadLibrary() {
+		if (!libraryLoaded) {
+			System.loadLibrary(LIBRARY_NAME);
+			libraryLoaded = true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void transfer(ByteBuffer buffer, int[] lengths, int count) throws IOException {
+		if (!buffer.isDirect()) {
+			throw new IllegalArgumentException("buffer must be direct");
+		}
+		if (count <= 0 || count > MAX_TRANSFERS_COUNT) {
+			throw new IllegalArgumentException("count must be between 1 and " + MAX_TRANSFERS_COUNT);
+		}
+		if (fd < 0) {
+			throw new IOException("SPI device " + devicePath + " is closed");
+		}
+		int total = 0;
+		for (int i = 0; i < count; i++) {
+			total += lengths[i];
+		}
+		if (total > buffer.remaining()) {
+			throw new IllegalArgumentException("The transfers are longer than the buffer");
+		}
+		int result = transfer(fd, buffer, buffer.position(), lengths, count, speed);
+		if (result < 0) {
+			throw new IOException("Failed to transfer on SPI device " + devicePath + " (errno " + -result + ")");
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (fd >= 0) {
+			close(fd);
+			fd = -1;
+		}
+	}
+
+	public String getDevicePath() {
+		return devicePath;
+	}
+
+	public int getSpeed() {
+		return speed;
+	}
+
+	/* ========
+	 * JNI shim
+	 * ======== */
+
+	/**
+	 * @return	The file descriptor or -errno.
+	 */
+	private static native int open(String devicePath, int mode, int speed);
+
+	/**
+	 * @return	The number of bytes transferred or -errno.
+	 */
+	private static native int transfer(int fd, ByteBuffer buffer, int offset, int[] lengths, int count, int speed);
+
+	private static native void close(int fd);
+
+}
@@ -0,0 +1,148 @@
+package fr.jstessier.rf24.hopping;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Set of the usable frequency channels of a hop sequence (a bit by channel).
+ * 
+ * @author J.S. TESSIER
+ */
+public class ChannelMap {
+
+	/** Number of frequency channels (RF_CH values 0 to 125). */
+	public static final int CHANNELS_COUNT = 126;
+
+	/** Size of the map in bytes. */
+	public static final int SIZE = (CHANNELS_COUNT + 7) / 8;
+
+	/** The bits of the usable channels (LSByte first). */
+	private final byte[] bits = new byte[SIZE];
+
+	/**
+	 * Return a map with all the channels.
+	 * 
+	 * @return	The map.
+	 */
+	public static ChannelMap allChannels() {
+		return range(0, CHANNELS_COUNT - 1);
+	}
+
+	/**
+	 * Return a map with a range of channels.
+	 * 
+	 * @param minChannel	The first channel.
+	 * @param maxChannel	The last channel.
+	 * @return	The map.
+	 */
+	public static ChannelMap range(int minChannel, int maxChannel) {
+		ChannelMap channelMap = new ChannelMap();
+		for (int channel = minChannel; channel <= maxChannel; channel++) {
+			channelMap.setUsable(channel, true);
+		}
+		return channelMap;
+	}
+
+	/**
+	 * Read a map.
+	 * 
+	 * @param source	The buffer that contains the map.
+	 * @param offset	The offset of the map in the buffer.
+	 * @return	The map.
+	 */
+	public static ChannelMap read(byte[] source, int offset) {
+		ChannelMap channelMap = new ChannelMap();
+		System.arraycopy(source, offset, channelMap.bits, 0, SIZE);
+		// The bits after the last channel are ignored
+		channelMap.bits[SIZE - 1] &= (1 << (CHANNELS_COUNT % 8)) - 1;
+		return channelMap;
+	}
+
+	/**
+	 * Write the map.
+	 * 
+	 * @param destination	The destination buffer.
+	 * @param offset		The offset in the destination buffer.
+	 */
+	public void write(byte[] destination, int offset) {
+		System.arraycopy(bits, 0, destination, offset, SIZE);
+	}
+
+	public boolean isUsable(int channel) {
+		checkChannel(channel);
+		return (bits[channel >>> 3] & (1 << (channel & 7))) != 0;
+	}
+
+	public ChannelMap setUsable(int channel, boolean usable) {
+		checkChannel(channel);
+		if (usable) {
+			bits[channel >>> 3] |= 1 << (channel & 7);
+		} else {
+			bits[channel >>> 3] &= ~(1 << (channel & 7));
+		}
+		return this;
+	}
+
+	/**
+	 * Return the usable channels, in ascending order.
+	 * 
+	 * @return	The channels.
+	 */
+	public byte[] getUsableChannels() {
+		byte[] channels = new byte[getUsableChannelsCount()];
+		int index = 0;
+		for (int channel = 0; channel < CHANNELS_COUNT; channel++) {
+			if (isUsable(channel)) {
+				channels[index++] = (byte) channel;
+			}
+		}
+		return channels;
+	}
+
+	public int getUsableChannelsCount() {
+		int count = 0;
+		for (byte b : bits) {
+			count += Integer.bitCount(b & 0xFF);
+		}
+		return count;
+	}
+
+	public ChannelMap copy() {
+		return read(bits, 0);
+	}
+
+	private static void checkChannel(int channel) {
+		if (channel < 0 || channel >= CHANNELS_COUNT) {
+			throw new IllegalArgumentException("channel must be between 0 and " + (CHANNELS_COUNT - 1));
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof ChannelMap && Arrays.equals(bits, ((ChannelMap) obj).bits);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(bits);
+	}
+
+}
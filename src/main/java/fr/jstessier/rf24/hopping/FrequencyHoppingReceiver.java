@@ -0,0 +1,250 @@
+package fr.jstessier.rf24.hopping;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.RxListener;
+import fr.jstessier.rf24.RxPacket;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * Receiving side of the frequency hopping mode (see {@link FrequencyHoppingSender}).
+ * 
+ * The receiver is a {@link RxListener} of the {@link fr.jstessier.rf24.RF24RadioLoop} that owns the RF24 instance :
+ * the data of the DATA frames is delivered to the {@link HoppingListener}, the receiver goes to the next hop of the
+ * sender after a LAST frame and takes the channel map of the MAP frames for the next hops.
+ * Without frame for {@link #getSyncTimeoutMillis()}, the receiver goes to the next hop (its channel may be jammed)
+ * and waits again : the sync timeout must be longer than a cycle of the sender hopping on each failure,
+ * so the sender finds the receiver on its channel.
+ * 
+ * @author J.S. TESSIER
+ */
+public class FrequencyHoppingReceiver implements RxListener {
+
+	/** Default sync timeout in milliseconds (a cycle of failures with 15 retransmits every 1500µs). */
+	public static final int DEFAULT_SYNC_TIMEOUT_MILLIS = 4000;
+
+	/** The RF24 instance (in RX mode, used on the radio thread only). */
+	private final RF24 rf24;
+
+	/** The hop sequence. */
+	private final HopSequence hopSequence;
+
+	/** The channels that can be used (shared with the sender). */
+	private final ChannelMap allowedChannels;
+
+	/** The listener of the data. */
+	private final HoppingListener listener;
+
+	/** The channel map of the next hops. */
+	private volatile ChannelMap channelMap;
+
+	/** The channel of each hop of the cycle. */
+	private byte[] channels;
+
+	/** The index of the current hop in the cycle. */
+	private volatile int hopIndex = 0;
+
+	/** Time of the last frame or of the last hop in nanoseconds. */
+	private long lastFrameNanos = System.nanoTime();
+
+	/** The source of the time in nanoseconds. */
+	private volatile LongSupplier timeSource = System::nanoTime;
+
+	/** Sync timeout in nanoseconds. */
+	private volatile long syncTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SYNC_TIMEOUT_MILLIS);
+
+	/** Number of DATA frames received. */
+	private volatile long receivedFramesCount = 0;
+
+	/** Number of hops. */
+	private volatile long hopsCount = 0;
+
+	/** Number of hops after a sync timeout. */
+	private volatile long syncTimeoutsCount = 0;
+
+	/**
+	 * Constructor with all the channels allowed.
+	 * 
+	 * @param rf24		The RF24 instance (in RX mode).
+	 * @param seed		The seed of the hop sequence (shared with the sender).
+	 * @param listener	The listener of the data.
+	 */
+	public FrequencyHoppingReceiver(RF24 rf24, long seed, HoppingListener listener) {
+		this(rf24, seed, ChannelMap.allChannels(), listener);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24				The RF24 instance (in RX mode).
+	 * @param seed				The seed of the hop sequence (shared with the sender).
+	 * @param allowedChannels	The channels that can be used (shared with the sender).
+	 * @param listener			The listener of the data.
+	 */
+	public FrequencyHoppingReceiver(RF24 rf24, long seed, ChannelMap allowedChannels, HoppingListener listener) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		if (allowedChannels == null || allowedChannels.getUsableChannelsCount() == 0) {
+			throw new IllegalArgumentException("allowedChannels is mandatory");
+		}
+		if (listener == null) {
+			throw new IllegalArgumentException("listener is mandatory");
+		}
+		this.rf24 = rf24;
+		this.hopSequence = new HopSequence(seed);
+		this.allowedChannels = allowedChannels.copy();
+		this.listener = listener;
+		this.channelMap = this.allowedChannels;
+		this.channels = hopSequence.getChannels(channelMap);
+	}
+
+	/**
+	 * Go to the first hop with the allowed channels (to invoke on the radio thread, before the sender starts).
+	 * 
+	 * @return	The current FrequencyHoppingReceiver instance.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public FrequencyHoppingReceiver start() throws RF24Exception {
+		channelMap = allowedChannels;
+		channels = hopSequence.getChannels(channelMap);
+		hopIndex = 0;
+		rf24.switchFrequencyChannel(channels[0]);
+		lastFrameNanos = timeSource.getAsLong();
+		return this;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void onReceived(RxPacket packet) {
+		final byte[] frame = packet.getPayloadBuffer();
+		switch (HoppingFrames.getType(frame, packet.getLength())) {
+		case HoppingFrames.TYPE_DATA:
+			lastFrameNanos = timeSource.getAsLong();
+			hopIndex = HoppingFrames.getHopIndex(frame);
+			receivedFramesCount++;
+			listener.onData(frame, HoppingFrames.HEADER_SIZE, packet.getLength() - HoppingFrames.HEADER_SIZE);
+			if (HoppingFrames.isLast(frame)) {
+				hop();
+			}
+			break;
+		case HoppingFrames.TYPE_MAP:
+			lastFrameNanos = timeSource.getAsLong();
+			hopIndex = HoppingFrames.getHopIndex(frame);
+			ChannelMap receivedChannelMap = ChannelMap.read(frame, HoppingFrames.HEADER_SIZE);
+			if (receivedChannelMap.getUsableChannelsCount() != 0 && !receivedChannelMap.equals(channelMap)) {
+				channelMap = receivedChannelMap;
+				channels = hopSequence.getChannels(channelMap);
+			}
+			break;
+		default:
+			// Not a frame of the hopping mode
+			break;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void onIdle() {
+		final long now = timeSource.getAsLong();
+		if (now - lastFrameNanos > syncTimeoutNanos) {
+			lastFrameNanos = now;
+			syncTimeoutsCount++;
+			hop();
+		}
+	}
+
+	private void hop() {
+		hopIndex = (hopIndex + 1) % HopSequence.LENGTH;
+		hopsCount++;
+		try {
+			rf24.switchFrequencyChannel(channels[hopIndex]);
+		} catch (RF24Exception e) {
+			onError(e);
+		}
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public int getHopIndex() {
+		return hopIndex;
+	}
+
+	/**
+	 * Return the channel map of the next hops.
+	 * 
+	 * @return	A copy of the channel map.
+	 */
+	public ChannelMap getChannelMap() {
+		return channelMap.copy();
+	}
+
+	public long getReceivedFramesCount() {
+		return receivedFramesCount;
+	}
+
+	public long getHopsCount() {
+		return hopsCount;
+	}
+
+	public long getSyncTimeoutsCount() {
+		return syncTimeoutsCount;
+	}
+
+	public long getSyncTimeoutMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(syncTimeoutNanos);
+	}
+
+	/**
+	 * Set the time without frame before the receiver goes to the next hop.
+	 * 
+	 * @param syncTimeoutMillis	The timeout in milliseconds.
+	 * @return	The current FrequencyHoppingReceiver instance.
+	 */
+	public FrequencyHoppingReceiver setSyncTimeoutMillis(long syncTimeoutMillis) {
+		if (syncTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("syncTimeoutMillis must be positive");
+		}
+		this.syncTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(syncTimeoutMillis);
+		return this;
+	}
+
+	/**
+	 * Set the source of the time of the sync timeout (to invoke before {@link #start()}).
+	 * 
+	 * @param timeSource	The time in nanoseconds ({@link System#nanoTime()} by default).
+	 * @return	The current FrequencyHoppingReceiver instance.
+	 */
+	public FrequencyHoppingReceiver setTimeSource(LongSupplier timeSource) {
+		if (timeSource == null) {
+			throw new IllegalArgumentException("timeSource is mandatory");
+		}
+		this.timeSource = timeSource;
+		this.lastFrameNanos = timeSource.getAsLong();
+		return this;
+	}
+
+}
@@ -0,0 +1,490 @@
+package fr.jstessier.rf24.hopping;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.enums.WritePayloadType;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadException;
+import fr.jstessier.rf24.utils.RegistersUtils;
+
+/**
+ * Transmitting side of the frequency hopping mode : the frames are sent with acknowledgment on the channels of
+ * a {@link HopSequence} shared with the {@link FrequencyHoppingReceiver} (same seed and same allowed channels).
+ * 
+ * <ul>
+ * <li>The sender hops after the last frame of each hop ({@link #getPacketsPerHop()} frames, flagged LAST so the
+ * receiver hops too) and after each frame that is not acknowledged.</li>
+ * <li>The receiver only hops when it receives a LAST frame (or after a sync timeout, if its channel is jammed),
+ * so after a loss of synchronization the sender, which hops on each failure, finds the receiver on its channel
+ * in less than a cycle.</li>
+ * <li>The quality of each channel is measured with the OBSERVE_TX register : ARC_CNT after each frame and PLOS_CNT
+ * before each hop (writing RF_CH resets it). A channel with too many lost packets or retransmissions is
+ * blacklisted for {@link #getBlacklistHops()} hops in sync, at least {@link #getMinUsableChannels()} channels are kept.
+ * Only the first failure is measured : the next ones are caused by the search of the receiver.</li>
+ * <li>A change of the channel map is sent in a MAP frame before the next DATA frame, both sides use it from the
+ * next hop. The receiver only hops with a new map after a LAST frame sent with it, so the two sides stay on the
+ * same sequence.</li>
+ * </ul>
+ * A frame acknowledged but seen as lost (lost acknowledgment) is sent again on the next hop : the data can be
+ * received twice.
+ * 
+ * A sender is not thread safe and must be used by the thread that owns the RF24 instance (in TX mode,
+ * with the writing pipe opened).
+ * 
+ * @author J.S. TESSIER
+ */
+public class FrequencyHoppingSender {
+
+	/** Default number of frames sent on each hop. */
+	public static final int DEFAULT_PACKETS_PER_HOP = 4;
+
+	/** Default number of frames sent on a channel before its quality is evaluated. */
+	public static final int DEFAULT_QUALITY_WINDOW = 8;
+
+	/** Default maximum number of attempts to send a frame (an attempt by hop). */
+	public static final int DEFAULT_MAX_ATTEMPTS = 4 * HopSequence.LENGTH;
+
+	/** The RF24 instance (in TX mode). */
+	private final RF24 rf24;
+
+	/** The hop sequence. */
+	private final HopSequence hopSequence;
+
+	/** The channel map of the current sequence. */
+	private ChannelMap channelMap;
+
+	/** The channel map to send to the receiver (null if none). */
+	private ChannelMap pendingChannelMap = null;
+
+	/** The channel of each hop of the cycle. */
+	private byte[] channels;
+
+	/** The index of the current hop in the cycle. */
+	private int hopIndex = 0;
+
+	/** The current frequency channel. */
+	private byte channel;
+
+	/** The number of frames acknowledged on the current hop. */
+	private int packetsInHop = 0;
+
+	/** Is the last frame acknowledged (the failures of the frames sent while searching the receiver are not measured). */
+	private boolean inSync = true;
+
+	/** The value of PLOS_CNT when the current hop started (not reset when the channel does not change). */
+	private int lostPacketsBase = 0;
+
+	/** The reusable frame. */
+	private final byte[] frame = new byte[RF24.MAX_PAYLOAD_SIZE];
+
+	// Quality of the channels (since the last evaluation)
+
+	private final int[] sentCounts = new int[ChannelMap.CHANNELS_COUNT];
+
+	private final int[] retransmittedCounts = new int[ChannelMap.CHANNELS_COUNT];
+
+	private final int[] lostCounts = new int[ChannelMap.CHANNELS_COUNT];
+
+	/** The number of hops done in sync with the receiver (the clock of the blacklist). */
+	private long inSyncHopsCount = 0;
+
+	/** The hop (in sync) until which each channel is blacklisted (0 if not blacklisted). */
+	private final long[] blacklistedUntil = new long[ChannelMap.CHANNELS_COUNT];
+
+	// Configuration
+
+	private int packetsPerHop = DEFAULT_PACKETS_PER_HOP;
+
+	private int qualityWindow = DEFAULT_QUALITY_WINDOW;
+
+	private double maxLossRatio = 0.25;
+
+	private double maxRetransmitsPerPacket = 3;
+
+	private int minUsableChannels = 15;
+
+	private long blacklistHops = 10L * HopSequence.LENGTH;
+
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+	// Statistics
+
+	private long hopsCount = 0;
+
+	private long sentFramesCount = 0;
+
+	private long failedFramesCount = 0;
+
+	private long channelMapsCount = 0;
+
+	/**
+	 * Constructor with all the channels allowed.
+	 * 
+	 * @param rf24	The RF24 instance (in TX mode).
+	 * @param seed	The seed of the hop sequence (shared with the receiver).
+	 */
+	public FrequencyHoppingSender(RF24 rf24, long seed) {
+		this(rf24, seed, ChannelMap.allChannels());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24				The RF24 instance (in TX mode).
+	 * @param seed				The seed of the hop sequence (shared with the receiver).
+	 * @param allowedChannels	The channels that can be used (shared with the receiver).
+	 */
+	public FrequencyHoppingSender(RF24 rf24, long seed, ChannelMap allowedChannels) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		if (allowedChannels == null || allowedChannels.getUsableChannelsCount() == 0) {
+			throw new IllegalArgumentException("allowedChannels is mandatory");
+		}
+		this.rf24 = rf24;
+		this.hopSequence = new HopSequence(seed);
+		this.channelMap = allowedChannels.copy();
+		this.channels = hopSequence.getChannels(channelMap);
+		this.channel = channels[0];
+	}
+
+	/**
+	 * Select the channel of the first hop (must be invoked before the first frame, as {@link FrequencyHoppingReceiver#start()}).
+	 * 
+	 * @return	The current FrequencyHoppingSender instance.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public FrequencyHoppingSender start() throws RF24Exception {
+		rf24.switchFrequencyChannel(channel);
+		lostPacketsBase = getLostPacketsCount(rf24.readRegisterValue(Registers.OBSERVE_TX));
+		return this;
+	}
+
+	/**
+	 * Send data (with acknowledgment), hopping until the frame is acknowledged.
+	 * 
+	 * @param data		The buffer that contains the data.
+	 * @param offset	The offset of the data in the buffer.
+	 * @param length	The length of the data (1 to {@value HoppingFrames#MAX_DATA_SIZE} bytes).
+	 * @throws WritePayloadException	If the frame is not acknowledged after {@link #getMaxAttempts()} attempts.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void send(byte[] data, int offset, int length) throws RF24Exception {
+		if (data == null) {
+			throw new IllegalArgumentException("data is mandatory");
+		}
+		if (length < 1 || length > HoppingFrames.MAX_DATA_SIZE) {
+			throw new IllegalArgumentException("length must be between 1 and " + HoppingFrames.MAX_DATA_SIZE);
+		}
+		WritePayloadException failure = null;
+		for (int attempt = 0; attempt < maxAttempts; attempt++) {
+			final ChannelMap sentChannelMap = pendingChannelMap;
+			final boolean last = sentChannelMap == null && packetsInHop + 1 >= packetsPerHop;
+			final int frameLength;
+			if (sentChannelMap != null) {
+				HoppingFrames.writeHeader(frame, HoppingFrames.TYPE_MAP, false, hopIndex);
+				sentChannelMap.write(frame, HoppingFrames.HEADER_SIZE);
+				frameLength = HoppingFrames.MAP_SIZE;
+			} else {
+				HoppingFrames.writeHeader(frame, HoppingFrames.TYPE_DATA, last, hopIndex);
+				System.arraycopy(data, offset, frame, HoppingFrames.HEADER_SIZE, length);
+				frameLength = HoppingFrames.HEADER_SIZE + length;
+			}
+			try {
+				rf24.sendPayload(WritePayloadType.W_TX_PAYLOAD, frame, 0, frameLength);
+			} catch (WritePayloadException e) {
+				// The failed frame is still in the TX FIFO, it must not be sent on the next hop
+				rf24.flushTx();
+				failure = e;
+				failedFramesCount++;
+				if (inSync) {
+					sentCounts[channel]++;
+				}
+				hop();
+				inSync = false;
+				continue;
+			}
+			recordRetransmits();
+			inSync = true;
+			if (sentChannelMap != null) {
+				// Used from the next hop, as the receiver
+				channelMap = sentChannelMap;
+				channels = hopSequence.getChannels(channelMap);
+				pendingChannelMap = null;
+				channelMapsCount++;
+				continue;
+			}
+			sentFramesCount++;
+			packetsInHop++;
+			if (last) {
+				hop();
+			}
+			return;
+		}
+		throw failure;
+	}
+
+	/**
+	 * Send data (with acknowledgment), hopping until the frame is acknowledged.
+	 * 
+	 * @param data	The data (1 to {@value HoppingFrames#MAX_DATA_SIZE} bytes).
+	 * @throws WritePayloadException	If the frame is not acknowledged after {@link #getMaxAttempts()} attempts.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void send(byte... data) throws RF24Exception {
+		if (data == null) {
+			throw new IllegalArgumentException("data is mandatory");
+		}
+		send(data, 0, data.length);
+	}
+
+	/**
+	 * Read ARC_CNT after an acknowledged frame.
+	 */
+	private void recordRetransmits() throws RF24Exception {
+		final byte observetxValue = rf24.readRegisterValue(Registers.OBSERVE_TX);
+		sentCounts[channel]++;
+		retransmittedCounts[channel] += RegistersUtils.getBitsValue(observetxValue, Registers.OBSERVE_TX.ARC_CNT);
+	}
+
+	/**
+	 * Harvest PLOS_CNT, evaluate the channel and go to the next hop.
+	 */
+	private void hop() throws RF24Exception {
+		final int lostPackets = getLostPacketsCount(rf24.readRegisterValue(Registers.OBSERVE_TX));
+		hopsCount++;
+		if (inSync) {
+			lostCounts[channel] += Math.max(lostPackets - lostPacketsBase, 0);
+			evaluate(channel);
+			inSyncHopsCount++;
+			readmitBlacklistedChannels();
+		}
+
+		hopIndex = (hopIndex + 1) % HopSequence.LENGTH;
+		packetsInHop = 0;
+		final byte nextChannel = channels[hopIndex];
+		// RF_CH is not written (and PLOS_CNT not reset) if the channel does not change
+		lostPacketsBase = (nextChannel == channel) ? lostPackets : 0;
+		channel = nextChannel;
+		rf24.switchFrequencyChannel(channel);
+	}
+
+	private void evaluate(int evaluatedChannel) {
+		final int sentCount = sentCounts[evaluatedChannel];
+		if (sentCount < qualityWindow) {
+			return;
+		}
+		final boolean bad = lostCounts[evaluatedChannel] > maxLossRatio * sentCount
+				|| retransmittedCounts[evaluatedChannel] > maxRetransmitsPerPacket * sentCount;
+		sentCounts[evaluatedChannel] = 0;
+		retransmittedCounts[evaluatedChannel] = 0;
+		lostCounts[evaluatedChannel] = 0;
+		if (bad && getTargetChannelMap().getUsableChannelsCount() > minUsableChannels) {
+			blacklistedUntil[evaluatedChannel] = inSyncHopsCount + blacklistHops;
+			updateChannelMap(evaluatedChannel, false);
+		}
+	}
+
+	private void readmitBlacklistedChannels() {
+		for (int i = 0; i < ChannelMap.CHANNELS_COUNT; i++) {
+			if (blacklistedUntil[i] != 0 && blacklistedUntil[i] <= inSyncHopsCount) {
+				blacklistedUntil[i] = 0;
+				updateChannelMap(i, true);
+			}
+		}
+	}
+
+	private ChannelMap getTargetChannelMap() {
+		return (pendingChannelMap != null) ? pendingChannelMap : channelMap;
+	}
+
+	private void updateChannelMap(int updatedChannel, boolean usable) {
+		pendingChannelMap = getTargetChannelMap().copy().setUsable(updatedChannel, usable);
+	}
+
+	private static int getLostPacketsCount(byte observetxValue) {
+		return RegistersUtils.getBitsValue(observetxValue, Registers.OBSERVE_TX.PLOS_CNT);
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public int getHopIndex() {
+		return hopIndex;
+	}
+
+	public byte getFrequencyChannel() {
+		return channel;
+	}
+
+	/**
+	 * Return the channel map of the current sequence.
+	 * 
+	 * @return	A copy of the channel map.
+	 */
+	public ChannelMap getChannelMap() {
+		return channelMap.copy();
+	}
+
+	/**
+	 * Return true if a channel is blacklisted (in the current sequence or in the map to send).
+	 * 
+	 * @param frequencyChannel	The frequency channel.
+	 * @return	True if the channel is blacklisted.
+	 */
+	public boolean isBlacklisted(int frequencyChannel) {
+		return blacklistedUntil[frequencyChannel] != 0;
+	}
+
+	public long getHopsCount() {
+		return hopsCount;
+	}
+
+	public long getSentFramesCount() {
+		return sentFramesCount;
+	}
+
+	public long getFailedFramesCount() {
+		return failedFramesCount;
+	}
+
+	public long getChannelMapsCount() {
+		return channelMapsCount;
+	}
+
+	public int getPacketsPerHop() {
+		return packetsPerHop;
+	}
+
+	public FrequencyHoppingSender setPacketsPerHop(int packetsPerHop) {
+		if (packetsPerHop < 1) {
+			throw new IllegalArgumentException("packetsPerHop must be positive");
+		}
+		this.packetsPerHop = packetsPerHop;
+		return this;
+	}
+
+	public int getQualityWindow() {
+		return qualityWindow;
+	}
+
+	/**
+	 * Set the number of frames sent on a channel before its quality is evaluated.
+	 * 
+	 * @param qualityWindow	The number of frames.
+	 * @return	The current FrequencyHoppingSender instance.
+	 */
+	public FrequencyHoppingSender setQualityWindow(int qualityWindow) {
+		if (qualityWindow < 1) {
+			throw new IllegalArgumentException("qualityWindow must be positive");
+		}
+		this.qualityWindow = qualityWindow;
+		return this;
+	}
+
+	public double getMaxLossRatio() {
+		return maxLossRatio;
+	}
+
+	/**
+	 * Set the maximum ratio of lost packets (PLOS_CNT) of a usable channel.
+	 * 
+	 * @param maxLossRatio	The ratio (0 to 1).
+	 * @return	The current FrequencyHoppingSender instance.
+	 */
+	public FrequencyHoppingSender setMaxLossRatio(double maxLossRatio) {
+		if (maxLossRatio < 0 || maxLossRatio > 1) {
+			throw new IllegalArgumentException("maxLossRatio must be between 0 and 1");
+		}
+		this.maxLossRatio = maxLossRatio;
+		return this;
+	}
+
+	public double getMaxRetransmitsPerPacket() {
+		return maxRetransmitsPerPacket;
+	}
+
+	/**
+	 * Set the maximum mean number of retransmissions (ARC_CNT) of a usable channel.
+	 * 
+	 * @param maxRetransmitsPerPacket	The mean number of retransmissions.
+	 * @return	The current FrequencyHoppingSender instance.
+	 */
+	public FrequencyHoppingSender setMaxRetransmitsPerPacket(double maxRetransmitsPerPacket) {
+		if (maxRetransmitsPerPacket < 0) {
+			throw new IllegalArgumentException("maxRetransmitsPerPacket must be positive or 0");
+		}
+		this.maxRetransmitsPerPacket = maxRetransmitsPerPacket;
+		return this;
+	}
+
+	public int getMinUsableChannels() {
+		return minUsableChannels;
+	}
+
+	public FrequencyHoppingSender setMinUsableChannels(int minUsableChannels) {
+		if (minUsableChannels < 1) {
+			throw new IllegalArgumentException("minUsableChannels must be positive");
+		}
+		this.minUsableChannels = minUsableChannels;
+		return this;
+	}
+
+	public long getBlacklistHops() {
+		return blacklistHops;
+	}
+
+	/**
+	 * Set the number of hops (in sync with the receiver) before a blacklisted channel is used again.
+	 * 
+	 * @param blacklistHops	The number of hops.
+	 * @return	The current FrequencyHoppingSender instance.
+	 */
+	public FrequencyHoppingSender setBlacklistHops(long blacklistHops) {
+		if (blacklistHops < 1) {
+			throw new IllegalArgumentException("blacklistHops must be positive");
+		}
+		this.blacklistHops = blacklistHops;
+		return this;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Set the maximum number of attempts to send a frame (an attempt by hop) : more than a cycle of the
+	 * sender per sync timeout of the receiver.
+	 *
+	 * @param maxAttempts	The number of attempts.
+	 * @return	The current FrequencyHoppingSender instance.
+	 */
+	public FrequencyHoppingSender setMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be positive");
+		}
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+}
@@ -0,0 +1,81 @@
+package fr.jstessier.rf24.hopping;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.Random;
+
+/**
+ * Pseudo-random hop sequence shared by the transmitter and the receiver : a permutation of the
+ * {@value ChannelMap#CHANNELS_COUNT} channels generated from a seed, repeated in a cycle.
+ * 
+ * The channels that are not usable in a {@link ChannelMap} are remapped to the usable channels
+ * (the remapped channel is the usable channel of index "channel modulo the number of usable channels"),
+ * so the sequence of a map only depends on the seed and the map, and each usable channel is visited
+ * at least once in a cycle.
+ * 
+ * @author J.S. TESSIER
+ */
+public class HopSequence {
+
+	/** Number of hops in a cycle. */
+	public static final int LENGTH = ChannelMap.CHANNELS_COUNT;
+
+	/** The permutation of the channels. */
+	private final byte[] permutation = new byte[LENGTH];
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param seed	The seed shared by the transmitter and the receiver.
+	 */
+	public HopSequence(long seed) {
+		for (int i = 0; i < LENGTH; i++) {
+			permutation[i] = (byte) i;
+		}
+		// Fisher-Yates shuffle (java.util.Random is specified, so the sequence is the same on all the JVMs)
+		final Random random = new Random(seed);
+		for (int i = LENGTH - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			byte channel = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = channel;
+		}
+	}
+
+	/**
+	 * Return the channels of a cycle with the usable channels of a map.
+	 * 
+	 * @param channelMap	The map (at least one usable channel).
+	 * @return	The channel of each hop of the cycle.
+	 */
+	public byte[] getChannels(ChannelMap channelMap) {
+		final byte[] usableChannels = channelMap.getUsableChannels();
+		if (usableChannels.length == 0) {
+			throw new IllegalArgumentException("channelMap must contain at least one usable channel");
+		}
+		final byte[] channels = new byte[LENGTH];
+		for (int i = 0; i < LENGTH; i++) {
+			final byte channel = permutation[i];
+			channels[i] = channelMap.isUsable(channel) ? channel : usableChannels[channel % usableChannels.length];
+		}
+		return channels;
+	}
+
+}
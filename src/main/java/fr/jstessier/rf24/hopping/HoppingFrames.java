@@ -0,0 +1,100 @@
+package fr.jstessier.rf24.hopping;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.RF24;
+
+/**
+ * Format of the frames of the frequency hopping mode.
+ * 
+ * <pre>
+ * DATA : type (with the LAST flag on the last frame of a hop), hop index, 1 to 30 bytes of data
+ * MAP  : type, hop index, channel map (16 bytes, LSByte first), the map is used from the next hop
+ * </pre>
+ * 
+ * @author J.S. TESSIER
+ */
+public final class HoppingFrames {
+
+	/** Type of the DATA frames. */
+	public static final byte TYPE_DATA = 0x11;
+
+	/** Type of the MAP frames. */
+	public static final byte TYPE_MAP = 0x12;
+
+	/** Flag of the last frame sent before a hop. */
+	public static final byte LAST_FLAG = (byte) 0x80;
+
+	/** Size of the header of the frames. */
+	public static final int HEADER_SIZE = 2;
+
+	/** Maximum size of the data of a DATA frame. */
+	public static final int MAX_DATA_SIZE = RF24.MAX_PAYLOAD_SIZE - HEADER_SIZE;
+
+	/** Size of a MAP frame. */
+	public static final int MAP_SIZE = HEADER_SIZE + ChannelMap.SIZE;
+
+	/**
+	 * Private constructor.
+	 */
+	private HoppingFrames() {
+		// NOP
+	}
+
+	/**
+	 * Return the type of a frame (without the LAST flag).
+	 * 
+	 * @param frame		The frame.
+	 * @param length	The length of the frame.
+	 * @return	The type of the frame or 0 if the frame is not valid.
+	 */
+	public static byte getType(byte[] frame, int length) {
+		if (length < HEADER_SIZE || (frame[1] & 0xFF) >= HopSequence.LENGTH) {
+			return 0;
+		}
+		final byte type = (byte) (frame[0] & ~LAST_FLAG);
+		if ((type == TYPE_DATA && length > HEADER_SIZE) || (type == TYPE_MAP && length == MAP_SIZE)) {
+			return type;
+		}
+		return 0;
+	}
+
+	public static boolean isLast(byte[] frame) {
+		return (frame[0] & LAST_FLAG) != 0;
+	}
+
+	public static int getHopIndex(byte[] frame) {
+		return frame[1] & 0xFF;
+	}
+
+	/**
+	 * Write the header of a frame.
+	 * 
+	 * @param frame		The frame.
+	 * @param type		The type of the frame.
+	 * @param last		Is the frame the last one before a hop.
+	 * @param hopIndex	The index of the current hop in the cycle.
+	 */
+	public static void writeHeader(byte[] frame, byte type, boolean last, int hopIndex) {
+		frame[0] = last ? (byte) (type | LAST_FLAG) : type;
+		frame[1] = (byte) hopIndex;
+	}
+
+}
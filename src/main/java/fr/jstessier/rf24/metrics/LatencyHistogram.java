@@ -0,0 +1,124 @@
+package fr.jstessier.rf24.metrics;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations with a log-linear layout (like HdrHistogram) : each power of 2 is divided
+ * in {@value #SUB_BUCKETS_COUNT} linear buckets, so a percentile is known with a relative error lower than 12.5%
+ * on the full range of the long values, in a fixed array of counters.
+ * 
+ * @author J.S. TESSIER
+ */
+public class LatencyHistogram {
+
+	/** Number of linear buckets in each power of 2. */
+	public static final int SUB_BUCKETS_COUNT = 8;
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int BUCKETS_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS_COUNT;
+
+	/** The count of values of each bucket. */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_COUNT);
+
+	/**
+	 * Record a value.
+	 * 
+	 * @param value	The value (negative values are recorded as 0).
+	 */
+	public void record(long value) {
+		counts.incrementAndGet(getBucketIndex(Math.max(value, 0)));
+	}
+
+	/**
+	 * Return the value at a percentile (upper bound of its bucket).
+	 * 
+	 * @param percentile	The percentile (0 to 100).
+	 * @return	The value, 0 if no value is recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = getTotalCount();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+		long count = 0;
+		for (int i = 0; i < BUCKETS_COUNT; i++) {
+			count += counts.get(i);
+			if (count >= rank) {
+				return getBucketUpperBound(i);
+			}
+		}
+		return getBucketUpperBound(BUCKETS_COUNT - 1);
+	}
+
+	/**
+	 * Return the upper bound of the bucket of the maximum recorded value.
+	 * 
+	 * @return	The maximum value, 0 if no value is recorded.
+	 */
+	public long getMaxValue() {
+		for (int i = BUCKETS_COUNT - 1; i >= 0; i--) {
+			if (counts.get(i) != 0) {
+				return getBucketUpperBound(i);
+			}
+		}
+		return 0;
+	}
+
+	public long getTotalCount() {
+		long total = 0;
+		for (int i = 0; i < BUCKETS_COUNT; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	/**
+	 * Forget all the recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS_COUNT; i++) {
+			counts.set(i, 0);
+		}
+	}
+
+	static int getBucketIndex(long value) {
+		if (value < SUB_BUCKETS_COUNT) {
+			return (int) value;
+		}
+		// The exponent is at least SUB_BUCKET_BITS, the sub bucket is given by the next bits
+		final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS_COUNT - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS_COUNT + subBucket;
+	}
+
+	static long getBucketUpperBound(int index) {
+		if (index < SUB_BUCKETS_COUNT) {
+			return index;
+		}
+		final int exponent = index / SUB_BUCKETS_COUNT + SUB_BUCKET_BITS - 1;
+		final long lowerBound = (long) (SUB_BUCKETS_COUNT + index % SUB_BUCKETS_COUNT) << (exponent - SUB_BUCKET_BITS);
+		return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+}
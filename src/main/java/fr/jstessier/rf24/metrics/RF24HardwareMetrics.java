@@ -0,0 +1,150 @@
+package fr.jstessier.rf24.metrics;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.nio.ByteBuffer;
+
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.hardware.RF24Hardware;
+
+/**
+ * Decorator of a {@link RF24Hardware} that records each SPI transfer (command, length and duration) in a {@link RF24Metrics}.
+ * Without this decorator, the SPI transfers are not measured at all.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24HardwareMetrics implements RF24Hardware {
+
+	/** The decorated hardware. */
+	private final RF24Hardware rf24Hardware;
+
+	/** The sink of the metrics. */
+	private final RF24Metrics metrics;
+
+	/** The commands of a batch of transfers, kept before they are replaced by the STATUS register value (grown if needed). */
+	private byte[] batchCommands = new byte[8];
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24Hardware	The decorated hardware.
+	 * @param metrics		The sink of the metrics.
+	 */
+	public RF24HardwareMetrics(RF24Hardware rf24Hardware, RF24Metrics metrics) {
+		if (rf24Hardware == null) {
+			throw new IllegalArgumentException("rf24Hardware is mandatory");
+		}
+		if (metrics == null) {
+			throw new IllegalArgumentException("metrics is mandatory");
+		}
+		this.rf24Hardware = rf24Hardware;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setPinChipEnableHigh() {
+		rf24Hardware.setPinChipEnableHigh();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setPinChipEnableLow() {
+		rf24Hardware.setPinChipEnableLow();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public byte[] spiWrite(byte... data) throws RF24Exception {
+		final long start = System.nanoTime();
+		byte[] result = rf24Hardware.spiWrite(data);
+		metrics.onSpiTransfer(data[0], data.length, System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void spiTransfer(byte[] buffer, int offset, int length) throws RF24Exception {
+		// The command is replaced by the STATUS register value
+		final byte spiCommand = buffer[offset];
+		final long start = System.nanoTime();
+		rf24Hardware.spiTransfer(buffer, offset, length);
+		metrics.onSpiTransfer(spiCommand, length, System.nanoTime() - start);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void spiTransfer(ByteBuffer buffer) throws RF24Exception {
+		final byte spiCommand = buffer.get(buffer.position());
+		final int length = buffer.remaining();
+		final long start = System.nanoTime();
+		rf24Hardware.spiTransfer(buffer);
+		metrics.onSpiTransfer(spiCommand, length, System.nanoTime() - start);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Each transfer of the batch is recorded, the duration of the batch is shared between its transfers.
+	 */
+	@Override
+	public synchronized void spiTransfers(byte[] buffer, int offset, int[] lengths, int count) throws RF24Exception {
+		if (batchCommands.length < count) {
+			batchCommands = new byte[Math.max(count, batchCommands.length * 2)];
+		}
+		int position = offset;
+		for (int i = 0; i < count; i++) {
+			batchCommands[i] = buffer[position];
+			position += lengths[i];
+		}
+		final long start = System.nanoTime();
+		rf24Hardware.spiTransfers(buffer, offset, lengths, count);
+		final long durationNanos = (System.nanoTime() - start) / Math.max(count, 1);
+		for (int i = 0; i < count; i++) {
+			metrics.onSpiTransfer(batchCommands[i], lengths[i], durationNanos);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isIrqAvailable() {
+		return rf24Hardware.isIrqAvailable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean waitForIrq(long timeoutMicroseconds) throws RF24Exception {
+		return rf24Hardware.waitForIrq(timeoutMicroseconds);
+	}
+
+}
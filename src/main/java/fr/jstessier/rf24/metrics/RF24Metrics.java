@@ -0,0 +1,64 @@
+package fr.jstessier.rf24.metrics;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/**
+ * Sink of the metrics of the driver : the SPI transfers (recorded by {@link RF24HardwareMetrics}) and the outcomes
+ * of the transmissions (recorded by {@link fr.jstessier.rf24.RF24}).
+ * The methods are invoked on the thread of the operations and must return quickly.
+ * 
+ * @author J.S. TESSIER
+ */
+public interface RF24Metrics {
+
+	/** Sink that ignores everything (the default) : no metric is measured. */
+	public static final RF24Metrics NONE = new RF24Metrics() {
+
+		@Override
+		public void onSpiTransfer(byte spiCommand, int length, long durationNanos) {
+			// NOP
+		}
+
+		@Override
+		public void onTxCompleted(TxOutcome outcome, int retransmittedPacketsCount, int lostPacketsCount) {
+			// NOP
+		}
+
+	};
+
+	/**
+	 * Invoked after each SPI transfer.
+	 * 
+	 * @param spiCommand	The command value (first byte sent).
+	 * @param length		The number of bytes transferred (command included).
+	 * @param durationNanos	The duration of the transfer in nanoseconds.
+	 */
+	void onSpiTransfer(byte spiCommand, int length, long durationNanos);
+
+	/**
+	 * Invoked at the end of each transmission with acknowledgment.
+	 * 
+	 * @param outcome					The outcome of the transmission.
+	 * @param retransmittedPacketsCount	The count of retransmitted packets of the payload (OBSERVE_TX.ARC_CNT).
+	 * @param lostPacketsCount			The count of lost packets since the last change of channel (OBSERVE_TX.PLOS_CNT, up to 15).
+	 */
+	void onTxCompleted(TxOutcome outcome, int retransmittedPacketsCount, int lostPacketsCount);
+
+}
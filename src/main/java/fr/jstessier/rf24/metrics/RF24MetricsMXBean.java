@@ -0,0 +1,67 @@
+package fr.jstessier.rf24.metrics;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.Map;
+
+/**
+ * JMX interface of a {@link RF24MetricsRecorder}.
+ * 
+ * @author J.S. TESSIER
+ */
+public interface RF24MetricsMXBean {
+
+	long getSpiTransfersCount();
+
+	long getSpiBytesCount();
+
+	/**
+	 * @return	The count of SPI transfers by command name.
+	 */
+	Map<String, Long> getSpiCommandsCounts();
+
+	long getSpiLatencyP50Nanos();
+
+	long getSpiLatencyP99Nanos();
+
+	long getSpiLatencyMaxNanos();
+
+	long getTxDeliveredCount();
+
+	long getTxMaxRetriesCount();
+
+	long getTxTimeoutCount();
+
+	/**
+	 * @return	The sum of the retransmitted packets of all the transmissions (OBSERVE_TX.ARC_CNT).
+	 */
+	long getRetransmittedPacketsCount();
+
+	/**
+	 * @return	The sum of the increases of OBSERVE_TX.PLOS_CNT.
+	 */
+	long getLostPacketsCount();
+
+	/**
+	 * Reset all the metrics.
+	 */
+	void reset();
+
+}
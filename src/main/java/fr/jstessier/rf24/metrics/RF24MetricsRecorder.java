@@ -0,0 +1,223 @@
+package fr.jstessier.rf24.metrics;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import fr.jstessier.rf24.SpiCommands;
+import fr.jstessier.rf24.SpiCommands.SpiCommandCommon;
+import fr.jstessier.rf24.utils.SpiCommandsUtils;
+
+/**
+ * Lock-free recorder of the metrics of the driver, readable through JMX.
+ * 
+ * <pre>
+ * RF24MetricsRecorder metrics = new RF24MetricsRecorder();
+ * RF24 rf24 = new RF24(new RF24HardwareMetrics(hardware, metrics));
+ * rf24.setMetrics(metrics);
+ * metrics.registerMBean("radio0");
+ * </pre>
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24MetricsRecorder implements RF24Metrics, RF24MetricsMXBean {
+
+	/** Domain of the JMX names. */
+	public static final String JMX_DOMAIN = "fr.jstessier.rf24";
+
+	/** Name of the values that are not SPI commands. */
+	public static final String UNKNOWN_COMMAND_NAME = "UNKNOWN";
+
+	/** The names of the commands (by index). */
+	private static final String[] COMMAND_NAMES;
+
+	/** The index of the command of each command value. */
+	private static final byte[] COMMAND_INDEXES = new byte[256];
+
+	static {
+		SpiCommandCommon[] commands = new SpiCommandCommon[] {
+				SpiCommands.R_REGISTER, SpiCommands.W_REGISTER, SpiCommands.R_RX_PAYLOAD, SpiCommands.W_TX_PAYLOAD,
+				SpiCommands.FLUSH_TX, SpiCommands.FLUSH_RX, SpiCommands.REUSE_TX_PL, SpiCommands.R_RX_PL_WID,
+				SpiCommands.W_ACK_PAYLOAD, SpiCommands.W_TX_PAYLOAD_NOACK, SpiCommands.NOP };
+		COMMAND_NAMES = new String[commands.length + 1];
+		for (int i = 0; i < commands.length; i++) {
+			COMMAND_NAMES[i] = commands[i].getName();
+		}
+		COMMAND_NAMES[commands.length] = UNKNOWN_COMMAND_NAME;
+		for (int value = 0; value < 256; value++) {
+			SpiCommandCommon command = SpiCommandsUtils.getSpiCommandFromValue((byte) value);
+			byte index = (byte) commands.length;
+			for (int i = 0; i < commands.length; i++) {
+				if (commands[i] == command) {
+					index = (byte) i;
+				}
+			}
+			COMMAND_INDEXES[value] = index;
+		}
+	}
+
+	/** The count of transfers of each command (by index). */
+	private final AtomicLongArray commandsCounts = new AtomicLongArray(COMMAND_NAMES.length);
+
+	/** The count of bytes transferred. */
+	private final LongAdder spiBytesCount = new LongAdder();
+
+	/** The durations of the transfers. */
+	private final LatencyHistogram spiLatencies = new LatencyHistogram();
+
+	/** The count of transmissions of each outcome (by ordinal). */
+	private final AtomicLongArray txOutcomesCounts = new AtomicLongArray(TxOutcome.values().length);
+
+	private final LongAdder retransmittedPacketsCount = new LongAdder();
+
+	private final LongAdder lostPacketsCount = new LongAdder();
+
+	/** The last value of OBSERVE_TX.PLOS_CNT. */
+	private final AtomicInteger lastPlosCnt = new AtomicInteger();
+
+	/* ======
+	 * Record
+	 * ====== */
+
+	/** {@inheritDoc} */
+	@Override
+	public void onSpiTransfer(byte spiCommand, int length, long durationNanos) {
+		commandsCounts.incrementAndGet(COMMAND_INDEXES[spiCommand & 0xFF]);
+		spiBytesCount.add(length);
+		spiLatencies.record(durationNanos);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void onTxCompleted(TxOutcome outcome, int retransmittedPacketsCount, int lostPacketsCount) {
+		txOutcomesCounts.incrementAndGet(outcome.ordinal());
+		this.retransmittedPacketsCount.add(retransmittedPacketsCount);
+		// PLOS_CNT only increases (up to 15) until the frequency channel is written
+		int last = lastPlosCnt.getAndSet(lostPacketsCount);
+		this.lostPacketsCount.add(lostPacketsCount >= last ? lostPacketsCount - last : lostPacketsCount);
+	}
+
+	/**
+	 * Register the recorder in the platform MBean server.
+	 * 
+	 * @param name	The name of the radio (value of the "name" key of the JMX name).
+	 * @return	The JMX name of the recorder.
+	 * @throws JMException	If the recorder can not be registered.
+	 */
+	public ObjectName registerMBean(String name) throws JMException {
+		ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=RF24Metrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	@Override
+	public long getSpiTransfersCount() {
+		long count = 0;
+		for (int i = 0; i < commandsCounts.length(); i++) {
+			count += commandsCounts.get(i);
+		}
+		return count;
+	}
+
+	@Override
+	public long getSpiBytesCount() {
+		return spiBytesCount.sum();
+	}
+
+	@Override
+	public Map<String, Long> getSpiCommandsCounts() {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		for (int i = 0; i < COMMAND_NAMES.length; i++) {
+			counts.put(COMMAND_NAMES[i], commandsCounts.get(i));
+		}
+		return counts;
+	}
+
+	@Override
+	public long getSpiLatencyP50Nanos() {
+		return spiLatencies.getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getSpiLatencyP99Nanos() {
+		return spiLatencies.getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getSpiLatencyMaxNanos() {
+		return spiLatencies.getMaxValue();
+	}
+
+	public LatencyHistogram getSpiLatencies() {
+		return spiLatencies;
+	}
+
+	@Override
+	public long getTxDeliveredCount() {
+		return txOutcomesCounts.get(TxOutcome.DELIVERED.ordinal());
+	}
+
+	@Override
+	public long getTxMaxRetriesCount() {
+		return txOutcomesCounts.get(TxOutcome.MAX_RETRIES.ordinal());
+	}
+
+	@Override
+	public long getTxTimeoutCount() {
+		return txOutcomesCounts.get(TxOutcome.TIMEOUT.ordinal());
+	}
+
+	@Override
+	public long getRetransmittedPacketsCount() {
+		return retransmittedPacketsCount.sum();
+	}
+
+	@Override
+	public long getLostPacketsCount() {
+		return lostPacketsCount.sum();
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < commandsCounts.length(); i++) {
+			commandsCounts.set(i, 0);
+		}
+		for (int i = 0; i < txOutcomesCounts.length(); i++) {
+			txOutcomesCounts.set(i, 0);
+		}
+		spiBytesCount.reset();
+		spiLatencies.reset();
+		retransmittedPacketsCount.reset();
+		lostPacketsCount.reset();
+	}
+
+}
@@ -0,0 +1,38 @@
+package fr.jstessier.rf24.metrics;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/**
+ * Outcome of a transmission with acknowledgment.
+ * 
+ * @author J.S. TESSIER
+ */
+public enum TxOutcome {
+
+	/** The payload is acknowledged (TX_DS). */
+	DELIVERED,
+
+	/** The maximum number of retransmits is reached (MAX_RT). */
+	MAX_RETRIES,
+
+	/** Neither TX_DS nor MAX_RT before the write payload timeout. */
+	TIMEOUT;
+
+}
@@ -0,0 +1,176 @@
+package fr.jstessier.rf24.power;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.Arrays;
+
+import fr.jstessier.rf24.enums.OutputPower;
+
+/**
+ * Output power used with a destination address and the quality measured with it (see {@link TxPowerController}).
+ * 
+ * @author J.S. TESSIER
+ */
+public class LinkPower {
+
+	/** The controller (configuration). */
+	private final TxPowerController controller;
+
+	/** The destination address. */
+	private final byte[] address;
+
+	/** The output power used with the destination. */
+	private OutputPower outputPower;
+
+	/** Is the output power used since the last step down (a bad window doubles the step down windows). */
+	private boolean probing = false;
+
+	// Quality of the current window
+
+	private int windowSentCount = 0;
+
+	private int windowRetransmittedCount = 0;
+
+	/** The number of consecutive good windows. */
+	private int goodWindowsCount = 0;
+
+	/** The number of good windows before the next step down. */
+	private int currentStepDownWindows;
+
+	// Statistics
+
+	private long deliveredFramesCount = 0;
+
+	private long failedFramesCount = 0;
+
+	private long retransmittedPacketsCount = 0;
+
+	private long powerChangesCount = 0;
+
+	/**
+	 * Constructor : the destination starts with the maximum output power.
+	 * 
+	 * @param controller	The controller.
+	 * @param address		The destination address.
+	 */
+	LinkPower(TxPowerController controller, byte[] address) {
+		this.controller = controller;
+		this.address = address.clone();
+		this.outputPower = controller.getMaxOutputPower();
+		this.currentStepDownWindows = controller.getStepDownWindows();
+	}
+
+	/**
+	 * Record the outcome of a frame sent to the destination.
+	 * 
+	 * @param delivered				Is the frame acknowledged.
+	 * @param retransmittedPackets	The count of retransmitted packets (OBSERVE_TX.ARC_CNT).
+	 */
+	void record(boolean delivered, int retransmittedPackets) {
+		if (!delivered) {
+			// Up at once : a frame lost at the current power
+			failedFramesCount++;
+			stepUp();
+			return;
+		}
+		deliveredFramesCount++;
+		retransmittedPacketsCount += retransmittedPackets;
+		windowSentCount++;
+		windowRetransmittedCount += retransmittedPackets;
+		if (windowSentCount < controller.getQualityWindow()) {
+			return;
+		}
+		final boolean bad = windowRetransmittedCount > controller.getMaxRetransmitsPerPacket() * windowSentCount;
+		resetWindow();
+		if (bad) {
+			stepUp();
+			return;
+		}
+		if (probing) {
+			// The lower power is good
+			probing = false;
+			currentStepDownWindows = controller.getStepDownWindows();
+		}
+		goodWindowsCount++;
+		if (goodWindowsCount >= currentStepDownWindows && outputPower.ordinal() > controller.getMinOutputPower().ordinal()) {
+			goodWindowsCount = 0;
+			probing = true;
+			outputPower = OutputPower.values()[outputPower.ordinal() - 1];
+			powerChangesCount++;
+		}
+	}
+
+	private void stepUp() {
+		resetWindow();
+		goodWindowsCount = 0;
+		if (probing) {
+			currentStepDownWindows = Math.min(currentStepDownWindows * 2, controller.getMaxStepDownWindows());
+			probing = false;
+		}
+		if (outputPower.ordinal() < controller.getMaxOutputPower().ordinal()) {
+			outputPower = OutputPower.values()[outputPower.ordinal() + 1];
+			powerChangesCount++;
+		}
+	}
+
+	/**
+	 * Return true if the address is the destination address (without copy).
+	 * 
+	 * @param otherAddress	The address.
+	 * @return	True if the addresses are equal.
+	 */
+	boolean hasAddress(byte[] otherAddress) {
+		return Arrays.equals(address, otherAddress);
+	}
+
+	private void resetWindow() {
+		windowSentCount = 0;
+		windowRetransmittedCount = 0;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public byte[] getAddress() {
+		return address.clone();
+	}
+
+	public OutputPower getOutputPower() {
+		return outputPower;
+	}
+
+	public long getDeliveredFramesCount() {
+		return deliveredFramesCount;
+	}
+
+	public long getFailedFramesCount() {
+		return failedFramesCount;
+	}
+
+	public long getRetransmittedPacketsCount() {
+		return retransmittedPacketsCount;
+	}
+
+	public long getPowerChangesCount() {
+		return powerChangesCount;
+	}
+
+}
@@ -0,0 +1,306 @@
+package fr.jstessier.rf24.power;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.enums.OutputPower;
+import fr.jstessier.rf24.enums.WritePayloadType;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadException;
+import fr.jstessier.rf24.utils.BytesUtils;
+import fr.jstessier.rf24.utils.RegistersUtils;
+
+/**
+ * Transmit power control by destination address : each destination uses the lowest output power that keeps
+ * the mean number of retransmissions (OBSERVE_TX.ARC_CNT) under {@link #getMaxRetransmitsPerPacket()}.
+ * 
+ * <ul>
+ * <li>A destination starts with {@link #getMaxOutputPower()}.</li>
+ * <li>After {@link #getStepDownWindows()} good windows of {@link #getQualityWindow()} frames, the power is lowered
+ * by one step. When the lower power is bad at once, the number of good windows before the next try is doubled
+ * (up to {@link #getMaxStepDownWindows()}).</li>
+ * <li>After a bad window or a frame not acknowledged, the power is raised by one step.</li>
+ * </ul>
+ * The output power and the writing pipe are only changed before a payload is written, never during a transmission.
+ * The controller owns the writing pipe : the TX address is only written when the destination changes.
+ * 
+ * A controller is not thread safe and must be used by the thread that owns the RF24 instance (in TX mode).
+ * 
+ * @author J.S. TESSIER
+ */
+public class TxPowerController {
+
+	/** Default number of frames of a quality window. */
+	public static final int DEFAULT_QUALITY_WINDOW = 16;
+
+	/** The RF24 instance (in TX mode). */
+	private final RF24 rf24;
+
+	/** The destinations (by hexadecimal address). */
+	private final Map<String, LinkPower> links = new HashMap<>();
+
+	/** The destination of the last payload (null if none), to avoid the lookup in the map while it does not change. */
+	private LinkPower lastLink = null;
+
+	/** The address of the opened writing pipe (null if not opened by the controller). */
+	private byte[] writingAddress = null;
+
+	// Configuration
+
+	private int qualityWindow = DEFAULT_QUALITY_WINDOW;
+
+	private double maxRetransmitsPerPacket = 0.5;
+
+	private int stepDownWindows = 4;
+
+	private int maxStepDownWindows = 64;
+
+	private OutputPower minOutputPower = OutputPower.RF_M_18_DBM;
+
+	private OutputPower maxOutputPower = OutputPower.RF_0_DBM;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24	The RF24 instance (in TX mode).
+	 */
+	public TxPowerController(RF24 rf24) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		this.rf24 = rf24;
+	}
+
+	/**
+	 * Send a payload (with acknowledgment) to a destination with the output power of the destination.
+	 * A payload not acknowledged is removed from the TX FIFO.
+	 * 
+	 * @param address	The destination address.
+	 * @param payload	The buffer that contains the payload.
+	 * @param offset	The offset of the payload in the buffer.
+	 * @param length	The length of the payload (1 to 32 bytes).
+	 * @throws WritePayloadException	If the payload is not acknowledged.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void send(byte[] address, byte[] payload, int offset, int length) throws RF24Exception {
+		if (address == null || address.length == 0) {
+			throw new IllegalArgumentException("address is mandatory");
+		}
+		if (payload == null) {
+			throw new IllegalArgumentException("payload is mandatory");
+		}
+		final LinkPower link = getOrCreateLink(address);
+		if (!Arrays.equals(address, writingAddress)) {
+			rf24.openWritingPipe(link.getAddress());
+			writingAddress = link.getAddress();
+		}
+		rf24.switchOutputPower(link.getOutputPower());
+		try {
+			rf24.sendPayload(WritePayloadType.W_TX_PAYLOAD, payload, offset, length);
+		} catch (WritePayloadException e) {
+			// The failed payload must not be sent again with the next one
+			rf24.flushTx();
+			link.record(false, 0);
+			throw e;
+		}
+		link.record(true, RegistersUtils.getBitsValue(rf24.readRegisterValue(Registers.OBSERVE_TX), Registers.OBSERVE_TX.ARC_CNT));
+	}
+
+	/**
+	 * Send a payload (with acknowledgment) to a destination with the output power of the destination.
+	 * A payload not acknowledged is removed from the TX FIFO.
+	 * 
+	 * @param address	The destination address.
+	 * @param payload	The payload (1 to 32 bytes).
+	 * @throws WritePayloadException	If the payload is not acknowledged.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void send(byte[] address, byte... payload) throws RF24Exception {
+		if (payload == null) {
+			throw new IllegalArgumentException("payload is mandatory");
+		}
+		send(address, payload, 0, payload.length);
+	}
+
+	/**
+	 * Return the destination of an address : the last one if the destination does not change (without allocation).
+	 */
+	private LinkPower getOrCreateLink(byte[] address) {
+		if (lastLink != null && lastLink.hasAddress(address)) {
+			return lastLink;
+		}
+		final String key = BytesUtils.bytesToHex(address);
+		LinkPower link = links.get(key);
+		if (link == null) {
+			link = new LinkPower(this, address);
+			links.put(key, link);
+		}
+		lastLink = link;
+		return link;
+	}
+
+	/**
+	 * Forget a destination : it starts again with the maximum output power.
+	 * 
+	 * @param address	The destination address.
+	 * @return	The current TxPowerController instance.
+	 */
+	public TxPowerController reset(byte[] address) {
+		final LinkPower link = links.remove(BytesUtils.bytesToHex(address));
+		if (link != null && link == lastLink) {
+			lastLink = null;
+		}
+		return this;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	/**
+	 * Return the state of a destination.
+	 * 
+	 * @param address	The destination address.
+	 * @return	The state, null if nothing has been sent to the destination.
+	 */
+	public LinkPower getLink(byte[] address) {
+		return links.get(BytesUtils.bytesToHex(address));
+	}
+
+	public List<LinkPower> getLinks() {
+		return new ArrayList<>(links.values());
+	}
+
+	/**
+	 * Return the output power of a destination.
+	 * 
+	 * @param address	The destination address.
+	 * @return	The output power, the maximum output power if nothing has been sent to the destination.
+	 */
+	public OutputPower getOutputPower(byte[] address) {
+		LinkPower link = getLink(address);
+		return (link != null) ? link.getOutputPower() : maxOutputPower;
+	}
+
+	public int getQualityWindow() {
+		return qualityWindow;
+	}
+
+	/**
+	 * Set the number of frames of a quality window.
+	 * 
+	 * @param qualityWindow	The number of frames.
+	 * @return	The current TxPowerController instance.
+	 */
+	public TxPowerController setQualityWindow(int qualityWindow) {
+		if (qualityWindow < 1) {
+			throw new IllegalArgumentException("qualityWindow must be positive");
+		}
+		this.qualityWindow = qualityWindow;
+		return this;
+	}
+
+	public double getMaxRetransmitsPerPacket() {
+		return maxRetransmitsPerPacket;
+	}
+
+	/**
+	 * Set the maximum mean number of retransmissions of the frames in a good window.
+	 * 
+	 * @param maxRetransmitsPerPacket	The mean number of retransmissions.
+	 * @return	The current TxPowerController instance.
+	 */
+	public TxPowerController setMaxRetransmitsPerPacket(double maxRetransmitsPerPacket) {
+		if (maxRetransmitsPerPacket < 0) {
+			throw new IllegalArgumentException("maxRetransmitsPerPacket must be positive");
+		}
+		this.maxRetransmitsPerPacket = maxRetransmitsPerPacket;
+		return this;
+	}
+
+	public int getStepDownWindows() {
+		return stepDownWindows;
+	}
+
+	/**
+	 * Set the number of consecutive good windows before the output power is lowered.
+	 * 
+	 * @param stepDownWindows	The number of windows.
+	 * @return	The current TxPowerController instance.
+	 */
+	public TxPowerController setStepDownWindows(int stepDownWindows) {
+		if (stepDownWindows < 1) {
+			throw new IllegalArgumentException("stepDownWindows must be positive");
+		}
+		this.stepDownWindows = stepDownWindows;
+		this.maxStepDownWindows = Math.max(maxStepDownWindows, stepDownWindows);
+		return this;
+	}
+
+	public int getMaxStepDownWindows() {
+		return maxStepDownWindows;
+	}
+
+	public TxPowerController setMaxStepDownWindows(int maxStepDownWindows) {
+		if (maxStepDownWindows < stepDownWindows) {
+			throw new IllegalArgumentException("maxStepDownWindows must be greater than stepDownWindows");
+		}
+		this.maxStepDownWindows = maxStepDownWindows;
+		return this;
+	}
+
+	public OutputPower getMinOutputPower() {
+		return minOutputPower;
+	}
+
+	public OutputPower getMaxOutputPower() {
+		return maxOutputPower;
+	}
+
+	/**
+	 * Set the range of the output power (the new destinations start with the maximum output power).
+	 * 
+	 * @param minOutputPower	The minimum output power.
+	 * @param maxOutputPower	The maximum output power.
+	 * @return	The current TxPowerController instance.
+	 */
+	public TxPowerController setOutputPowerRange(OutputPower minOutputPower, OutputPower maxOutputPower) {
+		if (minOutputPower == null) {
+			throw new IllegalArgumentException("minOutputPower is mandatory");
+		}
+		if (maxOutputPower == null) {
+			throw new IllegalArgumentException("maxOutputPower is mandatory");
+		}
+		if (minOutputPower.ordinal() > maxOutputPower.ordinal()) {
+			throw new IllegalArgumentException("minOutputPower must be lower than maxOutputPower");
+		}
+		this.minOutputPower = minOutputPower;
+		this.maxOutputPower = maxOutputPower;
+		return this;
+	}
+
+}
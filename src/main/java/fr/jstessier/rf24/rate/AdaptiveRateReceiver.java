@@ -0,0 +1,208 @@
+package fr.jstessier.rf24.rate;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.RxListener;
+import fr.jstessier.rf24.RxPacket;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * Receiving side of the adaptive rate mode (see {@link AdaptiveRateSender}).
+ * 
+ * The receiver is a {@link RxListener} of the {@link fr.jstessier.rf24.RF24RadioLoop} that owns the RF24 instance :
+ * the data of the DATA frames is delivered to the {@link RateListener} and the data rates of the RATE frames are
+ * used once the frame is received (the acknowledgment is sent with the previous data rates).
+ * Without frame for {@link #getSyncTimeoutMillis()}, the receiver falls back to the base profile
+ * ({@link AdaptiveRateSender#BASE_PROFILE}), as the sender after consecutive failures : an idle link restarts
+ * with the base profile.
+ * 
+ * @author J.S. TESSIER
+ */
+public class AdaptiveRateReceiver implements RxListener {
+
+	/** Default sync timeout in milliseconds. */
+	public static final int DEFAULT_SYNC_TIMEOUT_MILLIS = 1000;
+
+	/** The RF24 instance (in RX mode, used on the radio thread only). */
+	private final RF24 rf24;
+
+	/** The listener of the data. */
+	private final RateListener listener;
+
+	/** The profile used with the sender. */
+	private volatile LinkProfile profile = AdaptiveRateSender.BASE_PROFILE;
+
+	/** Time of the last frame or of the last fall back in nanoseconds. */
+	private long lastFrameNanos = System.nanoTime();
+
+	/** The source of the time in nanoseconds. */
+	private volatile LongSupplier timeSource = System::nanoTime;
+
+	/** Sync timeout in nanoseconds. */
+	private volatile long syncTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SYNC_TIMEOUT_MILLIS);
+
+	/** Number of DATA frames received. */
+	private volatile long receivedFramesCount = 0;
+
+	/** Number of changes of profile. */
+	private volatile long profileChangesCount = 0;
+
+	/** Number of fall backs to the base profile after a sync timeout. */
+	private volatile long syncTimeoutsCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24		The RF24 instance (in RX mode).
+	 * @param listener	The listener of the data.
+	 */
+	public AdaptiveRateReceiver(RF24 rf24, RateListener listener) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		if (listener == null) {
+			throw new IllegalArgumentException("listener is mandatory");
+		}
+		this.rf24 = rf24;
+		this.listener = listener;
+	}
+
+	/**
+	 * Select the base profile (to invoke on the radio thread, before the sender starts).
+	 * 
+	 * @return	The current AdaptiveRateReceiver instance.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public AdaptiveRateReceiver start() throws RF24Exception {
+		profile = AdaptiveRateSender.BASE_PROFILE;
+		rf24.switchDataRates(profile.getDataRates());
+		lastFrameNanos = timeSource.getAsLong();
+		return this;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void onReceived(RxPacket packet) {
+		final byte[] frame = packet.getPayloadBuffer();
+		switch (RateFrames.getType(frame, packet.getLength())) {
+		case RateFrames.TYPE_DATA:
+			lastFrameNanos = timeSource.getAsLong();
+			receivedFramesCount++;
+			listener.onData(frame, RateFrames.DATA_HEADER_SIZE, packet.getLength() - RateFrames.DATA_HEADER_SIZE);
+			break;
+		case RateFrames.TYPE_RATE:
+			lastFrameNanos = timeSource.getAsLong();
+			LinkProfile receivedProfile = LinkProfile.getFromOrdinal(frame[1]);
+			if (receivedProfile != profile) {
+				profileChangesCount++;
+				switchProfile(receivedProfile);
+			}
+			break;
+		default:
+			// Not a frame of the adaptive rate mode
+			break;
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void onIdle() {
+		final long now = timeSource.getAsLong();
+		if (now - lastFrameNanos > syncTimeoutNanos) {
+			lastFrameNanos = now;
+			if (profile != AdaptiveRateSender.BASE_PROFILE) {
+				syncTimeoutsCount++;
+				switchProfile(AdaptiveRateSender.BASE_PROFILE);
+			}
+		}
+	}
+
+	private void switchProfile(LinkProfile switchedProfile) {
+		profile = switchedProfile;
+		try {
+			rf24.switchDataRates(switchedProfile.getDataRates());
+		} catch (RF24Exception e) {
+			onError(e);
+		}
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	/**
+	 * Return the profile used with the sender.
+	 * 
+	 * @return	The profile.
+	 */
+	public LinkProfile getProfile() {
+		return profile;
+	}
+
+	public long getReceivedFramesCount() {
+		return receivedFramesCount;
+	}
+
+	public long getProfileChangesCount() {
+		return profileChangesCount;
+	}
+
+	public long getSyncTimeoutsCount() {
+		return syncTimeoutsCount;
+	}
+
+	public long getSyncTimeoutMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(syncTimeoutNanos);
+	}
+
+	/**
+	 * Set the time without frame before the receiver falls back to the base profile.
+	 * 
+	 * @param syncTimeoutMillis	The timeout in milliseconds.
+	 * @return	The current AdaptiveRateReceiver instance.
+	 */
+	public AdaptiveRateReceiver setSyncTimeoutMillis(long syncTimeoutMillis) {
+		if (syncTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("syncTimeoutMillis must be positive");
+		}
+		this.syncTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(syncTimeoutMillis);
+		return this;
+	}
+
+	/**
+	 * Set the source of the time of the sync timeout (to invoke before {@link #start()}).
+	 * 
+	 * @param timeSource	The time in nanoseconds ({@link System#nanoTime()} by default).
+	 * @return	The current AdaptiveRateReceiver instance.
+	 */
+	public AdaptiveRateReceiver setTimeSource(LongSupplier timeSource) {
+		if (timeSource == null) {
+			throw new IllegalArgumentException("timeSource is mandatory");
+		}
+		this.timeSource = timeSource;
+		this.lastFrameNanos = timeSource.getAsLong();
+		return this;
+	}
+
+}
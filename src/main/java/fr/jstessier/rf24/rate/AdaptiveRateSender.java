@@ -0,0 +1,444 @@
+package fr.jstessier.rf24.rate;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.enums.WritePayloadType;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadException;
+import fr.jstessier.rf24.utils.RegistersUtils;
+
+/**
+ * Transmitting side of the adaptive rate mode : the data rates and the automatic retransmission settings
+ * ({@link LinkProfile}) follow the quality of the link to the {@link AdaptiveRateReceiver}.
+ * 
+ * <ul>
+ * <li>The quality is measured on windows of {@link #getQualityWindow()} frames : ratio of the frames acknowledged
+ * and mean number of retransmissions (OBSERVE_TX.ARC_CNT) of the acknowledged frames.</li>
+ * <li>After a bad window, the sender steps down to the more robust profile. After {@link #getStepUpWindows()} good
+ * windows, it tries the faster profile. When the faster profile is bad at once, the number of good windows before
+ * the next try is doubled (up to {@link #getMaxStepUpWindows()}).</li>
+ * <li>A change is sent to the receiver in a RATE frame with the current profile : both sides use the new profile
+ * once the frame is acknowledged.</li>
+ * <li>After {@link #getMaxConsecutiveFailures()} frames not acknowledged, the sender falls back to the base
+ * profile ({@link LinkProfile#ROBUST}), the receiver does the same without frame for its sync timeout : the two
+ * sides meet again after a lost RATE frame or a lost acknowledgment of a RATE frame.</li>
+ * </ul>
+ * A frame acknowledged but seen as lost (lost acknowledgment) is sent again : the data can be received twice.
+ * 
+ * A sender is not thread safe and must be used by the thread that owns the RF24 instance (in TX mode,
+ * with the writing pipe opened).
+ * 
+ * @author J.S. TESSIER
+ */
+public class AdaptiveRateSender {
+
+	/** Profile used at start and after a loss of synchronization (shared with the receiver). */
+	public static final LinkProfile BASE_PROFILE = LinkProfile.ROBUST;
+
+	/** Default number of frames of a quality window. */
+	public static final int DEFAULT_QUALITY_WINDOW = 32;
+
+	/** Default maximum number of attempts to send a frame. */
+	public static final int DEFAULT_MAX_ATTEMPTS = 100;
+
+	/** The RF24 instance (in TX mode). */
+	private final RF24 rf24;
+
+	/** The profile used with the receiver. */
+	private LinkProfile profile = BASE_PROFILE;
+
+	/** The profile to send to the receiver (null if none). */
+	private LinkProfile pendingProfile = null;
+
+	/** Is the current profile used since the last step up (a bad window doubles the step up windows). */
+	private boolean probing = false;
+
+	/** The number of consecutive frames not acknowledged. */
+	private int consecutiveFailures = 0;
+
+	/** The reusable frame. */
+	private final byte[] frame = new byte[RF24.MAX_PAYLOAD_SIZE];
+
+	// Quality of the current window
+
+	private int windowSentCount = 0;
+
+	private int windowFailedCount = 0;
+
+	private int windowRetransmittedCount = 0;
+
+	/** The number of consecutive good windows. */
+	private int goodWindowsCount = 0;
+
+	/** The number of good windows before the next step up. */
+	private int currentStepUpWindows;
+
+	// Configuration
+
+	private int qualityWindow = DEFAULT_QUALITY_WINDOW;
+
+	private double minDeliveryRatio = 0.95;
+
+	private double maxRetransmitsPerPacket = 1;
+
+	private int stepUpWindows = 3;
+
+	private int maxStepUpWindows = 48;
+
+	private int maxConsecutiveFailures = 3;
+
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+	// Statistics
+
+	private long sentFramesCount = 0;
+
+	private long failedFramesCount = 0;
+
+	private long profileChangesCount = 0;
+
+	private long fallbacksCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24	The RF24 instance (in TX mode).
+	 */
+	public AdaptiveRateSender(RF24 rf24) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		this.rf24 = rf24;
+		this.currentStepUpWindows = stepUpWindows;
+	}
+
+	/**
+	 * Select the base profile (must be invoked before the first frame, as {@link AdaptiveRateReceiver#start()}).
+	 * 
+	 * @return	The current AdaptiveRateSender instance.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public AdaptiveRateSender start() throws RF24Exception {
+		profile = BASE_PROFILE;
+		pendingProfile = null;
+		probing = false;
+		consecutiveFailures = 0;
+		goodWindowsCount = 0;
+		currentStepUpWindows = stepUpWindows;
+		resetWindow();
+		applyProfile(profile);
+		return this;
+	}
+
+	/**
+	 * Send data (with acknowledgment), adapting the profile until the frame is acknowledged.
+	 * 
+	 * @param data		The buffer that contains the data.
+	 * @param offset	The offset of the data in the buffer.
+	 * @param length	The length of the data (1 to {@value RateFrames#MAX_DATA_SIZE} bytes).
+	 * @throws WritePayloadException	If the frame is not acknowledged after {@link #getMaxAttempts()} attempts.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void send(byte[] data, int offset, int length) throws RF24Exception {
+		if (data == null) {
+			throw new IllegalArgumentException("data is mandatory");
+		}
+		if (length < 1 || length > RateFrames.MAX_DATA_SIZE) {
+			throw new IllegalArgumentException("length must be between 1 and " + RateFrames.MAX_DATA_SIZE);
+		}
+		WritePayloadException failure = null;
+		for (int attempt = 0; attempt < maxAttempts; attempt++) {
+			final LinkProfile sentProfile = pendingProfile;
+			final int frameLength;
+			if (sentProfile != null) {
+				frame[0] = RateFrames.TYPE_RATE;
+				frame[1] = (byte) sentProfile.ordinal();
+				frameLength = RateFrames.RATE_SIZE;
+			} else {
+				frame[0] = RateFrames.TYPE_DATA;
+				System.arraycopy(data, offset, frame, RateFrames.DATA_HEADER_SIZE, length);
+				frameLength = RateFrames.DATA_HEADER_SIZE + length;
+			}
+			try {
+				rf24.sendPayload(WritePayloadType.W_TX_PAYLOAD, frame, 0, frameLength);
+			} catch (WritePayloadException e) {
+				// The failed frame is still in the TX FIFO, it must not be sent with the next profile
+				rf24.flushTx();
+				failure = e;
+				failedFramesCount++;
+				onFailure();
+				continue;
+			}
+			onDelivery(RegistersUtils.getBitsValue(rf24.readRegisterValue(Registers.OBSERVE_TX), Registers.OBSERVE_TX.ARC_CNT));
+			if (sentProfile != null) {
+				// The receiver uses the new profile after the acknowledgment
+				pendingProfile = null;
+				probing = sentProfile.ordinal() > profile.ordinal();
+				profile = sentProfile;
+				profileChangesCount++;
+				applyProfile(profile);
+				continue;
+			}
+			sentFramesCount++;
+			return;
+		}
+		throw failure;
+	}
+
+	/**
+	 * Send data (with acknowledgment), adapting the profile until the frame is acknowledged.
+	 * 
+	 * @param data	The data (1 to {@value RateFrames#MAX_DATA_SIZE} bytes).
+	 * @throws WritePayloadException	If the frame is not acknowledged after {@link #getMaxAttempts()} attempts.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void send(byte... data) throws RF24Exception {
+		if (data == null) {
+			throw new IllegalArgumentException("data is mandatory");
+		}
+		send(data, 0, data.length);
+	}
+
+	private void onDelivery(int retransmittedPackets) {
+		consecutiveFailures = 0;
+		windowSentCount++;
+		windowRetransmittedCount += retransmittedPackets;
+		if (windowSentCount >= qualityWindow) {
+			evaluate();
+		}
+	}
+
+	private void onFailure() throws RF24Exception {
+		consecutiveFailures++;
+		windowSentCount++;
+		windowFailedCount++;
+		if (consecutiveFailures >= maxConsecutiveFailures && (profile != BASE_PROFILE || pendingProfile != null)) {
+			// Lost synchronization (or link too bad for the profile) : back to the profile of the receiver after its sync timeout
+			fallbacksCount++;
+			profile = BASE_PROFILE;
+			pendingProfile = null;
+			probing = false;
+			goodWindowsCount = 0;
+			resetWindow();
+			applyProfile(profile);
+		} else if (windowSentCount >= qualityWindow) {
+			evaluate();
+		}
+	}
+
+	/**
+	 * Evaluate the quality of the window and prepare the change of profile.
+	 */
+	private void evaluate() {
+		final int deliveredCount = windowSentCount - windowFailedCount;
+		final boolean bad = deliveredCount < minDeliveryRatio * windowSentCount
+				|| windowRetransmittedCount > maxRetransmitsPerPacket * deliveredCount;
+		resetWindow();
+		if (pendingProfile != null) {
+			return;
+		}
+		if (bad) {
+			goodWindowsCount = 0;
+			if (probing) {
+				currentStepUpWindows = Math.min(currentStepUpWindows * 2, maxStepUpWindows);
+			}
+			probing = false;
+			if (profile.slower() != profile) {
+				pendingProfile = profile.slower();
+			}
+			return;
+		}
+		if (probing) {
+			// The faster profile is good
+			probing = false;
+			currentStepUpWindows = stepUpWindows;
+		}
+		goodWindowsCount++;
+		if (goodWindowsCount >= currentStepUpWindows && profile.faster() != profile) {
+			goodWindowsCount = 0;
+			pendingProfile = profile.faster();
+		}
+	}
+
+	private void resetWindow() {
+		windowSentCount = 0;
+		windowFailedCount = 0;
+		windowRetransmittedCount = 0;
+	}
+
+	private void applyProfile(LinkProfile appliedProfile) throws RF24Exception {
+		rf24.setRetries(appliedProfile.getAutomaticRetransmitDelay(), appliedProfile.getAutomaticRetransmitCount());
+		rf24.switchDataRates(appliedProfile.getDataRates());
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	/**
+	 * Return the profile used with the receiver.
+	 * 
+	 * @return	The profile.
+	 */
+	public LinkProfile getProfile() {
+		return profile;
+	}
+
+	public long getSentFramesCount() {
+		return sentFramesCount;
+	}
+
+	public long getFailedFramesCount() {
+		return failedFramesCount;
+	}
+
+	public long getProfileChangesCount() {
+		return profileChangesCount;
+	}
+
+	public long getFallbacksCount() {
+		return fallbacksCount;
+	}
+
+	public int getQualityWindow() {
+		return qualityWindow;
+	}
+
+	/**
+	 * Set the number of frames of a quality window.
+	 * 
+	 * @param qualityWindow	The number of frames.
+	 * @return	The current AdaptiveRateSender instance.
+	 */
+	public AdaptiveRateSender setQualityWindow(int qualityWindow) {
+		if (qualityWindow < 1) {
+			throw new IllegalArgumentException("qualityWindow must be positive");
+		}
+		this.qualityWindow = qualityWindow;
+		return this;
+	}
+
+	public double getMinDeliveryRatio() {
+		return minDeliveryRatio;
+	}
+
+	/**
+	 * Set the minimum ratio of the frames acknowledged in a good window.
+	 * 
+	 * @param minDeliveryRatio	The ratio (0 to 1).
+	 * @return	The current AdaptiveRateSender instance.
+	 */
+	public AdaptiveRateSender setMinDeliveryRatio(double minDeliveryRatio) {
+		if (minDeliveryRatio < 0 || minDeliveryRatio > 1) {
+			throw new IllegalArgumentException("minDeliveryRatio must be between 0 and 1");
+		}
+		this.minDeliveryRatio = minDeliveryRatio;
+		return this;
+	}
+
+	public double getMaxRetransmitsPerPacket() {
+		return maxRetransmitsPerPacket;
+	}
+
+	/**
+	 * Set the maximum mean number of retransmissions of the frames acknowledged in a good window.
+	 * 
+	 * @param maxRetransmitsPerPacket	The mean number of retransmissions.
+	 * @return	The current AdaptiveRateSender instance.
+	 */
+	public AdaptiveRateSender setMaxRetransmitsPerPacket(double maxRetransmitsPerPacket) {
+		if (maxRetransmitsPerPacket < 0) {
+			throw new IllegalArgumentException("maxRetransmitsPerPacket must be positive");
+		}
+		this.maxRetransmitsPerPacket = maxRetransmitsPerPacket;
+		return this;
+	}
+
+	public int getStepUpWindows() {
+		return stepUpWindows;
+	}
+
+	/**
+	 * Set the number of consecutive good windows before a step up to the faster profile.
+	 * 
+	 * @param stepUpWindows	The number of windows.
+	 * @return	The current AdaptiveRateSender instance.
+	 */
+	public AdaptiveRateSender setStepUpWindows(int stepUpWindows) {
+		if (stepUpWindows < 1) {
+			throw new IllegalArgumentException("stepUpWindows must be positive");
+		}
+		this.stepUpWindows = stepUpWindows;
+		this.currentStepUpWindows = stepUpWindows;
+		this.maxStepUpWindows = Math.max(maxStepUpWindows, stepUpWindows);
+		return this;
+	}
+
+	public int getMaxStepUpWindows() {
+		return maxStepUpWindows;
+	}
+
+	public AdaptiveRateSender setMaxStepUpWindows(int maxStepUpWindows) {
+		if (maxStepUpWindows < stepUpWindows) {
+			throw new IllegalArgumentException("maxStepUpWindows must be greater than stepUpWindows");
+		}
+		this.maxStepUpWindows = maxStepUpWindows;
+		return this;
+	}
+
+	public int getMaxConsecutiveFailures() {
+		return maxConsecutiveFailures;
+	}
+
+	/**
+	 * Set the number of consecutive frames not acknowledged before the fall back to the base profile.
+	 * 
+	 * @param maxConsecutiveFailures	The number of frames.
+	 * @return	The current AdaptiveRateSender instance.
+	 */
+	public AdaptiveRateSender setMaxConsecutiveFailures(int maxConsecutiveFailures) {
+		if (maxConsecutiveFailures < 1) {
+			throw new IllegalArgumentException("maxConsecutiveFailures must be positive");
+		}
+		this.maxConsecutiveFailures = maxConsecutiveFailures;
+		return this;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Set the maximum number of attempts to send a frame : they must last longer than the sync timeout of the receiver.
+	 * 
+	 * @param maxAttempts	The number of attempts.
+	 * @return	The current AdaptiveRateSender instance.
+	 */
+	public AdaptiveRateSender setMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be positive");
+		}
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+}
@@ -0,0 +1,94 @@
+package fr.jstessier.rf24.rate;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.enums.AutomaticRetransmitDelay;
+import fr.jstessier.rf24.enums.DataRates;
+
+/**
+ * Data rates and automatic retransmission settings of a link, from the most robust to the fastest.
+ * The retransmit delays leave the time of an acknowledgment with a payload of 32 bytes at each data rates.
+ * 
+ * @author J.S. TESSIER
+ */
+public enum LinkProfile {
+
+	/** 250kbps : best sensitivity, long retransmit delay and maximum retransmissions. */
+	ROBUST(DataRates.DR_250_KBPS, AutomaticRetransmitDelay.ARD_1500_US, (byte) 15),
+
+	/** 1Mbps. */
+	BALANCED(DataRates.DR_1_MBPS, AutomaticRetransmitDelay.ARD_0750_US, (byte) 10),
+
+	/** 2Mbps : shortest air time and retransmit delay, few retransmissions. */
+	FAST(DataRates.DR_2_MBPS, AutomaticRetransmitDelay.ARD_0500_US, (byte) 5);
+
+	private final DataRates dataRates;
+
+	private final AutomaticRetransmitDelay automaticRetransmitDelay;
+
+	private final byte automaticRetransmitCount;
+
+	private LinkProfile(DataRates dataRates, AutomaticRetransmitDelay automaticRetransmitDelay, byte automaticRetransmitCount) {
+		this.dataRates = dataRates;
+		this.automaticRetransmitDelay = automaticRetransmitDelay;
+		this.automaticRetransmitCount = automaticRetransmitCount;
+	}
+
+	public DataRates getDataRates() {
+		return dataRates;
+	}
+
+	public AutomaticRetransmitDelay getAutomaticRetransmitDelay() {
+		return automaticRetransmitDelay;
+	}
+
+	public byte getAutomaticRetransmitCount() {
+		return automaticRetransmitCount;
+	}
+
+	/**
+	 * Return the next faster profile.
+	 * 
+	 * @return	The profile, the current one if it is the fastest.
+	 */
+	public LinkProfile faster() {
+		return (ordinal() < values().length - 1) ? values()[ordinal() + 1] : this;
+	}
+
+	/**
+	 * Return the next more robust profile.
+	 * 
+	 * @return	The profile, the current one if it is the most robust.
+	 */
+	public LinkProfile slower() {
+		return (ordinal() > 0) ? values()[ordinal() - 1] : this;
+	}
+
+	/**
+	 * Return the profile of an ordinal.
+	 * 
+	 * @param ordinal	The ordinal.
+	 * @return	The profile, null if the ordinal is not valid.
+	 */
+	public static LinkProfile getFromOrdinal(int ordinal) {
+		return (ordinal >= 0 && ordinal < values().length) ? values()[ordinal] : null;
+	}
+
+}
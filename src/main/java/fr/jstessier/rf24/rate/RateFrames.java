@@ -0,0 +1,75 @@
+package fr.jstessier.rf24.rate;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.RF24;
+
+/**
+ * Format of the frames of the adaptive rate mode.
+ * 
+ * <pre>
+ * DATA : type, 1 to 31 bytes of data
+ * RATE : type, ordinal of the {@link LinkProfile} used after the acknowledgment
+ * </pre>
+ * 
+ * @author J.S. TESSIER
+ */
+public final class RateFrames {
+
+	/** Type of the DATA frames. */
+	public static final byte TYPE_DATA = 0x21;
+
+	/** Type of the RATE frames. */
+	public static final byte TYPE_RATE = 0x22;
+
+	/** Size of the header of a DATA frame. */
+	public static final int DATA_HEADER_SIZE = 1;
+
+	/** Maximum size of the data of a DATA frame. */
+	public static final int MAX_DATA_SIZE = RF24.MAX_PAYLOAD_SIZE - DATA_HEADER_SIZE;
+
+	/** Size of a RATE frame. */
+	public static final int RATE_SIZE = 2;
+
+	/**
+	 * Private constructor.
+	 */
+	private RateFrames() {
+		// NOP
+	}
+
+	/**
+	 * Return the type of a frame.
+	 * 
+	 * @param frame		The frame.
+	 * @param length	The length of the frame.
+	 * @return	The type of the frame or 0 if the frame is not valid.
+	 */
+	public static byte getType(byte[] frame, int length) {
+		if (length > DATA_HEADER_SIZE && frame[0] == TYPE_DATA) {
+			return TYPE_DATA;
+		}
+		if (length == RATE_SIZE && frame[0] == TYPE_RATE && LinkProfile.getFromOrdinal(frame[1]) != null) {
+			return TYPE_RATE;
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,40 @@
+package fr.jstessier.rf24.rate;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/**
+ * Listener of the data received by an {@link AdaptiveRateReceiver}.
+ * The method is invoked on the thread that receives the frames and must return quickly.
+ * 
+ * @author J.S. TESSIER
+ */
+public interface RateListener {
+
+	/**
+	 * Invoked for the data of each DATA frame.
+	 * The buffer is reused when the method returns : its content must be copied to be kept.
+	 * 
+	 * @param data		The buffer that contains the data.
+	 * @param offset	The offset of the data in the buffer.
+	 * @param length	The length of the data.
+	 */
+	void onData(byte[] data, int offset, int length);
+
+}
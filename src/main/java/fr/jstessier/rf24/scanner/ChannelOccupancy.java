@@ -0,0 +1,152 @@
+package fr.jstessier.rf24.scanner;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Occupancy histogram of the frequency channels : for each channel, the number of samples of the received power
+ * detector and the number of samples with a detected signal.
+ * 
+ * @author J.S. TESSIER
+ */
+public class ChannelOccupancy {
+
+	/** Number of frequency channels (RF_CH values 0 to 125). */
+	public static final int CHANNELS_COUNT = 126;
+
+	/** The number of samples with a detected signal (by channel). */
+	private final long[] detectionsCounts = new long[CHANNELS_COUNT];
+
+	/** The number of samples (by channel). */
+	private final long[] samplesCounts = new long[CHANNELS_COUNT];
+
+	/**
+	 * Record the samples of a channel.
+	 * 
+	 * @param frequencyChannel	The frequency channel.
+	 * @param detectionsCount	The number of samples with a detected signal.
+	 * @param samplesCount		The number of samples.
+	 * @return	The current ChannelOccupancy instance.
+	 */
+	public ChannelOccupancy record(int frequencyChannel, long detectionsCount, long samplesCount) {
+		checkChannel(frequencyChannel);
+		detectionsCounts[frequencyChannel] += detectionsCount;
+		samplesCounts[frequencyChannel] += samplesCount;
+		return this;
+	}
+
+	/**
+	 * Add the samples of another histogram.
+	 * 
+	 * @param occupancy	The other histogram.
+	 * @return	The current ChannelOccupancy instance.
+	 */
+	public ChannelOccupancy add(ChannelOccupancy occupancy) {
+		if (occupancy == null) {
+			throw new IllegalArgumentException("occupancy is mandatory");
+		}
+		for (int i = 0; i < CHANNELS_COUNT; i++) {
+			detectionsCounts[i] += occupancy.detectionsCounts[i];
+			samplesCounts[i] += occupancy.samplesCounts[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Forget all the samples.
+	 */
+	public void reset() {
+		Arrays.fill(detectionsCounts, 0);
+		Arrays.fill(samplesCounts, 0);
+	}
+
+	/**
+	 * Return the ratio of the samples with a detected signal.
+	 * 
+	 * @param frequencyChannel	The frequency channel.
+	 * @return	The occupancy (0 to 1), 0 if the channel is not sampled.
+	 */
+	public double getOccupancy(int frequencyChannel) {
+		checkChannel(frequencyChannel);
+		return samplesCounts[frequencyChannel] == 0 ? 0
+				: (double) detectionsCounts[frequencyChannel] / samplesCounts[frequencyChannel];
+	}
+
+	/**
+	 * Return the sampled channels from the least to the most congested.
+	 * A channel is less congested when its occupancy is lower, then when the occupancy of its adjacent channels
+	 * (a transmission spreads over the adjacent channels at 2Mbps) is lower.
+	 * 
+	 * @param count	The maximum number of channels.
+	 * @return	The frequency channels.
+	 */
+	public byte[] getLeastCongestedChannels(int count) {
+		List<Integer> channels = new ArrayList<>();
+		for (int i = 0; i < CHANNELS_COUNT; i++) {
+			if (samplesCounts[i] != 0) {
+				channels.add(i);
+			}
+		}
+		channels.sort(Comparator.<Integer>comparingDouble(this::getOccupancy)
+				.thenComparingDouble(this::getAdjacentOccupancy)
+				.thenComparingInt(Integer::intValue));
+		byte[] result = new byte[Math.min(Math.max(count, 0), channels.size())];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = channels.get(i).byteValue();
+		}
+		return result;
+	}
+
+	private double getAdjacentOccupancy(int frequencyChannel) {
+		double occupancy = 0;
+		if (frequencyChannel > 0) {
+			occupancy += getOccupancy(frequencyChannel - 1);
+		}
+		if (frequencyChannel < CHANNELS_COUNT - 1) {
+			occupancy += getOccupancy(frequencyChannel + 1);
+		}
+		return occupancy;
+	}
+
+	private static void checkChannel(int frequencyChannel) {
+		if (frequencyChannel < 0 || frequencyChannel >= CHANNELS_COUNT) {
+			throw new IllegalArgumentException("frequencyChannel must be between 0 and " + (CHANNELS_COUNT - 1));
+		}
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public long getDetectionsCount(int frequencyChannel) {
+		checkChannel(frequencyChannel);
+		return detectionsCounts[frequencyChannel];
+	}
+
+	public long getSamplesCount(int frequencyChannel) {
+		checkChannel(frequencyChannel);
+		return samplesCounts[frequencyChannel];
+	}
+
+}
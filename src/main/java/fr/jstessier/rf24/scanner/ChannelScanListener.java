@@ -0,0 +1,40 @@
+package fr.jstessier.rf24.scanner;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/**
+ * Subscriber of the sweeps of a {@link ChannelScanner}.
+ * The methods are invoked on the scanning thread between two sweeps.
+ * 
+ * @author J.S. TESSIER
+ */
+public interface ChannelScanListener {
+
+	/**
+	 * Invoked at the end of each sweep.
+	 * The histograms are reused : their content must be copied to be kept.
+	 * 
+	 * @param sweepIndex	The index of the sweep (from 0).
+	 * @param sweep			The histogram of the sweep.
+	 * @param total			The histogram of all the sweeps of the scan.
+	 */
+	void onSweep(long sweepIndex, ChannelOccupancy sweep, ChannelOccupancy total);
+
+}
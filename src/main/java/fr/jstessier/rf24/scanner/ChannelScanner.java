@@ -0,0 +1,205 @@
+package fr.jstessier.rf24.scanner;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * Spectrum survey with the received power detector (RPD) : each sweep samples the RPD register of a range
+ * of frequency channels, the samples are accumulated in an occupancy histogram used to choose the least
+ * congested channels.
+ * 
+ * <pre>
+ * ChannelOccupancy occupancy = new ChannelScanner(rf24).scan(100);
+ * rf24.setFrequencyChannel(occupancy.getLeastCongestedChannels(1)[0]);
+ * </pre>
+ * 
+ * The module is put in RX mode during the scan and the previous mode and frequency channel are restored after.
+ * The RF24 instance must not be used by others during the scan (submit the scan to the {@link fr.jstessier.rf24.RF24RadioLoop}
+ * to share the module).
+ * 
+ * @author J.S. TESSIER
+ */
+public class ChannelScanner {
+
+	/** Default number of samples of each channel in a sweep. */
+	public static final int DEFAULT_SAMPLES_PER_CHANNEL = 4;
+
+	/** The RF24 instance. */
+	private final RF24 rf24;
+
+	/** The first scanned channel. */
+	private int minChannel = 0;
+
+	/** The last scanned channel. */
+	private int maxChannel = ChannelOccupancy.CHANNELS_COUNT - 1;
+
+	/** The number of samples of each channel in a sweep. */
+	private int samplesPerChannel = DEFAULT_SAMPLES_PER_CHANNEL;
+
+	/** The delay between two samples of a channel in microseconds. */
+	private int sampleIntervalMicroseconds = 0;
+
+	/** Is a continuous scan requested to stop. */
+	private volatile boolean stopRequested = false;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24	The RF24 instance.
+	 */
+	public ChannelScanner(RF24 rf24) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		this.rf24 = rf24;
+	}
+
+	/**
+	 * Scan the channels.
+	 * 
+	 * @param sweepsCount	The number of sweeps.
+	 * @return	The histogram of all the sweeps.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public ChannelOccupancy scan(long sweepsCount) throws RF24Exception {
+		return scan(sweepsCount, null);
+	}
+
+	/**
+	 * Scan the channels until {@link #stop()} is invoked or the thread is interrupted (continuous monitoring).
+	 * 
+	 * @param listener	The subscriber of the sweeps.
+	 * @return	The histogram of all the sweeps.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public ChannelOccupancy monitor(ChannelScanListener listener) throws RF24Exception {
+		if (listener == null) {
+			throw new IllegalArgumentException("listener is mandatory");
+		}
+		return scan(Long.MAX_VALUE, listener);
+	}
+
+	/**
+	 * Scan the channels.
+	 * 
+	 * @param sweepsCount	The maximum number of sweeps.
+	 * @param listener		The subscriber of the sweeps (optional).
+	 * @return	The histogram of all the sweeps.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public ChannelOccupancy scan(long sweepsCount, ChannelScanListener listener) throws RF24Exception {
+		if (sweepsCount < 1) {
+			throw new IllegalArgumentException("sweepsCount must be positive");
+		}
+		stopRequested = false;
+		final ChannelOccupancy total = new ChannelOccupancy();
+		final ChannelOccupancy sweep = new ChannelOccupancy();
+
+		final boolean wasListening = rf24.isListening();
+		final byte frequencyChannel = rf24.getFrequencyChannel();
+		if (!wasListening) {
+			rf24.startListening();
+		}
+		try {
+			for (long i = 0; i < sweepsCount && !stopRequested && !Thread.currentThread().isInterrupted(); i++) {
+				sweep.reset();
+				for (int channel = minChannel; channel <= maxChannel; channel++) {
+					int detectionsCount = rf24.sampleReceivedPower((byte) channel, samplesPerChannel, sampleIntervalMicroseconds);
+					sweep.record(channel, detectionsCount, samplesPerChannel);
+				}
+				total.add(sweep);
+				if (listener != null) {
+					listener.onSweep(i, sweep, total);
+				}
+			}
+		} finally {
+			if (wasListening) {
+				rf24.switchFrequencyChannel(frequencyChannel);
+			} else {
+				// Back to standby before the channel is restored
+				rf24.stopListening();
+				rf24.setFrequencyChannel(frequencyChannel);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Request the running scan to stop at the end of the current sweep.
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public int getMinChannel() {
+		return minChannel;
+	}
+
+	public int getMaxChannel() {
+		return maxChannel;
+	}
+
+	/**
+	 * Set the range of the scanned channels.
+	 * 
+	 * @param minChannel	The first channel.
+	 * @param maxChannel	The last channel.
+	 * @return	The current ChannelScanner instance.
+	 */
+	public ChannelScanner setChannelsRange(int minChannel, int maxChannel) {
+		if (minChannel < 0 || maxChannel >= ChannelOccupancy.CHANNELS_COUNT || minChannel > maxChannel) {
+			throw new IllegalArgumentException("The channels range must be included in 0 to " + (ChannelOccupancy.CHANNELS_COUNT - 1));
+		}
+		this.minChannel = minChannel;
+		this.maxChannel = maxChannel;
+		return this;
+	}
+
+	public int getSamplesPerChannel() {
+		return samplesPerChannel;
+	}
+
+	public ChannelScanner setSamplesPerChannel(int samplesPerChannel) {
+		if (samplesPerChannel < 1) {
+			throw new IllegalArgumentException("samplesPerChannel must be positive");
+		}
+		this.samplesPerChannel = samplesPerChannel;
+		return this;
+	}
+
+	public int getSampleIntervalMicroseconds() {
+		return sampleIntervalMicroseconds;
+	}
+
+	public ChannelScanner setSampleIntervalMicroseconds(int sampleIntervalMicroseconds) {
+		if (sampleIntervalMicroseconds < 0) {
+			throw new IllegalArgumentException("sampleIntervalMicroseconds must be positive or 0");
+		}
+		this.sampleIntervalMicroseconds = sampleIntervalMicroseconds;
+		return this;
+	}
+
+}
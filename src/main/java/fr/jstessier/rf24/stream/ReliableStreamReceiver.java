@@ -0,0 +1,166 @@
+package fr.jstessier.rf24.stream;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.RxListener;
+import fr.jstessier.rf24.RxPacket;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * Receiving side of the reliable stream protocol (see {@link ReliableStreamSender}).
+ * 
+ * The receiver is a {@link RxListener} of the {@link fr.jstessier.rf24.RF24RadioLoop} that owns the RF24 instance :
+ * the DATA frames are reordered in a window of {@link StreamFrames#SACK_BITMAP_SIZE} frames and delivered in order
+ * to the {@link StreamListener}, and each POLL frame replaces the acknowledgment payload of its data pipe with a SACK.
+ * The TX FIFO is flushed before each SACK, so no other acknowledgment payload can be used with the RF24 instance.
+ * 
+ * @author J.S. TESSIER
+ */
+public class ReliableStreamReceiver implements RxListener {
+
+	private static final int WINDOW_SIZE = StreamFrames.SACK_BITMAP_SIZE;
+
+	/** The RF24 instance (in RX mode, used on the radio thread only). */
+	private final RF24 rf24;
+
+	/** The listener of the data. */
+	private final StreamListener listener;
+
+	/** The data of the frames received out of order (by sequence number modulo the window size). */
+	private final byte[][] frames = new byte[WINDOW_SIZE][StreamFrames.MAX_DATA_SIZE];
+
+	/** The length of the data of the frames received out of order. */
+	private final int[] lengths = new int[WINDOW_SIZE];
+
+	/** Bitmap of the frames received after the next expected one (bit 0 is the next expected one). */
+	private long receivedBitmap = 0;
+
+	/** The next expected sequence number. */
+	private int nextSequence = 0;
+
+	/** The reusable SACK frame. */
+	private final byte[] sack = new byte[StreamFrames.SACK_SIZE];
+
+	/** Number of frames delivered. */
+	private volatile long deliveredFramesCount = 0;
+
+	/** Number of duplicated frames ignored. */
+	private volatile long duplicatedFramesCount = 0;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24		The RF24 instance (in RX mode).
+	 * @param listener	The listener of the data.
+	 */
+	public ReliableStreamReceiver(RF24 rf24, StreamListener listener) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		if (listener == null) {
+			throw new IllegalArgumentException("listener is mandatory");
+		}
+		this.rf24 = rf24;
+		this.listener = listener;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void onReceived(RxPacket packet) {
+		final byte[] frame = packet.getPayloadBuffer();
+		switch (StreamFrames.getType(frame, packet.getLength())) {
+		case StreamFrames.TYPE_DATA:
+			onData(frame, packet.getLength());
+			break;
+		case StreamFrames.TYPE_POLL:
+			onPoll(packet, StreamFrames.getPollNumber(frame));
+			break;
+		default:
+			// Not a frame of the stream
+			break;
+		}
+	}
+
+	private void onData(byte[] frame, int length) {
+		final int sequence = StreamFrames.getSequence(frame);
+		final int distance = StreamFrames.distance(sequence, nextSequence);
+		if (distance < 0 || distance >= WINDOW_SIZE || (receivedBitmap & (1L << distance)) != 0) {
+			duplicatedFramesCount++;
+			return;
+		}
+		final int dataLength = length - StreamFrames.DATA_HEADER_SIZE;
+		if (distance > 0) {
+			// Kept until the missing frames are received
+			final int slot = sequence % WINDOW_SIZE;
+			System.arraycopy(frame, StreamFrames.DATA_HEADER_SIZE, frames[slot], 0, dataLength);
+			lengths[slot] = dataLength;
+			receivedBitmap |= 1L << distance;
+			return;
+		}
+		listener.onData(frame, StreamFrames.DATA_HEADER_SIZE, dataLength);
+		advance();
+		// Deliver the next frames received out of order
+		while ((receivedBitmap & 1L) != 0) {
+			final int slot = nextSequence % WINDOW_SIZE;
+			listener.onData(frames[slot], 0, lengths[slot]);
+			advance();
+		}
+	}
+
+	private void advance() {
+		deliveredFramesCount++;
+		nextSequence = (nextSequence + 1) % StreamFrames.SEQUENCE_MODULO;
+		receivedBitmap >>>= 1;
+	}
+
+	private void onPoll(RxPacket packet, byte pollNumber) {
+		StreamFrames.writeSack(sack, pollNumber, nextSequence, receivedBitmap);
+		try {
+			// Only the last SACK is useful
+			rf24.flushTx();
+			rf24.writeAckPayload(packet.getDataPipe(), sack, 0, sack.length);
+		} catch (RF24Exception e) {
+			onError(e);
+		}
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	/**
+	 * Return the next expected sequence number.
+	 * 
+	 * @return	The sequence number of the first frame not delivered.
+	 */
+	public int getNextSequence() {
+		return nextSequence;
+	}
+
+	public long getDeliveredFramesCount() {
+		return deliveredFramesCount;
+	}
+
+	public long getDuplicatedFramesCount() {
+		return duplicatedFramesCount;
+	}
+
+}
@@ -0,0 +1,331 @@
+package fr.jstessier.rf24.stream;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.RF24TxStream;
+import fr.jstessier.rf24.TxStreamListener;
+import fr.jstessier.rf24.enums.WritePayloadType;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadException;
+import fr.jstessier.rf24.exceptions.WritePayloadTimeoutException;
+
+/**
+ * Sending side of a reliable stream protocol with a sliding window (see {@link StreamFrames}).
+ * 
+ * The hardware auto acknowledgment waits for the acknowledgment of each payload. Here the DATA frames are sent
+ * without acknowledgment (W_TX_PAYLOAD_NOACK) back to back through the TX FIFO, up to the window size, then a POLL
+ * frame is sent with acknowledgment : its acknowledgment payload is a selective acknowledgment (SACK) of the
+ * frames read by the {@link ReliableStreamReceiver}. The frames known to be lost are sent again in the next window.
+ * 
+ * A sender is not thread safe and must be used by the thread that owns the RF24 instance (in TX mode,
+ * with the writing pipe opened and the acknowledgment payloads enabled).
+ * 
+ * @author J.S. TESSIER
+ */
+public class ReliableStreamSender {
+
+	/** Default number of frames sent without acknowledgment. */
+	public static final int DEFAULT_WINDOW_SIZE = 32;
+
+	/** Default number of POLL without progress before a timeout. */
+	public static final int DEFAULT_MAX_POLLS_WITHOUT_PROGRESS = 20;
+
+	private static final int SLOTS_COUNT = StreamFrames.SACK_BITMAP_SIZE;
+
+	/** The outcome of the DATA frames is unknown (sent without acknowledgment). */
+	private static final TxStreamListener NO_OUTCOME_LISTENER = new TxStreamListener() {
+
+		@Override
+		public void onDelivered(byte[] payload) {
+			// NOP
+		}
+
+		@Override
+		public void onMaxRetries(byte[] payload) {
+			// NOP
+		}
+
+	};
+
+	/** The RF24 instance (in TX mode). */
+	private final RF24 rf24;
+
+	/** The maximum number of frames without acknowledgment. */
+	private final int windowSize;
+
+	/** The frames without acknowledgment (by sequence number modulo the slots count). */
+	private final byte[][] frames = new byte[SLOTS_COUNT][];
+
+	/** The number of the last POLL sent before each frame. */
+	private final byte[] epochs = new byte[SLOTS_COUNT];
+
+	/** True for the acknowledged frames. */
+	private final boolean[] acknowledged = new boolean[SLOTS_COUNT];
+
+	/** True for the lost frames to send again. */
+	private final boolean[] lost = new boolean[SLOTS_COUNT];
+
+	/** The sequence number of the oldest frame without acknowledgment. */
+	private int baseSequence = 0;
+
+	/** The sequence number of the next new frame. */
+	private int nextSequence = 0;
+
+	/** The number of the last POLL sent. */
+	private byte pollNumber = 0;
+
+	/** The reusable POLL frame. */
+	private final byte[] poll = new byte[StreamFrames.POLL_SIZE];
+
+	/** The reusable buffer of the acknowledgment payload of a POLL. */
+	private final byte[] ack = new byte[RF24.MAX_PAYLOAD_SIZE];
+
+	/** Timeout to send the frames of a window in milliseconds. */
+	private int flushTimeoutMillis = 100;
+
+	/** Number of POLL without progress before a timeout. */
+	private int maxPollsWithoutProgress = DEFAULT_MAX_POLLS_WITHOUT_PROGRESS;
+
+	/** Number of DATA frames sent (retransmissions included). */
+	private long sentFramesCount = 0;
+
+	/** Number of DATA frames sent again. */
+	private long retransmittedFramesCount = 0;
+
+	/** Number of POLL frames sent. */
+	private long pollsCount = 0;
+
+	/**
+	 * Constructor with the default window size.
+	 * 
+	 * @param rf24	The RF24 instance (in TX mode).
+	 */
+	public ReliableStreamSender(RF24 rf24) {
+		this(rf24, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param rf24			The RF24 instance (in TX mode).
+	 * @param windowSize	The maximum number of frames without acknowledgment (1 to {@link StreamFrames#SACK_BITMAP_SIZE}).
+	 */
+	public ReliableStreamSender(RF24 rf24, int windowSize) {
+		if (rf24 == null) {
+			throw new IllegalArgumentException("rf24 is mandatory");
+		}
+		if (windowSize <= 0 || windowSize > SLOTS_COUNT) {
+			throw new IllegalArgumentException("windowSize must be between 1 and " + SLOTS_COUNT);
+		}
+		this.rf24 = rf24;
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Send data on the stream and wait for their acknowledgment.
+	 * 
+	 * @param data	The data.
+	 * @throws WritePayloadTimeoutException	If the receiver does not acknowledge new frames after the maximum number of POLL.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void send(byte[] data) throws RF24Exception {
+		if (data == null) {
+			throw new IllegalArgumentException("data is mandatory");
+		}
+		send(data, 0, data.length);
+	}
+
+	/**
+	 * Send data on the stream from a caller-owned buffer and wait for their acknowledgment.
+	 * 
+	 * @param data		The buffer that contains the data.
+	 * @param offset	The offset of the data in the buffer.
+	 * @param length	The length of the data.
+	 * @throws WritePayloadTimeoutException	If the receiver does not acknowledge new frames after the maximum number of POLL.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public void send(byte[] data, int offset, int length) throws RF24Exception {
+		if (data == null) {
+			throw new IllegalArgumentException("data is mandatory");
+		}
+		rf24.enableWritePayloadNoAckCommand();
+
+		int position = 0;
+		int pollsWithoutProgress = 0;
+		while (position < length || baseSequence != nextSequence) {
+			if (hasLostFrames() || (position < length && getInFlightCount() < windowSize)) {
+				try (RF24TxStream stream = rf24.openTxStream(WritePayloadType.W_TX_PAYLOAD_NO_ACK, NO_OUTCOME_LISTENER)) {
+					sendLostFrames(stream);
+					while (position < length && getInFlightCount() < windowSize) {
+						position += sendNewFrame(stream, data, offset + position, Math.min(StreamFrames.MAX_DATA_SIZE, length - position));
+					}
+					stream.flush(flushTimeoutMillis);
+				}
+			}
+			if (poll()) {
+				pollsWithoutProgress = 0;
+			} else if (++pollsWithoutProgress >= maxPollsWithoutProgress) {
+				throw new WritePayloadTimeoutException();
+			}
+		}
+	}
+
+	private int sendNewFrame(RF24TxStream stream, byte[] data, int offset, int dataLength) throws RF24Exception {
+		final int slot = nextSequence % SLOTS_COUNT;
+		byte[] frame = frames[slot];
+		if (frame == null || frame.length != StreamFrames.DATA_HEADER_SIZE + dataLength) {
+			// Only the last frame of a send is shorter
+			frame = new byte[StreamFrames.DATA_HEADER_SIZE + dataLength];
+			frames[slot] = frame;
+		}
+		StreamFrames.writeDataHeader(frame, nextSequence);
+		System.arraycopy(data, offset, frame, StreamFrames.DATA_HEADER_SIZE, dataLength);
+		epochs[slot] = pollNumber;
+		acknowledged[slot] = false;
+		lost[slot] = false;
+		nextSequence = (nextSequence + 1) % StreamFrames.SEQUENCE_MODULO;
+		stream.send(frame);
+		sentFramesCount++;
+		return dataLength;
+	}
+
+	private void sendLostFrames(RF24TxStream stream) throws RF24Exception {
+		for (int sequence = baseSequence; sequence != nextSequence; sequence = (sequence + 1) % StreamFrames.SEQUENCE_MODULO) {
+			final int slot = sequence % SLOTS_COUNT;
+			if (lost[slot]) {
+				lost[slot] = false;
+				epochs[slot] = pollNumber;
+				stream.send(frames[slot]);
+				sentFramesCount++;
+				retransmittedFramesCount++;
+			}
+		}
+	}
+
+	/**
+	 * Send a POLL and handle the SACK of its acknowledgment payload.
+	 * 
+	 * @return	True if new frames are acknowledged.
+	 */
+	private boolean poll() throws RF24Exception {
+		pollNumber++;
+		pollsCount++;
+		StreamFrames.writePoll(poll, pollNumber);
+		final int ackLength;
+		try {
+			ackLength = rf24.sendPayloadAndReadAckPayload(poll, 0, poll.length, ack);
+		} catch (WritePayloadException e) {
+			// POLL lost : no information. The POLL is still in the TX FIFO and would be sent before the next frames
+			rf24.flushTx();
+			return false;
+		}
+		if (StreamFrames.getType(ack, ackLength) != StreamFrames.TYPE_SACK) {
+			return false;
+		}
+		return onSack(StreamFrames.getSackPollNumber(ack), StreamFrames.getSackNextSequence(ack), StreamFrames.getSackBitmap(ack));
+	}
+
+	private boolean onSack(byte echoedPollNumber, int receiverNextSequence, long bitmap) {
+		boolean progress = false;
+		for (int sequence = baseSequence; sequence != nextSequence; sequence = (sequence + 1) % StreamFrames.SEQUENCE_MODULO) {
+			final int slot = sequence % SLOTS_COUNT;
+			if (acknowledged[slot]) {
+				continue;
+			}
+			final int distance = StreamFrames.distance(sequence, receiverNextSequence);
+			if (distance < 0 || (distance < SLOTS_COUNT && (bitmap & (1L << distance)) != 0)) {
+				acknowledged[slot] = true;
+				lost[slot] = false;
+				progress = true;
+			} else if ((byte) (echoedPollNumber - epochs[slot]) > 0) {
+				// Sent before the POLL read by the receiver and not received
+				lost[slot] = true;
+			}
+		}
+		while (baseSequence != nextSequence && acknowledged[baseSequence % SLOTS_COUNT]) {
+			baseSequence = (baseSequence + 1) % StreamFrames.SEQUENCE_MODULO;
+		}
+		return progress;
+	}
+
+	private boolean hasLostFrames() {
+		for (int sequence = baseSequence; sequence != nextSequence; sequence = (sequence + 1) % StreamFrames.SEQUENCE_MODULO) {
+			if (lost[sequence % SLOTS_COUNT]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int getInFlightCount() {
+		return StreamFrames.distance(nextSequence, baseSequence);
+	}
+
+	/* =================
+	 * Getters / Setters
+	 * ================= */
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public int getFlushTimeoutMillis() {
+		return flushTimeoutMillis;
+	}
+
+	/**
+	 * Set the timeout to send the frames of a window.
+	 * 
+	 * @param flushTimeoutMillis	The timeout in milliseconds.
+	 */
+	public void setFlushTimeoutMillis(int flushTimeoutMillis) {
+		this.flushTimeoutMillis = flushTimeoutMillis;
+	}
+
+	public int getMaxPollsWithoutProgress() {
+		return maxPollsWithoutProgress;
+	}
+
+	/**
+	 * Set the number of POLL without new acknowledged frames before a timeout.
+	 * 
+	 * @param maxPollsWithoutProgress	The number of POLL (at least 1).
+	 */
+	public void setMaxPollsWithoutProgress(int maxPollsWithoutProgress) {
+		if (maxPollsWithoutProgress <= 0) {
+			throw new IllegalArgumentException("maxPollsWithoutProgress must be positive");
+		}
+		this.maxPollsWithoutProgress = maxPollsWithoutProgress;
+	}
+
+	public long getSentFramesCount() {
+		return sentFramesCount;
+	}
+
+	public long getRetransmittedFramesCount() {
+		return retransmittedFramesCount;
+	}
+
+	public long getPollsCount() {
+		return pollsCount;
+	}
+
+}
@@ -0,0 +1,174 @@
+package fr.jstessier.rf24.stream;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import fr.jstessier.rf24.RF24;
+
+/**
+ * Format of the frames of the reliable stream protocol.
+ * 
+ * <pre>
+ * DATA (sent without acknowledgment) : type, sequence number (2 bytes, MSByte first), 1 to 29 bytes of data
+ * POLL (sent with acknowledgment)    : type, poll number
+ * SACK (in the acknowledgment payload of a POLL) : type, echoed poll number,
+ *                                      next expected sequence number (2 bytes, MSByte first),
+ *                                      bitmap of the sequence numbers received after it (8 bytes, LSByte first)
+ * </pre>
+ * The SACK returned with a POLL is written by the receiver when it reads the previous POLL : the echoed
+ * poll number tells the sender which DATA frames were read by the receiver before the SACK.
+ * 
+ * @author J.S. TESSIER
+ */
+public final class StreamFrames {
+
+	/** Type of the DATA frames. */
+	public static final byte TYPE_DATA = 0x01;
+
+	/** Type of the POLL frames. */
+	public static final byte TYPE_POLL = 0x02;
+
+	/** Type of the SACK frames. */
+	public static final byte TYPE_SACK = 0x03;
+
+	/** Size of the header of a DATA frame. */
+	public static final int DATA_HEADER_SIZE = 3;
+
+	/** Maximum size of the data of a DATA frame. */
+	public static final int MAX_DATA_SIZE = RF24.MAX_PAYLOAD_SIZE - DATA_HEADER_SIZE;
+
+	/** Size of a POLL frame. */
+	public static final int POLL_SIZE = 2;
+
+	/** Size of a SACK frame. */
+	public static final int SACK_SIZE = 12;
+
+	/** Number of sequence numbers in the bitmap of a SACK (maximum window size). */
+	public static final int SACK_BITMAP_SIZE = 64;
+
+	/** Number of sequence numbers (16 bits). */
+	public static final int SEQUENCE_MODULO = 0x10000;
+
+	/**
+	 * Private constructor.
+	 */
+	private StreamFrames() {
+		// NOP
+	}
+
+	/**
+	 * Return the type of a frame.
+	 * 
+	 * @param frame		The frame.
+	 * @param length	The length of the frame.
+	 * @return	The type of the frame or 0 if the frame is too short.
+	 */
+	public static byte getType(byte[] frame, int length) {
+		if (length <= 0) {
+			return 0;
+		}
+		switch (frame[0]) {
+		case TYPE_DATA:
+			return length > DATA_HEADER_SIZE ? TYPE_DATA : 0;
+		case TYPE_POLL:
+			return length >= POLL_SIZE ? TYPE_POLL : 0;
+		case TYPE_SACK:
+			return length >= SACK_SIZE ? TYPE_SACK : 0;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Return the distance between two sequence numbers (negative if the sequence number is before the base).
+	 * 
+	 * @param sequence	The sequence number.
+	 * @param base		The base sequence number.
+	 * @return	The distance from the base to the sequence number.
+	 */
+	public static int distance(int sequence, int base) {
+		return (short) (sequence - base);
+	}
+
+	/* ====
+	 * DATA
+	 * ==== */
+
+	public static void writeDataHeader(byte[] frame, int sequence) {
+		frame[0] = TYPE_DATA;
+		frame[1] = (byte) (sequence >>> 8);
+		frame[2] = (byte) sequence;
+	}
+
+	public static int getSequence(byte[] frame) {
+		return ((frame[1] & 0xFF) << 8) | (frame[2] & 0xFF);
+	}
+
+	/* ====
+	 * POLL
+	 * ==== */
+
+	public static void writePoll(byte[] frame, byte pollNumber) {
+		frame[0] = TYPE_POLL;
+		frame[1] = pollNumber;
+	}
+
+	public static byte getPollNumber(byte[] frame) {
+		return frame[1];
+	}
+
+	/* ====
+	 * SACK
+	 * ==== */
+
+	/**
+	 * Write a SACK frame.
+	 * 
+	 * @param frame			The frame buffer.
+	 * @param pollNumber	The number of the POLL read by the receiver.
+	 * @param nextSequence	The next sequence number expected by the receiver.
+	 * @param bitmap		The bitmap of the sequence numbers received after the next expected one (bit 0 is nextSequence).
+	 */
+	public static void writeSack(byte[] frame, byte pollNumber, int nextSequence, long bitmap) {
+		frame[0] = TYPE_SACK;
+		frame[1] = pollNumber;
+		frame[2] = (byte) (nextSequence >>> 8);
+		frame[3] = (byte) nextSequence;
+		for (int i = 0; i < 8; i++) {
+			frame[4 + i] = (byte) (bitmap >>> (8 * i));
+		}
+	}
+
+	public static byte getSackPollNumber(byte[] frame) {
+		return frame[1];
+	}
+
+	public static int getSackNextSequence(byte[] frame) {
+		return ((frame[2] & 0xFF) << 8) | (frame[3] & 0xFF);
+	}
+
+	public static long getSackBitmap(byte[] frame) {
+		long bitmap = 0;
+		for (int i = 0; i < 8; i++) {
+			bitmap |= (frame[4 + i] & 0xFFL) << (8 * i);
+		}
+		return bitmap;
+	}
+
+}
@@ -20,7 +20,9 @@ package fr.jstessier.rf24.utils;
  */
 
 import fr.jstessier.rf24.Registers.Register;
+import fr.jstessier.rf24.SpiCommands;
 import fr.jstessier.rf24.SpiCommands.SpiCommand;
+import fr.jstessier.rf24.SpiCommands.SpiCommandCommon;
 import fr.jstessier.rf24.SpiCommands.SpiCommandReadWriteRegister;
 import fr.jstessier.rf24.exceptions.SpiCommandRequestLengthException;
 
@@ -31,6 +33,11 @@ import fr.jstessier.rf24.exceptions.SpiCommandRequestLengthException;
  */
 public class SpiCommandsUtils {
 
+	/** The commands without register address or data pipe in the command value. */
+	private static final SpiCommand[] FIXED_COMMANDS = new SpiCommand[] {
+			SpiCommands.R_RX_PAYLOAD, SpiCommands.W_TX_PAYLOAD, SpiCommands.FLUSH_TX, SpiCommands.FLUSH_RX,
+			SpiCommands.REUSE_TX_PL, SpiCommands.R_RX_PL_WID, SpiCommands.W_TX_PAYLOAD_NOACK, SpiCommands.NOP };
+
 	/**
 	 * Private constructor.
 	 */
@@ -70,8 +77,43 @@ public class SpiCommandsUtils {
 		return (byte) (spiCommand.getBaseCommand() | (byte) (spiCommand.getCommandRegisterMask() & registerAddress));
 	}
 
+	/**
+	 * Return the spi command of a command value (the register address or the data pipe of the value are ignored).
+	 * 
+	 * @param command	The command value.
+	 * @return	The SpiCommand or null if the value is not a command.
+	 */
+	public static SpiCommandCommon getSpiCommandFromValue(final byte command) {
+		if ((command & ~SpiCommands.R_REGISTER.getCommandRegisterMask()) == SpiCommands.R_REGISTER.getBaseCommand()) {
+			return SpiCommands.R_REGISTER;
+		}
+		if ((command & ~SpiCommands.W_REGISTER.getCommandRegisterMask()) == SpiCommands.W_REGISTER.getBaseCommand()) {
+			return SpiCommands.W_REGISTER;
+		}
+		// The 3 LSBits of W_ACK_PAYLOAD are the data pipe
+		if ((byte) (command & 0b11111000) == SpiCommands.W_ACK_PAYLOAD.getCommand()) {
+			return SpiCommands.W_ACK_PAYLOAD;
+		}
+		for (SpiCommand spiCommand : FIXED_COMMANDS) {
+			if (spiCommand.getCommand() == command) {
+				return spiCommand;
+			}
+		}
+		return null;
+	}
+
 	public static void checkDataLength(final SpiCommand spiCommand, final byte... data) {
-		int requestLength = (data == null) ? 0 : data.length;
+		checkLength(spiCommand, (data == null) ? 0 : data.length);
+	}
+
+	/**
+	 * Check the length of the data of a spi command.
+	 * 
+	 * @param spiCommand	The SpiCommand.
+	 * @param requestLength	The length of the data.
+	 * @throws SpiCommandRequestLengthException	If the length is out of the range of the command.
+	 */
+	public static void checkLength(final SpiCommand spiCommand, final int requestLength) {
 		if (requestLength < spiCommand.getDataMinLength() || requestLength > spiCommand.getDataMaxLength()) {
 			throw new SpiCommandRequestLengthException(spiCommand.getName(), requestLength, 
 					spiCommand.getDataMinLength(), spiCommand.getDataMaxLength());
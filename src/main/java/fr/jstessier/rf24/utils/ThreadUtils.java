@@ -19,19 +19,41 @@ package fr.jstessier.rf24.utils;
  * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
  */
 
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Utilities for thread.
  * 
+ * The milliseconds delays sleep.
+ * The microseconds delays are done with a hybrid timer : the thread is parked for the beginning of the delay and
+ * spins on {@link System#nanoTime()} for the end, because a park (or a sleep) wakes up tens of microseconds late.
+ * The spin threshold is the park latency measured by {@link #calibrate()} (on the first delay if not done before),
+ * capped to {@link #MAX_SPIN_THRESHOLD_NANOS} so that a delay never burns more than a few microseconds of CPU.
+ * 
  * @author J.S. TESSIER
  */
 public class ThreadUtils {
 
+	/** Number of parks measured by the calibration. */
+	private static final int CALIBRATION_SAMPLES = 20;
+
+	/** Duration of the parks measured by the calibration in nanoseconds. */
+	private static final long CALIBRATION_PARK_NANOS = 50000;
+
+	/** Maximum spin threshold in nanoseconds (10µs, the CE pulse). */
+	public static final long MAX_SPIN_THRESHOLD_NANOS = 10000;
+
+	/** Remaining delay under which the thread spins instead of parking, in nanoseconds (-1 if not calibrated). */
+	private static volatile long spinThresholdNanos = -1;
+
 	private ThreadUtils() {
 		// NOP
 	}
 
 	/**
 	 * Delay in milliseconds.
+	 * An interruption ends the delay early, the interrupted status of the thread is kept.
 	 * 
 	 * @param milliseconds	The length of time to sleep in milliseconds.
 	 */
@@ -39,7 +61,7 @@ public class ThreadUtils {
 		try {
 			Thread.sleep(milliseconds);
 		} catch (InterruptedException e) {
-			// NOP
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -49,11 +71,77 @@ public class ThreadUtils {
 	 * @param microseconds	The length of time to sleep in microseconds.
 	 */
 	public static void delayMicroseconds(int microseconds) {
-		try {
-			Thread.sleep(0, microseconds * 1000);
-		} catch (InterruptedException e) {
-			// NOP
+		delayNanos(microseconds * 1000L);
+	}
+
+	/**
+	 * Delay in nanoseconds : park while the remaining delay is over the spin threshold, then spin.
+	 * An interruption ends the delay early (without spinning), the interrupted status of the thread is kept.
+	 * 
+	 * @param nanoseconds	The length of time to wait in nanoseconds.
+	 * @return	The achieved delay in nanoseconds.
+	 */
+	public static long delayNanos(long nanoseconds) {
+		final long startTime = System.nanoTime();
+		if (nanoseconds <= 0) {
+			return 0;
+		}
+		final long deadline = startTime + nanoseconds;
+		final long threshold = getSpinThresholdNanos();
+		long remaining = nanoseconds;
+		while (remaining > threshold) {
+			if (Thread.currentThread().isInterrupted()) {
+				return System.nanoTime() - startTime;
+			}
+			LockSupport.parkNanos(remaining - threshold);
+			remaining = deadline - System.nanoTime();
+		}
+		while (remaining > 0) {
+			remaining = deadline - System.nanoTime();
+		}
+		return System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Measure the park latency of this system and use it as spin threshold.
+	 * 
+	 * @return	The spin threshold in nanoseconds.
+	 */
+	public static long calibrate() {
+		long[] latencies = new long[CALIBRATION_SAMPLES];
+		for (int i = 0; i < CALIBRATION_SAMPLES; i++) {
+			long startTime = System.nanoTime();
+			LockSupport.parkNanos(CALIBRATION_PARK_NANOS);
+			latencies[i] = System.nanoTime() - startTime - CALIBRATION_PARK_NANOS;
+		}
+		Arrays.sort(latencies);
+		// 90th percentile : a park rarely wakes up later than the threshold
+		long latency = latencies[CALIBRATION_SAMPLES * 9 / 10];
+		spinThresholdNanos = Math.min(Math.max(latency, 0), MAX_SPIN_THRESHOLD_NANOS);
+		return spinThresholdNanos;
+	}
+
+	/**
+	 * Return the remaining delay under which the thread spins instead of parking (calibrated on the first call).
+	 * 
+	 * @return	The spin threshold in nanoseconds.
+	 */
+	public static long getSpinThresholdNanos() {
+		long threshold = spinThresholdNanos;
+		return (threshold < 0) ? calibrate() : threshold;
+	}
+
+	/**
+	 * Set the spin threshold instead of the calibrated one.
+	 * 0 never spins, the threshold is capped to {@link #MAX_SPIN_THRESHOLD_NANOS}.
+	 * 
+	 * @param nanoseconds	The spin threshold in nanoseconds.
+	 */
+	public static void setSpinThresholdNanos(long nanoseconds) {
+		if (nanoseconds < 0) {
+			throw new IllegalArgumentException("The spin threshold must be positive");
 		}
+		spinThresholdNanos = Math.min(nanoseconds, MAX_SPIN_THRESHOLD_NANOS);
 	}
 
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ *
+ * This file is part of java-rf24.
+ *
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+/*
+ * JNI shim of fr.jstessier.rf24.hardware.spidev.SpidevTransport and GpioChardevLine
+ * (GPIO character device, uAPI v2 : Linux 5.10 or later).
+ *
+ * gcc -shared -fPIC -O2 -I$JAVA_HOME/include -I$JAVA_HOME/include/linux -o librf24spidev.so rf24spidev.c
+ */
+
+/* ppoll */
+#define _GNU_SOURCE
+
+#include <errno.h>
+#include <fcntl.h>
+#include <poll.h>
+#include <signal.h>
+#include <stdint.h>
+#include <string.h>
+#include <time.h>
+#include <unistd.h>
+#include <sys/ioctl.h>
+#include <linux/gpio.h>
+#include <linux/spi/spidev.h>
+#include <jni.h>
+
+#define MAX_TRANSFERS_COUNT 16
+
+#define GPIO_CONSUMER "java-rf24"
+
+#define GPIO_EVENTS_COUNT 16
+
+JNIEXPORT jint JNICALL Java_fr_jstessier_rf24_hardware_spidev_SpidevTransport_open(JNIEnv *env, jclass clazz,
+		jstring devicePath, jint mode, jint speed) {
+	const char *path = (*env)->GetStringUTFChars(env, devicePath, NULL);
+	int fd = open(path, O_RDWR);
+	(*env)->ReleaseStringUTFChars(env, devicePath, path);
+	if (fd < 0) {
+		return -errno;
+	}
+	uint8_t spiMode = (uint8_t) mode;
+	uint8_t bitsPerWord = 8;
+	uint32_t maxSpeed = (uint32_t) speed;
+	if (ioctl(fd, SPI_IOC_WR_MODE, &spiMode) < 0
+			|| ioctl(fd, SPI_IOC_WR_BITS_PER_WORD, &bitsPerWord) < 0
+			|| ioctl(fd, SPI_IOC_WR_MAX_SPEED_HZ, &maxSpeed) < 0) {
+		int error = errno;
+		close(fd);
+		return -error;
+	}
+	return fd;
+}
+
+JNIEXPORT jint JNICALL Java_fr_jstessier_rf24_hardware_spidev_SpidevTransport_transfer(JNIEnv *env, jclass clazz,
+		jint fd, jobject buffer, jint offset, jintArray lengths, jint count, jint speed) {
+	struct spi_ioc_transfer transfers[MAX_TRANSFERS_COUNT];
+	jint transferLengths[MAX_TRANSFERS_COUNT];
+	uint8_t *data = (uint8_t *) (*env)->GetDirectBufferAddress(env, buffer);
+	if (data == NULL || count <= 0 || count > MAX_TRANSFERS_COUNT) {
+		return -EINVAL;
+	}
+	(*env)->GetIntArrayRegion(env, lengths, 0, count, transferLengths);
+	memset(transfers, 0, sizeof(transfers));
+	data += offset;
+	for (int i = 0; i < count; i++) {
+		/* In place : the received bytes replace the sent bytes */
+		transfers[i].tx_buf = (uintptr_t) data;
+		transfers[i].rx_buf = (uintptr_t) data;
+		transfers[i].len = (uint32_t) transferLengths[i];
+		transfers[i].speed_hz = (uint32_t) speed;
+		transfers[i].bits_per_word = 8;
+		/* The chip select is released between the transfers (each one is a command) */
+		transfers[i].cs_change = (i < count - 1) ? 1 : 0;
+		data += transferLengths[i];
+	}
+	int result = ioctl(fd, SPI_IOC_MESSAGE(count), transfers);
+	return (result < 0) ? -errno : result;
+}
+
+JNIEXPORT void JNICALL Java_fr_jstessier_rf24_hardware_spidev_SpidevTransport_close(JNIEnv *env, jclass clazz, jint fd) {
+	close(fd);
+}
+
+/*
+ * GPIO line : one line of a GPIO chip requested as an output (with its initial value),
+ * or as an input with pull up and falling edge events.
+ */
+
+JNIEXPORT jint JNICALL Java_fr_jstessier_rf24_hardware_spidev_GpioChardevLine_open(JNIEnv *env, jclass clazz,
+		jstring chipPath, jint offset, jboolean output, jboolean initialValue) {
+	const char *path = (*env)->GetStringUTFChars(env, chipPath, NULL);
+	int chipFd = open(path, O_RDWR | O_CLOEXEC);
+	(*env)->ReleaseStringUTFChars(env, chipPath, path);
+	if (chipFd < 0) {
+		return -errno;
+	}
+	struct gpio_v2_line_request request;
+	memset(&request, 0, sizeof(request));
+	request.offsets[0] = (uint32_t) offset;
+	request.num_lines = 1;
+	strncpy(request.consumer, GPIO_CONSUMER, GPIO_MAX_NAME_SIZE - 1);
+	if (output) {
+		request.config.flags = GPIO_V2_LINE_FLAG_OUTPUT;
+		request.config.num_attrs = 1;
+		request.config.attrs[0].attr.id = GPIO_V2_LINE_ATTR_ID_OUTPUT_VALUES;
+		request.config.attrs[0].attr.values = initialValue ? 1 : 0;
+		request.config.attrs[0].mask = 1;
+	} else {
+		request.config.flags = GPIO_V2_LINE_FLAG_INPUT | GPIO_V2_LINE_FLAG_BIAS_PULL_UP | GPIO_V2_LINE_FLAG_EDGE_FALLING;
+	}
+	int result = ioctl(chipFd, GPIO_V2_GET_LINE_IOCTL, &request);
+	int error = errno;
+	/* The line stays requested through its own file descriptor */
+	close(chipFd);
+	return (result < 0) ? -error : request.fd;
+}
+
+JNIEXPORT jint JNICALL Java_fr_jstessier_rf24_hardware_spidev_GpioChardevLine_setValue(JNIEnv *env, jclass clazz,
+		jint fd, jboolean value) {
+	struct gpio_v2_line_values values;
+	values.bits = value ? 1 : 0;
+	values.mask = 1;
+	return (ioctl(fd, GPIO_V2_LINE_SET_VALUES_IOCTL, &values) < 0) ? -errno : 0;
+}
+
+JNIEXPORT jint JNICALL Java_fr_jstessier_rf24_hardware_spidev_GpioChardevLine_getValue(JNIEnv *env, jclass clazz,
+		jint fd) {
+	struct gpio_v2_line_values values;
+	values.bits = 0;
+	values.mask = 1;
+	return (ioctl(fd, GPIO_V2_LINE_GET_VALUES_IOCTL, &values) < 0) ? -errno : (int) (values.bits & 1);
+}
+
+JNIEXPORT jint JNICALL Java_fr_jstessier_rf24_hardware_spidev_GpioChardevLine_waitForEdge(JNIEnv *env, jclass clazz,
+		jint fd, jlong timeoutMicroseconds) {
+	struct pollfd pollFd;
+	pollFd.fd = fd;
+	pollFd.events = POLLIN;
+	pollFd.revents = 0;
+	struct timespec timeout;
+	timeout.tv_sec = (time_t) (timeoutMicroseconds / 1000000);
+	timeout.tv_nsec = (long) (timeoutMicroseconds % 1000000) * 1000;
+	int result = ppoll(&pollFd, 1, &timeout, NULL);
+	if (result <= 0) {
+		/* Timeout, or interrupted by a signal (seen as a timeout, the level is checked again) */
+		return (result < 0 && errno != EINTR) ? -errno : 0;
+	}
+	/* Consume the pending events, the next wait blocks until a new edge */
+	struct gpio_v2_line_event events[GPIO_EVENTS_COUNT];
+	ssize_t length = read(fd, events, sizeof(events));
+	return (length < 0) ? -errno : (int) (length / sizeof(struct gpio_v2_line_event));
+}
+
+JNIEXPORT void JNICALL Java_fr_jstessier_rf24_hardware_spidev_GpioChardevLine_close(JNIEnv *env, jclass clazz, jint fd) {
+	close(fd);
+}
@@ -0,0 +1,194 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.RF24RuntimeException;
+import fr.jstessier.rf24.exceptions.WritePayloadException;
+import fr.jstessier.rf24.hardware.RF24HardwareFake;
+import fr.jstessier.rf24.hardware.emulator.AirPacket;
+import fr.jstessier.rf24.hardware.emulator.EmulatorScheduler;
+import fr.jstessier.rf24.hardware.emulator.RF24HardwareEmulator;
+import fr.jstessier.rf24.hardware.emulator.VirtualMedium;
+
+/**
+ * Tests for AckPayloadChannel and AckPayloadRequester, between emulated modules (real time).
+ * 
+ * @author J.S. TESSIER
+ */
+public class AckPayloadChannelTest {
+
+	private static final byte[] GATEWAY_ADDRESS = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 };
+
+	private RF24RadioLoop gateway;
+
+	private AckPayloadChannel channel;
+
+	private RF24 node;
+
+	@Before
+	public void setUp() throws Exception {
+		VirtualMedium medium = new VirtualMedium(EmulatorScheduler.realTime(), 1);
+		RF24 gatewayRf24 = new RF24(medium.createModule()).initialize();
+		gatewayRf24.openReadingPipe(DataPipe.P1, GATEWAY_ADDRESS);
+		channel = new AckPayloadChannel(gatewayRf24, 4);
+		gateway = new RF24RadioLoop(gatewayRf24).start();
+		gateway.setIdleTimeMicroseconds(100);
+		gateway.addRxListener(channel);
+		gateway.startReceiving().get(1, TimeUnit.SECONDS);
+
+		node = new RF24(medium.createModule()).initialize();
+		node.openWritingPipe(GATEWAY_ADDRESS);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		assertTrue(gateway.close(1000));
+	}
+
+	@Test
+	public void responses_are_received_in_order() throws Exception {
+		for (int i = 1; i <= 4; i++) {
+			assertTrue(channel.offer(DataPipe.P1, new byte[] { (byte) i, (byte) (i * 10) }));
+		}
+		assertFalse(channel.offer(DataPipe.P1, new byte[] { 5 }));
+		// The TX FIFO is loaded in advance
+		assertEquals(Integer.valueOf(3), gateway.submit(rf24 -> channel.refill()).get(1, TimeUnit.SECONDS));
+		assertEquals(1, channel.getQueuedResponsesCount(DataPipe.P1));
+
+		final List<byte[]> responses = new ArrayList<>();
+		AckPayloadRequester requester = new AckPayloadRequester(node, packet -> responses.add(packet.getPayload()));
+		// The first 3 requests get a response without waiting for the radio thread
+		for (int i = 0; i < 3; i++) {
+			assertTrue(requester.send(new byte[] { 42 }));
+		}
+		// The last response is loaded when a request is read by the radio thread
+		for (int i = 0; i < 100 && responses.size() < 4; i++) {
+			Thread.sleep(1);
+			requester.send(new byte[] { 42 });
+		}
+
+		assertEquals(4, responses.size());
+		for (int i = 1; i <= 4; i++) {
+			assertArrayEquals(new byte[] { (byte) i, (byte) (i * 10) }, responses.get(i - 1));
+		}
+		assertEquals(4, requester.getResponsesCount());
+		assertEquals(4, channel.getLoadedResponsesCount());
+		assertEquals(0, channel.getQueuedResponsesCount(DataPipe.P1));
+	}
+
+	@Test
+	public void request_not_acknowledged_is_flushed() throws Exception {
+		// Nobody receives the request
+		RF24HardwareEmulator alone = new RF24HardwareEmulator();
+		RF24 rf24 = new RF24(alone).initialize();
+		rf24.openWritingPipe(GATEWAY_ADDRESS);
+		AckPayloadRequester requester = new AckPayloadRequester(rf24, packet -> { });
+		try {
+			requester.send(new byte[] { 42 });
+			throw new AssertionError("WritePayloadException expected");
+		} catch (WritePayloadException e) {
+			assertEquals(0, alone.getTxFifoSize());
+		}
+	}
+
+	@Test(expected = RF24RuntimeException.class)
+	public void refill_failure_is_thrown_to_the_radio_loop() throws RF24Exception {
+		RF24HardwareFake failing = new RF24HardwareFake() {
+			@Override
+			public synchronized byte[] spiWrite(byte... data) throws RF24Exception {
+				throw new RF24Exception("SPI failure");
+			}
+		};
+		AckPayloadChannel failingChannel = new AckPayloadChannel(new RF24(failing));
+		failingChannel.offer(DataPipe.P1, new byte[] { 1 });
+		failingChannel.onReceived(new RxPacket());
+	}
+
+	@Test
+	public void refill_reads_tx_fifo_after_batch_with_retransmission() throws Exception {
+		EmulatorScheduler scheduler = EmulatorScheduler.virtualTime();
+		RF24HardwareEmulator module = new VirtualMedium(scheduler, 1).createModule();
+		RF24 rf24 = new RF24(module).initialize();
+		rf24.openReadingPipe(DataPipe.P1, GATEWAY_ADDRESS);
+		rf24.startListening();
+		scheduler.advance(RF24HardwareEmulator.TPD2STBY_NANOS + RF24HardwareEmulator.TSTBY2A_NANOS);
+		AckPayloadChannel batchChannel = new AckPayloadChannel(rf24, 8);
+		for (int i = 1; i <= 5; i++) {
+			batchChannel.offer(DataPipe.P1, new byte[] { (byte) i });
+		}
+		assertEquals(3, batchChannel.refill());
+
+		// The acknowledgment of the first request is lost : the retransmission consumes the second response
+		assertArrayEquals(new byte[] { 1 }, receiveRequest(module, 0).getPayload());
+		assertArrayEquals(new byte[] { 2 }, receiveRequest(module, 0).getPayload());
+		assertArrayEquals(new byte[] { 3 }, receiveRequest(module, 1).getPayload());
+
+		// 2 payloads read in one batch, the TX FIFO is empty
+		RxPacket[] packets = new RxPacket[] { new RxPacket(), new RxPacket(), new RxPacket() };
+		int count = rf24.drainRx(packets);
+		assertEquals(2, count);
+		for (int i = 0; i < count; i++) {
+			batchChannel.onReceived(packets[i]);
+		}
+		assertEquals(0, batchChannel.getQueuedResponsesCount(DataPipe.P1));
+		batchChannel.offer(DataPipe.P1, new byte[] { 6 });
+		assertEquals(1, batchChannel.refill());
+		for (int i = 4; i <= 6; i++) {
+			assertArrayEquals(new byte[] { (byte) i }, receiveRequest(module, i % 4).getPayload());
+		}
+		assertEquals(6, batchChannel.getLoadedResponsesCount());
+	}
+
+	/**
+	 * Give a request to the module (received on the air) and return its acknowledgment.
+	 */
+	private static AirPacket receiveRequest(RF24HardwareEmulator module, int pid) {
+		AirPacket request = new AirPacket(module.getChannel(), module.getDataRates(), GATEWAY_ADDRESS,
+				new byte[] { (byte) pid }, pid, false, 2);
+		return module.receive(request);
+	}
+
+	@Test
+	public void no_response_without_offer() throws Exception {
+		final List<byte[]> responses = new ArrayList<>();
+		AckPayloadRequester requester = new AckPayloadRequester(node, packet -> responses.add(packet.getPayload()));
+
+		assertFalse(requester.send(new byte[] { 1, 2, 3 }, 1, 2));
+
+		assertTrue(responses.isEmpty());
+		assertEquals(1, requester.getRequestsCount());
+	}
+
+}
@@ -0,0 +1,114 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadMaxRetriesException;
+import fr.jstessier.rf24.hardware.emulator.EmulatorScheduler;
+import fr.jstessier.rf24.hardware.emulator.VirtualMedium;
+
+/**
+ * Tests for RF24AsyncSender, on emulated modules.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24AsyncSenderTest {
+
+	private static final byte[] ADDRESS = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 };
+
+	private VirtualMedium medium;
+
+	private RF24 transmitter;
+
+	private RF24AsyncSender sender;
+
+	@Before
+	public void setUp() throws RF24Exception {
+		medium = new VirtualMedium(EmulatorScheduler.virtualTime(), 1);
+		transmitter = new RF24(medium.createModule()).initialize();
+		transmitter.openWritingPipe(ADDRESS);
+		sender = new RF24AsyncSender(transmitter);
+	}
+
+	@After
+	public void tearDown() {
+		sender.close();
+	}
+
+	@Test
+	public void sendAsync_completed_with_result() throws Exception {
+		RF24 receiver = new RF24(medium.createModule()).initialize();
+		receiver.openReadingPipe(DataPipe.P1, ADDRESS);
+		receiver.startListening();
+
+		CompletableFuture<TxResult> first = sender.sendAsync((byte) 1);
+		CompletableFuture<TxResult> second = sender.sendAsync((byte) 2, (byte) 3);
+		assertArrayEquals(new byte[] { 1 }, first.get(5, TimeUnit.SECONDS).getPayload());
+		TxResult result = second.get(5, TimeUnit.SECONDS);
+		assertArrayEquals(new byte[] { 2, 3 }, result.getPayload());
+		assertEquals(0, result.getRetransmittedPacketsCount());
+		assertEquals(2, medium.getModules().get(1).getRxFifoSize());
+	}
+
+	@Test
+	public void sendAsync_failed_with_max_retries_and_payload_flushed() throws Exception {
+		CompletableFuture<TxResult> failed = sender.sendAsync((byte) 1);
+		try {
+			failed.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof WritePayloadMaxRetriesException);
+		}
+		// The failed payload was flushed
+		assertEquals(0, medium.getModules().get(0).getTxFifoSize());
+	}
+
+	@Test
+	public void sendAsync_copies_the_payload() throws Exception {
+		transmitter.disableAutoAcknowledgmentOnAllPipes();
+		byte[] payload = new byte[] { 1 };
+		CompletableFuture<TxResult> future = sender.sendAsync(payload);
+		payload[0] = 2;
+		assertArrayEquals(new byte[] { 1 }, future.get(5, TimeUnit.SECONDS).getPayload());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void sendAsync_after_close() {
+		sender.close();
+		assertFalse(sender.isOpen());
+		sender.sendAsync((byte) 1);
+	}
+
+}
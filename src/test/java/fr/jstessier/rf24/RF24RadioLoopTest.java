@@ -0,0 +1,174 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.hardware.emulator.EmulatorScheduler;
+import fr.jstessier.rf24.hardware.emulator.VirtualMedium;
+
+/**
+ * Tests for RF24RadioLoop, on emulated modules (real time).
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24RadioLoopTest {
+
+	private static final byte[] GATEWAY_ADDRESS = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 };
+
+	private static final byte[] NODE_ADDRESS = new byte[] { 0x11, 0x12, 0x13, 0x14, 0x15 };
+
+	private VirtualMedium medium;
+
+	private RF24RadioLoop gateway;
+
+	private RF24RadioLoop node;
+
+	private final List<Byte> received = Collections.synchronizedList(new ArrayList<>());
+
+	@Before
+	public void setUp() throws Exception {
+		medium = new VirtualMedium(EmulatorScheduler.realTime(), 1);
+		RF24 gatewayRf24 = new RF24(medium.createModule()).initialize();
+		gatewayRf24.openReadingPipe(DataPipe.P1, GATEWAY_ADDRESS);
+		gatewayRf24.openWritingPipe(NODE_ADDRESS);
+		gateway = new RF24RadioLoop(gatewayRf24).start();
+		gateway.setIdleTimeMicroseconds(200);
+		gateway.addRxListener(packet -> received.add(packet.getPayloadBuffer()[0]));
+		gateway.startReceiving().get(1, TimeUnit.SECONDS);
+
+		RF24 nodeRf24 = new RF24(medium.createModule()).initialize();
+		nodeRf24.openReadingPipe(DataPipe.P1, NODE_ADDRESS);
+		nodeRf24.openWritingPipe(GATEWAY_ADDRESS);
+		node = new RF24RadioLoop(nodeRf24).start();
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		assertTrue(node.close(1000));
+		assertTrue(gateway.close(1000));
+	}
+
+	@Test
+	public void sendAsync_from_many_threads() throws Exception {
+		final List<CompletableFuture<TxResult>> futures = Collections.synchronizedList(new ArrayList<>());
+		List<Thread> producers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			final int producer = t;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 5; i++) {
+					futures.add(node.sendAsync((byte) (producer * 10 + i)));
+				}
+			});
+			producers.add(thread);
+			thread.start();
+		}
+		for (Thread thread : producers) {
+			thread.join();
+		}
+		for (CompletableFuture<TxResult> future : futures) {
+			future.get(5, TimeUnit.SECONDS);
+		}
+		// The last payloads may still be in the RX FIFO of the gateway
+		awaitSize(received, 20);
+		assertEquals(20, received.size());
+	}
+
+	@Test
+	public void sendAsync_while_receiving_returns_to_rx_mode() throws Exception {
+		node.startReceiving().get(1, TimeUnit.SECONDS);
+		node.sendAsync((byte) 1).get(5, TimeUnit.SECONDS);
+		assertTrue(node.submit(RF24::isListening).get(1, TimeUnit.SECONDS));
+		// The gateway answers to the node
+		List<Byte> nodeReceived = Collections.synchronizedList(new ArrayList<>());
+		node.addRxListener(packet -> nodeReceived.add(packet.getPayloadBuffer()[0]));
+		gateway.sendAsync((byte) 2).get(5, TimeUnit.SECONDS);
+		awaitSize(nodeReceived, 1);
+		assertEquals(Collections.singletonList((byte) 1), received);
+		assertEquals(Collections.singletonList((byte) 2), nodeReceived);
+	}
+
+	@Test
+	public void submit_returns_result_or_exception() throws Exception {
+		assertEquals(76, node.submit(RF24::getFrequencyChannel).get(1, TimeUnit.SECONDS).byteValue());
+		CompletableFuture<Object> failed = node.submit(rf24 -> {
+			throw new RF24Exception("Failure");
+		});
+		try {
+			failed.get(1, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RF24Exception);
+		}
+	}
+
+	@Test
+	public void listener_exception_published_and_loop_keeps_running() throws Exception {
+		final List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+		gateway.addRxListener(new RxListener() {
+			@Override
+			public void onReceived(RxPacket packet) {
+				throw new IllegalStateException("Listener failure");
+			}
+
+			@Override
+			public void onError(Exception exception) {
+				errors.add(exception);
+			}
+		});
+		node.sendAsync((byte) 1).get(5, TimeUnit.SECONDS);
+		awaitSize(errors, 1);
+		assertTrue(errors.get(0) instanceof IllegalStateException);
+		// The other listeners still receive the payloads and the requests are still executed
+		node.sendAsync((byte) 2).get(5, TimeUnit.SECONDS);
+		awaitSize(received, 2);
+		assertEquals(2, received.size());
+		assertTrue(gateway.submit(RF24::isListening).get(1, TimeUnit.SECONDS));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void submit_after_close() {
+		node.close();
+		node.submit(rf24 -> null);
+	}
+
+	private static void awaitSize(List<?> list, int size) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 1000;
+		while (list.size() < size && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+	}
+
+}
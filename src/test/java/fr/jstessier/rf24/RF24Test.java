@@ -0,0 +1,231 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.enums.DataRates;
+import fr.jstessier.rf24.enums.OutputPower;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.RegistersCacheDivergenceException;
+import fr.jstessier.rf24.exceptions.WritePayloadMaxRetriesException;
+import fr.jstessier.rf24.hardware.RF24HardwareFake;
+
+/**
+ * Tests for RF24.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24Test {
+
+	private RF24HardwareFake hardware;
+
+	private RF24 rf24;
+
+	@Before
+	public void setUp() throws RF24Exception {
+		hardware = new RF24HardwareFake();
+		rf24 = new RF24(hardware);
+	}
+
+	@Test
+	public void readRegisterValue_served_by_cache_after_first_read() throws RF24Exception {
+		rf24.readRegisterValue(Registers.CONFIG);
+		int transfers = hardware.getSpiTransfers();
+		rf24.readRegisterValue(Registers.CONFIG);
+		assertEquals(transfers, hardware.getSpiTransfers());
+	}
+
+	@Test
+	public void readRegisterValue_not_cached_for_volatile_register() throws RF24Exception {
+		rf24.readRegisterValue(Registers.FIFO_STATUS);
+		int transfers = hardware.getSpiTransfers();
+		rf24.readRegisterValue(Registers.FIFO_STATUS);
+		assertEquals(transfers + 1, hardware.getSpiTransfers());
+	}
+
+	@Test
+	public void setter_only_writes_when_register_is_cached() throws RF24Exception {
+		rf24.setDataRatesAndOutputPower(DataRates.DR_1_MBPS, OutputPower.RF_0_DBM);
+		int transfers = hardware.getSpiTransfers();
+		rf24.setDataRatesAndOutputPower(DataRates.DR_2_MBPS, OutputPower.RF_M_6_DBM);
+		assertEquals(transfers + 1, hardware.getSpiTransfers());
+		assertEquals(DataRates.DR_2_MBPS, rf24.getDataRates());
+		assertEquals(OutputPower.RF_M_6_DBM, rf24.getOutputPower());
+	}
+
+	@Test
+	public void resync_reads_the_module() throws RF24Exception {
+		rf24.setFrequencyChannel((byte) 76);
+		hardware.setRegister(0x05, (byte) 10);
+		assertEquals(76, rf24.getFrequencyChannel());
+		rf24.resync();
+		assertEquals(10, rf24.getFrequencyChannel());
+	}
+
+	@Test
+	public void verification_detects_divergence() throws RF24Exception {
+		rf24.setFrequencyChannel((byte) 76);
+		hardware.setRegister(0x05, (byte) 10);
+		rf24.setRegistersCacheVerification(true);
+		try {
+			rf24.getFrequencyChannel();
+			throw new AssertionError("RegistersCacheDivergenceException expected");
+		} catch (RegistersCacheDivergenceException e) {
+			assertEquals("RF_CH", e.getRegisterName());
+		}
+		// The module value is kept after the divergence
+		assertEquals(10, rf24.getFrequencyChannel());
+	}
+
+	@Test
+	public void sendPayload_waits_irq_instead_of_polling() throws RF24Exception {
+		hardware.setIrqAvailable(true);
+		hardware.setTxResult((byte) 0b00100000, 20);
+		int transfers = hardware.getSpiTransfers();
+		rf24.sendPayload((byte) 1, (byte) 2);
+		// Write payload, STATUS after the IRQ, clear TX interrupts
+		assertTrue(hardware.getSpiTransfers() - transfers <= 4);
+	}
+
+	@Test(expected = WritePayloadMaxRetriesException.class)
+	public void sendPayload_max_retries_with_irq() throws RF24Exception {
+		hardware.setIrqAvailable(true);
+		hardware.setTxResult((byte) 0b00010000, 5);
+		rf24.sendPayload((byte) 1);
+	}
+
+	@Test
+	public void waitRxDataAvailable_with_irq() throws RF24Exception {
+		hardware.setIrqAvailable(true);
+		assertFalse(rf24.waitRxDataAvailable(10));
+		hardware.receiveLater(20, DataPipe.P2.getIndex());
+		assertTrue(rf24.waitRxDataAvailable(1000));
+		assertTrue(rf24.isRxDataAvailable(DataPipe.P2));
+	}
+
+	@Test
+	public void waitRxDataAvailable_clears_stale_rx_interrupt() throws RF24Exception {
+		hardware.setIrqAvailable(true);
+		hardware.receive(DataPipe.P1.getIndex(), (byte) 1);
+		// FLUSH_RX does not clear RX_DR
+		rf24.flushRx();
+		int transfers = hardware.getSpiTransfers();
+		assertFalse(rf24.waitRxDataAvailable(50));
+		assertEquals(0, hardware.getRegister(Registers.STATUS.getAddress()) & 0b01000000);
+		assertTrue(hardware.getSpiTransfers() - transfers < 10);
+	}
+
+	@Test
+	public void waitRxDataAvailable_without_irq() throws RF24Exception {
+		hardware.receiveLater(20, DataPipe.P1.getIndex());
+		assertTrue(rf24.waitRxDataAvailable(1000));
+	}
+
+	@Test
+	public void drainRx_reads_all_payloads_with_their_pipe() throws RF24Exception {
+		rf24.enableDynamicPayloadAndAutoAcknowledgmentOnAllPipes();
+		hardware.receive(DataPipe.P1.getIndex(), (byte) 1, (byte) 2);
+		hardware.receive(DataPipe.P3.getIndex(), (byte) 3);
+		hardware.receive(DataPipe.P1.getIndex(), (byte) 4, (byte) 5, (byte) 6);
+		RxPacket[] packets = new RxPacket[] { new RxPacket(), new RxPacket(), new RxPacket(), new RxPacket() };
+		int transfers = hardware.getSpiTransfers();
+
+		assertEquals(3, rf24.drainRx(packets));
+
+		assertEquals(DataPipe.P1, packets[0].getDataPipe());
+		assertArrayEquals(new byte[] { 1, 2 }, packets[0].getPayload());
+		assertEquals(DataPipe.P3, packets[1].getDataPipe());
+		assertArrayEquals(new byte[] { 3 }, packets[1].getPayload());
+		assertEquals(DataPipe.P1, packets[2].getDataPipe());
+		assertArrayEquals(new byte[] { 4, 5, 6 }, packets[2].getPayload());
+		// 2 transfers per payload, then empty check, RX_DR clear and empty check (in one batch)
+		assertEquals(9, hardware.getSpiTransfers() - transfers);
+		assertEquals(1, hardware.getSpiBatches());
+		assertEquals(0, hardware.getRegister(0x07) & 0b01000000);
+	}
+
+	@Test
+	public void drainRx_keeps_rx_dr_when_buffer_is_full() throws RF24Exception {
+		rf24.enableDynamicPayloadAndAutoAcknowledgmentOnAllPipes();
+		hardware.receive(DataPipe.P0.getIndex(), (byte) 1);
+		hardware.receive(DataPipe.P0.getIndex(), (byte) 2);
+
+		assertEquals(1, rf24.drainRx(new RxPacket[] { new RxPacket() }));
+
+		assertEquals(1, hardware.getRxFifoSize());
+		assertTrue((hardware.getRegister(0x07) & 0b01000000) != 0);
+	}
+
+	@Test
+	public void readPayload_in_caller_buffer() throws RF24Exception {
+		hardware.receive(DataPipe.P1.getIndex(), (byte) 7, (byte) 8, (byte) 9);
+		byte[] buffer = new byte[5];
+		int transfers = hardware.getSpiTransfers();
+
+		rf24.readPayload(buffer, 2, 3);
+
+		assertArrayEquals(new byte[] { 0, 0, 7, 8, 9 }, buffer);
+		assertEquals(0, hardware.getRegister(0x07) & 0b01000000);
+		// Payload read and RX_DR clear in one batch
+		assertEquals(2, hardware.getSpiTransfers() - transfers);
+		assertEquals(1, hardware.getSpiBatches());
+	}
+
+	@Test
+	public void isRxDataAvailable_answered_by_last_status() throws RF24Exception {
+		assertFalse(rf24.isRxDataAvailable());
+		hardware.receive(DataPipe.P2.getIndex(), (byte) 1);
+		int transfers = hardware.getSpiTransfers();
+		assertTrue(rf24.isRxDataAvailable());
+		assertEquals(transfers + 1, hardware.getSpiTransfers());
+		// The payload stays in the RX FIFO until it is read: no more transfers
+		assertTrue(rf24.isRxDataAvailable(DataPipe.P2));
+		assertFalse(rf24.isRxDataAvailable(DataPipe.P1));
+		assertEquals(transfers + 1, hardware.getSpiTransfers());
+	}
+
+	@Test
+	public void isRxDataAvailable_reads_status_after_payload_read() throws RF24Exception {
+		hardware.receive(DataPipe.P1.getIndex(), (byte) 1);
+		assertTrue(rf24.isRxDataAvailable());
+		rf24.readPayload((byte) 1);
+		assertFalse(rf24.isRxDataAvailable());
+	}
+
+	@Test
+	public void getLastStatus_keeps_rx_pipe_after_tx_interrupts_reset() throws RF24Exception {
+		hardware.receive(DataPipe.P3.getIndex(), (byte) 1);
+		rf24.getStatus();
+		rf24.resetTxInterrupt();
+		assertEquals(DataPipe.P3.getIndex(), (rf24.getLastStatus() >> 1) & 0b111);
+		int transfers = hardware.getSpiTransfers();
+		assertTrue(rf24.isRxDataAvailable(DataPipe.P3));
+		assertEquals(transfers, hardware.getSpiTransfers());
+	}
+
+}
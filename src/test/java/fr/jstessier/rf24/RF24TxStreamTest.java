@@ -0,0 +1,191 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadTimeoutException;
+import fr.jstessier.rf24.hardware.RF24HardwareFake;
+
+/**
+ * Tests for RF24TxStream.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24TxStreamTest {
+
+	/** Fake hardware with a TX FIFO : the test decides when the payloads leave it. */
+	private static class TxFifoHardware extends RF24HardwareFake {
+
+		private static final int STATUS = 0x07;
+
+		private static final int FIFO_STATUS = 0x17;
+
+		private int txFifoCount = 0;
+
+		@Override
+		public synchronized byte[] spiWrite(byte... data) throws RF24Exception {
+			int command = data[0] & 0xFF;
+			if (command == 0xA0 || command == 0xB0) {
+				// W_TX_PAYLOAD and W_TX_PAYLOAD_NOACK
+				txFifoCount++;
+			} else if (command == 0xE1) {
+				// FLUSH_TX
+				txFifoCount = 0;
+			}
+			updateFifoStatus();
+			return super.spiWrite(data);
+		}
+
+		/** The payloads at the head of the TX FIFO are delivered (TX_DS). */
+		synchronized void deliver(int count) {
+			txFifoCount -= count;
+			updateFifoStatus();
+			setRegister(STATUS, (byte) (getRegister(STATUS) | 0b00100000));
+		}
+
+		/** The payload at the head of the TX FIFO reached the max retries (MAX_RT), the module halts. */
+		synchronized void maxRetries() {
+			setRegister(STATUS, (byte) (getRegister(STATUS) | 0b00010000));
+		}
+
+		synchronized int getTxFifoCount() {
+			return txFifoCount;
+		}
+
+		private void updateFifoStatus() {
+			int fifoStatus = 0b00000001;
+			if (txFifoCount == 0) {
+				fifoStatus |= 0b00010000;
+			} else if (txFifoCount >= RF24TxStream.TX_FIFO_SIZE) {
+				fifoStatus |= 0b00100000;
+			}
+			setRegister(FIFO_STATUS, (byte) fifoStatus);
+		}
+
+	}
+
+	private TxFifoHardware hardware;
+
+	private RF24 rf24;
+
+	private final List<Byte> delivered = new ArrayList<>();
+
+	private final List<Byte> failed = new ArrayList<>();
+
+	private final TxStreamListener listener = new TxStreamListener() {
+
+		@Override
+		public void onDelivered(byte[] payload) {
+			delivered.add(payload[0]);
+		}
+
+		@Override
+		public void onMaxRetries(byte[] payload) {
+			failed.add(payload[0]);
+		}
+
+	};
+
+	@Before
+	public void setUp() throws RF24Exception {
+		hardware = new TxFifoHardware();
+		rf24 = new RF24(hardware);
+	}
+
+	@Test
+	public void stream_keeps_fifo_full_and_reports_in_order() throws RF24Exception {
+		RF24TxStream stream = rf24.openTxStream(listener);
+		assertTrue(hardware.isChipEnable());
+		for (byte i = 1; i <= 5; i++) {
+			stream.send(i);
+		}
+		// 3 payloads in the TX FIFO, 2 waiting
+		assertEquals(RF24TxStream.TX_FIFO_SIZE, hardware.getTxFifoCount());
+		assertEquals(5, stream.getUnresolvedCount());
+
+		hardware.deliver(3);
+		assertEquals(3, stream.poll());
+		assertEquals(2, hardware.getTxFifoCount());
+
+		hardware.deliver(2);
+		stream.flush(100);
+		assertArrayEquals(new Byte[] { 1, 2, 3, 4, 5 }, delivered.toArray());
+		assertTrue(failed.isEmpty());
+		assertEquals(0, stream.getUnresolvedCount());
+
+		stream.close();
+		assertFalse(hardware.isChipEnable());
+	}
+
+	@Test
+	public void max_retries_reports_failed_payload_and_writes_next_again() throws RF24Exception {
+		RF24TxStream stream = rf24.openTxStream(listener);
+		for (byte i = 1; i <= 3; i++) {
+			stream.send(i);
+		}
+		// The first payload is delivered, the second one fails : 2 payloads left in the TX FIFO
+		hardware.deliver(1);
+		hardware.maxRetries();
+
+		assertEquals(2, stream.poll());
+		assertArrayEquals(new Byte[] { 1 }, delivered.toArray());
+		assertArrayEquals(new Byte[] { 2 }, failed.toArray());
+		// The TX FIFO is flushed and the third payload is written again
+		assertEquals(1, hardware.getTxFifoCount());
+		assertEquals(1, stream.getUnresolvedCount());
+		assertEquals(0, hardware.getRegister(0x07) & 0b00110000);
+
+		hardware.deliver(1);
+		stream.flush(100);
+		assertArrayEquals(new Byte[] { 1, 3 }, delivered.toArray());
+		stream.close();
+	}
+
+	@Test
+	public void awaitUnresolvedBelow_returns_when_payloads_leave_the_fifo() throws RF24Exception {
+		RF24TxStream stream = rf24.openTxStream(listener);
+		for (byte i = 1; i <= 4; i++) {
+			stream.send(i);
+		}
+		try {
+			stream.awaitUnresolvedBelow(4, 20);
+			throw new AssertionError("WritePayloadTimeoutException expected");
+		} catch (WritePayloadTimeoutException e) {
+			assertEquals(4, stream.getUnresolvedCount());
+		}
+		hardware.deliver(1);
+		stream.awaitUnresolvedBelow(4, 100);
+		assertEquals(3, stream.getUnresolvedCount());
+		assertArrayEquals(new Byte[] { 1 }, delivered.toArray());
+		stream.close();
+	}
+
+}
@@ -0,0 +1,123 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.enums.DataRates;
+import fr.jstessier.rf24.enums.OutputPower;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.RegisterBitsMaskException;
+import fr.jstessier.rf24.hardware.RF24HardwareFake;
+
+/**
+ * Tests for RegistersTransaction.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RegistersTransactionTest {
+
+	private RF24HardwareFake hardware;
+
+	private RF24 rf24;
+
+	@Before
+	public void setUp() throws RF24Exception {
+		hardware = new RF24HardwareFake();
+		rf24 = new RF24(hardware);
+	}
+
+	@Test
+	public void commit_merges_bits_of_the_same_register() throws RF24Exception {
+		hardware.setRegister(Registers.CONFIG.getAddress(), (byte) 0b01000000);
+		int written = rf24.beginTransaction()
+				.set(Registers.CONFIG.EN_CRC, true)
+				.set(Registers.CONFIG.CRCO, true)
+				.set(Registers.CONFIG.PWR_UP, true)
+				.commit();
+		assertEquals(1, written);
+		// One read (partial register) and one write
+		assertEquals(2, hardware.getSpiTransfers());
+		assertEquals((byte) 0b01001110, hardware.getRegister(Registers.CONFIG.getAddress()));
+	}
+
+	@Test
+	public void commit_does_not_read_fully_set_register() throws RF24Exception {
+		rf24.beginTransaction()
+				.set(Registers.SETUP_RETR.ARD, (byte) 5)
+				.set(Registers.SETUP_RETR.ARC, (byte) 3)
+				.set(Registers.RF_CH, (byte) 40)
+				.commit();
+		assertEquals(2, hardware.getSpiTransfers());
+		assertEquals((byte) 0x53, hardware.getRegister(Registers.SETUP_RETR.getAddress()));
+		assertEquals((byte) 40, hardware.getRegister(Registers.RF_CH.getAddress()));
+	}
+
+	@Test
+	public void commit_skips_unchanged_registers() throws RF24Exception {
+		rf24.setDataRatesAndOutputPower(DataRates.DR_2_MBPS, OutputPower.RF_0_DBM);
+		rf24.setFrequencyChannel((byte) 10);
+		hardware.setRegister(Registers.EN_AA.getAddress(), (byte) 0b00111111);
+		int transfers = hardware.getSpiTransfers();
+		int written = rf24.beginTransaction()
+				.set(Registers.RF_SETUP.RF_DR_HIGH, true)
+				.set(Registers.RF_CH, (byte) 10)
+				.set(Registers.EN_AA.ENAA_P0, true)
+				.commit();
+		// RF_SETUP and RF_CH are cached and unchanged, EN_AA is read from the module
+		assertEquals(0, written);
+		assertEquals(transfers + 1, hardware.getSpiTransfers());
+	}
+
+	@Test
+	public void commit_clears_the_transaction() throws RF24Exception {
+		RegistersTransaction transaction = rf24.beginTransaction().set(Registers.RF_CH, (byte) 10);
+		assertFalse(transaction.isEmpty());
+		transaction.commit();
+		assertTrue(transaction.isEmpty());
+		assertEquals(0, transaction.commit());
+	}
+
+	@Test(expected = RegisterBitsMaskException.class)
+	public void set_checks_bits_mask() {
+		rf24.beginTransaction().set(Registers.SETUP_AW.AW, (byte) 4);
+	}
+
+	@Test
+	public void initialize_writes_default_configuration() throws RF24Exception {
+		rf24.initialize();
+		assertTrue(hardware.getSpiTransfers() <= 15);
+		assertEquals((byte) 0b00001110, hardware.getRegister(Registers.CONFIG.getAddress()));
+		assertEquals((byte) 0b00111111, hardware.getRegister(Registers.EN_AA.getAddress()));
+		assertEquals((byte) 0b00000011, hardware.getRegister(Registers.SETUP_AW.getAddress()));
+		assertEquals((byte) 0x5F, hardware.getRegister(Registers.SETUP_RETR.getAddress()));
+		assertEquals((byte) 76, hardware.getRegister(Registers.RF_CH.getAddress()));
+		assertEquals(DataRates.DR_1_MBPS, rf24.getDataRates());
+		assertEquals(OutputPower.RF_0_DBM, rf24.getOutputPower());
+		assertEquals((byte) 0b00111111, hardware.getRegister(Registers.DYNPD.getAddress()));
+		assertEquals((byte) 0b00000110, hardware.getRegister(Registers.FEATURE.getAddress()));
+	}
+
+}
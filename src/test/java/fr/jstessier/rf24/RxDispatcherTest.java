@@ -0,0 +1,142 @@
+package fr.jstessier.rf24;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.enums.DataPipe;
+
+/**
+ * Tests for RxDispatcher.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RxDispatcherTest {
+
+	private RxDispatcher dispatcher;
+
+	private final RxPacket packet = new RxPacket();
+
+	private final List<String> dispatched = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		dispatcher = new RxDispatcher(2);
+	}
+
+	private void receive(DataPipe dataPipe, byte value) {
+		packet.set(dataPipe, new byte[] { value }, 0, 1);
+		dispatcher.onReceived(packet);
+	}
+
+	private RxListener record(String name) {
+		return rxPacket -> dispatched.add(name + rxPacket.getPayloadBuffer()[0]);
+	}
+
+	@Test
+	public void dispatch_routes_payloads_to_the_handler_of_their_pipe() {
+		dispatcher.setHandler(DataPipe.P1, record("a")).setHandler(DataPipe.P5, record("b"));
+		receive(DataPipe.P5, (byte) 1);
+		receive(DataPipe.P1, (byte) 2);
+		assertEquals(2, dispatcher.dispatch(10));
+		assertEquals("[a2, b1]", dispatched.toString());
+	}
+
+	@Test
+	public void dispatch_serves_pipes_in_turn() {
+		dispatcher = new RxDispatcher(4);
+		dispatcher.setHandler(DataPipe.P0, record("a")).setHandler(DataPipe.P3, record("b"));
+		receive(DataPipe.P0, (byte) 1);
+		receive(DataPipe.P0, (byte) 2);
+		receive(DataPipe.P0, (byte) 3);
+		receive(DataPipe.P3, (byte) 4);
+		assertEquals(4, dispatcher.dispatch(10));
+		assertEquals("[a1, b4, a2, a3]", dispatched.toString());
+	}
+
+	@Test
+	public void payloads_are_dropped_when_queue_is_full_or_without_handler() {
+		dispatcher.setHandler(DataPipe.P2, record("a"));
+		receive(DataPipe.P2, (byte) 1);
+		receive(DataPipe.P2, (byte) 2);
+		receive(DataPipe.P2, (byte) 3);
+		receive(DataPipe.P4, (byte) 4);
+		assertEquals(2, dispatcher.getQueuedPacketsCount(DataPipe.P2));
+		assertEquals(1, dispatcher.getDroppedPacketsCount(DataPipe.P2));
+		assertEquals(1, dispatcher.getDroppedPacketsCount(DataPipe.P4));
+		assertEquals(1, dispatcher.dispatch(1));
+		assertEquals(1, dispatcher.getQueuedPacketsCount(DataPipe.P2));
+		assertEquals("[a1]", dispatched.toString());
+	}
+
+	@Test
+	public void handler_exception_does_not_block_the_pipe() {
+		final List<Exception> errors = new ArrayList<>();
+		dispatcher.setHandler(DataPipe.P1, new RxListener() {
+			@Override
+			public void onReceived(RxPacket rxPacket) {
+				if (rxPacket.getPayloadBuffer()[0] == 1) {
+					throw new IllegalStateException("handler failure");
+				}
+				dispatched.add("a" + rxPacket.getPayloadBuffer()[0]);
+			}
+
+			@Override
+			public void onError(Exception exception) {
+				errors.add(exception);
+			}
+		});
+		receive(DataPipe.P1, (byte) 1);
+		receive(DataPipe.P1, (byte) 2);
+		assertEquals(2, dispatcher.dispatch(10));
+		assertEquals("[a2]", dispatched.toString());
+		assertEquals(1, errors.size());
+		assertEquals(1, dispatcher.getFailedPacketsCount(DataPipe.P1));
+		assertEquals(0, dispatcher.getQueuedPacketsCount(DataPipe.P1));
+		assertEquals(0, dispatcher.dispatch(10));
+	}
+
+	@Test
+	public void dispatch_with_timeout_waits_for_the_radio_thread() throws InterruptedException {
+		dispatcher.setHandler(DataPipe.P1, record("a"));
+		assertEquals(0, dispatcher.dispatch(10, 10));
+		Thread radioThread = new Thread(() -> {
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				return;
+			}
+			RxPacket radioPacket = new RxPacket();
+			radioPacket.set(DataPipe.P1, new byte[] { 7 }, 0, 1);
+			dispatcher.onReceived(radioPacket);
+		});
+		radioThread.start();
+		assertEquals(1, dispatcher.dispatch(10, 1000));
+		radioThread.join();
+		assertEquals("[a7]", dispatched.toString());
+	}
+
+}
@@ -0,0 +1,202 @@
+package fr.jstessier.rf24.capture;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.RF24RadioLoop;
+import fr.jstessier.rf24.RF24TxStream;
+import fr.jstessier.rf24.TxStreamListener;
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.hardware.emulator.EmulatorScheduler;
+import fr.jstessier.rf24.hardware.emulator.VirtualMedium;
+
+/**
+ * Tests for the capture in a ring file and its replay.
+ * 
+ * @author J.S. TESSIER
+ */
+public class CaptureTest {
+
+	private static final byte[] GATEWAY_ADDRESS = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 };
+
+	private static final int PACKETS_COUNT = 50;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void ring_keeps_the_last_records() throws IOException {
+		Path path = folder.newFile("ring.cap").toPath();
+		try (RingCaptureWriter writer = new RingCaptureWriter(path, 4)) {
+			for (int i = 1; i <= 6; i++) {
+				writer.onTx((byte) 76, (byte) 0x2E, new byte[] { 0, (byte) i, 0 }, 1, 1);
+			}
+			assertEquals(6, writer.getLastSequence());
+		}
+
+		RingCaptureReader reader = new RingCaptureReader(path);
+		assertEquals(3, reader.getFirstSequence());
+		assertEquals(6, reader.getLastSequence());
+		CaptureRecord record = new CaptureRecord();
+		assertFalse(reader.read(2, record));
+		for (int i = 3; i <= 6; i++) {
+			assertTrue(reader.next(record));
+			assertEquals(i, record.getSequence());
+			assertEquals(CaptureRecordType.TX, record.getType());
+			assertEquals(76, record.getChannel());
+			assertEquals(0x2E, record.getStatus());
+			assertArrayEquals(new byte[] { (byte) i }, record.getData());
+		}
+		assertFalse(reader.next(record));
+		assertTrue(reader.rewind().next(record));
+		assertEquals(3, record.getSequence());
+	}
+
+	@Test(expected = IOException.class)
+	public void reader_rejects_other_files() throws IOException {
+		Path path = folder.newFile("other.cap").toPath();
+		Files.write(path, new byte[CaptureFormat.HEADER_SIZE]);
+		new RingCaptureReader(path);
+	}
+
+	@Test
+	public void captured_traffic_is_replayed() throws Exception {
+		Path path = folder.newFile("traffic.cap").toPath();
+		VirtualMedium medium = new VirtualMedium(EmulatorScheduler.realTime(), 1);
+		RingCaptureWriter writer = new RingCaptureWriter(path, 4096);
+
+		// Capture of the payloads and the SPI transfers of the gateway
+		RF24 gatewayRf24 = new RF24(new RF24HardwareCapture(medium.createModule(), writer)).initialize();
+		gatewayRf24.setCapture(writer);
+		gatewayRf24.openReadingPipe(DataPipe.P1, GATEWAY_ADDRESS);
+		BitSet received = new BitSet();
+		RF24RadioLoop gateway = receive(gatewayRf24, received);
+		RF24 node = new RF24(medium.createModule()).initialize();
+		node.openWritingPipe(GATEWAY_ADDRESS);
+		for (int i = 0; i < PACKETS_COUNT; i++) {
+			node.sendPayload((byte) i, (byte) 0xAA);
+		}
+		gateway.submit(rf24 -> null).get(1, TimeUnit.SECONDS);
+		assertTrue(gateway.close(1000));
+		writer.close();
+		assertEquals(PACKETS_COUNT, received.cardinality());
+
+		RingCaptureReader reader = new RingCaptureReader(path);
+		CaptureRecord record = new CaptureRecord();
+		int rxCount = 0;
+		int spiCount = 0;
+		while (reader.next(record)) {
+			if (record.getType() == CaptureRecordType.RX) {
+				assertEquals(1, record.getDataPipe());
+				assertEquals(76, record.getChannel());
+				assertArrayEquals(new byte[] { (byte) rxCount, (byte) 0xAA }, record.getData());
+				rxCount++;
+			} else if (record.getType() == CaptureRecordType.SPI) {
+				spiCount++;
+			}
+		}
+		assertEquals(PACKETS_COUNT, rxCount);
+		assertTrue(spiCount > PACKETS_COUNT);
+
+		// Replay of the received payloads through the driver
+		CaptureReplayHardware replayHardware = new CaptureReplayHardware(reader.rewind());
+		RF24 replayRf24 = new RF24(replayHardware).initialize();
+		replayRf24.openReadingPipe(DataPipe.P1, GATEWAY_ADDRESS);
+		BitSet replayed = new BitSet();
+		RF24RadioLoop replay = receive(replayRf24, replayed);
+		for (int i = 0; i < 100 && !replayHardware.isFinished(); i++) {
+			Thread.sleep(10);
+		}
+		replay.submit(rf24 -> null).get(1, TimeUnit.SECONDS);
+		assertTrue(replay.close(1000));
+		assertEquals(PACKETS_COUNT, replayHardware.getReplayedPacketsCount());
+		assertEquals(received, replayed);
+	}
+
+	@Test
+	public void tx_stream_payloads_are_captured() throws Exception {
+		Path emptyPath = folder.newFile("empty.cap").toPath();
+		new RingCaptureWriter(emptyPath, 16).close();
+		Path path = folder.newFile("tx.cap").toPath();
+
+		// The replay module acknowledges the packets
+		RF24 rf24 = new RF24(new CaptureReplayHardware(new RingCaptureReader(emptyPath))).initialize();
+		try (RingCaptureWriter writer = new RingCaptureWriter(path, 64)) {
+			rf24.setCapture(writer);
+			rf24.openWritingPipe(GATEWAY_ADDRESS);
+			BitSet delivered = new BitSet();
+			try (RF24TxStream stream = rf24.openTxStream(new TxStreamListener() {
+				@Override
+				public void onDelivered(byte[] payload) {
+					delivered.set(payload[0]);
+				}
+
+				@Override
+				public void onMaxRetries(byte[] payload) {
+				}
+			})) {
+				for (int i = 0; i < 5; i++) {
+					stream.send((byte) i, (byte) 0x55);
+				}
+				stream.flush(1000);
+			}
+			assertEquals(5, delivered.cardinality());
+		}
+
+		RingCaptureReader reader = new RingCaptureReader(path);
+		CaptureRecord record = new CaptureRecord();
+		int txCount = 0;
+		while (reader.next(record)) {
+			assertEquals(CaptureRecordType.TX, record.getType());
+			assertEquals(76, record.getChannel());
+			assertArrayEquals(new byte[] { (byte) txCount, (byte) 0x55 }, record.getData());
+			txCount++;
+		}
+		assertEquals(5, txCount);
+	}
+
+	private static RF24RadioLoop receive(RF24 rf24, BitSet received) throws Exception {
+		RF24RadioLoop loop = new RF24RadioLoop(rf24).start();
+		loop.setIdleTimeMicroseconds(100);
+		loop.addRxListener(packet -> {
+			synchronized (received) {
+				received.set(packet.getPayloadBuffer()[0]);
+			}
+		});
+		loop.startReceiving().get(1, TimeUnit.SECONDS);
+		return loop;
+	}
+
+}
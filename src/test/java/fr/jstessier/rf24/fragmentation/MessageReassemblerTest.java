@@ -0,0 +1,170 @@
+package fr.jstessier.rf24.fragmentation;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.RxPacket;
+import fr.jstessier.rf24.enums.DataPipe;
+
+/**
+ * Tests for MessageReassembler (and the format of the fragments).
+ * 
+ * @author J.S. TESSIER
+ */
+public class MessageReassemblerTest {
+
+	private final List<byte[]> messages = new ArrayList<>();
+
+	private MessageReassembler reassembler;
+
+	@Before
+	public void setUp() {
+		reassembler = new MessageReassembler(1000, (dataPipe, message, length) -> messages.add(Arrays.copyOf(message, length)));
+	}
+
+	private static byte[] createMessage(int length) {
+		byte[] message = new byte[length];
+		for (int i = 0; i < length; i++) {
+			message[i] = (byte) i;
+		}
+		return message;
+	}
+
+	private void receive(DataPipe dataPipe, byte messageId, int index, byte[] message) {
+		byte[] fragment = new byte[Fragments.getFragmentSize(message.length, index)];
+		Fragments.writeFragment(fragment, messageId, index, message, 0, message.length);
+		receive(dataPipe, fragment);
+	}
+
+	private void receive(DataPipe dataPipe, byte[] fragment) {
+		RxPacket packet = new RxPacket() {
+			@Override
+			public byte[] getPayloadBuffer() {
+				return fragment;
+			}
+			@Override
+			public int getLength() {
+				return fragment.length;
+			}
+			@Override
+			public DataPipe getDataPipe() {
+				return dataPipe;
+			}
+		};
+		reassembler.onReceived(packet);
+	}
+
+	@Test
+	public void fragments_header() {
+		byte[] message = createMessage(100);
+		assertEquals(4, Fragments.getFragmentsCount(message.length));
+		byte[] fragment = new byte[Fragments.getFragmentSize(message.length, 3)];
+		Fragments.writeFragment(fragment, (byte) 9, 3, message, 0, message.length);
+		assertEquals(3 + 100 - 87, fragment.length);
+		assertEquals(9, Fragments.getMessageId(fragment));
+		assertEquals(3, Fragments.getIndex(fragment));
+		assertEquals(true, Fragments.isLast(fragment));
+		assertEquals(87, fragment[3]);
+	}
+
+	@Test
+	public void message_reassembled_out_of_order() {
+		byte[] message = createMessage(100);
+		receive(DataPipe.P1, (byte) 1, 3, message);
+		receive(DataPipe.P1, (byte) 1, 1, message);
+		receive(DataPipe.P1, (byte) 1, 0, message);
+		assertEquals(0, messages.size());
+		receive(DataPipe.P1, (byte) 1, 2, message);
+		assertEquals(1, messages.size());
+		assertArrayEquals(message, messages.get(0));
+	}
+
+	@Test
+	public void duplicated_fragments_are_ignored() {
+		byte[] message = createMessage(40);
+		receive(DataPipe.P2, (byte) 5, 0, message);
+		receive(DataPipe.P2, (byte) 5, 0, message);
+		receive(DataPipe.P2, (byte) 5, 1, message);
+		// Late copy after the delivery
+		receive(DataPipe.P2, (byte) 5, 1, message);
+		assertEquals(1, messages.size());
+		assertEquals(2, reassembler.getDuplicatedFragmentsCount());
+		assertEquals(1, reassembler.getCompletedMessagesCount());
+	}
+
+	@Test
+	public void messages_of_each_pipe_are_reassembled_separately() {
+		byte[] message1 = createMessage(50);
+		byte[] message2 = createMessage(30);
+		receive(DataPipe.P1, (byte) 0, 0, message1);
+		receive(DataPipe.P3, (byte) 0, 0, message2);
+		receive(DataPipe.P3, (byte) 0, 1, message2);
+		receive(DataPipe.P1, (byte) 0, 1, message1);
+		assertEquals(2, messages.size());
+		assertArrayEquals(message2, messages.get(0));
+		assertArrayEquals(message1, messages.get(1));
+	}
+
+	@Test
+	public void incomplete_message_is_abandoned_by_the_next_one() {
+		byte[] message = createMessage(60);
+		receive(DataPipe.P1, (byte) 1, 0, message);
+		receive(DataPipe.P1, (byte) 2, 0, message);
+		receive(DataPipe.P1, (byte) 2, 1, message);
+		receive(DataPipe.P1, (byte) 2, 2, message);
+		assertEquals(1, messages.size());
+		assertEquals(1, reassembler.getAbandonedMessagesCount());
+	}
+
+	@Test
+	public void invalid_fragment_does_not_abandon_the_message() {
+		byte[] message = createMessage(60);
+		receive(DataPipe.P1, (byte) 1, 0, message);
+		// A short fragment of another message which is not the last one
+		byte[] shortMessage = createMessage(10);
+		byte[] fragment = new byte[Fragments.getFragmentSize(shortMessage.length, 0)];
+		Fragments.writeFragment(fragment, (byte) 2, 0, shortMessage, 0, shortMessage.length);
+		fragment[1] = 0;
+		receive(DataPipe.P1, fragment);
+		receive(DataPipe.P1, (byte) 1, 1, message);
+		receive(DataPipe.P1, (byte) 1, 2, message);
+		assertEquals(1, messages.size());
+		assertArrayEquals(message, messages.get(0));
+		assertEquals(1, reassembler.getInvalidFragmentsCount());
+		assertEquals(0, reassembler.getAbandonedMessagesCount());
+	}
+
+	@Test
+	public void too_large_message_is_invalid() {
+		byte[] message = createMessage(1100);
+		receive(DataPipe.P1, (byte) 1, 37, message);
+		assertEquals(1, reassembler.getInvalidFragmentsCount());
+	}
+
+}
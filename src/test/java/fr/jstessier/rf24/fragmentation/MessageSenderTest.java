@@ -0,0 +1,93 @@
+package fr.jstessier.rf24.fragmentation;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.hardware.emulator.LockstepLink;
+
+/**
+ * Tests for MessageSender, between emulated modules (virtual time).
+ * 
+ * @author J.S. TESSIER
+ */
+public class MessageSenderTest {
+
+	private LockstepLink link;
+
+	private RF24 node;
+
+	private byte[] received;
+
+	private MessageReassembler reassembler;
+
+	@Before
+	public void setUp() throws Exception {
+		link = new LockstepLink();
+		reassembler = new MessageReassembler(10000, (dataPipe, message, length) -> received = Arrays.copyOf(message, length));
+		link.addRxListener(reassembler).startReceiving();
+		node = link.getNode();
+	}
+
+	private byte[] getReceived() throws Exception {
+		link.runGateway();
+		return received;
+	}
+
+	@Test
+	public void large_message_is_reassembled() throws Exception {
+		byte[] message = new byte[5000];
+		new Random(1).nextBytes(message);
+		MessageSender sender = new MessageSender(node);
+
+		sender.send(message);
+
+		assertArrayEquals(message, getReceived());
+		assertEquals(1, reassembler.getCompletedMessagesCount());
+	}
+
+	@Test
+	public void lost_fragments_are_sent_again() throws Exception {
+		byte[] message = new byte[2000];
+		new Random(2).nextBytes(message);
+		link.getMedium().setLossProbability(0.3);
+		MessageSender sender = new MessageSender(node);
+		sender.setMaxAttempts(20);
+
+		sender.send(message);
+
+		assertArrayEquals(message, getReceived());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void static_payloads_are_rejected() throws Exception {
+		node.disableDynamicPayloadOnAllPipes();
+		new MessageSender(node).send(new byte[100]);
+	}
+
+}
@@ -0,0 +1,242 @@
+package fr.jstessier.rf24.hardware;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import fr.jstessier.rf24.RegistersCache;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+
+/**
+ * Fake hardware for tests : a register map behind R_REGISTER / W_REGISTER commands.
+ * The RX FIFO is filled by the tests. Others commands only return the STATUS register.
+ * The end of a transmission and the reception of a payload can be simulated with an optional IRQ.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24HardwareFake implements RF24Hardware {
+
+	/** Address of the CONFIG register. */
+	private static final int CONFIG = 0x00;
+
+	/** Address of the STATUS register. */
+	private static final int STATUS = 0x07;
+
+	/** Address of the FIFO_STATUS register. */
+	private static final int FIFO_STATUS = 0x17;
+
+	/** Interrupt bits of the STATUS register. */
+	private static final int INTERRUPTS = 0b01110000;
+
+	/** The register map. */
+	private final byte[][] registers = new byte[RegistersCache.REGISTERS_COUNT][RegistersCache.REGISTER_MAX_LENGTH];
+
+	/** Number of SPI transfers. */
+	private int spiTransfers = 0;
+
+	/** Number of batches of SPI transfers. */
+	private int spiBatches = 0;
+
+	/** Chip enable pin state. */
+	private boolean chipEnable = false;
+
+	/** Is the IRQ pin connected. */
+	private boolean irqAvailable = false;
+
+	/** Wait on the IRQ pin. */
+	private final IrqSignal irqSignal = new IrqSignal(this::isIrqActive);
+
+	/** The RX FIFO (first byte is the data pipe, next bytes are the payload). */
+	private final Deque<byte[]> rxFifo = new ArrayDeque<>();
+
+	/** The STATUS bits raised at the end of a transmission (0 for no end). */
+	private byte txResult = 0;
+
+	/** The delay of the transmission in milliseconds. */
+	private long txDelayMillis = 0;
+
+	public RF24HardwareFake() {
+		registers[STATUS][0] = 0b00001110;
+		registers[FIFO_STATUS][0] = 0b00010001;
+	}
+
+	@Override
+	public synchronized void setPinChipEnableHigh() {
+		chipEnable = true;
+		boolean primaryRx = (registers[CONFIG][0] & 1) != 0;
+		if (!primaryRx && txResult != 0) {
+			final byte result = txResult;
+			raiseLater(txDelayMillis, () -> registers[STATUS][0] |= result);
+		}
+	}
+
+	@Override
+	public synchronized void setPinChipEnableLow() {
+		chipEnable = false;
+	}
+
+	@Override
+	public boolean isIrqAvailable() {
+		return irqAvailable;
+	}
+
+	@Override
+	public boolean waitForIrq(long timeoutMicroseconds) throws RF24Exception {
+		return irqSignal.await(timeoutMicroseconds);
+	}
+
+	/**
+	 * Simulate the reception of a payload after a delay.
+	 */
+	public void receiveLater(long delayMillis, int pipe) {
+		raiseLater(delayMillis, () -> pushRxFifo(pipe, (byte) 0));
+	}
+
+	/**
+	 * Simulate the reception of a payload.
+	 */
+	public void receive(int pipe, byte... payload) {
+		synchronized (this) {
+			pushRxFifo(pipe, payload);
+		}
+		irqSignal.fire();
+	}
+
+	private void pushRxFifo(int pipe, byte... payload) {
+		byte[] entry = new byte[payload.length + 1];
+		entry[0] = (byte) pipe;
+		System.arraycopy(payload, 0, entry, 1, payload.length);
+		rxFifo.addLast(entry);
+		registers[STATUS][0] |= 0b01000000;
+		updateRxFifoStatus();
+	}
+
+	/** Update RX_P_NO and FIFO_STATUS.RX_EMPTY from the RX FIFO. */
+	private void updateRxFifoStatus() {
+		int pipe = rxFifo.isEmpty() ? 0b111 : rxFifo.getFirst()[0];
+		registers[STATUS][0] = (byte) ((registers[STATUS][0] & 0b11110001) | (pipe << 1));
+		registers[FIFO_STATUS][0] = (byte) ((registers[FIFO_STATUS][0] & ~1) | (rxFifo.isEmpty() ? 1 : 0));
+	}
+
+	private void raiseLater(long delayMillis, Runnable update) {
+		Thread thread = new Thread(() -> {
+			try {
+				Thread.sleep(delayMillis);
+			} catch (InterruptedException e) {
+				return;
+			}
+			synchronized (RF24HardwareFake.this) {
+				update.run();
+			}
+			irqSignal.fire();
+		});
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private synchronized boolean isIrqActive() {
+		int unmasked = INTERRUPTS & ~registers[CONFIG][0];
+		return (registers[STATUS][0] & unmasked) != 0;
+	}
+
+	@Override
+	public synchronized byte[] spiWrite(byte... data) throws RF24Exception {
+		spiTransfers++;
+		byte[] result = new byte[data.length];
+		result[0] = registers[STATUS][0];
+		int command = data[0] & 0xFF;
+		if (command < 0x20) {
+			System.arraycopy(registers[command], 0, result, 1, Math.min(data.length - 1, RegistersCache.REGISTER_MAX_LENGTH));
+		} else if (command < 0x40) {
+			int address = command & 0x1F;
+			if (address == STATUS) {
+				// Write 1 to clear the interrupt bits
+				registers[STATUS][0] &= ~(data[1] & INTERRUPTS);
+			} else {
+				System.arraycopy(data, 1, registers[address], 0, Math.min(data.length - 1, RegistersCache.REGISTER_MAX_LENGTH));
+			}
+		} else if (command == 0x60 && !rxFifo.isEmpty()) {
+			// R_RX_PL_WID
+			result[1] = (byte) (rxFifo.getFirst().length - 1);
+		} else if (command == 0x61 && !rxFifo.isEmpty()) {
+			// R_RX_PAYLOAD
+			byte[] entry = rxFifo.removeFirst();
+			System.arraycopy(entry, 1, result, 1, Math.min(data.length, entry.length) - 1);
+			updateRxFifoStatus();
+		} else if (command == 0xE2) {
+			// FLUSH_RX
+			rxFifo.clear();
+			updateRxFifoStatus();
+		}
+		return result;
+	}
+
+	@Override
+	public synchronized void spiTransfers(byte[] buffer, int offset, int[] lengths, int count) throws RF24Exception {
+		spiBatches++;
+		RF24Hardware.super.spiTransfers(buffer, offset, lengths, count);
+	}
+
+	/**
+	 * Change a register without using the SPI bus (like a reset of the module).
+	 */
+	public synchronized void setRegister(int address, byte... value) {
+		Arrays.fill(registers[address], (byte) 0);
+		System.arraycopy(value, 0, registers[address], 0, value.length);
+	}
+
+	public synchronized byte getRegister(int address) {
+		return registers[address][0];
+	}
+
+	public void setIrqAvailable(boolean irqAvailable) {
+		this.irqAvailable = irqAvailable;
+	}
+
+	/**
+	 * Set the result of the next transmissions.
+	 * 
+	 * @param txResult		The STATUS bits raised at the end of a transmission (TX_DS or MAX_RT).
+	 * @param txDelayMillis	The delay of the transmission in milliseconds.
+	 */
+	public void setTxResult(byte txResult, long txDelayMillis) {
+		this.txResult = txResult;
+		this.txDelayMillis = txDelayMillis;
+	}
+
+	public synchronized int getRxFifoSize() {
+		return rxFifo.size();
+	}
+
+	public synchronized int getSpiTransfers() {
+		return spiTransfers;
+	}
+
+	public synchronized int getSpiBatches() {
+		return spiBatches;
+	}
+
+	public boolean isChipEnable() {
+		return chipEnable;
+	}
+
+}
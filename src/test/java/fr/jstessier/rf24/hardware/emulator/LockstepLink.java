@@ -0,0 +1,191 @@
+package fr.jstessier.rf24.hardware.emulator;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.RxListener;
+import fr.jstessier.rf24.RxPacket;
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.hardware.RF24Hardware;
+
+/**
+ * Test fixture : a gateway (PRX, pipe 1) and a node (PTX) between emulated modules of a {@link VirtualMedium}
+ * on a virtual time.
+ * 
+ * The gateway has no radio thread : it runs in lockstep on the thread of the node, before each SPI transfer
+ * and each IRQ wait of the node. Its RX FIFO is drained and the payloads are published to its listeners
+ * (or the listeners are invoked as idle), as a {@link fr.jstessier.rf24.RF24RadioLoop} would do.
+ * With one thread, a virtual time and a seeded medium, the protocol tests are deterministic.
+ * 
+ * @author J.S. TESSIER
+ */
+public class LockstepLink {
+
+	/** The address of the pipe 1 of the gateway. */
+	public static final byte[] GATEWAY_ADDRESS = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 };
+
+	private final EmulatorScheduler scheduler = EmulatorScheduler.virtualTime();
+
+	private final VirtualMedium medium = new VirtualMedium(scheduler, 1);
+
+	private final RF24 gateway;
+
+	private final RF24 node;
+
+	/** The listeners of the gateway. */
+	private final List<RxListener> rxListeners = new ArrayList<>();
+
+	/** The packets read from the RX FIFO of the gateway (reused). */
+	private final RxPacket[] rxPackets = new RxPacket[] { new RxPacket(), new RxPacket(), new RxPacket() };
+
+	/**
+	 * Constructor : the reading pipe of the gateway and the writing pipe of the node are opened.
+	 * 
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public LockstepLink() throws RF24Exception {
+		gateway = new RF24(medium.createModule()).initialize();
+		gateway.openReadingPipe(DataPipe.P1, GATEWAY_ADDRESS);
+		node = new RF24(new LockstepHardware(medium.createModule())).initialize();
+		node.openWritingPipe(GATEWAY_ADDRESS);
+	}
+
+	public LockstepLink addRxListener(RxListener rxListener) {
+		rxListeners.add(rxListener);
+		return this;
+	}
+
+	/**
+	 * Start listening on the gateway and wait until it is in RX mode.
+	 * 
+	 * @return	The current LockstepLink instance.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public LockstepLink startReceiving() throws RF24Exception {
+		gateway.startListening();
+		scheduler.advance(RF24HardwareEmulator.TPD2STBY_NANOS + RF24HardwareEmulator.TSTBY2A_NANOS);
+		return this;
+	}
+
+	/**
+	 * Read the RX FIFO of the gateway and publish the payloads to the listeners, or invoke them as idle.
+	 * 
+	 * @return	The number of payloads published.
+	 * @throws RF24Exception	In case of communication error with RF Module.
+	 */
+	public int runGateway() throws RF24Exception {
+		if (!gateway.isListening()) {
+			return 0;
+		}
+		int total = 0;
+		int count;
+		do {
+			count = gateway.drainRx(rxPackets);
+			for (int i = 0; i < count; i++) {
+				for (RxListener rxListener : rxListeners) {
+					rxListener.onReceived(rxPackets[i]);
+				}
+			}
+			total += count;
+		} while (count == rxPackets.length);
+		if (total == 0) {
+			for (RxListener rxListener : rxListeners) {
+				rxListener.onIdle();
+			}
+		}
+		return total;
+	}
+
+	/* =======
+	 * Getters
+	 * ======= */
+
+	public EmulatorScheduler getScheduler() {
+		return scheduler;
+	}
+
+	public VirtualMedium getMedium() {
+		return medium;
+	}
+
+	/**
+	 * Return the gateway, to use on the thread of the node.
+	 * 
+	 * @return	The RF24 instance of the gateway.
+	 */
+	public RF24 getGateway() {
+		return gateway;
+	}
+
+	public RF24 getNode() {
+		return node;
+	}
+
+	/**
+	 * Module of the node : the gateway runs before each SPI transfer and each IRQ wait.
+	 */
+	private class LockstepHardware implements RF24Hardware {
+
+		private final RF24HardwareEmulator module;
+
+		private LockstepHardware(RF24HardwareEmulator module) {
+			this.module = module;
+		}
+
+		@Override
+		public void setPinChipEnableHigh() {
+			module.setPinChipEnableHigh();
+		}
+
+		@Override
+		public void setPinChipEnableLow() {
+			module.setPinChipEnableLow();
+		}
+
+		@Override
+		public byte[] spiWrite(byte... data) throws RF24Exception {
+			runGateway();
+			return module.spiWrite(data);
+		}
+
+		@Override
+		public void spiTransfer(byte[] buffer, int offset, int length) throws RF24Exception {
+			runGateway();
+			module.spiTransfer(buffer, offset, length);
+		}
+
+		@Override
+		public boolean isIrqAvailable() {
+			return true;
+		}
+
+		@Override
+		public boolean waitForIrq(long timeoutMicroseconds) throws RF24Exception {
+			runGateway();
+			return module.waitForIrq(timeoutMicroseconds);
+		}
+
+	}
+
+}
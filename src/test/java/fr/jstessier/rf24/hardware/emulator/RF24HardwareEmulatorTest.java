@@ -0,0 +1,250 @@
+package fr.jstessier.rf24.hardware.emulator;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.RF24TxStream;
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.TxStreamListener;
+import fr.jstessier.rf24.enums.AutomaticRetransmitDelay;
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.enums.DataRates;
+import fr.jstessier.rf24.enums.WritePayloadType;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadMaxRetriesException;
+
+/**
+ * Tests for RF24HardwareEmulator, driven by RF24 on a virtual time.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24HardwareEmulatorTest {
+
+	private static final byte[] ADDRESS = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 };
+
+	private EmulatorScheduler scheduler;
+
+	private RF24HardwareEmulator emulator;
+
+	private RF24 rf24;
+
+	@Before
+	public void setUp() throws RF24Exception {
+		scheduler = EmulatorScheduler.virtualTime();
+		emulator = new RF24HardwareEmulator(scheduler);
+		rf24 = new RF24(emulator);
+		rf24.setRegistersCacheVerification(true);
+		rf24.initialize();
+	}
+
+	@Test
+	public void initialize_registers_read_back() throws RF24Exception {
+		rf24.verifyRegistersCache();
+		assertEquals(76, rf24.getFrequencyChannel());
+		assertEquals(DataRates.DR_1_MBPS, rf24.getDataRates());
+		assertEquals(0b00001110, rf24.getStatus());
+		assertEquals(0b00010001, rf24.readRegisterValue(Registers.FIFO_STATUS));
+	}
+
+	@Test
+	public void tx_fifo_full_after_three_payloads() throws RF24Exception {
+		rf24.writePayload(WritePayloadType.W_TX_PAYLOAD, (byte) 1);
+		rf24.writePayload(WritePayloadType.W_TX_PAYLOAD, (byte) 2);
+		byte status = rf24.writePayload(WritePayloadType.W_TX_PAYLOAD, (byte) 3);
+		assertEquals(0, status & 1);
+		status = rf24.writePayload(WritePayloadType.W_TX_PAYLOAD, (byte) 4);
+		assertEquals(1, status & 1);
+		assertEquals(3, emulator.getTxFifoSize());
+		assertEquals(0b00100001, rf24.readRegisterValue(Registers.FIFO_STATUS));
+		rf24.flushTx();
+		assertEquals(0, emulator.getTxFifoSize());
+	}
+
+	@Test
+	public void sendPayload_without_receiver_ends_with_max_retries() throws RF24Exception {
+		rf24.openWritingPipe(ADDRESS);
+		try {
+			rf24.sendPayload((byte) 1, (byte) 2);
+			fail();
+		} catch (WritePayloadMaxRetriesException e) {
+			// 15 retransmissions then 1 lost packet
+			assertEquals(0x1F, rf24.readRegisterValue(Registers.OBSERVE_TX));
+			assertEquals(1, emulator.getTxFifoSize());
+		}
+	}
+
+	@Test
+	public void sendPayload_without_auto_acknowledgment_is_sent() throws RF24Exception {
+		rf24.disableAutoAcknowledgmentOnAllPipes();
+		rf24.openWritingPipe(ADDRESS);
+		rf24.sendPayload((byte) 1, (byte) 2);
+		assertEquals(0, emulator.getTxFifoSize());
+		assertEquals(0, rf24.readRegisterValue(Registers.OBSERVE_TX));
+	}
+
+	@Test
+	public void sendPayload_on_real_time_ends_with_max_retries() throws RF24Exception {
+		RF24 realTimeRf24 = new RF24(new RF24HardwareEmulator()).initialize();
+		realTimeRf24.setRetries(AutomaticRetransmitDelay.ARD_0250_US, (byte) 3);
+		realTimeRf24.openWritingPipe(ADDRESS);
+		try {
+			realTimeRf24.sendPayload((byte) 1);
+			fail();
+		} catch (WritePayloadMaxRetriesException e) {
+			assertEquals(0x13, realTimeRf24.readRegisterValue(Registers.OBSERVE_TX));
+		}
+	}
+
+	@Test
+	public void receive_in_rx_mode() throws RF24Exception {
+		rf24.openReadingPipe(DataPipe.P1, ADDRESS);
+		rf24.startListening();
+		AirPacket packet = new AirPacket(76, DataRates.DR_1_MBPS, ADDRESS, new byte[] { 7, 8, 9 }, 0, false, 2);
+		// Not listening before Tstby2a
+		assertNull(emulator.receive(packet));
+		scheduler.advance(RF24HardwareEmulator.TPD2STBY_NANOS + RF24HardwareEmulator.TSTBY2A_NANOS);
+		AirPacket ack = emulator.receive(packet);
+		assertNotNull(ack);
+		assertEquals(0, ack.getPayloadLength());
+		// The retransmitted packet is acknowledged but dropped
+		assertNotNull(emulator.receive(packet));
+		assertEquals(1, emulator.getRxFifoSize());
+		assertTrue(rf24.isRxDataAvailable(DataPipe.P1));
+		assertArrayEquals(new byte[] { 7, 8, 9 }, rf24.readPayload(rf24.getDynamicPayloadSize()));
+		assertFalse(rf24.isRxDataAvailable());
+	}
+
+	@Test
+	public void receive_dropped_without_ack_when_rx_fifo_full() throws RF24Exception {
+		rf24.openReadingPipe(DataPipe.P1, ADDRESS);
+		rf24.startListening();
+		scheduler.advance(RF24HardwareEmulator.TPD2STBY_NANOS + RF24HardwareEmulator.TSTBY2A_NANOS);
+		for (int i = 0; i < 3; i++) {
+			assertNotNull(emulator.receive(new AirPacket(76, DataRates.DR_1_MBPS, ADDRESS, new byte[] { (byte) i }, i, false, 2)));
+		}
+		assertNull(emulator.receive(new AirPacket(76, DataRates.DR_1_MBPS, ADDRESS, new byte[] { 3 }, 3, false, 2)));
+		assertEquals(0b00010010, rf24.readRegisterValue(Registers.FIFO_STATUS));
+	}
+
+	@Test
+	public void receive_returns_ack_payload() throws RF24Exception {
+		rf24.openReadingPipe(DataPipe.P0, ADDRESS);
+		rf24.startListening();
+		rf24.writeAckPayload(WritePayloadType.W_TX_PAYLOAD, (byte) 42);
+		scheduler.advance(RF24HardwareEmulator.TPD2STBY_NANOS + RF24HardwareEmulator.TSTBY2A_NANOS);
+		AirPacket ack = emulator.receive(new AirPacket(76, DataRates.DR_1_MBPS, ADDRESS, new byte[] { 1 }, 0, false, 2));
+		assertArrayEquals(new byte[] { 42 }, ack.getPayload());
+		assertEquals(0, emulator.getTxFifoSize());
+	}
+
+	@Test
+	public void ignore_other_channel() throws RF24Exception {
+		rf24.openReadingPipe(DataPipe.P1, ADDRESS);
+		rf24.startListening();
+		scheduler.advance(RF24HardwareEmulator.TPD2STBY_NANOS + RF24HardwareEmulator.TSTBY2A_NANOS);
+		assertNull(emulator.receive(new AirPacket(77, DataRates.DR_1_MBPS, ADDRESS, new byte[] { 1 }, 0, false, 2)));
+		assertEquals(0, rf24.readRegisterValue(Registers.RPD));
+	}
+
+	@Test
+	public void sendPayloadAndReadAckPayload_between_two_emulators() throws RF24Exception {
+		RF24HardwareEmulator receiverEmulator = new RF24HardwareEmulator(scheduler);
+		RF24 receiver = new RF24(receiverEmulator).initialize();
+		connect(emulator, receiverEmulator);
+		receiver.openReadingPipe(DataPipe.P0, ADDRESS);
+		receiver.startListening();
+		receiver.writeAckPayload(WritePayloadType.W_TX_PAYLOAD, (byte) 42);
+		scheduler.advance(RF24HardwareEmulator.TPD2STBY_NANOS + RF24HardwareEmulator.TSTBY2A_NANOS);
+
+		rf24.openWritingPipe(ADDRESS);
+		assertArrayEquals(new byte[] { 42 }, rf24.sendPayloadAndReadAckPayload((byte) 1, (byte) 2));
+		assertArrayEquals(new byte[] { 1, 2 }, receiver.readPayload(receiver.getDynamicPayloadSize()));
+	}
+
+	@Test
+	public void txStream_between_two_emulators() throws RF24Exception {
+		RF24HardwareEmulator receiverEmulator = new RF24HardwareEmulator(scheduler);
+		RF24 receiver = new RF24(receiverEmulator).initialize();
+		connect(emulator, receiverEmulator);
+		receiver.openReadingPipe(DataPipe.P1, ADDRESS);
+		receiver.startListening();
+		rf24.openWritingPipe(ADDRESS);
+
+		final List<Byte> delivered = new ArrayList<>();
+		final List<Byte> received = new ArrayList<>();
+		try (RF24TxStream stream = rf24.openTxStream(new TxStreamListener() {
+			@Override
+			public void onDelivered(byte[] payload) {
+				delivered.add(payload[0]);
+			}
+			@Override
+			public void onMaxRetries(byte[] payload) {
+				fail();
+			}
+		})) {
+			for (byte i = 0; i < 10; i++) {
+				stream.send(i);
+				while (receiver.isRxDataAvailable()) {
+					received.add(receiver.readPayload(receiver.getDynamicPayloadSize())[0]);
+				}
+			}
+			while (stream.getUnresolvedCount() > 0) {
+				stream.poll();
+				while (receiver.isRxDataAvailable()) {
+					received.add(receiver.readPayload(receiver.getDynamicPayloadSize())[0]);
+				}
+			}
+		}
+		assertEquals(10, delivered.size());
+		assertEquals(10, received.size());
+		for (byte i = 0; i < 10; i++) {
+			assertEquals(i, delivered.get(i).byteValue());
+			assertEquals(i, received.get(i).byteValue());
+		}
+	}
+
+	/**
+	 * Connect a transmitter to a receiver with a medium without loss.
+	 */
+	private void connect(RF24HardwareEmulator transmitter, final RF24HardwareEmulator receiver) {
+		transmitter.setMedium((source, packet, startTime, endTime) -> scheduler.schedule(endTime, () -> {
+			final AirPacket ack = receiver.receive(packet);
+			if (ack != null) {
+				long ackTime = endTime + RF24HardwareEmulator.TSTBY2A_NANOS + ack.getAirTimeNanos();
+				scheduler.schedule(ackTime, () -> source.receiveAck(ack));
+			}
+		}));
+	}
+
+}
@@ -0,0 +1,177 @@
+package fr.jstessier.rf24.hardware.emulator;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.enums.DataPipe;
+import fr.jstessier.rf24.enums.WritePayloadType;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadMaxRetriesException;
+
+/**
+ * Tests for VirtualMedium.
+ * 
+ * @author J.S. TESSIER
+ */
+public class VirtualMediumTest {
+
+	private static final byte[] ADDRESS = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 };
+
+	private EmulatorScheduler scheduler;
+
+	private VirtualMedium medium;
+
+	private RF24 receiver;
+
+	@Before
+	public void setUp() throws RF24Exception {
+		scheduler = EmulatorScheduler.virtualTime();
+		medium = new VirtualMedium(scheduler, 42);
+		receiver = new RF24(medium.createModule()).initialize();
+		receiver.openReadingPipe(DataPipe.P1, ADDRESS);
+		receiver.startListening();
+	}
+
+	@Test
+	public void sendPayload_delivered_without_loss() throws RF24Exception {
+		RF24 transmitter = createTransmitter();
+		transmitter.sendPayload((byte) 1, (byte) 2);
+		assertArrayEquals(new byte[] { 1, 2 }, receiver.readPayload(receiver.getDynamicPayloadSize()));
+		// The packet and its acknowledgment
+		assertEquals(2, medium.getTransmittedPacketsCount());
+		assertEquals(0, transmitter.readRegisterValue(Registers.OBSERVE_TX));
+	}
+
+	@Test
+	public void sendPayload_max_retries_when_all_packets_lost() throws RF24Exception {
+		medium.setLossProbability(1);
+		RF24 transmitter = createTransmitter();
+		try {
+			transmitter.sendPayload((byte) 1);
+			fail();
+		} catch (WritePayloadMaxRetriesException e) {
+			assertEquals(16, medium.getLostPacketsCount());
+			assertFalse(receiver.isRxDataAvailable());
+		}
+	}
+
+	@Test
+	public void sendPayload_other_channel_not_received() throws RF24Exception {
+		RF24 transmitter = createTransmitter();
+		transmitter.setFrequencyChannel((byte) 10);
+		try {
+			transmitter.sendPayload((byte) 1);
+			fail();
+		} catch (WritePayloadMaxRetriesException e) {
+			assertEquals(0, medium.getDeliveredPacketsCount());
+		}
+	}
+
+	@Test
+	public void sendPayload_other_address_not_delivered() throws RF24Exception {
+		RF24 transmitter = new RF24(medium.createModule()).initialize();
+		transmitter.openWritingPipe(new byte[] { 0x05, 0x04, 0x03, 0x02, 0x01 });
+		try {
+			transmitter.sendPayload((byte) 1);
+			fail();
+		} catch (WritePayloadMaxRetriesException e) {
+			assertEquals(0, medium.getDeliveredPacketsCount());
+			assertFalse(receiver.isRxDataAvailable());
+		}
+	}
+
+	@Test
+	public void sendPayload_delivered_count_packet_and_ack() throws RF24Exception {
+		RF24 transmitter = createTransmitter();
+		transmitter.sendPayload((byte) 1);
+		assertEquals(2, medium.getDeliveredPacketsCount());
+	}
+
+	@Test
+	public void overlapping_packets_collide() throws RF24Exception {
+		RF24HardwareEmulator module1 = medium.createModule();
+		RF24HardwareEmulator module2 = medium.createModule();
+		RF24 transmitter1 = createTransmitter(module1);
+		RF24 transmitter2 = createTransmitter(module2);
+		transmitter1.writePayload(WritePayloadType.W_TX_PAYLOAD, (byte) 1);
+		transmitter2.writePayload(WritePayloadType.W_TX_PAYLOAD, (byte) 2);
+		scheduler.advance(RF24HardwareEmulator.TPD2STBY_NANOS);
+		module1.setPinChipEnableHigh();
+		module2.setPinChipEnableHigh();
+		scheduler.advance(1000000);
+		assertEquals(2, medium.getCollidedPacketsCount());
+		module1.setPinChipEnableLow();
+		module2.setPinChipEnableLow();
+	}
+
+	@Test
+	public void same_seed_gives_same_results() throws RF24Exception {
+		assertEquals(runLossyScenario(7), runLossyScenario(7));
+	}
+
+	/**
+	 * Send payloads on a lossy medium and return the counters.
+	 */
+	private String runLossyScenario(long seed) throws RF24Exception {
+		scheduler = EmulatorScheduler.virtualTime();
+		medium = new VirtualMedium(scheduler, seed);
+		medium.setLossProbability(0.3);
+		receiver = new RF24(medium.createModule()).initialize();
+		receiver.openReadingPipe(DataPipe.P1, ADDRESS);
+		receiver.startListening();
+		RF24 transmitter = createTransmitter();
+		int delivered = 0;
+		for (byte i = 0; i < 20; i++) {
+			try {
+				transmitter.sendPayload(i);
+				delivered++;
+			} catch (WritePayloadMaxRetriesException e) {
+				transmitter.flushTx();
+			}
+			while (receiver.isRxDataAvailable()) {
+				receiver.readPayload(receiver.getDynamicPayloadSize());
+			}
+		}
+		assertTrue(medium.getLostPacketsCount() > 0);
+		return delivered + "/" + medium.getTransmittedPacketsCount() + "/" + medium.getLostPacketsCount()
+				+ "/" + scheduler.now();
+	}
+
+	private RF24 createTransmitter() throws RF24Exception {
+		return createTransmitter(medium.createModule());
+	}
+
+	private RF24 createTransmitter(RF24HardwareEmulator module) throws RF24Exception {
+		RF24 transmitter = new RF24(module).initialize();
+		transmitter.openWritingPipe(ADDRESS);
+		return transmitter;
+	}
+
+}
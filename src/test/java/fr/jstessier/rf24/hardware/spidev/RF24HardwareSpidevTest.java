@@ -0,0 +1,194 @@
+package fr.jstessier.rf24.hardware.spidev;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.hardware.emulator.EmulatorScheduler;
+import fr.jstessier.rf24.hardware.emulator.RF24HardwareEmulator;
+
+/**
+ * Tests for RF24HardwareSpidev, with fake SPI devices (loopback or emulated module) and fake GPIO lines.
+ * 
+ * @author J.S. TESSIER
+ */
+public class RF24HardwareSpidevTest {
+
+	/** GPIO line that records its values, an edge is raised by {@link #fall()}. */
+	private static class FakeGpioLine implements GpioLine {
+
+		private final List<Boolean> values = new ArrayList<>();
+
+		private boolean value = true;
+
+		@Override
+		public synchronized void setValue(boolean value) {
+			this.value = value;
+			values.add(value);
+		}
+
+		@Override
+		public synchronized boolean getValue() {
+			return value;
+		}
+
+		@Override
+		public synchronized boolean waitForEdge(long timeoutMicroseconds) throws IOException {
+			try {
+				wait(Math.max(timeoutMicroseconds / 1000, 1));
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			return !value;
+		}
+
+		synchronized void fall() {
+			value = false;
+			notifyAll();
+		}
+
+	}
+
+	private final FakeGpioLine pinChipEnable = new FakeGpioLine();
+
+	/** Lengths of the transfers of each call of the loopback SPI device. */
+	private final List<int[]> loopbackCalls = new ArrayList<>();
+
+	/** SPI device with MISO connected to MOSI : the received bytes are the sent bytes. */
+	private final SpiTransport loopback = (buffer, lengths, count) -> {
+		int[] copy = new int[count];
+		System.arraycopy(lengths, 0, copy, 0, count);
+		loopbackCalls.add(copy);
+	};
+
+	@Test
+	public void chip_enable_written_on_gpio_line() throws IOException {
+		try (RF24HardwareSpidev hardware = new RF24HardwareSpidev(loopback, pinChipEnable, null)) {
+			hardware.setPinChipEnableHigh();
+			hardware.setPinChipEnableLow();
+			assertEquals(2, pinChipEnable.values.size());
+			assertTrue(pinChipEnable.values.get(0));
+			assertFalse(pinChipEnable.values.get(1));
+			assertFalse(hardware.isIrqAvailable());
+		}
+	}
+
+	@Test
+	public void waitForIrq_on_falling_edge() throws Exception {
+		final FakeGpioLine pinIrq = new FakeGpioLine();
+		try (RF24HardwareSpidev hardware = new RF24HardwareSpidev(loopback, pinChipEnable, pinIrq)) {
+			assertTrue(hardware.isIrqAvailable());
+			assertFalse(hardware.waitForIrq(2000));
+			Thread irq = new Thread(() -> {
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					// NOP
+				}
+				pinIrq.fall();
+			});
+			irq.start();
+			assertTrue(hardware.waitForIrq(1000000));
+			irq.join();
+			// The IRQ pin stays active : no wait
+			assertTrue(hardware.waitForIrq(0));
+		}
+	}
+
+	@Test
+	public void batch_submitted_in_one_call() throws Exception {
+		try (RF24HardwareSpidev hardware = new RF24HardwareSpidev(loopback, pinChipEnable, null)) {
+			byte[] buffer = new byte[] { 9, 1, 2, 3, 4, 5, 6 };
+
+			hardware.spiTransfers(buffer, 1, new int[] { 2, 4 }, 2);
+			assertArrayEquals(new byte[] { 9, 1, 2, 3, 4, 5, 6 }, buffer);
+			assertEquals(1, loopbackCalls.size());
+			assertArrayEquals(new int[] { 2, 4 }, loopbackCalls.get(0));
+
+			assertArrayEquals(new byte[] { 7, 8 }, hardware.spiWrite((byte) 7, (byte) 8));
+			ByteBuffer direct = ByteBuffer.allocateDirect(3);
+			hardware.spiTransfer(direct);
+			assertEquals(3, loopbackCalls.size());
+		}
+	}
+
+	@Test
+	public void large_batch_split_in_chunks() throws Exception {
+		try (RF24HardwareSpidev hardware = new RF24HardwareSpidev(loopback, pinChipEnable, null)) {
+			int[] lengths = new int[SpidevTransport.MAX_TRANSFERS_COUNT + 4];
+			for (int i = 0; i < lengths.length; i++) {
+				lengths[i] = 2;
+			}
+			byte[] buffer = new byte[lengths.length * 2];
+			for (int i = 0; i < buffer.length; i++) {
+				buffer[i] = (byte) i;
+			}
+
+			hardware.spiTransfers(buffer, 0, lengths, lengths.length);
+			assertEquals(2, loopbackCalls.size());
+			assertEquals(SpidevTransport.MAX_TRANSFERS_COUNT, loopbackCalls.get(0).length);
+			assertEquals(4, loopbackCalls.get(1).length);
+			for (int i = 0; i < buffer.length; i++) {
+				assertEquals((byte) i, buffer[i]);
+			}
+		}
+	}
+
+	@Test
+	public void rf24_through_emulated_spi_device() throws IOException, RF24Exception {
+		final RF24HardwareEmulator emulator = new RF24HardwareEmulator(EmulatorScheduler.virtualTime());
+		final SpiTransport emulatedDevice = (buffer, lengths, count) -> {
+			int position = buffer.position();
+			for (int i = 0; i < count; i++) {
+				byte[] transfer = new byte[lengths[i]];
+				((ByteBuffer) buffer.duplicate().position(position)).get(transfer);
+				try {
+					emulator.spiTransfer(transfer, 0, transfer.length);
+				} catch (RF24Exception e) {
+					throw new IOException(e);
+				}
+				((ByteBuffer) buffer.duplicate().position(position)).put(transfer);
+				position += lengths[i];
+			}
+		};
+		try (RF24HardwareSpidev hardware = new RF24HardwareSpidev(emulatedDevice, pinChipEnable, null)) {
+			RF24 rf24 = new RF24(hardware);
+			rf24.setRegistersCacheVerification(true);
+			rf24.initialize();
+			rf24.setFrequencyChannel((byte) 100);
+
+			rf24.verifyRegistersCache();
+			assertEquals(100, rf24.getFrequencyChannel());
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package fr.jstessier.rf24.hopping;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.enums.AutomaticRetransmitDelay;
+import fr.jstessier.rf24.hardware.emulator.LockstepLink;
+
+/**
+ * Tests for FrequencyHoppingSender and FrequencyHoppingReceiver, between emulated modules (virtual time).
+ * 
+ * @author J.S. TESSIER
+ */
+public class FrequencyHoppingTest {
+
+	private static final long SEED = 0x5EEDL;
+
+	private static final ChannelMap ALLOWED_CHANNELS = ChannelMap.range(0, 39);
+
+	private LockstepLink link;
+
+	private FrequencyHoppingReceiver receiver;
+
+	private RF24 node;
+
+	private final BitSet received = new BitSet();
+
+	@Before
+	public void setUp() throws Exception {
+		link = new LockstepLink();
+		receiver = new FrequencyHoppingReceiver(link.getGateway(), SEED, ALLOWED_CHANNELS,
+				(data, offset, length) -> received.set(((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF)))
+				.setSyncTimeoutMillis(400).setTimeSource(link.getScheduler()::now);
+		link.addRxListener(receiver).startReceiving();
+		receiver.start();
+
+		node = link.getNode();
+		node.setRetries(AutomaticRetransmitDelay.ARD_0250_US, (byte) 3);
+	}
+
+	@Test
+	public void hop_sequence_only_uses_usable_channels() {
+		ChannelMap channelMap = ChannelMap.range(10, 29).setUsable(15, false);
+		byte[] channels = new HopSequence(SEED).getChannels(channelMap);
+
+		assertEquals(HopSequence.LENGTH, channels.length);
+		BitSet visited = new BitSet();
+		for (byte channel : channels) {
+			assertTrue(channelMap.isUsable(channel));
+			visited.set(channel);
+		}
+		assertEquals(19, visited.cardinality());
+		assertArrayEquals(channels, new HopSequence(SEED).getChannels(channelMap.copy()));
+		assertFalse(Arrays.equals(channels, new HopSequence(SEED + 1).getChannels(channelMap)));
+
+		byte[] frame = new byte[HoppingFrames.MAP_SIZE];
+		channelMap.write(frame, HoppingFrames.HEADER_SIZE);
+		assertEquals(channelMap, ChannelMap.read(frame, HoppingFrames.HEADER_SIZE));
+	}
+
+	@Test
+	public void jammed_channels_are_blacklisted() throws Exception {
+		// Interference on the channels of the first hops
+		List<Integer> jammedChannels = new ArrayList<>();
+		byte[] channels = new HopSequence(SEED).getChannels(ALLOWED_CHANNELS);
+		for (int i = 1; jammedChannels.size() < 4; i++) {
+			if (!jammedChannels.contains((int) channels[i])) {
+				jammedChannels.add((int) channels[i]);
+				link.getMedium().setChannelLossProbability(channels[i], 1);
+			}
+		}
+		FrequencyHoppingSender sender = new FrequencyHoppingSender(node, SEED, ALLOWED_CHANNELS)
+				.setPacketsPerHop(2).setQualityWindow(1).setMinUsableChannels(10).setMaxAttempts(4000).start();
+
+		for (int i = 0; i < 400; i++) {
+			sender.send((byte) (i >>> 8), (byte) i, (byte) 0xAA);
+		}
+
+		// The last frames may not be published yet
+		link.runGateway();
+		assertEquals(400, received.cardinality());
+		assertTrue(sender.getFailedFramesCount() > 0);
+		for (int channel : jammedChannels) {
+			assertTrue(sender.isBlacklisted(channel));
+			assertFalse(sender.getChannelMap().isUsable(channel));
+		}
+		assertTrue(sender.getChannelMap().getUsableChannelsCount() <= 36);
+		assertEquals(sender.getChannelMap(), receiver.getChannelMap());
+		assertEquals(400, sender.getSentFramesCount());
+	}
+
+}
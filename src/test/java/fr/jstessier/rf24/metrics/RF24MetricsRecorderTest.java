@@ -0,0 +1,124 @@
+package fr.jstessier.rf24.metrics;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.SpiCommands;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadMaxRetriesException;
+import fr.jstessier.rf24.hardware.RF24HardwareFake;
+
+public class RF24MetricsRecorderTest {
+
+	@Test
+	public void latencyHistogram_buckets_and_percentiles() {
+		assertEquals(7, LatencyHistogram.getBucketIndex(7));
+		assertEquals(8, LatencyHistogram.getBucketIndex(8));
+		assertEquals(17, LatencyHistogram.getBucketUpperBound(LatencyHistogram.getBucketIndex(16)));
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i * 1000);
+		}
+		assertEquals(100, histogram.getTotalCount());
+		long p50 = histogram.getValueAtPercentile(50);
+		assertTrue(p50 >= 50000 && p50 < 50000 * 1.125);
+		long max = histogram.getMaxValue();
+		assertTrue(max >= 100000 && max < 100000 * 1.125);
+	}
+
+	@Test
+	public void spi_transfers_and_tx_outcomes_recorded() throws RF24Exception {
+		RF24MetricsRecorder metrics = new RF24MetricsRecorder();
+		RF24HardwareFake hardware = new RF24HardwareFake();
+		RF24 rf24 = new RF24(new RF24HardwareMetrics(hardware, metrics));
+		rf24.setMetrics(metrics);
+		hardware.setIrqAvailable(true);
+		hardware.setTxResult((byte) 0b00100000, 0);
+		// PLOS_CNT = 2, ARC_CNT = 3
+		hardware.setRegister(Registers.OBSERVE_TX.getAddress(), (byte) 0x23);
+
+		rf24.sendPayload((byte) 1, (byte) 2, (byte) 3);
+
+		assertEquals(hardware.getSpiTransfers(), metrics.getSpiTransfersCount());
+		assertEquals(1, metrics.getSpiCommandsCounts().get(SpiCommands.W_TX_PAYLOAD.getName()).longValue());
+		assertTrue(metrics.getSpiBytesCount() >= 4);
+		assertTrue(metrics.getSpiLatencyMaxNanos() >= metrics.getSpiLatencyP50Nanos());
+		assertEquals(1, metrics.getTxDeliveredCount());
+		assertEquals(3, metrics.getRetransmittedPacketsCount());
+		assertEquals(2, metrics.getLostPacketsCount());
+
+		hardware.setTxResult((byte) 0b00010000, 0);
+		hardware.setRegister(Registers.OBSERVE_TX.getAddress(), (byte) 0x5F);
+		try {
+			rf24.sendPayload((byte) 1);
+		} catch (WritePayloadMaxRetriesException e) {
+			// Expected
+		}
+		assertEquals(1, metrics.getTxMaxRetriesCount());
+		assertEquals(18, metrics.getRetransmittedPacketsCount());
+		assertEquals(5, metrics.getLostPacketsCount());
+
+		metrics.reset();
+		assertEquals(0, metrics.getSpiTransfersCount());
+		assertEquals(0, metrics.getTxMaxRetriesCount());
+	}
+
+	@Test
+	public void each_transfer_of_a_large_batch_recorded() throws RF24Exception {
+		RF24MetricsRecorder metrics = new RF24MetricsRecorder();
+		RF24HardwareMetrics hardware = new RF24HardwareMetrics(new RF24HardwareFake(), metrics);
+		int count = 20;
+		byte[] buffer = new byte[count];
+		int[] lengths = new int[count];
+		for (int i = 0; i < count; i++) {
+			buffer[i] = (byte) 0xFF;
+			lengths[i] = 1;
+		}
+
+		hardware.spiTransfers(buffer, 0, lengths, count);
+
+		assertEquals(count, metrics.getSpiTransfersCount());
+		assertEquals(count, metrics.getSpiCommandsCounts().get(SpiCommands.NOP.getName()).longValue());
+	}
+
+	@Test
+	public void registerMBean_exposes_metrics() throws JMException {
+		RF24MetricsRecorder metrics = new RF24MetricsRecorder();
+		metrics.onSpiTransfer(SpiCommands.NOP.getCommand(), 1, 1000);
+		ObjectName objectName = metrics.registerMBean("test");
+		try {
+			assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "SpiTransfersCount"));
+		} finally {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+package fr.jstessier.rf24.power;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.enums.OutputPower;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.exceptions.WritePayloadMaxRetriesException;
+import fr.jstessier.rf24.hardware.RF24HardwareFake;
+
+public class TxPowerControllerTest {
+
+	private static final byte[] NEAR_ADDRESS = new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 };
+
+	private static final byte[] FAR_ADDRESS = new byte[] { 0x02, 0x02, 0x03, 0x04, 0x05 };
+
+	private static final byte[] LOST_ADDRESS = new byte[] { 0x03, 0x02, 0x03, 0x04, 0x05 };
+
+	private RF24 rf24;
+
+	private TxPowerController controller;
+
+	@Before
+	public void setUp() throws RF24Exception {
+		// The retransmissions follow the difference between the output power and the power required by the destination
+		RF24HardwareFake hardware = new RF24HardwareFake() {
+			@Override
+			public synchronized void setPinChipEnableHigh() {
+				int required = getRegister(Registers.TX_ADDR.getAddress()) == 0x01 ? OutputPower.RF_M_18_DBM.ordinal()
+						: (getRegister(Registers.TX_ADDR.getAddress()) == 0x02 ? OutputPower.RF_M_6_DBM.ordinal() : 4);
+				int deficit = required - ((getRegister(Registers.RF_SETUP.getAddress()) >>> 1) & 0b11);
+				setRegister(Registers.OBSERVE_TX.getAddress(), (byte) (deficit <= 0 ? 0 : (deficit == 1 ? 3 : 15)));
+				setTxResult(deficit <= 1 ? (byte) 0b00100000 : (byte) 0b00010000, 0);
+				super.setPinChipEnableHigh();
+			}
+		};
+		hardware.setRegister(Registers.SETUP_AW.getAddress(), (byte) 0b11);
+		rf24 = new RF24(hardware);
+		rf24.setDataRatesAndOutputPower(rf24.getDataRates(), OutputPower.RF_0_DBM);
+		controller = new TxPowerController(rf24).setQualityWindow(4).setStepDownWindows(2);
+	}
+
+	@Test
+	public void each_destination_uses_the_lowest_good_power() throws RF24Exception {
+		for (int i = 0; i < 100; i++) {
+			OutputPower nearOutputPower = controller.getOutputPower(NEAR_ADDRESS);
+			controller.send(NEAR_ADDRESS, (byte) i);
+			assertEquals(nearOutputPower, rf24.getOutputPower());
+			controller.send(FAR_ADDRESS, (byte) i);
+		}
+
+		assertEquals(OutputPower.RF_M_18_DBM, controller.getOutputPower(NEAR_ADDRESS));
+		assertEquals(0, controller.getLink(NEAR_ADDRESS).getRetransmittedPacketsCount());
+		// -12 dBm is tried again after 2, 4 then 8 good windows at -6 dBm
+		LinkPower far = controller.getLink(FAR_ADDRESS);
+		assertEquals(OutputPower.RF_M_6_DBM, far.getOutputPower());
+		assertEquals(3 * 4 * 3, far.getRetransmittedPacketsCount());
+		assertEquals(0, far.getFailedFramesCount());
+		assertEquals(1 + 2 * 3, far.getPowerChangesCount());
+		assertEquals(2, controller.getLinks().size());
+	}
+
+	@Test
+	public void failure_raises_power_at_once() throws RF24Exception {
+		controller.setOutputPowerRange(OutputPower.RF_M_18_DBM, OutputPower.RF_M_12_DBM);
+		assertNull(controller.getLink(LOST_ADDRESS));
+		assertEquals(OutputPower.RF_M_12_DBM, controller.getOutputPower(LOST_ADDRESS));
+
+		try {
+			controller.send(LOST_ADDRESS, (byte) 1);
+			fail("WritePayloadMaxRetriesException expected");
+		} catch (WritePayloadMaxRetriesException e) {
+			// Expected
+		}
+
+		LinkPower lost = controller.getLink(LOST_ADDRESS);
+		assertEquals(1, lost.getFailedFramesCount());
+		assertEquals(OutputPower.RF_M_12_DBM, lost.getOutputPower());
+		assertEquals(OutputPower.RF_M_12_DBM, rf24.getOutputPower());
+
+		controller.reset(LOST_ADDRESS);
+		assertNull(controller.getLink(LOST_ADDRESS));
+	}
+
+	@Test
+	public void reset_forgets_the_last_destination() throws RF24Exception {
+		controller.send(NEAR_ADDRESS, (byte) 1);
+		LinkPower near = controller.getLink(NEAR_ADDRESS);
+		controller.send(NEAR_ADDRESS, (byte) 2);
+		assertSame(near, controller.getLink(NEAR_ADDRESS));
+		assertEquals(2, near.getDeliveredFramesCount());
+
+		controller.reset(NEAR_ADDRESS);
+		controller.send(NEAR_ADDRESS, (byte) 3);
+		assertNotSame(near, controller.getLink(NEAR_ADDRESS));
+		assertEquals(1, controller.getLink(NEAR_ADDRESS).getDeliveredFramesCount());
+	}
+
+}
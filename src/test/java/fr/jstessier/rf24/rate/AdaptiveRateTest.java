@@ -0,0 +1,98 @@
+package fr.jstessier.rf24.rate;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.enums.DataRates;
+import fr.jstessier.rf24.hardware.emulator.LockstepLink;
+
+/**
+ * Tests for AdaptiveRateSender and AdaptiveRateReceiver, between emulated modules (virtual time).
+ * 
+ * @author J.S. TESSIER
+ */
+public class AdaptiveRateTest {
+
+	private LockstepLink link;
+
+	private AdaptiveRateReceiver receiver;
+
+	private AdaptiveRateSender sender;
+
+	private final BitSet received = new BitSet();
+
+	@Before
+	public void setUp() throws Exception {
+		link = new LockstepLink();
+		receiver = new AdaptiveRateReceiver(link.getGateway(),
+				(data, offset, length) -> received.set(((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF)))
+				.setSyncTimeoutMillis(200).setTimeSource(link.getScheduler()::now);
+		link.addRxListener(receiver).startReceiving();
+		receiver.start();
+
+		sender = new AdaptiveRateSender(link.getNode()).setQualityWindow(16).setStepUpWindows(2).setMaxAttempts(1000).start();
+	}
+
+	@Test
+	public void good_link_steps_up_to_2_mbps() throws Exception {
+		send(0, 200);
+
+		assertEquals(LinkProfile.FAST, sender.getProfile());
+		assertEquals(LinkProfile.FAST, receiver.getProfile());
+		assertEquals(DataRates.DR_2_MBPS, link.getGateway().getDataRates());
+		assertEquals(2, receiver.getProfileChangesCount());
+		assertReceived(200);
+	}
+
+	@Test
+	public void marginal_link_steps_down_without_losing_data() throws Exception {
+		send(0, 200);
+		assertEquals(LinkProfile.FAST, sender.getProfile());
+
+		link.getMedium().setLossProbability(0.5);
+		send(200, 300);
+
+		assertEquals(LinkProfile.ROBUST, sender.getProfile());
+		assertTrue(sender.getFailedFramesCount() > 0);
+		// The last frames may not be published yet
+		link.runGateway();
+		assertEquals(LinkProfile.ROBUST, receiver.getProfile());
+		assertReceived(300);
+	}
+
+	private void send(int from, int to) throws Exception {
+		for (int i = from; i < to; i++) {
+			sender.send((byte) (i >>> 8), (byte) i, (byte) 0xAA);
+		}
+	}
+
+	private void assertReceived(int count) throws Exception {
+		link.runGateway();
+		assertEquals(count, received.cardinality());
+	}
+
+}
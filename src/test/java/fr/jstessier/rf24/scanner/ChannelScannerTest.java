@@ -0,0 +1,92 @@
+package fr.jstessier.rf24.scanner;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.Registers;
+import fr.jstessier.rf24.exceptions.RF24Exception;
+import fr.jstessier.rf24.hardware.RF24HardwareFake;
+
+public class ChannelScannerTest {
+
+	/** Channels with a signal. */
+	private static final List<Integer> BUSY_CHANNELS = Arrays.asList(10, 11, 12, 60);
+
+	private RF24 rf24;
+
+	@Before
+	public void setUp() throws RF24Exception {
+		// The RPD register follows the selected channel
+		RF24HardwareFake hardware = new RF24HardwareFake() {
+			@Override
+			public synchronized void setPinChipEnableHigh() {
+				super.setPinChipEnableHigh();
+				boolean busy = BUSY_CHANNELS.contains((int) getRegister(Registers.RF_CH.getAddress()));
+				setRegister(Registers.RPD.getAddress(), (byte) (busy ? 1 : 0));
+			}
+		};
+		rf24 = new RF24(hardware);
+		rf24.setFrequencyChannel((byte) 76);
+	}
+
+	@Test
+	public void scan_builds_occupancy_and_restores_mode() throws RF24Exception {
+		ChannelOccupancy occupancy = new ChannelScanner(rf24).setSamplesPerChannel(3).scan(2);
+
+		assertEquals(6, occupancy.getSamplesCount(0));
+		assertEquals(6, occupancy.getDetectionsCount(11));
+		assertEquals(1, occupancy.getOccupancy(60), 0);
+		assertEquals(0, occupancy.getOccupancy(76), 0);
+		for (byte channel : occupancy.getLeastCongestedChannels(100)) {
+			assertFalse(BUSY_CHANNELS.contains((int) channel));
+		}
+		// Adjacent channels of a busy channel are less preferred
+		assertEquals(0, occupancy.getLeastCongestedChannels(1)[0]);
+		assertEquals(76, rf24.getFrequencyChannel());
+		assertFalse(rf24.isListening());
+	}
+
+	@Test
+	public void monitor_streams_sweeps_until_stopped() throws RF24Exception {
+		final ChannelScanner scanner = new ChannelScanner(rf24).setChannelsRange(8, 14).setSamplesPerChannel(1);
+		ChannelOccupancy total = scanner.monitor((sweepIndex, sweep, cumulated) -> {
+			assertEquals(1, sweep.getDetectionsCount(10));
+			assertEquals(sweepIndex + 1, cumulated.getSamplesCount(8));
+			if (sweepIndex == 4) {
+				scanner.stop();
+			}
+		});
+		assertEquals(5, total.getSamplesCount(14));
+		assertEquals(0, total.getSamplesCount(15));
+		assertArrayEquals(new byte[] { 8, 14, 9 }, total.getLeastCongestedChannels(3));
+		assertEquals(7, total.getLeastCongestedChannels(10).length);
+	}
+
+}
@@ -0,0 +1,118 @@
+package fr.jstessier.rf24.stream;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.jstessier.rf24.RF24;
+import fr.jstessier.rf24.exceptions.WritePayloadTimeoutException;
+import fr.jstessier.rf24.hardware.emulator.EmulatorScheduler;
+import fr.jstessier.rf24.hardware.emulator.LockstepLink;
+import fr.jstessier.rf24.hardware.emulator.RF24HardwareEmulator;
+
+/**
+ * Tests for ReliableStreamSender and ReliableStreamReceiver, between emulated modules (virtual time).
+ * 
+ * @author J.S. TESSIER
+ */
+public class ReliableStreamTest {
+
+	private LockstepLink link;
+
+	private RF24 node;
+
+	private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+	@Before
+	public void setUp() throws Exception {
+		link = new LockstepLink();
+		link.addRxListener(new ReliableStreamReceiver(link.getGateway(), received::write)).startReceiving();
+		node = link.getNode();
+	}
+
+	private byte[] getReceived() throws Exception {
+		link.runGateway();
+		return received.toByteArray();
+	}
+
+	@Test
+	public void stream_is_received_in_order() throws Exception {
+		byte[] data = new byte[5000];
+		new Random(1).nextBytes(data);
+		ReliableStreamSender sender = new ReliableStreamSender(node);
+
+		sender.send(data, 0, 3000);
+		sender.send(data, 3000, 2000);
+
+		assertArrayEquals(data, getReceived());
+		assertEquals(0, sender.getRetransmittedFramesCount());
+		// Far less acknowledged packets than frames
+		assertTrue(sender.getPollsCount() < sender.getSentFramesCount() / 4);
+	}
+
+	@Test
+	public void lost_frames_are_sent_again() throws Exception {
+		byte[] data = new byte[3000];
+		new Random(2).nextBytes(data);
+		link.getMedium().setLossProbability(0.2);
+		ReliableStreamSender sender = new ReliableStreamSender(node, 16);
+
+		sender.send(data);
+
+		assertArrayEquals(data, getReceived());
+		assertTrue(sender.getRetransmittedFramesCount() > 0);
+	}
+
+	@Test
+	public void lost_poll_is_removed_from_the_tx_fifo() throws Exception {
+		// Nobody receives the frames : the POLL reaches the max retries
+		RF24HardwareEmulator alone = new RF24HardwareEmulator(EmulatorScheduler.virtualTime());
+		RF24 rf24 = new RF24(alone).initialize();
+		rf24.openWritingPipe(LockstepLink.GATEWAY_ADDRESS);
+		ReliableStreamSender sender = new ReliableStreamSender(rf24);
+		sender.setMaxPollsWithoutProgress(1);
+		try {
+			sender.send(new byte[10]);
+			throw new AssertionError("WritePayloadTimeoutException expected");
+		} catch (WritePayloadTimeoutException e) {
+			assertEquals(0, alone.getTxFifoSize());
+		}
+	}
+
+	@Test
+	public void sack_frame_format() {
+		byte[] sack = new byte[StreamFrames.SACK_SIZE];
+		StreamFrames.writeSack(sack, (byte) -3, 0xFFFE, 0x8000000000000005L);
+		assertEquals(StreamFrames.TYPE_SACK, StreamFrames.getType(sack, sack.length));
+		assertEquals(-3, StreamFrames.getSackPollNumber(sack));
+		assertEquals(0xFFFE, StreamFrames.getSackNextSequence(sack));
+		assertEquals(0x8000000000000005L, StreamFrames.getSackBitmap(sack));
+		assertEquals(3, StreamFrames.distance(1, 0xFFFE));
+	}
+
+}
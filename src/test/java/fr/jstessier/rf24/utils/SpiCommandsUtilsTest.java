@@ -20,6 +20,7 @@ package fr.jstessier.rf24.utils;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import org.junit.Test;
 
@@ -69,4 +70,24 @@ public class SpiCommandsUtilsTest {
 		SpiCommandsUtils.checkDataLength(SpiCommands.R_RX_PAYLOAD, new byte[33]);
 	}
 
+	@Test
+	public void checkLength_OK() {
+		SpiCommandsUtils.checkLength(SpiCommands.W_TX_PAYLOAD, 32);
+	}
+
+	@Test(expected = SpiCommandRequestLengthException.class)
+	public void checkLength_KO() {
+		SpiCommandsUtils.checkLength(SpiCommands.NOP, 1);
+	}
+
+	@Test
+	public void getSpiCommandFromValue() {
+		assertEquals(SpiCommands.R_REGISTER, SpiCommandsUtils.getSpiCommandFromValue((byte) 0x17));
+		assertEquals(SpiCommands.W_REGISTER, SpiCommandsUtils.getSpiCommandFromValue((byte) 0x27));
+		assertEquals(SpiCommands.W_ACK_PAYLOAD, SpiCommandsUtils.getSpiCommandFromValue((byte) 0xAD));
+		assertEquals(SpiCommands.R_RX_PL_WID, SpiCommandsUtils.getSpiCommandFromValue((byte) 0x60));
+		assertEquals(SpiCommands.NOP, SpiCommandsUtils.getSpiCommandFromValue((byte) 0xFF));
+		assertNull(SpiCommandsUtils.getSpiCommandFromValue((byte) 0x50));
+	}
+
 }
@@ -0,0 +1,84 @@
+package fr.jstessier.rf24.utils;
+
+/*
+ * Copyright (C) 2015 J.S. TESSIER
+ * 
+ * This file is part of java-rf24.
+ * 
+ * java-rf24 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * java-rf24 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with java-rf24. If not, see <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for ThreadUtils.
+ * 
+ * @author J.S. TESSIER
+ */
+public class ThreadUtilsTest {
+
+	@Test
+	public void delayNanos_waits_at_least_the_delay() {
+		for (long delay : new long[] { 1000, 10000, 130000, 2000000 }) {
+			assertTrue(ThreadUtils.delayNanos(delay) >= delay);
+		}
+	}
+
+	@Test
+	public void delayMicroseconds_short_delay_is_accurate() {
+		ThreadUtils.calibrate();
+		long[] achieved = new long[21];
+		for (int i = 0; i < achieved.length; i++) {
+			achieved[i] = ThreadUtils.delayNanos(10000);
+		}
+		Arrays.sort(achieved);
+		// Thread.sleep(0, 10000) sleeps 50µs or more, the hybrid delay must stay close to 10µs
+		assertTrue(achieved[achieved.length / 2] < 50000);
+	}
+
+	@Test
+	public void delayNanos_interrupted_returns_early() {
+		Thread.currentThread().interrupt();
+		assertTrue(ThreadUtils.delayNanos(100000000) < 50000000);
+		assertTrue(Thread.interrupted());
+	}
+
+	@Test
+	public void delay_interrupted_returns_early() {
+		Thread.currentThread().interrupt();
+		long startTime = System.nanoTime();
+		ThreadUtils.delay(100);
+		assertTrue(System.nanoTime() - startTime < 50000000);
+		assertTrue(Thread.interrupted());
+	}
+
+	@Test
+	public void setSpinThresholdNanos_capped() {
+		long threshold = ThreadUtils.getSpinThresholdNanos();
+		ThreadUtils.setSpinThresholdNanos(1000000);
+		assertEquals(ThreadUtils.MAX_SPIN_THRESHOLD_NANOS, ThreadUtils.getSpinThresholdNanos());
+		ThreadUtils.setSpinThresholdNanos(threshold);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setSpinThresholdNanos_negative() {
+		ThreadUtils.setSpinThresholdNanos(-1);
+	}
+
+}